@@ -0,0 +1,44 @@
+package gov.nasa.jpl.benchmarks;
+
+import gov.nasa.jpl.engine.ModelingEngine;
+import gov.nasa.jpl.engine.ModelingEngineType;
+import gov.nasa.jpl.resource.ResourceList;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times a full model run of a synthetic plan on each engine. A run of a big plan takes seconds, so each measurement
+ * is one run, and the resource histories are reset between them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx16g", "-Djava.library.path=lib"})
+public class EngineBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    public int activities;
+
+    @Param({"FUNCTIONAL_WAIT", "DIRECT_HANDOFF"})
+    public ModelingEngineType engineType;
+
+    @Setup(Level.Trial)
+    public void createPlan() {
+        SyntheticPlans.initializeEngine(engineType);
+        SyntheticPlans.clearPlan();
+        SyntheticPlans.createPlan(activities);
+    }
+
+    @Setup(Level.Iteration)
+    public void resetHistories() {
+        ResourceList.getResourceList().resetResourceHistories();
+        ModelingEngine.getEngine().resetEngine();
+    }
+
+    @Benchmark
+    public void model() {
+        ModelingEngine.getEngine().model();
+    }
+}
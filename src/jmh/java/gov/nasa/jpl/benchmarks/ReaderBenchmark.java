@@ -0,0 +1,68 @@
+package gov.nasa.jpl.benchmarks;
+
+import gov.nasa.jpl.activity.ActivityInstanceList;
+import gov.nasa.jpl.constraint.ConstraintInstanceList;
+import gov.nasa.jpl.engine.ModelingEngine;
+import gov.nasa.jpl.input.HistoryReader;
+import gov.nasa.jpl.input.SnapshotHistoryReader;
+import gov.nasa.jpl.input.parallel.ParallelDirectoryReader;
+import gov.nasa.jpl.output.TOLWriter;
+import gov.nasa.jpl.output.parallel.ParallelDirectoryWriter;
+import gov.nasa.jpl.output.snapshot.SnapshotWriter;
+import gov.nasa.jpl.resource.ResourceList;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times reading a modeled synthetic plan back in from the formats meant for fast loading. The file is written once,
+ * and the plan is cleared before every read.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx16g", "-Djava.library.path=lib"})
+public class ReaderBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    public int activities;
+
+    @Param({"dir", "bbsnap"})
+    public String format;
+
+    private File directory;
+    private String fileName;
+
+    @Setup(Level.Trial)
+    public void writePlan() throws IOException {
+        SyntheticPlans.initializeEngine();
+        SyntheticPlans.clearPlan();
+        SyntheticPlans.createPlan(activities);
+        ModelingEngine.getEngine().model();
+
+        directory = Files.createTempDirectory("blackbird-benchmark").toFile();
+        fileName = new File(directory, "plan." + format).getPath();
+        TOLWriter writer = format.equals("dir") ? new ParallelDirectoryWriter() : new SnapshotWriter();
+        writer.dumpTimelinesToFile(fileName, ActivityInstanceList.getActivityList(), ResourceList.getResourceList(), ConstraintInstanceList.getConstraintList(), null, null);
+    }
+
+    @Setup(Level.Invocation)
+    public void clearPlan() {
+        SyntheticPlans.clearPlan();
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFiles() {
+        SyntheticPlans.delete(directory);
+    }
+
+    @Benchmark
+    public void read() throws IOException {
+        HistoryReader reader = format.equals("dir") ? new ParallelDirectoryReader(fileName) : new SnapshotHistoryReader(fileName);
+        reader.readInHistoryOfActivitiesAndResource(false, false);
+    }
+}
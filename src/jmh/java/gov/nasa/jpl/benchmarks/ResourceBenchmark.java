@@ -0,0 +1,52 @@
+package gov.nasa.jpl.benchmarks;
+
+import gov.nasa.jpl.resource.DoubleResource;
+import gov.nasa.jpl.time.Time;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times Resource.valueAt() at random times in a history, which is what conditions, constraints and adaptation code
+ * spend most of their time on. Sample mode reports the latency percentiles, including p99.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx16g", "-Djava.library.path=lib"})
+public class ResourceBenchmark {
+    // a power of two, so the next query can be picked with a mask
+    private static final int NUM_QUERIES = 1 << 12;
+
+    @Param({"10000", "1000000", "100000000"})
+    public int nodes;
+
+    private DoubleResource resource;
+    private Time[] queryTimes;
+    private int nextQuery;
+
+    @Setup(Level.Trial)
+    public void createHistory() {
+        SyntheticPlans.initializeEngine();
+        SyntheticPlans.clearPlan();
+        resource = SyntheticPlans.createDoubleHistory(nodes);
+
+        // made ahead of time so the benchmark doesn't measure creating Time objects
+        Random random = new Random(7);
+        long start = SyntheticPlans.PLAN_START.getTics();
+        long span = SyntheticPlans.endOfHistory(nodes).getTics() - start;
+        queryTimes = new Time[NUM_QUERIES];
+        for (int i = 0; i < NUM_QUERIES; i++) {
+            queryTimes[i] = Time.fromTics(start + (long) (random.nextDouble() * span));
+        }
+    }
+
+    @Benchmark
+    public Double valueAt() {
+        Time t = queryTimes[nextQuery++ & (NUM_QUERIES - 1)];
+        return resource.valueAt(t);
+    }
+}
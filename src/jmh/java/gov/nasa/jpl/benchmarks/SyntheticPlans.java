@@ -0,0 +1,102 @@
+package gov.nasa.jpl.benchmarks;
+
+import gov.nasa.jpl.activity.ActivityInstanceList;
+import gov.nasa.jpl.constraint.ConstraintInstanceList;
+import gov.nasa.jpl.engine.ModelingEngine;
+import gov.nasa.jpl.engine.ModelingEngineType;
+import gov.nasa.jpl.engine.Setup;
+import gov.nasa.jpl.exampleAdaptation.ActivityOne;
+import gov.nasa.jpl.exampleAdaptation.ActivityTwo;
+import gov.nasa.jpl.resource.DoubleResource;
+import gov.nasa.jpl.resource.ResourceList;
+import gov.nasa.jpl.time.Duration;
+import gov.nasa.jpl.time.Time;
+
+import java.io.File;
+import java.util.Random;
+
+/**
+ * Builds the plans and resource histories the benchmarks run on. Everything is seeded, so every run of a benchmark
+ * sees the same plan.
+ */
+final class SyntheticPlans {
+    static final Time PLAN_START = new Time("2000-001T00:00:00");
+    private static final long SEED = 42;
+
+    private SyntheticPlans() {
+    }
+
+    /**
+     * Wraps Setup.initializeEngine(), whose class name the benchmarks can't import next to JMH's @Setup
+     */
+    static void initializeEngine() {
+        Setup.initializeEngine();
+    }
+
+    static void initializeEngine(ModelingEngineType engineType) {
+        Setup.initializeEngine(engineType);
+    }
+
+    /**
+     * Empties the activity list, resource histories, constraint violations and engine, like the unit tests do between tests
+     */
+    static void clearPlan() {
+        ResourceList.getResourceList().resetResourceHistories();
+        ConstraintInstanceList.getConstraintList().resetAllConstraints();
+        ActivityInstanceList.getActivityList().clear();
+        ModelingEngine.getEngine().resetEngine();
+    }
+
+    /**
+     * Adds numActivities instances of the example ActivityOne and ActivityTwo, which both wait and change resources
+     * while modeling, spread randomly over a span that grows with the plan so the density stays about the same
+     */
+    static void createPlan(int numActivities) {
+        Random random = new Random(SEED);
+        long spanTics = Duration.MINUTE_DURATION.getTics() * Math.max(numActivities, 1);
+        for (int i = 0; i < numActivities; i++) {
+            Time start = Time.fromTics(PLAN_START.getTics() + (long) (random.nextDouble() * spanTics));
+            if (i % 2 == 0) {
+                new ActivityOne(start, Duration.MINUTE_DURATION.multiply(2));
+            }
+            else {
+                new ActivityTwo(start, random.nextDouble() * 10);
+            }
+        }
+    }
+
+    /**
+     * @return a resource with one node per second for numNodes seconds, with values in [0, 10)
+     */
+    static DoubleResource createDoubleHistory(int numNodes) {
+        ModelingEngine engine = ModelingEngine.getEngine();
+        DoubleResource resource = new DoubleResource(0.0, "benchmarks");
+        Random random = new Random(SEED);
+        long step = Duration.SECOND_DURATION.getTics();
+        for (int i = 0; i < numNodes; i++) {
+            engine.setTime(Time.fromTics(PLAN_START.getTics() + i * step));
+            resource.set(random.nextDouble() * 10);
+        }
+        return resource;
+    }
+
+    /**
+     * @return the time of the last node in a history made by createDoubleHistory()
+     */
+    static Time endOfHistory(int numNodes) {
+        return Time.fromTics(PLAN_START.getTics() + (numNodes - 1) * Duration.SECOND_DURATION.getTics());
+    }
+
+    /**
+     * Deletes a file, or a directory and everything in it, that a benchmark wrote
+     */
+    static void delete(File file) {
+        File[] contents = file.listFiles();
+        if (contents != null) {
+            for (File inside : contents) {
+                delete(inside);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,55 @@
+package gov.nasa.jpl.benchmarks;
+
+import gov.nasa.jpl.resource.DoubleResource;
+import gov.nasa.jpl.scheduler.Condition;
+import gov.nasa.jpl.scheduler.Window;
+import gov.nasa.jpl.time.Time;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times finding the windows a condition holds over a whole history, and combining two sets of windows. The values
+ * are random, so the windows are short and there are a lot of them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx16g", "-Djava.library.path=lib"})
+public class WindowBenchmark {
+    @Param({"10000", "1000000", "10000000"})
+    public int nodes;
+
+    private Time end;
+    private Condition aboveFive;
+    private Window[] aboveFiveWindows;
+    private Window[] belowSevenWindows;
+
+    @Setup(Level.Trial)
+    public void createHistory() {
+        SyntheticPlans.initializeEngine();
+        SyntheticPlans.clearPlan();
+        DoubleResource resource = SyntheticPlans.createDoubleHistory(nodes);
+        end = SyntheticPlans.endOfHistory(nodes);
+        aboveFive = resource.whenGreaterThan(5.0);
+        aboveFiveWindows = Window.getWindows(aboveFive, SyntheticPlans.PLAN_START, end);
+        belowSevenWindows = Window.getWindows(resource.whenLessThan(7.0), SyntheticPlans.PLAN_START, end);
+    }
+
+    @Benchmark
+    public Window[] getWindows() {
+        return Window.getWindows(aboveFive, SyntheticPlans.PLAN_START, end);
+    }
+
+    @Benchmark
+    public Window[] and() {
+        return Window.and(aboveFiveWindows, belowSevenWindows);
+    }
+
+    @Benchmark
+    public Window[] or() {
+        return Window.or(aboveFiveWindows, belowSevenWindows);
+    }
+}
@@ -0,0 +1,67 @@
+package gov.nasa.jpl.benchmarks;
+
+import gov.nasa.jpl.activity.ActivityInstanceList;
+import gov.nasa.jpl.constraint.ConstraintInstanceList;
+import gov.nasa.jpl.engine.ModelingEngine;
+import gov.nasa.jpl.output.TOLWriter;
+import gov.nasa.jpl.output.parallel.ParallelDirectoryWriter;
+import gov.nasa.jpl.output.snapshot.SnapshotWriter;
+import gov.nasa.jpl.output.tol.XMLTOLWriter;
+import gov.nasa.jpl.resource.ResourceList;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times writing a modeled synthetic plan, activities and resource histories, out to each file format
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx16g", "-Djava.library.path=lib"})
+public class WriterBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    public int activities;
+
+    @Param({"tol.xml", "dir", "bbsnap"})
+    public String format;
+
+    private File directory;
+    private String fileName;
+
+    @Setup(Level.Trial)
+    public void modelPlan() throws IOException {
+        SyntheticPlans.initializeEngine();
+        SyntheticPlans.clearPlan();
+        SyntheticPlans.createPlan(activities);
+        ModelingEngine.getEngine().model();
+        directory = Files.createTempDirectory("blackbird-benchmark").toFile();
+        fileName = new File(directory, "plan." + format).getPath();
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFiles() {
+        SyntheticPlans.delete(directory);
+    }
+
+    @Benchmark
+    public void write() {
+        TOLWriter writer;
+        switch (format) {
+            case "dir":
+                writer = new ParallelDirectoryWriter();
+                break;
+            case "bbsnap":
+                writer = new SnapshotWriter();
+                break;
+            default:
+                writer = new XMLTOLWriter();
+        }
+        writer.dumpTimelinesToFile(fileName, ActivityInstanceList.getActivityList(), ResourceList.getResourceList(), ConstraintInstanceList.getConstraintList(), null, null);
+    }
+}
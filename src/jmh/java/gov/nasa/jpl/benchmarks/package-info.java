@@ -0,0 +1,11 @@
+/**
+ * Package contains JMH benchmarks of the modeling engine, resource lookups, window calculations and file I/O, run on
+ * synthetic plans built from the example adaptation. They are only compiled with the jmh profile:
+ *
+ * mvn -P jmh test-compile exec:exec
+ *
+ * which runs every benchmark with the GC profiler and saves the results to target/jmh-result.json, so two runs can be
+ * diffed. Pass other JMH options with -Djmh.args, for example -Djmh.args="ResourceBenchmark -p nodes=10000 -prof gc"
+ * to run one benchmark at one size. The largest default sizes need a machine with about 16GB of memory.
+ */
+package gov.nasa.jpl.benchmarks;
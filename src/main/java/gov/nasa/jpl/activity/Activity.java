@@ -1,7 +1,5 @@
 package gov.nasa.jpl.activity;
 
-import java.beans.PropertyChangeEvent;
-import java.beans.PropertyChangeListener;
 import java.util.ArrayList;
 import java.util.Map;
 import java.util.List;
@@ -11,6 +9,7 @@ import java.util.function.*;
 import gov.nasa.jpl.engine.*;
 import gov.nasa.jpl.output.tol.TOLActivityBegin;
 import gov.nasa.jpl.resource.Resource;
+import gov.nasa.jpl.resource.ResourceChangeListener;
 import gov.nasa.jpl.scheduler.Condition;
 import gov.nasa.jpl.scheduler.Scheduler;
 import gov.nasa.jpl.scheduler.Window;
@@ -27,7 +26,7 @@ import org.objenesis.instantiator.ObjectInstantiator;
  * Activities support arbitrarily many and deep child activity instances. When activities are created they
  * automatically register themselves with the engine's ActivityInstanceList.
  */
-public class Activity implements Comparable<Activity>, PropertyChangeListener {
+public class Activity implements Comparable<Activity>, ResourceChangeListener {
     private Time start;
     private Duration duration;
     private String name;
@@ -63,9 +62,10 @@ public class Activity implements Comparable<Activity>, PropertyChangeListener {
             throw new AdaptationException("Cannot pass null start time into activity instance. Type: " + getType() + "\n" + "Other parameters for reference:\n" + parameterString.toString());
         }
 
-        ActivityInstanceList.getActivityList().add(this);
+        // the instance list indexes activities by start time, so that has to be set before we add ourselves
         start = t;
         duration = new Duration("00:00:01");
+        ActivityInstanceList.getActivityList().add(this);
 
         parent = null;
         children = new ArrayList<>();
@@ -164,7 +164,7 @@ public class Activity implements Comparable<Activity>, PropertyChangeListener {
             ModelingEngine.getEngine().insertActivityIntoEngine(act);
         }
         if (!ModelingEngine.getEngine().isCurrentlyReadingInFile()) {
-            act.decompose();
+            ModelingProfiler.decompose(act);
         }
     }
 
@@ -199,6 +199,7 @@ public class Activity implements Comparable<Activity>, PropertyChangeListener {
      */
     private synchronized void assignID() {
         id = UUID.randomUUID();
+        ActivityInstanceList.activityIDChanged(this);
     }
 
     /**
@@ -268,7 +269,9 @@ public class Activity implements Comparable<Activity>, PropertyChangeListener {
      */
     public void waitUntil(Time t) {
         if(threadRunningMe != null) {
+            ModelingProfiler.activityWaiting(this);
             threadRunningMe.waitUntil(t);
+            ModelingProfiler.activityResumed(this);
         }
         else{
             throw new AdaptationException("Error in waitUntil for activity of type " + getType() + ".\n" +
@@ -290,7 +293,9 @@ public class Activity implements Comparable<Activity>, PropertyChangeListener {
                     " spawn new activities at a later start date.");
         }
         else if (d.greaterThanOrEqualTo(Duration.ZERO_DURATION)) {
+            ModelingProfiler.activityWaiting(this);
             threadRunningMe.waitUntil(threadRunningMe.getCurrentTime().add(d));
+            ModelingProfiler.activityResumed(this);
         }
         else {
             throw new AdaptationException("Error in waitFor for activity of type " + getType() + ".\nInput " +
@@ -307,7 +312,10 @@ public class Activity implements Comparable<Activity>, PropertyChangeListener {
      */
     public Map waitForSignal(String signalName) throws InterruptedException {
         if(threadRunningMe != null) {
-            return threadRunningMe.waitForSignal(signalName);
+            ModelingProfiler.activityWaiting(this);
+            Map signalContents = threadRunningMe.waitForSignal(signalName);
+            ModelingProfiler.activityResumed(this);
+            return signalContents;
         }
         else{
             throw new AdaptationException("Error in waitForSignal for activity of type " + getType() + ".\n" +
@@ -325,7 +333,7 @@ public class Activity implements Comparable<Activity>, PropertyChangeListener {
      */
     public Waiter waitUntil(Time t, Supplier<Waiter> func) {
         if(threadRunningMe != null) {
-            return threadRunningMe.waitUntil(t, func);
+            return threadRunningMe.waitUntil(t, ModelingProfiler.continuation(this, func));
         }
         else{
             throw new AdaptationException("Error in waitUntil for activity of type " + getType() + ".\n" +
@@ -364,16 +372,14 @@ public class Activity implements Comparable<Activity>, PropertyChangeListener {
             throw new AdaptationException(String.format("Time step duration (%s) cannot be less than or equal to zero.",
                     timeStep));
         }
-        return waitLoopImpl(startTime, endTime, timeStep, func, endFunc);
-    }
-
-    // Private method that implements the loop without time checks. Times have already been checked.
-    private Waiter waitLoopImpl(Time startTime, Time endTime, Duration timeStep, BiConsumer<Time,Time> func, Function<Time,Waiter> endFunc) {
-        return startTime.lessThan(endTime)
-            ? waitUntil(startTime, () -> {
-                func.accept(startTime, endTime);
-                return waitLoopImpl(startTime.add(timeStep), endTime, timeStep, func, endFunc);})
-            : waitUntil(endTime, () -> endFunc.apply(endTime));
+        if(threadRunningMe == null) {
+            throw new AdaptationException("Error in waitLoop for activity of type " + getType() + ".\n" +
+                    "waitLoop() was called on thread that no longer exists. Most likely, a dispatchOnCondition() method " +
+                    "tried to call waitLoop(), which is not allowed. To create events in the future in dispatchOnCondition()," +
+                    " spawn new activities at a later start date.");
+        }
+        // one Waiter re-arms itself for every step, rather than allocating a Waiter and closures per step
+        return new PeriodicWaiter(this, startTime, endTime, timeStep, func, endFunc);
     }
 
     /**
@@ -472,7 +478,7 @@ public class Activity implements Comparable<Activity>, PropertyChangeListener {
      */
     public Waiter waitForSignal(String signalName, Function<Map,Waiter> func) {
         if(threadRunningMe != null) {
-            return threadRunningMe.waitForSignal(signalName, func);
+            return threadRunningMe.waitForSignal(signalName, ModelingProfiler.continuation(this, func));
         }
         else{
             throw new AdaptationException("Error in waitForSignal for activity of type " + getType() + ".\n" +
@@ -528,6 +534,8 @@ public class Activity implements Comparable<Activity>, PropertyChangeListener {
                     "durations are not allowed to have negative values.");
         }
         duration = newDuration;
+        // constraints and other activities can look at our end time, so an edit outside of modeling affects results from our start
+        ModelingEngine.getEngine().markChangedFrom(start);
     }
 
     /**
@@ -680,6 +688,7 @@ public class Activity implements Comparable<Activity>, PropertyChangeListener {
      */
     public void setID(UUID newID) {
         id = newID;
+        ActivityInstanceList.activityIDChanged(this);
     }
 
     /**
@@ -719,14 +728,21 @@ public class Activity implements Comparable<Activity>, PropertyChangeListener {
     }
 
     /**
-     *  This method will be called by resources changing - if the condition becomes true we want to call dispatchOnCondition()
-     *  Should not be called manually by adapters.
+     *  This method will be called by resources changing - if the condition is true we want to call dispatchOnCondition(),
+     *  or only if it just became true for schedulers that ask for that. Should not be called manually by adapters.
      */
     @Override
-    public void propertyChange(PropertyChangeEvent evt) {
-        condition.update((Resource) evt.getSource(), ((Comparable) ((Map.Entry) evt.getNewValue()).getValue()));
-        if (condition.isTrue()) {
-            ((Scheduler) this).dispatchOnCondition();
+    public void resourceChanged(Resource source, Time oldTime, Comparable oldValue, Time newTime, Comparable newValue) {
+        boolean becameTrueOrFalse = condition.update(source, newValue);
+        if (condition.isTrue() && (becameTrueOrFalse || !((Scheduler) this).dispatchOnlyWhenConditionBecomesTrue())) {
+            if (ModelingProfiler.isEnabled()) {
+                long dispatchStart = System.nanoTime();
+                ((Scheduler) this).dispatchOnCondition();
+                ModelingProfiler.dispatched(this, System.nanoTime() - dispatchStart);
+            }
+            else {
+                ((Scheduler) this).dispatchOnCondition();
+            }
         }
     }
 }
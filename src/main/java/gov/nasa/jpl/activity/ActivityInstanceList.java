@@ -3,23 +3,48 @@ package gov.nasa.jpl.activity;
 import java.util.*;
 import java.util.AbstractMap.SimpleImmutableEntry;
 
+import gov.nasa.jpl.engine.ModelingEngine;
 import gov.nasa.jpl.time.Time;
 
 /**
  * A list of Activity objects. The main engine holds a semi-singleton instance, but other instances can be used for IO.
+ * Besides the list itself, each instance keeps a hash index from ID to instance and, per activity class, an index
+ * of instances by start time, so ID lookups are O(1) and type and time window queries only look at instances that
+ * can match. Queries still return activities in list order.
+ *
+ * Removing an activity only marks its slot as removed, and the list drops the marked slots the next time something
+ * needs positions in it, like get(int), or once they make up a good part of the list, so removal doesn't have to
+ * shift the rest of the list over. Parallel file readers add activities and change their IDs from several threads,
+ * so every method that reads or changes the list or its indices synchronizes on the list.
  */
 public class ActivityInstanceList {
-    private List<Activity> allActivities;
+    // every live list, so activities can tell the lists they are in when their ID changes
+    private static final Set<ActivityInstanceList> allLists = Collections.newSetFromMap(new WeakHashMap<>());
+    // activities created on a thread that is reading a file in parallel, held back from the main list until it is done
+    private static final ThreadLocal<List<Activity>> heldBackAdds = new ThreadLocal<>();
+
+    private List<IndexedActivity> allActivities;
+    // slots in allActivities that are marked as removed but haven't been dropped from it yet
+    private int removedCount;
+    // the first entry for each activity instance - the same instance can be added more than once
+    private Map<Activity, IndexedActivity> entriesByActivity;
+    // the first entry with each ID, further entries with the same ID are chained from it
+    private Map<UUID, IndexedActivity> entriesByID;
+    private Map<Class<?>, StartTimeIndex> entriesByClass;
+    private long nextPosition;
 
     // we keep a main activity instance list with all activities in it in this class
     // however we do make other instances of this class for filtering activities for writing outfiles
     private static ActivityInstanceList instance = null;
 
     public ActivityInstanceList() {
-        allActivities = new ArrayList<>();
+        initializeIndices();
+        synchronized (allLists) {
+            allLists.add(this);
+        }
     }
 
-    public static ActivityInstanceList getActivityList() {
+    public static synchronized ActivityInstanceList getActivityList() {
         if (instance == null) {
             instance = new ActivityInstanceList();
         }
@@ -27,8 +52,12 @@ public class ActivityInstanceList {
     }
 
     public void prepareActivitiesForModeling() {
-        Collections.sort(allActivities);
-        for (Activity act : allActivities) {
+        List<Activity> activities;
+        synchronized (this) {
+            sortActivities();
+            activities = liveActivities();
+        }
+        for (Activity act : activities) {
             // we want each condition to evaluate by default to its profile
             act.setInitialCondition();
         }
@@ -37,18 +66,63 @@ public class ActivityInstanceList {
     /**
      * For now we only need to sort the activities before sequencing.
      */
-    public void prepareActivitiesForSequencing() {
-        Collections.sort(allActivities);
+    public synchronized void prepareActivitiesForSequencing() {
+        sortActivities();
     }
 
     public void stopAllSchedulers() {
-        for (Activity act : allActivities) {
+        for (Activity act : liveActivities()) {
             act.stopScheduling();
         }
     }
 
     public void add(Activity act) {
-        allActivities.add(act);
+        if (this == instance) {
+            List<Activity> heldBack = heldBackAdds.get();
+            if (heldBack != null) {
+                heldBack.add(act);
+                return;
+            }
+        }
+        synchronized (this) {
+            IndexedActivity entry = new IndexedActivity(act, nextPosition++);
+            allActivities.add(entry);
+
+            IndexedActivity firstCopy = entriesByActivity.putIfAbsent(act, entry);
+            if (firstCopy != null) {
+                firstCopy.lastCopy().nextCopy = entry;
+            }
+            indexID(entry);
+            entriesByClass.computeIfAbsent(act.getClass(), cls -> new StartTimeIndex(act.getType())).add(entry);
+            planChangedFrom(act.getStart());
+        }
+    }
+
+    /**
+     * Until finishHoldingBackAdds() is called on this thread, activities constructed on it are kept in a list of
+     * the thread's own instead of being added to the main activity list. Parallel file readers use this so that
+     * creating activities on many threads doesn't take the main list's lock once per instance.
+     */
+    public static void startHoldingBackAdds() {
+        heldBackAdds.set(new ArrayList<>());
+    }
+
+    /**
+     * Adds every activity held back on this thread since startHoldingBackAdds() to the main activity list, taking
+     * its lock once, and goes back to adding activities directly
+     */
+    public static void finishHoldingBackAdds() {
+        List<Activity> heldBack = heldBackAdds.get();
+        heldBackAdds.remove();
+        if (heldBack == null) {
+            return;
+        }
+        ActivityInstanceList mainList = getActivityList();
+        synchronized (mainList) {
+            for (Activity act : heldBack) {
+                mainList.add(act);
+            }
+        }
     }
 
     /**
@@ -56,8 +130,11 @@ public class ActivityInstanceList {
      *
      * @param act
      */
-    public void remove(Activity act) {
-        allActivities.remove(act);
+    public synchronized void remove(Activity act) {
+        IndexedActivity entry = entriesByActivity.get(act);
+        if (entry != null) {
+            removeEntry(entry);
+        }
     }
 
     /**
@@ -65,28 +142,32 @@ public class ActivityInstanceList {
      *
      * @param id
      */
-    public void remove(UUID id) {
-        for (int i = 0; i < allActivities.size(); i++) {
-            // if the input id matches the id of the activity then remove the activity and exit the loop
-            if (allActivities.get(i).getIDString().equals(id.toString())) {
-                allActivities.remove(i);
-                return;
-            }
-        }
+    public synchronized void remove(UUID id) {
+        IndexedActivity entry = entriesByID.get(id);
         // throw exception if activity id was not found
-        throw new RuntimeException("Could not find activity instance with id " + id + ".");
+        if (entry == null) {
+            throw new RuntimeException("Could not find activity instance with id " + id + ".");
+        }
+        // like removing by instance, this removes the first time the instance with that ID appears in the list
+        removeEntry(entriesByActivity.get(entry.activity));
     }
 
-    public int length() {
-        return allActivities.size();
+    public synchronized int length() {
+        return allActivities.size() - removedCount;
     }
 
     public void clear() {
-        allActivities = new ArrayList<>();
+        synchronized (this) {
+            initializeIndices();
+        }
+        if (this == instance) {
+            ModelingEngine.getEngine().markAllChanged();
+        }
     }
 
-    public Activity get(int i) {
-        return allActivities.get(i);
+    public synchronized Activity get(int i) {
+        dropRemoved();
+        return allActivities.get(i).activity;
     }
 
     /**
@@ -94,15 +175,14 @@ public class ActivityInstanceList {
      * @param activityTypes that you want to get all instances of
      * @return List of activity instances of given types
      */
-    public List<Activity> getAllActivitiesOfType(Class... activityTypes) {
-        List<Activity> toReturn = new ArrayList<>();
-
-        for (int i = 0; i < allActivities.size(); i++) {
-            if(isInstanceInTypes(activityTypes, allActivities.get(i))){
-                toReturn.add(allActivities.get(i));
+    public synchronized List<Activity> getAllActivitiesOfType(Class... activityTypes) {
+        List<IndexedActivity> matches = new ArrayList<>();
+        for (Map.Entry<Class<?>, StartTimeIndex> classIndex : entriesByClass.entrySet()) {
+            if (isClassInTypes(activityTypes, classIndex.getKey())) {
+                classIndex.getValue().collectAll(matches);
             }
         }
-        return toReturn;
+        return inListOrder(matches);
     }
 
     /**
@@ -111,13 +191,17 @@ public class ActivityInstanceList {
      * in the whole plan as loaded in memory. Generally to be used for diagnostic purposes when
      * profiling adaptation speed, especially I/O
      */
-    public List<Map.Entry<String, Integer>> getInstanceCountForEachType(){
+    public synchronized List<Map.Entry<String, Integer>> getInstanceCountForEachType(){
         TreeMap<String, Integer> instanceCount = new TreeMap<>();
         for(String type : ActivityTypeList.getActivityList().getNamesOfAllDefinedTypes()){
             instanceCount.put(type, 0);
         }
 
-        for(Activity a : allActivities){
+        for(IndexedActivity entry : allActivities){
+            if (entry.removed) {
+                continue;
+            }
+            Activity a = entry.activity;
             int count = instanceCount.get(a.getType());
             instanceCount.remove(a.getType());
             instanceCount.put(a.getType(), count+1);
@@ -136,15 +220,14 @@ public class ActivityInstanceList {
      * @param activityTypes the types you want to get instances of
      * @return
      */
-    public List<Activity> getActivitiesOfTypeBetween(Time start, Time end, boolean mustContainAll, Class... activityTypes) {
-        List<Activity> toReturn = new ArrayList<>();
-        for(Activity act : allActivities){
-            boolean meetsEndCondition = (!mustContainAll && act.getStart().lessThanOrEqualTo(end)) || act.getEnd().lessThanOrEqualTo(end);
-            if(isInstanceInTypes(activityTypes, act) && start.lessThanOrEqualTo(act.getStart()) && meetsEndCondition){
-                toReturn.add(act);
+    public synchronized List<Activity> getActivitiesOfTypeBetween(Time start, Time end, boolean mustContainAll, Class... activityTypes) {
+        List<IndexedActivity> matches = new ArrayList<>();
+        for (Map.Entry<Class<?>, StartTimeIndex> classIndex : entriesByClass.entrySet()) {
+            if (isClassInTypes(activityTypes, classIndex.getKey())) {
+                classIndex.getValue().collectBetween(start, end, mustContainAll, matches);
             }
         }
-        return toReturn;
+        return inListOrder(matches);
     }
 
     /**
@@ -154,17 +237,16 @@ public class ActivityInstanceList {
      * @param mustContainAll true if an activity must end before 'end', false if it only must start before 'end' to be returned
      * @return
      */
-    public List<Activity> getActivityInstancesWithSubsystem(String subsystem, Time start, Time end, boolean mustContainAll){
+    public synchronized List<Activity> getActivityInstancesWithSubsystem(String subsystem, Time start, Time end, boolean mustContainAll){
         ActivityTypeList allTypes = ActivityTypeList.getActivityList();
 
-        List<Activity> toReturn = new ArrayList<>();
-        for(Activity act : allActivities){
-            boolean meetsEndCondition = (!mustContainAll && act.getStart().lessThanOrEqualTo(end)) || act.getEnd().lessThanOrEqualTo(end);
-            if(allTypes.getSubsystem(act.getType()).equals(subsystem) && start.lessThanOrEqualTo(act.getStart()) && meetsEndCondition){
-                toReturn.add(act);
+        List<IndexedActivity> matches = new ArrayList<>();
+        for (StartTimeIndex classIndex : entriesByClass.values()) {
+            if (!classIndex.isEmpty() && allTypes.getSubsystem(classIndex.typeName).equals(subsystem)) {
+                classIndex.collectBetween(start, end, mustContainAll, matches);
             }
         }
-        return toReturn;
+        return inListOrder(matches);
     }
 
     /**
@@ -173,15 +255,13 @@ public class ActivityInstanceList {
      * @param activityID
      * @return
      */
-    public Activity findActivityByID(UUID activityID) {
-        for (int i = 0; i < allActivities.size(); i++) {
-            // if the input id matches the id of the activity then return the activity
-            if (allActivities.get(i).getIDString().equals(activityID.toString())) {
-                return allActivities.get(i);
-            }
-        }
+    public synchronized Activity findActivityByID(UUID activityID) {
+        IndexedActivity entry = entriesByID.get(activityID);
         // throw exception if activity id was not found
-        throw new RuntimeException("Could not find activity instance with id " + activityID + ".");
+        if (entry == null) {
+            throw new RuntimeException("Could not find activity instance with id " + activityID + ".");
+        }
+        return entry.activity;
     }
 
     /**
@@ -190,33 +270,29 @@ public class ActivityInstanceList {
      * @param activityID
      * @return
      */
-    public boolean containsID(UUID activityID) {
-        for (int i = 0; i < allActivities.size(); i++) {
-            // if the input id matches the id of the activity then return the activity
-            if (allActivities.get(i).getIDString().equals(activityID.toString())) {
-                return true;
-            }
-        }
-        return false;
+    public synchronized boolean containsID(UUID activityID) {
+        return entriesByID.containsKey(activityID);
     }
 
-    public Time getFirstActivityStartTime() {
+    public synchronized Time getFirstActivityStartTime() {
         // list should be sorted before we call this, so we can just take the first element
+        dropRemoved();
         if (allActivities.isEmpty()) {
             return null;
         }
         else {
-            return allActivities.get(0).getStart();
+            return allActivities.get(0).activity.getStart();
         }
     }
 
-    public Time getLastActivityEndTime() {
+    public synchronized Time getLastActivityEndTime() {
         // list should be sorted before we call this, so we can just take the last element
+        dropRemoved();
         if (allActivities.isEmpty()) {
             return null;
         }
         else {
-            return allActivities.get(allActivities.size() - 1).getEnd();
+            return allActivities.get(allActivities.size() - 1).activity.getEnd();
         }
     }
 
@@ -227,8 +303,7 @@ public class ActivityInstanceList {
      */
     public List<Map.Entry<Time, Map.Entry<Boolean, Activity>>> createListOfActivityBeginAndEndTimes() {
         ArrayList<Map.Entry<Time, Map.Entry<Boolean, Activity>>> listOfAllBeginAndEndTimes = new ArrayList();
-        for (int i = 0; i < allActivities.size(); i++) {
-            Activity ofInterest = allActivities.get(i);
+        for (Activity ofInterest : liveActivities()) {
             listOfAllBeginAndEndTimes.add(new SimpleImmutableEntry<>(ofInterest.getStart(), new SimpleImmutableEntry<>(true, ofInterest)));
             listOfAllBeginAndEndTimes.add(new SimpleImmutableEntry<>(ofInterest.getEnd(), new SimpleImmutableEntry<>(false, ofInterest)));
         }
@@ -239,8 +314,7 @@ public class ActivityInstanceList {
 
     public List<Map.Entry<Time, Map.Entry<Boolean, Activity>>> createListOfActivityBeginTimes() {
         ArrayList<Map.Entry<Time, Map.Entry<Boolean, Activity>>> listOfAllBeginTimes = new ArrayList();
-        for (int i = 0; i < allActivities.size(); i++) {
-            Activity ofInterest = allActivities.get(i);
+        for (Activity ofInterest : liveActivities()) {
             // we only have start times in this list, so unlike beginAndEndTimes we always put 'true' as the Boolean
             listOfAllBeginTimes.add(new SimpleImmutableEntry<>(ofInterest.getStart(), new SimpleImmutableEntry<>(true, ofInterest)));
         }
@@ -249,9 +323,131 @@ public class ActivityInstanceList {
         return listOfAllBeginTimes;
     }
 
+    /**
+     * Called by Activity when its ID changes, so every list the instance is in can re-index it
+     */
+    static void activityIDChanged(Activity act) {
+        // we copy the lists out so we don't hold the registry lock while waiting on a list's lock
+        List<ActivityInstanceList> lists;
+        synchronized (allLists) {
+            lists = new ArrayList<>(allLists);
+        }
+        for (ActivityInstanceList list : lists) {
+            list.reindexID(act);
+        }
+    }
+
+    private synchronized void reindexID(Activity act) {
+        for (IndexedActivity copy = entriesByActivity.get(act); copy != null; copy = copy.nextCopy) {
+            unindexID(copy);
+            indexID(copy);
+        }
+    }
+
+    private void initializeIndices() {
+        allActivities = new ArrayList<>();
+        entriesByActivity = new IdentityHashMap<>();
+        entriesByID = new HashMap<>();
+        entriesByClass = new HashMap<>();
+        nextPosition = 0;
+        removedCount = 0;
+    }
+
+    // the activities in list order, copied out so callers can go through them without holding the lock
+    private synchronized List<Activity> liveActivities() {
+        List<Activity> activities = new ArrayList<>(allActivities.size() - removedCount);
+        for (IndexedActivity entry : allActivities) {
+            if (!entry.removed) {
+                activities.add(entry.activity);
+            }
+        }
+        return activities;
+    }
+
+    private void sortActivities() {
+        dropRemoved();
+        allActivities.sort((a, b) -> a.activity.compareTo(b.activity));
+        // positions have to keep following list order for query results to come back in list order
+        for (int i = 0; i < allActivities.size(); i++) {
+            allActivities.get(i).position = i;
+        }
+        nextPosition = allActivities.size();
+    }
+
+    private void removeEntry(IndexedActivity entry) {
+        entry.removed = true;
+        removedCount++;
+        // dropping the marked slots is O(n), so we wait until there are enough of them to pay for it
+        if (removedCount > 16 + allActivities.size() / 2) {
+            dropRemoved();
+        }
+
+        if (entry.nextCopy == null) {
+            entriesByActivity.remove(entry.activity);
+        }
+        else {
+            entriesByActivity.put(entry.activity, entry.nextCopy);
+        }
+        unindexID(entry);
+        entriesByClass.get(entry.activity.getClass()).remove();
+        planChangedFrom(entry.activity.getStart());
+    }
+
+    // edits to the plan outside of modeling tell the engine how far back an incremental REMODEL has to go
+    private void planChangedFrom(Time t) {
+        if (this == instance) {
+            ModelingEngine.getEngine().markChangedFrom(t);
+        }
+    }
+
+    // keeps the order of the slots that are left, so positions still increase along the list
+    private void dropRemoved() {
+        if (removedCount > 0) {
+            allActivities.removeIf(entry -> entry.removed);
+            removedCount = 0;
+        }
+    }
+
+    private void indexID(IndexedActivity entry) {
+        entry.id = entry.activity.getID();
+        entry.nextWithSameID = null;
+        if (entry.id != null) {
+            IndexedActivity first = entriesByID.putIfAbsent(entry.id, entry);
+            if (first != null) {
+                while (first.nextWithSameID != null) {
+                    first = first.nextWithSameID;
+                }
+                first.nextWithSameID = entry;
+            }
+        }
+    }
+
+    private void unindexID(IndexedActivity entry) {
+        if (entry.id == null) {
+            return;
+        }
+        IndexedActivity first = entriesByID.get(entry.id);
+        if (first == entry) {
+            if (entry.nextWithSameID == null) {
+                entriesByID.remove(entry.id);
+            }
+            else {
+                entriesByID.put(entry.id, entry.nextWithSameID);
+            }
+        }
+        else if (first != null) {
+            while (first.nextWithSameID != null && first.nextWithSameID != entry) {
+                first = first.nextWithSameID;
+            }
+            first.nextWithSameID = entry.nextWithSameID;
+        }
+        entry.id = null;
+        entry.nextWithSameID = null;
+    }
+
     private boolean isSorted() {
         for (int i = 1; i < allActivities.size(); i++) {
-            if (allActivities.get(i - 1).compareTo(allActivities.get(i)) > 0) {
+            if (allActivities.get(i - 1).activity.compareTo(allActivities.get(i).activity) > 0) {
                 return false;
             }
         }
@@ -259,12 +455,151 @@ public class ActivityInstanceList {
         return true;
     }
 
-    private boolean isInstanceInTypes(Class[] types, Activity instance){
+    private static List<Activity> inListOrder(List<IndexedActivity> matches) {
+        matches.sort(Comparator.comparingLong(entry -> entry.position));
+        List<Activity> toReturn = new ArrayList<>(matches.size());
+        for (IndexedActivity entry : matches) {
+            toReturn.add(entry.activity);
+        }
+        return toReturn;
+    }
+
+    private static boolean isClassInTypes(Class[] types, Class<?> cls){
         for(Class type : types){
-            if(type.isAssignableFrom(instance.getClass())){
+            if(type.isAssignableFrom(cls)){
                 return true;
             }
         }
         return false;
     }
+
+    /**
+     * One slot in the list. The same activity can be added to the list more than once, so these are what we
+     * index instead of the activities themselves.
+     */
+    private static class IndexedActivity {
+        private final Activity activity;
+        // increases along the list, so sorting query results by it puts them in list order
+        private long position;
+        private boolean removed = false;
+        // the ID this entry is indexed under, which can lag behind the activity's until it tells us it changed
+        private UUID id;
+        private IndexedActivity nextWithSameID;
+        // later slots holding the same activity instance
+        private IndexedActivity nextCopy;
+
+        private IndexedActivity(Activity activity, long position) {
+            this.activity = activity;
+            this.position = position;
+        }
+
+        private IndexedActivity lastCopy() {
+            IndexedActivity last = this;
+            while (last.nextCopy != null) {
+                last = last.nextCopy;
+            }
+            return last;
+        }
+    }
+
+    /**
+     * The entries of one activity class sorted by start time. Start times never change after an activity is
+     * constructed, so the sorted array stays valid; new entries collect in a small unsorted tail and removed
+     * ones are skipped until there are enough of either to make re-sorting worth it. End times can change
+     * through setDuration(), so those are always checked against the activity itself.
+     */
+    private static class StartTimeIndex {
+        private final String typeName;
+        private IndexedActivity[] sorted = new IndexedActivity[0];
+        private long[] sortedStarts = new long[0];
+        private final List<IndexedActivity> unsorted = new ArrayList<>();
+        private int liveCount = 0;
+
+        private StartTimeIndex(String typeName) {
+            this.typeName = typeName;
+        }
+
+        private boolean isEmpty() {
+            return liveCount == 0;
+        }
+
+        private void add(IndexedActivity entry) {
+            unsorted.add(entry);
+            liveCount++;
+        }
+
+        /**
+         * The entry itself has already been marked as removed
+         */
+        private void remove() {
+            liveCount--;
+        }
+
+        private void collectAll(List<IndexedActivity> out) {
+            for (IndexedActivity entry : sorted) {
+                if (!entry.removed) {
+                    out.add(entry);
+                }
+            }
+            for (IndexedActivity entry : unsorted) {
+                if (!entry.removed) {
+                    out.add(entry);
+                }
+            }
+        }
+
+        private void collectBetween(Time start, Time end, boolean mustContainAll, List<IndexedActivity> out) {
+            sortIfWorthwhile();
+            // activities end at or after they start, so both modes need start <= activity start <= end
+            long startTics = start.getTics();
+            long endTics = end.getTics();
+            int i = firstIndexAtOrAfter(startTics);
+            for (; i < sorted.length && sortedStarts[i] <= endTics; i++) {
+                addIfMatches(sorted[i], end, mustContainAll, out);
+            }
+            for (IndexedActivity entry : unsorted) {
+                long entryStart = entry.activity.getStart().getTics();
+                if (entryStart >= startTics && entryStart <= endTics) {
+                    addIfMatches(entry, end, mustContainAll, out);
+                }
+            }
+        }
+
+        private static void addIfMatches(IndexedActivity entry, Time end, boolean mustContainAll, List<IndexedActivity> out) {
+            if (!entry.removed && (!mustContainAll || entry.activity.getEnd().lessThanOrEqualTo(end))) {
+                out.add(entry);
+            }
+        }
+
+        private int firstIndexAtOrAfter(long tics) {
+            int low = 0;
+            int high = sortedStarts.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (sortedStarts[mid] < tics) {
+                    low = mid + 1;
+                }
+                else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        private void sortIfWorthwhile() {
+            int removedCount = sorted.length + unsorted.size() - liveCount;
+            // rebuilding is O(n log n), so we let the tail and the dead entries grow with the index before doing it
+            if (unsorted.size() > 16 + sorted.length / 8 || removedCount > 16 + sorted.length / 4) {
+                List<IndexedActivity> live = new ArrayList<>(liveCount);
+                collectAll(live);
+                live.sort(Comparator.comparingLong(entry -> entry.activity.getStart().getTics()));
+                sorted = live.toArray(new IndexedActivity[0]);
+                sortedStarts = new long[sorted.length];
+                for (int i = 0; i < sorted.length; i++) {
+                    sortedStarts[i] = sorted[i].activity.getStart().getTics();
+                }
+                unsorted.clear();
+            }
+        }
+    }
 }
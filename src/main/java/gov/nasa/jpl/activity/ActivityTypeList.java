@@ -3,17 +3,25 @@ package gov.nasa.jpl.activity;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
 import gov.nasa.jpl.engine.AdaptationException;
+import gov.nasa.jpl.engine.ModelingProfiler;
 import gov.nasa.jpl.input.ReflectionUtilities;
 import gov.nasa.jpl.activity.annotations.*;
+import org.apache.commons.lang3.ClassUtils;
+import org.apache.commons.lang3.reflect.ConstructorUtils;
 
 import static gov.nasa.jpl.input.ReflectionUtilities.LOCATION_OF_CUSTOM_CLASSES;
 import static gov.nasa.jpl.input.ReflectionUtilities.getClassNameWithoutPackage;
@@ -64,6 +72,20 @@ public class ActivityTypeList {
         return getActivityType(activityName).getActivityClass();
     }
 
+    /**
+     * Creates an instance of an activity type with the constructor that was looked up when this list was built, so
+     * file readers don't resolve the constructor again for every instance. Arguments that already have the exact
+     * types of the constructor's parameters go straight through a cached MethodHandle, anything else (like an Integer
+     * for a double parameter) falls back to ConstructorUtils, so this accepts everything ConstructorUtils.invokeConstructor() does.
+     * @param activityName the type to create
+     * @param args the start time followed by the rest of the constructor's arguments
+     * @return the new instance, which the Activity constructor has already added to the activity instance list
+     * @throws InvocationTargetException wrapping whatever the constructor threw, like reflection does
+     */
+    public Activity newInstance(String activityName, Object[] args) throws NoSuchMethodException, IllegalAccessException, InvocationTargetException, InstantiationException {
+        return getActivityType(activityName).newInstance(args);
+    }
+
     public List<String> getNamesOfAllDefinedTypes(){
         return new ArrayList<>(activityTypes.keySet());
     }
@@ -101,6 +123,10 @@ public class ActivityTypeList {
         getActivityType(activityName).listeners.remove(e);
     }
 
+    public List<PropertyChangeListener> getObserverList(String activityName) {
+        return Collections.unmodifiableList(getActivityType(activityName).getListeners());
+    }
+
     public void propertyChangeForActivityType(String activityName, Activity act) {
         getActivityType(activityName).notifyListeners(activityName, act);
     }
@@ -181,7 +207,7 @@ public class ActivityTypeList {
 
                     parameters.add(paramMap);
                 }
-                ActivityType newType = new ActivityType(simpleName, description, subsystem, aClass, parameters);
+                ActivityType newType = new ActivityType(simpleName, description, subsystem, aClass, constructor, parameters);
                 if (map.containsKey(simpleName)){
                     throw new AdaptationException("Found two activity types with name " + simpleName + " , which is not allowed. Please change one of them to not be identical.");
                 }
@@ -215,13 +241,58 @@ public class ActivityTypeList {
         private List<Map<String, String>> parameters;
         private List<PropertyChangeListener> listeners;
 
-        private ActivityType(String typeName, String description, String subsystem, Class activityClass, List<Map<String, String>> parameterNames) {
+        // the constructor's parameter types, and with primitives boxed, for checking arguments before using the handle
+        private Class<?>[] constructorParameterTypes;
+        private Class<?>[] boxedParameterTypes;
+        // takes an Object[] of exactly-typed arguments and returns the new Activity - null for varargs or inaccessible constructors
+        private MethodHandle constructorHandle;
+
+        private ActivityType(String typeName, String description, String subsystem, Class activityClass, Constructor constructor, List<Map<String, String>> parameterNames) {
             this.typeName = typeName;
             this.description = description;
             this.subsystem = subsystem;
             this.activityClass = activityClass;
             this.parameters = parameterNames;
             listeners = new ArrayList<>();
+
+            constructorParameterTypes = constructor.getParameterTypes();
+            boxedParameterTypes = ClassUtils.primitivesToWrappers(constructorParameterTypes);
+            // varargs constructors need their trailing arguments packed into an array, which we leave to ConstructorUtils
+            if (!constructor.isVarArgs()) {
+                try {
+                    constructorHandle = MethodHandles.publicLookup().unreflectConstructor(constructor)
+                            .asSpreader(Object[].class, constructorParameterTypes.length)
+                            .asType(MethodType.methodType(Activity.class, Object[].class));
+                }
+                catch (IllegalAccessException e) {
+                    constructorHandle = null;
+                }
+            }
+        }
+
+        private Activity newInstance(Object[] args) throws NoSuchMethodException, IllegalAccessException, InvocationTargetException, InstantiationException {
+            if (constructorHandle != null && argumentsMatchParameterTypes(args)) {
+                try {
+                    return (Activity) constructorHandle.invokeExact(args);
+                }
+                catch (Throwable t) {
+                    // the arguments were checked, so anything thrown here came from the constructor itself
+                    throw new InvocationTargetException(t);
+                }
+            }
+            return (Activity) ConstructorUtils.invokeConstructor(activityClass, args);
+        }
+
+        private boolean argumentsMatchParameterTypes(Object[] args) {
+            if (args.length != boxedParameterTypes.length) {
+                return false;
+            }
+            for (int i = 0; i < args.length; i++) {
+                if (args[i] == null ? constructorParameterTypes[i].isPrimitive() : !boxedParameterTypes[i].isInstance(args[i])) {
+                    return false;
+                }
+            }
+            return true;
         }
 
         private Class getActivityClass() {
@@ -240,13 +311,18 @@ public class ActivityTypeList {
             return parameters;
         }
 
-        private List getListeners() {
+        private List<PropertyChangeListener> getListeners() {
             return listeners;
         }
 
         private void notifyListeners(String activityName, Activity act) {
+            boolean profiling = ModelingProfiler.isEnabled();
             for (PropertyChangeListener name : listeners) {
+                long listenerStart = profiling ? System.nanoTime() : 0;
                 name.propertyChange(new PropertyChangeEvent(this, activityName, null, act));
+                if (profiling) {
+                    ModelingProfiler.listenerNotified(name, System.nanoTime() - listenerStart);
+                }
             }
         }
     }
@@ -0,0 +1,19 @@
+package gov.nasa.jpl.activity.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Declares every resource and signal an activity type reads or writes while it is modeled, including through the
+ * activities it spawns. The partitioned modeling engine uses this to find groups of activities that never touch
+ * each other's state and model them in parallel. Resources are named the way they are in output files, or by the
+ * name of an arrayed resource to cover all of its members.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface Footprint {
+    String[] resources() default {};
+    String[] signals() default {};
+}
@@ -75,6 +75,9 @@ public class CommandController {
             else if (command.equals(RegexUtilities.SEQUENCE)) {
                 newCommand = new SequenceCommand(commandString);
             }
+            else if (command.equals(RegexUtilities.PROFILE)) {
+                newCommand = new ProfileCommand(commandString);
+            }
 
             else {
                 throw new CommandException("Error: Could not find available command in command string:\n" + command
@@ -1,5 +1,6 @@
 package gov.nasa.jpl.command;
 
+import gov.nasa.jpl.engine.ModelingEngine;
 import gov.nasa.jpl.spice.Spice;
 import spice.basic.SpiceErrorException;
 
@@ -44,6 +45,8 @@ public class LoadKernelsCommand implements Command {
             for (String file : kernels) {
                 Spice.loadKernel(file);
             }
+            // geometry could be queried anywhere in the plan, so the next REMODEL has to start over
+            ModelingEngine.getEngine().markAllChanged();
         }
         catch (UnsatisfiedLinkError | SpiceErrorException spiceError) {
             spiceError.printStackTrace();
@@ -56,6 +59,7 @@ public class LoadKernelsCommand implements Command {
             for (String file : kernels) {
                 Spice.unLoadKernel(file);
             }
+            ModelingEngine.getEngine().markAllChanged();
         }
         catch (UnsatisfiedLinkError | SpiceErrorException spiceError) {
             spiceError.printStackTrace();
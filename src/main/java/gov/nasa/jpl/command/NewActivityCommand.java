@@ -8,6 +8,7 @@ import java.util.regex.Matcher;
 
 import gov.nasa.jpl.activity.ActivityTypeList;
 import gov.nasa.jpl.activity.Activity;
+import gov.nasa.jpl.engine.ModelingProfiler;
 import gov.nasa.jpl.input.ReflectionUtilities;
 import gov.nasa.jpl.input.RegexUtilities;
 import org.apache.commons.lang3.reflect.ConstructorUtils;
@@ -94,7 +95,7 @@ public class NewActivityCommand implements Command {
                 Object activityInstance = ConstructorUtils.invokeConstructor(cls, args);
                 Activity castInstance = (Activity) activityInstance;
                 activityID = castInstance.getID();
-                castInstance.decompose();
+                ModelingProfiler.decompose(castInstance);
             }
 
         }
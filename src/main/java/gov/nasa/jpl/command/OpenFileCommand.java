@@ -1,7 +1,9 @@
 package gov.nasa.jpl.command;
 
+import gov.nasa.jpl.engine.ModelingEngine;
 import gov.nasa.jpl.input.HistoryReader;
 import gov.nasa.jpl.input.PlanJSONHistoryReader;
+import gov.nasa.jpl.input.SnapshotHistoryReader;
 import gov.nasa.jpl.input.XMLTOLHistoryReader;
 import gov.nasa.jpl.input.parallel.ParallelDirectoryReader;
 
@@ -44,6 +46,8 @@ public class OpenFileCommand implements Command {
 
             HistoryReader reader = chooseHistoryReaderBasedOnFileType(filename);
             reader.readInHistoryOfActivitiesAndResource(areResourcesFrozen, shouldActivitiesDecompose);
+            // reading in resource histories replaces what the last run modeled, so checkpoints no longer match them
+            ModelingEngine.getEngine().markAllChanged();
         }
         catch (IOException | RuntimeException e) {
             throw new CommandException("HistoryReader encountered an error while reading in " + filename + " :\n" + e.getMessage());
@@ -66,6 +70,9 @@ public class OpenFileCommand implements Command {
         else if(inFileName.endsWith(".plan.json")){
             return new PlanJSONHistoryReader(inFileName);
         }
+        else if(inFileName.endsWith(".bbsnap")){
+            return new SnapshotHistoryReader(inFileName);
+        }
         // if we want to add a CSV or any other kind of history file, it'd go here
         else {
             throw new IOException("No HistoryReader currently available for specified file suffix");
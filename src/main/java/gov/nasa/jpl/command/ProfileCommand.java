@@ -0,0 +1,56 @@
+package gov.nasa.jpl.command;
+
+import gov.nasa.jpl.engine.ModelingProfiler;
+
+import java.io.IOException;
+
+/**
+ * This command controls the modeling profiler. "ON" clears it and starts collecting, "OFF" stops collecting, and
+ * anything else is taken as the name of a file to write the report to - JSON if it ends in .json, text otherwise.
+ */
+public class ProfileCommand implements Command {
+    private static final String ON = "ON";
+    private static final String OFF = "OFF";
+
+    private String argument;
+    private boolean wasEnabled;
+
+    public ProfileCommand(String commandString) {
+        argument = commandString == null ? "" : commandString.trim();
+        if (argument.isEmpty()) {
+            throw new CommandException("PROFILE command needs ON, OFF or the name of a file to write the report to");
+        }
+    }
+
+    @Override
+    public void execute() throws CommandException {
+        wasEnabled = ModelingProfiler.isEnabled();
+        if (argument.equalsIgnoreCase(ON)) {
+            ModelingProfiler.start();
+        }
+        else if (argument.equalsIgnoreCase(OFF)) {
+            ModelingProfiler.stop();
+        }
+        else {
+            try {
+                ModelingProfiler.writeReport(argument);
+            }
+            catch (IOException e) {
+                throw new CommandException("Could not write profile report to " + argument, e);
+            }
+        }
+    }
+
+    /**
+     * Puts collection back the way it was. What was collected while it was on is kept, and written reports stay.
+     */
+    @Override
+    public void unExecute() throws CommandException {
+        if (argument.equalsIgnoreCase(ON) && !wasEnabled) {
+            ModelingProfiler.stop();
+        }
+        else if (argument.equalsIgnoreCase(OFF) && wasEnabled) {
+            ModelingProfiler.resume();
+        }
+    }
+}
@@ -2,6 +2,7 @@ package gov.nasa.jpl.command;
 
 import gov.nasa.jpl.activity.Activity;
 import gov.nasa.jpl.activity.ActivityInstanceList;
+import gov.nasa.jpl.engine.ModelingProfiler;
 import gov.nasa.jpl.input.RegexUtilities;
 
 import java.util.ArrayList;
@@ -34,7 +35,7 @@ public class RedecomposeCommand implements Command {
         children.addAll(actInstance.getChildren());
 
         actInstance.deleteChildren();
-        actInstance.decompose();
+        ModelingProfiler.decompose(actInstance);
     }
 
     @Override
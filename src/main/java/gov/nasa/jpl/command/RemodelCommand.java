@@ -9,12 +9,12 @@ public class RemodelCommand implements Command {
     }
 
     /**
-     * Starts another modeling loop.
+     * Starts another modeling loop, which only models from the earliest change if incremental remodeling is on.
      */
     @Override
     public void execute() throws CommandException {
         ModelingEngine myEngine = ModelingEngine.getEngine();
-        myEngine.model();
+        myEngine.remodel();
     }
 
     /**
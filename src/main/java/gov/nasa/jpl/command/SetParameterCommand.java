@@ -1,5 +1,6 @@
 package gov.nasa.jpl.command;
 
+import gov.nasa.jpl.engine.ModelingEngine;
 import gov.nasa.jpl.engine.ParameterDeclaration;
 import gov.nasa.jpl.input.ReflectionUtilities;
 import gov.nasa.jpl.input.TypeNameConverters;
@@ -34,6 +35,8 @@ public class SetParameterCommand implements Command {
         }
         try {
             ParameterDeclaration.modifyAdaptationParameter(className, fieldName, newValue);
+            // any activity could read the parameter, so the next REMODEL has to start over
+            ModelingEngine.getEngine().markAllChanged();
         }
         catch (IllegalAccessException e) {
             throw new CommandException("Could not change value of parameter: " + className + "." + fieldName);
@@ -44,6 +47,7 @@ public class SetParameterCommand implements Command {
     public void unExecute() throws CommandException {
         try {
             ParameterDeclaration.modifyAdaptationParameter(className, fieldName, oldValue);
+            ModelingEngine.getEngine().markAllChanged();
         }
         catch (IllegalAccessException e) {
             throw new CommandException("Could not change value of parameter: " + className + "." + fieldName);
@@ -11,6 +11,7 @@ import gov.nasa.jpl.input.StringParsingUtilities;
 import gov.nasa.jpl.output.TOLWriter;
 import gov.nasa.jpl.output.csv.CSVWriter;
 import gov.nasa.jpl.output.parallel.ParallelDirectoryWriter;
+import gov.nasa.jpl.output.snapshot.SnapshotWriter;
 import gov.nasa.jpl.output.tol.*;
 import gov.nasa.jpl.resource.Resource;
 import gov.nasa.jpl.resource.ResourceList;
@@ -106,6 +107,9 @@ public class WriteCommand implements Command {
         else if (fileName.endsWith(".dir")) {
             return new ParallelDirectoryWriter();
         }
+        else if (fileName.endsWith(".bbsnap")) {
+            return new SnapshotWriter();
+        }
         // to add a new kind of writer, add it here
         else {
             throw new IOException("No TOLWriter currently available for specified file suffix");
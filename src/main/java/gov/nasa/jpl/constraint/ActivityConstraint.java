@@ -26,7 +26,9 @@ public abstract class ActivityConstraint extends Constraint {
         this.activityTypeTwo = activityTypeTwo;
         this.activityOneLiveInstances = new ArrayList<>();
         this.activityTwoLiveInstances = new ArrayList<>();
-        hookToListeners();
+        if (!ConstraintInstanceList.getConstraintList().isEvaluatingAfterModeling()) {
+            hookToListeners();
+        }
     }
 
     protected void seeIfAnyLiveActivitiesHaveEnded(Time currentTime, Duration durationToWaitBeforeDeleting) {
@@ -55,6 +57,30 @@ public abstract class ActivityConstraint extends Constraint {
         listOfViolationBeginAndEndTimes = new ArrayList<>();
     }
 
+    @Override
+    protected ModelingState saveModelingState() {
+        return new ActivityConstraintState(this);
+    }
+
+    @Override
+    protected void restoreModelingState(ModelingState state, Time checkpointTime) {
+        super.restoreModelingState(state, checkpointTime);
+        ActivityConstraintState activityState = (ActivityConstraintState) state;
+        activityOneLiveInstances = new ArrayList<>(activityState.activityOneLiveInstances);
+        activityTwoLiveInstances = new ArrayList<>(activityState.activityTwoLiveInstances);
+    }
+
+    protected static class ActivityConstraintState extends ModelingState {
+        private final List<Activity> activityOneLiveInstances;
+        private final List<Activity> activityTwoLiveInstances;
+
+        protected ActivityConstraintState(ActivityConstraint constraint) {
+            super(constraint);
+            activityOneLiveInstances = new ArrayList<>(constraint.activityOneLiveInstances);
+            activityTwoLiveInstances = new ArrayList<>(constraint.activityTwoLiveInstances);
+        }
+    }
+
     @Override
     void hookToListeners(){
         for(String type : activityTypeOne) {
@@ -65,6 +91,15 @@ public abstract class ActivityConstraint extends Constraint {
         }
     }
 
+    @Override
+    Set<String> getWatchedActivityTypes() {
+        Set<String> watched = new HashSet<>(activityTypeOne);
+        if (activityTypeTwo != null) {
+            watched.add(activityTypeTwo);
+        }
+        return watched;
+    }
+
     @Override
     void unhookFromListeners(){
         for(String type : activityTypeOne) {
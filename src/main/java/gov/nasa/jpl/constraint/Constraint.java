@@ -1,5 +1,7 @@
 package gov.nasa.jpl.constraint;
 
+import gov.nasa.jpl.engine.ModelingEngine;
+import gov.nasa.jpl.resource.Resource;
 import gov.nasa.jpl.time.Time;
 
 import java.beans.PropertyChangeListener;
@@ -17,6 +19,9 @@ public abstract class Constraint implements PropertyChangeListener {
 
     protected Time mostRecentTimeViolationBegan = null;
 
+    // the time of the event being replayed to this constraint after modeling, or null while it listens during modeling
+    private Time replayTime = null;
+
     public Constraint(String message, ViolationSeverity severity) {
         this.message = message;
         this.severity = severity;
@@ -50,13 +55,68 @@ public abstract class Constraint implements PropertyChangeListener {
         listOfViolationBeginAndEndTimes.add(new AbstractMap.SimpleImmutableEntry<>(begin, end));
     }
 
+    /**
+     * The time of the change the constraint is being told about. Constraints must use this instead of asking the
+     * modeling engine, since when they are evaluated after modeling it is no longer the engine's current time.
+     */
+    protected Time currentTime() {
+        return replayTime != null ? replayTime : ModelingEngine.getEngine().getCurrentTime();
+    }
+
+    void setReplayTime(Time t) {
+        replayTime = t;
+    }
+
     abstract void hookToListeners();
 
     abstract void unhookFromListeners();
 
+    /**
+     * @return the resources this constraint listens to, so they can be recorded for it instead
+     */
+    Set<Resource<?>> getWatchedResources() {
+        return Collections.emptySet();
+    }
+
+    /**
+     * @return the activity types whose starts this constraint listens to, so they can be recorded for it instead
+     */
+    Set<String> getWatchedActivityTypes() {
+        return Collections.emptySet();
+    }
+
     public abstract void clearViolationHistory();
 
     // to be called after modeling, in case the end time of a violation hasn't been calculated (so it can be set to the end of modeling)
     public abstract void finalizeConstraintAfterModeling();
 
+    /**
+     * Captures what this constraint has accumulated so far in the current modeling run, so an incremental REMODEL can
+     * later rewind it to this point instead of starting over. Subclasses that keep more modeling state than their
+     * superclass must extend ModelingState and override this and restoreModelingState().
+     */
+    protected ModelingState saveModelingState() {
+        return new ModelingState(this);
+    }
+
+    /**
+     * Puts the constraint back in the state saveModelingState() captured. The state may be restored more than once,
+     * so it must not be modified. Resource histories have already been truncated to checkpointTime when this is called.
+     */
+    protected void restoreModelingState(ModelingState state, Time checkpointTime) {
+        // violations are only ever appended during a run, so the ones found before the checkpoint are a prefix
+        listOfViolationBeginAndEndTimes.subList(state.violationCount, listOfViolationBeginAndEndTimes.size()).clear();
+        mostRecentTimeViolationBegan = state.mostRecentTimeViolationBegan;
+    }
+
+    public static class ModelingState {
+        private final int violationCount;
+        private final Time mostRecentTimeViolationBegan;
+
+        protected ModelingState(Constraint constraint) {
+            violationCount = constraint.listOfViolationBeginAndEndTimes.size();
+            mostRecentTimeViolationBegan = constraint.mostRecentTimeViolationBegan;
+        }
+    }
+
 }
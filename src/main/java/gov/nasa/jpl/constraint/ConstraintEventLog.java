@@ -0,0 +1,230 @@
+package gov.nasa.jpl.constraint;
+
+import gov.nasa.jpl.activity.ActivityTypeList;
+import gov.nasa.jpl.engine.ModelingEngine;
+import gov.nasa.jpl.resource.Resource;
+import gov.nasa.jpl.resource.ResourceChangeListener;
+import gov.nasa.jpl.time.Time;
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Used instead of hooking every constraint to its resources and activity types when constraints are evaluated after
+ * modeling. During modeling, this listens once to every resource and activity type any constraint watches, however
+ * many constraints watch it, and records each change and activity start with the time it happened. After modeling,
+ * every constraint is replayed the events it would have been notified of, in the order it would have been notified
+ * of them, so it finds the same violations it would have found listening.
+ *
+ * Constraints that share a resource might share a Condition, which isn't safe to update from two threads, so they
+ * are replayed together. Every other group of constraints is replayed on its own in the common ForkJoinPool.
+ */
+final class ConstraintEventLog implements ResourceChangeListener {
+    // every event recorded for each resource and activity type, in the order they were recorded
+    private final Map<Object, List<Event>> eventsBySource = new HashMap<>();
+    private long nextSequenceNumber = 0;
+
+    private final Set<Resource<?>> hookedResources = new HashSet<>();
+    private final Set<String> hookedActivityTypes = new HashSet<>();
+    private final PropertyChangeListener activityStartRecorder = this::activityStarted;
+
+    /**
+     * Listens to everything the given constraints watch, and stops listening to anything else
+     */
+    void listenFor(List<Constraint> constraints) {
+        stopListening();
+        for (Constraint c : constraints) {
+            for (Resource<?> r : c.getWatchedResources()) {
+                if (hookedResources.add(r)) {
+                    r.addChangeListener(this);
+                }
+            }
+            for (String type : c.getWatchedActivityTypes()) {
+                if (hookedActivityTypes.add(type)) {
+                    ActivityTypeList.getActivityList().addToObserverList(type, activityStartRecorder);
+                }
+            }
+        }
+    }
+
+    void stopListening() {
+        for (Resource<?> r : hookedResources) {
+            r.removeChangeListener(this);
+        }
+        for (String type : hookedActivityTypes) {
+            ActivityTypeList.getActivityList().removeFromObserverList(type, activityStartRecorder);
+        }
+        hookedResources.clear();
+        hookedActivityTypes.clear();
+    }
+
+    synchronized void clear() {
+        eventsBySource.clear();
+        nextSequenceNumber = 0;
+    }
+
+    /**
+     * Forgets every event at or after the given time, for an incremental REMODEL that resumes there
+     */
+    synchronized void truncateFrom(Time t) {
+        for (List<Event> events : eventsBySource.values()) {
+            events.removeIf(event -> !event.time.lessThan(t));
+        }
+    }
+
+    @Override
+    public void resourceChanged(Resource source, Time oldTime, Comparable oldValue, Time newTime, Comparable newValue) {
+        record(source, new Event(ModelingEngine.getEngine().getCurrentTime(), source, oldTime, oldValue, newTime, newValue, null));
+    }
+
+    private void activityStarted(PropertyChangeEvent evt) {
+        record(evt.getPropertyName(), new Event(ModelingEngine.getEngine().getCurrentTime(), null, null, null, null, null, evt));
+    }
+
+    private synchronized void record(Object source, Event event) {
+        event.sequenceNumber = nextSequenceNumber++;
+        eventsBySource.computeIfAbsent(source, k -> new ArrayList<>()).add(event);
+    }
+
+    /**
+     * Starts each constraint over, replays to it the events it watches and then finalizes it as of endTime, which
+     * should be the time modeling ended. Returns once every constraint is done.
+     */
+    void replay(List<Constraint> constraints, Time endTime) {
+        List<List<Constraint>> groups = groupConstraintsSharingResources(constraints);
+        if (groups.size() <= 1) {
+            for (List<Constraint> group : groups) {
+                replayGroup(group, endTime);
+            }
+            return;
+        }
+
+        List<Future<?>> results = new ArrayList<>(groups.size());
+        for (List<Constraint> group : groups) {
+            results.add(ForkJoinPool.commonPool().submit(() -> replayGroup(group, endTime)));
+        }
+        // every group is let finish, so no constraint is still being replayed once we return or throw
+        RuntimeException firstError = null;
+        for (Future<?> result : results) {
+            try {
+                result.get();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                if (firstError == null) {
+                    firstError = new RuntimeException("Interrupted while evaluating constraints");
+                }
+            }
+            catch (ExecutionException e) {
+                if (firstError == null) {
+                    firstError = e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : new RuntimeException(e.getCause());
+                }
+            }
+        }
+        if (firstError != null) {
+            throw firstError;
+        }
+    }
+
+    private void replayGroup(List<Constraint> group, Time endTime) {
+        // each constraint's sources, and every event of any of them in the order they were recorded
+        List<Set<Object>> sources = new ArrayList<>(group.size());
+        List<Event> events = new ArrayList<>();
+        Set<Object> allSources = new HashSet<>();
+        for (Constraint c : group) {
+            Set<Object> constraintSources = new HashSet<>(c.getWatchedResources());
+            constraintSources.addAll(c.getWatchedActivityTypes());
+            sources.add(constraintSources);
+            allSources.addAll(constraintSources);
+        }
+        synchronized (this) {
+            for (Object source : allSources) {
+                events.addAll(eventsBySource.getOrDefault(source, Collections.emptyList()));
+            }
+        }
+        events.sort(Comparator.comparingLong(event -> event.sequenceNumber));
+
+        for (Constraint c : group) {
+            c.clearViolationHistory();
+        }
+        try {
+            for (Event event : events) {
+                Object source = event.activityStart != null ? event.activityStart.getPropertyName() : event.resource;
+                for (int i = 0; i < group.size(); i++) {
+                    if (sources.get(i).contains(source)) {
+                        Constraint c = group.get(i);
+                        c.setReplayTime(event.time);
+                        if (event.activityStart != null) {
+                            c.propertyChange(event.activityStart);
+                        }
+                        else {
+                            ((ResourceChangeListener) c).resourceChanged(event.resource, event.oldTime, event.oldValue, event.newTime, event.newValue);
+                        }
+                    }
+                }
+            }
+            for (Constraint c : group) {
+                c.setReplayTime(endTime);
+                c.finalizeConstraintAfterModeling();
+            }
+        }
+        finally {
+            for (Constraint c : group) {
+                c.setReplayTime(null);
+            }
+        }
+    }
+
+    // constraints that watch a common resource end up in the same group, in the order they were given
+    private static List<List<Constraint>> groupConstraintsSharingResources(List<Constraint> constraints) {
+        int[] parent = new int[constraints.size()];
+        Map<Resource<?>, Integer> firstWatcher = new HashMap<>();
+        for (int i = 0; i < constraints.size(); i++) {
+            parent[i] = i;
+            for (Resource<?> r : constraints.get(i).getWatchedResources()) {
+                Integer other = firstWatcher.putIfAbsent(r, i);
+                if (other != null) {
+                    parent[root(parent, i)] = root(parent, other);
+                }
+            }
+        }
+        Map<Integer, List<Constraint>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < constraints.size(); i++) {
+            groups.computeIfAbsent(root(parent, i), k -> new ArrayList<>()).add(constraints.get(i));
+        }
+        return new ArrayList<>(groups.values());
+    }
+
+    private static int root(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    private static final class Event {
+        private final Time time;
+        private final Resource resource;
+        private final Time oldTime;
+        private final Comparable oldValue;
+        private final Time newTime;
+        private final Comparable newValue;
+        private final PropertyChangeEvent activityStart;
+        private long sequenceNumber;
+
+        private Event(Time time, Resource resource, Time oldTime, Comparable oldValue, Time newTime, Comparable newValue, PropertyChangeEvent activityStart) {
+            this.time = time;
+            this.resource = resource;
+            this.oldTime = oldTime;
+            this.oldValue = oldValue;
+            this.newTime = newTime;
+            this.newValue = newValue;
+            this.activityStart = activityStart;
+        }
+    }
+}
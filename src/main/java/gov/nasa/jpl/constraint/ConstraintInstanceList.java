@@ -3,11 +3,14 @@ package gov.nasa.jpl.constraint;
 import java.util.*;
 import java.util.AbstractMap.SimpleImmutableEntry;
 
+import gov.nasa.jpl.engine.ModelingEngine;
 import gov.nasa.jpl.time.Time;
 
 public class ConstraintInstanceList {
     private ArrayList<Constraint> allConstraintInstances;
     private Map<String, Constraint> deactivatedInstances;
+    // records what constraints would have been notified of during modeling, only when they are evaluated after it
+    private ConstraintEventLog eventLog;
 
     // we're implementing the singleton design pattern for now, since we only need one global list
     private static ConstraintInstanceList instance = null;
@@ -31,10 +34,82 @@ public class ConstraintInstanceList {
         for (int i = 0; i < allConstraintInstances.size(); i++) {
             allConstraintInstances.get(i).clearViolationHistory();
         }
+        if (eventLog != null) {
+            // constraints may have been added or changed since the last run, so we listen for the current ones
+            eventLog.clear();
+            eventLog.listenFor(allConstraintInstances);
+        }
+    }
+
+    /**
+     * Turns on or off evaluating constraints after modeling instead of during it. With it on, constraints don't
+     * listen to resources and activity starts themselves, so adding constraints barely slows modeling down. Instead,
+     * every change and activity start any of them watches is recorded once, and when modeling finishes each
+     * constraint is replayed the events it would have been notified of, on several threads, finding the same
+     * violations it would have found listening. Constraints have to use Constraint.currentTime() rather than the
+     * modeling engine's time for this to work, which every built-in constraint does.
+     * @param afterModeling true to evaluate constraints after modeling
+     */
+    public void setEvaluatingAfterModeling(boolean afterModeling) {
+        if (ModelingEngine.getEngine().isModeling()) {
+            throw new RuntimeException("Cannot change when constraints are evaluated while modeling!");
+        }
+        if (afterModeling == isEvaluatingAfterModeling()) {
+            return;
+        }
+        if (afterModeling) {
+            for (Constraint c : allConstraintInstances) {
+                c.unhookFromListeners();
+            }
+            eventLog = new ConstraintEventLog();
+            eventLog.listenFor(allConstraintInstances);
+        }
+        else {
+            eventLog.stopListening();
+            eventLog = null;
+            for (Constraint c : allConstraintInstances) {
+                c.hookToListeners();
+            }
+        }
+        ModelingEngine.getEngine().markAllChanged();
+    }
+
+    public boolean isEvaluatingAfterModeling() {
+        return eventLog != null;
+    }
+
+    /**
+     * Captures the modeling state of every active constraint, for an incremental REMODEL to rewind to later
+     */
+    public Map<Constraint, Constraint.ModelingState> saveModelingStates() {
+        Map<Constraint, Constraint.ModelingState> states = new IdentityHashMap<>();
+        for (Constraint c : allConstraintInstances) {
+            states.put(c, c.saveModelingState());
+        }
+        return states;
+    }
+
+    /**
+     * @return true if every active constraint has a state in the given map, so restoreModelingStates() can use it
+     */
+    public boolean canRestoreModelingStates(Map<Constraint, Constraint.ModelingState> states) {
+        return states.keySet().containsAll(allConstraintInstances);
+    }
+
+    public void restoreModelingStates(Map<Constraint, Constraint.ModelingState> states, Time checkpointTime) {
+        for (Constraint c : allConstraintInstances) {
+            c.restoreModelingState(states.get(c), checkpointTime);
+        }
+        if (eventLog != null) {
+            // the constraints will be replayed from the start anyway, so we only need the events before the checkpoint
+            eventLog.truncateFrom(checkpointTime);
+        }
     }
 
     public void registerConstraint(Constraint c) {
         allConstraintInstances.add(c);
+        // the new constraint has no state to rewind to, so the next REMODEL has to start over
+        ModelingEngine.getEngine().markAllChanged();
     }
 
     public void reactivateConstraints(List<String> constraintsToReactivate){
@@ -42,10 +117,13 @@ public class ConstraintInstanceList {
             if(deactivatedInstances.containsKey(name)){
                 Constraint c = deactivatedInstances.get(name);
                 allConstraintInstances.add(c);
-                c.hookToListeners();
+                if (eventLog == null) {
+                    c.hookToListeners();
+                }
                 deactivatedInstances.remove(name);
             }
         }
+        ModelingEngine.getEngine().markAllChanged();
     }
 
     public void deactivateConstraints(List<String> constraintsToDeactivate){
@@ -57,6 +135,7 @@ public class ConstraintInstanceList {
             }
         }
         allConstraintInstances.removeAll(deactivatedInstances.values());
+        ModelingEngine.getEngine().markAllChanged();
     }
 
     public List<Map.Entry<Time, Map.Entry<Boolean, Constraint>>> createListOfConstraintBeginAndEndTimes() {
@@ -94,6 +173,10 @@ public class ConstraintInstanceList {
     }
 
     public void finalizeAllConstraints() {
+        if (eventLog != null) {
+            eventLog.replay(allConstraintInstances, ModelingEngine.getEngine().getCurrentTime());
+            return;
+        }
         for (int i = 0; i < allConstraintInstances.size(); i++) {
             allConstraintInstances.get(i).finalizeConstraintAfterModeling();
         }
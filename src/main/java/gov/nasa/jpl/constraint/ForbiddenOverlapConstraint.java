@@ -1,7 +1,6 @@
 package gov.nasa.jpl.constraint;
 
 import gov.nasa.jpl.activity.Activity;
-import gov.nasa.jpl.engine.ModelingEngine;
 import gov.nasa.jpl.time.Duration;
 import gov.nasa.jpl.time.Time;
 
@@ -20,7 +19,7 @@ public class ForbiddenOverlapConstraint extends ActivityConstraint {
     // we're listening to activity instances start by type
     @Override
     public void propertyChange(PropertyChangeEvent evt) {
-        Time currentTime = ModelingEngine.getEngine().getCurrentTime();
+        Time currentTime = currentTime();
         seeIfAnyLiveActivitiesHaveEnded(currentTime, Duration.ZERO_DURATION);
         Activity actStarting = (Activity) evt.getNewValue();
         if (activityTypeOne.contains(evt.getPropertyName())) {
@@ -1,11 +1,8 @@
 package gov.nasa.jpl.constraint;
 
-import gov.nasa.jpl.engine.ModelingEngine;
 import gov.nasa.jpl.resource.Resource;
 import gov.nasa.jpl.scheduler.Condition;
-
-import java.beans.PropertyChangeEvent;
-import java.util.Map;
+import gov.nasa.jpl.time.Time;
 
 public class ForbiddenResourceConstraint extends ResourceConstraint {
     public ForbiddenResourceConstraint(Condition condition, String message, ViolationSeverity severity) {
@@ -14,16 +11,16 @@ public class ForbiddenResourceConstraint extends ResourceConstraint {
 
     // we're listening to Resource values change here
     @Override
-    public void propertyChange(PropertyChangeEvent evt) {
-        primaryCondition.update((Resource) evt.getSource(), ((Comparable) ((Map.Entry) evt.getNewValue()).getValue()));
+    public void resourceChanged(Resource source, Time oldTime, Comparable oldValue, Time newTime, Comparable newValue) {
+        primaryCondition.update(source, newValue);
         if (primaryCondition.isTrue()) {
             if (mostRecentTimeViolationBegan == null) {
-                mostRecentTimeViolationBegan = ModelingEngine.getEngine().getCurrentTime();
+                mostRecentTimeViolationBegan = currentTime();
             }
         }
         else {
             if (mostRecentTimeViolationBegan != null) {
-                addViolation(mostRecentTimeViolationBegan, ModelingEngine.getEngine().getCurrentTime());
+                addViolation(mostRecentTimeViolationBegan, currentTime());
                 // set slate clean for next violation
                 mostRecentTimeViolationBegan = null;
             }
@@ -34,7 +31,7 @@ public class ForbiddenResourceConstraint extends ResourceConstraint {
     public void finalizeConstraintAfterModeling() {
         // we could have a violation that started but wasn't added as ending to the list
         if (mostRecentTimeViolationBegan != null) {
-            addViolation(mostRecentTimeViolationBegan, ModelingEngine.getEngine().getCurrentTime());
+            addViolation(mostRecentTimeViolationBegan, currentTime());
         }
     }
 }
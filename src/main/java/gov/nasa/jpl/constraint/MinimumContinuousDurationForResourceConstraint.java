@@ -1,14 +1,10 @@
 package gov.nasa.jpl.constraint;
 
-import gov.nasa.jpl.engine.ModelingEngine;
 import gov.nasa.jpl.resource.Resource;
 import gov.nasa.jpl.scheduler.Condition;
 import gov.nasa.jpl.time.Duration;
 import gov.nasa.jpl.time.Time;
 
-import java.beans.PropertyChangeEvent;
-import java.util.Map;
-
 public class MinimumContinuousDurationForResourceConstraint extends ResourceConstraint {
     private Duration minimumDuration;
 
@@ -18,16 +14,16 @@ public class MinimumContinuousDurationForResourceConstraint extends ResourceCons
     }
 
     @Override
-    public void propertyChange(PropertyChangeEvent evt) {
-        primaryCondition.update((Resource) evt.getSource(), ((Comparable) ((Map.Entry) evt.getNewValue()).getValue()));
+    public void resourceChanged(Resource source, Time oldTime, Comparable oldValue, Time newTime, Comparable newValue) {
+        primaryCondition.update(source, newValue);
         if (primaryCondition.isTrue()) {
             if (mostRecentTimeViolationBegan == null) {
-                mostRecentTimeViolationBegan = ModelingEngine.getEngine().getCurrentTime();
+                mostRecentTimeViolationBegan = currentTime();
             }
         }
         else {
             if (mostRecentTimeViolationBegan != null) {
-                Time endTime = ModelingEngine.getEngine().getCurrentTime();
+                Time endTime = currentTime();
                 Duration observedDuration = endTime.subtract(mostRecentTimeViolationBegan);
                 if (observedDuration.lessThan(minimumDuration)) {
                     addViolation(mostRecentTimeViolationBegan, endTime);
@@ -1,14 +1,10 @@
 package gov.nasa.jpl.constraint;
 
-import gov.nasa.jpl.engine.ModelingEngine;
 import gov.nasa.jpl.resource.Resource;
 import gov.nasa.jpl.scheduler.Condition;
 import gov.nasa.jpl.time.Duration;
 import gov.nasa.jpl.time.Time;
 
-import java.beans.PropertyChangeEvent;
-import java.util.Map;
-
 /*
  * This type of rule says that “if condition 1 occurs, condition 2 must have been true continuously for a certain
  * amount of time before that and also for the entire period of time during which condition 1 is true”
@@ -25,36 +21,36 @@ public class PrerequisiteConditionConstraint extends ResourceConstraint {
     }
 
     @Override
-    public void propertyChange(PropertyChangeEvent evt) {
-        // we can't tell from evt, whose source is a resource, which Condition was triggered
-        if (primaryCondition.getAllResourcesRecursively().contains(evt.getSource())) {
-            primaryCondition.update((Resource) evt.getSource(), ((Comparable) ((Map.Entry) evt.getNewValue()).getValue()));
+    public void resourceChanged(Resource source, Time oldTime, Comparable oldValue, Time newTime, Comparable newValue) {
+        // we can't tell from the source, which is a resource, which Condition was triggered
+        if (primaryCondition.getAllResourcesRecursively().contains(source)) {
+            primaryCondition.update(source, newValue);
         }
-        if (secondaryCondition.getAllResourcesRecursively().contains(evt.getSource())) {
-            secondaryCondition.update((Resource) evt.getSource(), ((Comparable) ((Map.Entry) evt.getNewValue()).getValue()));
+        if (secondaryCondition.getAllResourcesRecursively().contains(source)) {
+            secondaryCondition.update(source, newValue);
         }
 
         if (secondaryCondition.isTrue()) {
             if (mostRecentTimePrerequisiteConditionStartedBeingTrue == null) {
-                mostRecentTimePrerequisiteConditionStartedBeingTrue = ModelingEngine.getEngine().getCurrentTime();
+                mostRecentTimePrerequisiteConditionStartedBeingTrue = currentTime();
             }
         }
         else {
             mostRecentTimePrerequisiteConditionStartedBeingTrue = null;
             // if the prerequisite stops being true during the main condition, the violation is thrown
             if (primaryCondition.isTrue() && mostRecentTimeViolationBegan == null) {
-                mostRecentTimeViolationBegan = ModelingEngine.getEngine().getCurrentTime();
+                mostRecentTimeViolationBegan = currentTime();
             }
         }
 
         if (primaryCondition.isTrue()) {
-            if (mostRecentTimePrerequisiteConditionStartedBeingTrue == null || ModelingEngine.getEngine().getCurrentTime().subtract(mostRecentTimePrerequisiteConditionStartedBeingTrue).lessThan(prerequisiteDuration)) {
-                mostRecentTimeViolationBegan = ModelingEngine.getEngine().getCurrentTime();
+            if (mostRecentTimePrerequisiteConditionStartedBeingTrue == null || currentTime().subtract(mostRecentTimePrerequisiteConditionStartedBeingTrue).lessThan(prerequisiteDuration)) {
+                mostRecentTimeViolationBegan = currentTime();
             }
         }
         else {
             if (mostRecentTimeViolationBegan != null) {
-                Time endTime = ModelingEngine.getEngine().getCurrentTime();
+                Time endTime = currentTime();
                 addViolation(mostRecentTimeViolationBegan, endTime);
                 // set slate clean for next violation
                 mostRecentTimeViolationBegan = null;
@@ -62,11 +58,31 @@ public class PrerequisiteConditionConstraint extends ResourceConstraint {
         }
     }
 
+    @Override
+    protected ModelingState saveModelingState() {
+        return new PrerequisiteState(this);
+    }
+
+    @Override
+    protected void restoreModelingState(ModelingState state, Time checkpointTime) {
+        super.restoreModelingState(state, checkpointTime);
+        mostRecentTimePrerequisiteConditionStartedBeingTrue = ((PrerequisiteState) state).mostRecentTimePrerequisiteConditionStartedBeingTrue;
+    }
+
+    private static class PrerequisiteState extends ModelingState {
+        private final Time mostRecentTimePrerequisiteConditionStartedBeingTrue;
+
+        private PrerequisiteState(PrerequisiteConditionConstraint constraint) {
+            super(constraint);
+            mostRecentTimePrerequisiteConditionStartedBeingTrue = constraint.mostRecentTimePrerequisiteConditionStartedBeingTrue;
+        }
+    }
+
     @Override
     public void finalizeConstraintAfterModeling() {
         // we could have a violation that started but wasn't added as ending to the list
         if (mostRecentTimeViolationBegan != null) {
-            addViolation(mostRecentTimeViolationBegan, ModelingEngine.getEngine().getCurrentTime());
+            addViolation(mostRecentTimeViolationBegan, currentTime());
         }
     }
 }
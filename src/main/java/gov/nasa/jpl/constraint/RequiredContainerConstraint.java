@@ -1,7 +1,6 @@
 package gov.nasa.jpl.constraint;
 
 import gov.nasa.jpl.activity.Activity;
-import gov.nasa.jpl.engine.ModelingEngine;
 import gov.nasa.jpl.time.Duration;
 import gov.nasa.jpl.time.Time;
 
@@ -23,7 +22,7 @@ public class RequiredContainerConstraint extends ActivityConstraint {
 
     @Override
     public void propertyChange(PropertyChangeEvent evt) {
-        Time currentTime = ModelingEngine.getEngine().getCurrentTime();
+        Time currentTime = currentTime();
         seeIfAnyLiveActivitiesHaveEnded(currentTime, Duration.ZERO_DURATION);
         Activity actStarting = (Activity) evt.getNewValue();
         boolean wasThereAContainerAct = false;
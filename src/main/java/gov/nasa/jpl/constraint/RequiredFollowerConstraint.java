@@ -1,7 +1,6 @@
 package gov.nasa.jpl.constraint;
 
 import gov.nasa.jpl.activity.Activity;
-import gov.nasa.jpl.engine.ModelingEngine;
 import gov.nasa.jpl.time.Duration;
 import gov.nasa.jpl.time.Time;
 
@@ -28,7 +27,7 @@ public class RequiredFollowerConstraint extends ActivityConstraint {
 
     @Override
     public void propertyChange(PropertyChangeEvent evt) {
-        Time currentTime = ModelingEngine.getEngine().getCurrentTime();
+        Time currentTime = currentTime();
         // we only need to delete activityOneLiveInstances because activityTwoLiveInstances isn't accumulated in this constraint
         pruneOldActivities(currentTime, durationFollowerHasToStartBy, activityOneLiveInstances, true);
         Activity actStarting = (Activity) evt.getNewValue();
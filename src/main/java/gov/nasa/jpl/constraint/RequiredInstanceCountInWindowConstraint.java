@@ -4,7 +4,6 @@ import gov.nasa.jpl.activity.Activity;
 import gov.nasa.jpl.constraint.ActivityConstraint;
 import gov.nasa.jpl.constraint.ViolationSeverity;
 import gov.nasa.jpl.engine.AdaptationException;
-import gov.nasa.jpl.engine.ModelingEngine;
 import gov.nasa.jpl.scheduler.CompareToValues;
 import gov.nasa.jpl.scheduler.Window;
 import gov.nasa.jpl.time.Time;
@@ -34,7 +33,7 @@ public class RequiredInstanceCountInWindowConstraint extends ActivityConstraint
 
     @Override
     public void propertyChange(PropertyChangeEvent evt) {
-        Time currentTime = ModelingEngine.getEngine().getCurrentTime();
+        Time currentTime = currentTime();
 
         if(activityTypeOne.contains(evt.getPropertyName()) && window.contains(currentTime)){
             Activity actStarting = (Activity) evt.getNewValue();
@@ -1,7 +1,6 @@
 package gov.nasa.jpl.constraint;
 
 import gov.nasa.jpl.activity.Activity;
-import gov.nasa.jpl.engine.ModelingEngine;
 import gov.nasa.jpl.time.Duration;
 import gov.nasa.jpl.time.Time;
 
@@ -28,7 +27,7 @@ public class RequiredPrecederConstraint extends ActivityConstraint {
 
     @Override
     public void propertyChange(PropertyChangeEvent evt) {
-        Time currentTime = ModelingEngine.getEngine().getCurrentTime();
+        Time currentTime = currentTime();
         Activity actStarting = (Activity) evt.getNewValue();
         // we need to save requiredPreceders past their end time for durationToPrecedeBy to fulfill the constraint
         pruneOldActivities(currentTime, durationToPrecedeBy, activityTwoLiveInstances, false);
@@ -1,14 +1,17 @@
 package gov.nasa.jpl.constraint;
 
 import gov.nasa.jpl.resource.Resource;
+import gov.nasa.jpl.resource.ResourceChangeListener;
 import gov.nasa.jpl.scheduler.Condition;
 import gov.nasa.jpl.time.Time;
 
-import java.beans.PropertyChangeListener;
+import java.beans.PropertyChangeEvent;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Set;
 
 // the constraint will listen to resources change and throw flags if they violate the passive constraint
-public abstract class ResourceConstraint extends Constraint {
+public abstract class ResourceConstraint extends Constraint implements ResourceChangeListener {
     // in addition to fields provided by Constraint, ResourceConstraint holds one or two Conditions
     protected Condition primaryCondition;
     protected Condition secondaryCondition;
@@ -17,7 +20,15 @@ public abstract class ResourceConstraint extends Constraint {
         super(message, severity);
         this.primaryCondition = primaryCondition;
         this.secondaryCondition = secondaryCondition;
-        hookToListeners();
+        if (!ConstraintInstanceList.getConstraintList().isEvaluatingAfterModeling()) {
+            hookToListeners();
+        }
+    }
+
+    // resources call resourceChanged() directly, this is only for anything still sending events
+    @Override
+    public void propertyChange(PropertyChangeEvent evt) {
+        ResourceChangeListener.super.propertyChange(evt);
     }
 
     @Override
@@ -28,6 +39,14 @@ public abstract class ResourceConstraint extends Constraint {
         listOfViolationBeginAndEndTimes = new ArrayList<>();
     }
 
+    @Override
+    protected void restoreModelingState(ModelingState state, Time checkpointTime) {
+        super.restoreModelingState(state, checkpointTime);
+        // with the histories truncated, the value at the checkpoint is the last one the conditions were updated with
+        if (primaryCondition != null) primaryCondition.setEvaluatedTo(checkpointTime);
+        if (secondaryCondition != null) secondaryCondition.setEvaluatedTo(checkpointTime);
+    }
+
     @Override
     void hookToListeners(){
         if (primaryCondition != null) {
@@ -42,6 +61,18 @@ public abstract class ResourceConstraint extends Constraint {
         }
     }
 
+    @Override
+    Set<Resource<?>> getWatchedResources() {
+        Set<Resource<?>> watched = new HashSet<>();
+        if (primaryCondition != null) {
+            watched.addAll(primaryCondition.getAllResourcesRecursively());
+        }
+        if (secondaryCondition != null) {
+            watched.addAll(secondaryCondition.getAllResourcesRecursively());
+        }
+        return watched;
+    }
+
     @Override
     void unhookFromListeners(){
         if (primaryCondition != null) {
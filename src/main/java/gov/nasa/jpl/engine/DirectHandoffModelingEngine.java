@@ -0,0 +1,309 @@
+package gov.nasa.jpl.engine;
+
+import gov.nasa.jpl.activity.Activity;
+import gov.nasa.jpl.activity.ActivityInstanceList;
+import gov.nasa.jpl.activity.ActivityTypeList;
+import gov.nasa.jpl.activity.WaitProvider;
+import gov.nasa.jpl.resource.ResourceUpdateBatch;
+import gov.nasa.jpl.time.Time;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Implementation of ModelingEngine that executes Waiters in exactly the same order as
+ * FunctionalWaitModelingEngine, but passes control directly between the threads that
+ * run blocking-style model() bodies instead of going through a main thread and a thread pool.
+ *
+ * Exactly one Carrier thread holds the 'baton' and drains the waiter queue at any time. When
+ * an activity blocks in waitUntil() and its own resume Waiter is the next one in the queue, the
+ * wait returns immediately on the same thread with no hand-off at all. Otherwise the baton is
+ * given to an idle Carrier, and the blocked Carrier is only woken again by whichever Carrier
+ * pops its resume Waiter. Idle Carriers are reused for the whole modeling run.
+ */
+public class DirectHandoffModelingEngine extends ModelingEngine implements WaitProvider {
+
+    private final WaiterQueue waiters = new WaiterQueue();
+
+    // Carriers parked with nothing to do, only touched by the baton holder
+    private final Deque<Carrier> idleCarriers = new ArrayDeque<>();
+    // every Carrier created during the current run, so idle ones can be retired at the end
+    private final List<Carrier> allCarriers = new ArrayList<>();
+
+    // set by a resume Waiter's function so the baton holder knows which Carrier to wake
+    private Carrier handoffTarget = null;
+
+    private final Semaphore modelingFinished = new Semaphore(0);
+    private volatile RuntimeException thrownException = null;
+    private boolean inmodel = false;
+    private int carrierCount = 0;
+
+    DirectHandoffModelingEngine()
+    {
+    }
+
+    /**
+     * A thread that runs Waiters while it holds the baton. Its permit is released by whichever
+     * Carrier hands the baton to it.
+     */
+    private class Carrier extends Thread {
+        private final Semaphore permit = new Semaphore(0);
+        private volatile boolean retired = false;
+        // data passed by a signal to a Carrier blocked in waitForSignal()
+        private Map signalContents;
+
+        Carrier() {
+            super("BlackbirdCarrier-" + carrierCount++);
+            // a Carrier still waiting on a signal that is never sent should not keep the JVM alive
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                permit.acquireUninterruptibly();
+                if (retired || !drive(this)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Method which runs the modeling. All Activity objects are scheduled to run.
+     */
+    @Override
+    protected void runModeling() {
+        waiters.clear();
+        // a run resumed from a checkpoint has to break ties the way a full run did, which the heap's shape wouldn't
+        waiters.setTiesInAddedOrder(isIncrementalRemodeling());
+        idleCarriers.clear();
+        allCarriers.clear();
+        handoffTarget = null;
+        ActivityInstanceList activities = ActivityInstanceList.getActivityList();
+        for (int i = 0; i < activities.length(); i++) {
+            // when resuming from a checkpoint, activities that started before it are already reflected in resources
+            if (shouldModel(activities.get(i))) {
+                insertActivityIntoEngine(activities.get(i));
+            }
+        }
+
+        // a run resuming from a checkpoint already has its time and resources set up
+        if (getResumeTime() == null) {
+            // Initial time is set to the first activity (waiter) in queue
+            Time currentModelingTime = waiters.isEmpty() ? null : waiters.peek().getTime();
+            if (currentModelingTime == null) {
+                currentModelingTime = new Time();
+            }
+
+            // This call clears and then sets initial profile for all resources
+            initTime(currentModelingTime);
+        }
+
+        thrownException = null;
+        modelingFinished.drainPermits();
+
+        try {
+            inmodel = true;
+            wakeIdleCarrier();
+            modelingFinished.acquireUninterruptibly();
+            if (thrownException != null) {
+                throw new RuntimeException(thrownException);
+            }
+        }
+        finally {
+            inmodel = false;
+            // Carriers blocked on signals that were never sent stay parked as daemon threads,
+            // but idle ones can exit now
+            for (Carrier c : allCarriers) {
+                c.retired = true;
+            }
+            for (Carrier c : idleCarriers) {
+                c.permit.release();
+            }
+            idleCarriers.clear();
+            allCarriers.clear();
+        }
+    }
+
+    /**
+     * Drains the waiter queue on the calling Carrier until one of the following things happen:
+     * 1) Modeling is done
+     * 2) An Error happens.
+     * 3) A Waiter resumes a Carrier that is blocked in one of the explicit wait functions,
+     * in which case the baton is passed to it and this Carrier goes idle.
+     * Activity model() bodies that block in a wait call do so inside this method, on this Carrier.
+     * @return true if this Carrier went idle and can be given the baton again, false if the run is over
+     */
+    private boolean drive(Carrier self) {
+        try {
+            while (!waiters.isEmpty()) {
+                checkpointIfQuiescent(waiters.peek());
+                Waiter next = waiters.remove();
+                waiterDequeued(next);
+                ModelingProfiler.waiterDequeued(next.getTime(), waiters.size());
+                setTime(next.getTime());
+
+                Waiter future = next.execute();
+                if (next.resumedAThread()) {
+                    Carrier target = handoffTarget;
+                    handoffTarget = null;
+                    // we must be back in the idle stack before the resumed Carrier can look at it
+                    idleCarriers.push(self);
+                    target.permit.release();
+                    return true;
+                }
+
+                // a Waiter that re-armed itself is the future, so it can only go back to the pool if it is not
+                if (future != next) {
+                    waiters.recycle(next);
+                }
+                if (future != null) {
+                    insertWaiter(future);
+                }
+            }
+            modelingFinished.release();
+        }
+        catch (RuntimeException ex) {
+            thrownException = ex;
+            modelingFinished.release();
+        }
+        return false;
+    }
+
+    /**
+     * Gives the baton to an idle Carrier, creating one if none are available.
+     */
+    private void wakeIdleCarrier() {
+        Carrier c = idleCarriers.poll();
+        if (c == null) {
+            c = new Carrier();
+            allCarriers.add(c);
+            c.start();
+        }
+        c.permit.release();
+    }
+
+    private Carrier currentCarrier(String methodName) {
+        Thread current = Thread.currentThread();
+        if (!(current instanceof Carrier) || !inmodel) {
+            throw new AdaptationException(methodName + "() can only be called from an activity while the engine is modeling.");
+        }
+        return (Carrier) current;
+    }
+
+    /**
+     * Inserts a Waiter into the modeling queue.
+     * @param toInsert the Waiter to be inserted.
+     */
+    @Override
+    void insertWaiter(Waiter toInsert) {
+        if (inmodel && toInsert.getTime().lessThan(getCurrentTime())) {
+            throw new RuntimeException(String.format(
+                    "Current time is [%s]. Cannot schedule an event at [%s] because it is in the past.",
+                    getCurrentTime().toString(), toInsert.getTime().toString()));
+        }
+        waiters.add(toInsert);
+        waiterQueued(toInsert);
+    }
+
+    /**
+     * Inserts an Activity into the modeling queue.
+     * @param activity the activity to be inserted.
+     */
+    @Override
+    public void insertActivityIntoEngine(Activity activity) {
+        // set the WaitProvider for the Activity
+        activity.setThread(this);
+        // queue a waiter to run at Activity start time
+        insertWaiter(waiters.obtain(activity.getStart(), 1, () -> {
+            ActivityTypeList.getActivityList().propertyChangeForActivityType(activity.getType(), activity);
+            try {
+                return ModelingProfiler.modelFunc(activity);
+            }
+            catch (InterruptedException ex) {
+                return null;
+            }
+        }));
+    }
+
+    /**
+     * Schedules a Waiter to resume this thread at time t. If that Waiter is the next one
+     * the engine would run anyway, this returns without switching threads.
+     * @param t the time to resume execution.
+     */
+    @Override
+    public void waitUntil(Time t) {
+        // the activity is done with this time, so its changes are propagated before another one runs
+        ResourceUpdateBatch.flush();
+        Carrier self = currentCarrier("waitUntil");
+        Waiter waiter = new Waiter(t, 0, () -> {
+            handoffTarget = self;
+            return null;
+        });
+        waiter.willResumeThread(true);
+        insertWaiter(waiter);
+
+        if (waiters.peek() == waiter) {
+            // nothing else is due before we are, so we are still the baton holder
+            waiters.remove();
+            waiterDequeued(waiter);
+            ModelingProfiler.waiterDequeued(waiter.getTime(), waiters.size());
+            setTime(waiter.getTime());
+            return;
+        }
+
+        wakeIdleCarrier();
+        self.permit.acquireUninterruptibly();
+    }
+
+    /**
+     * Schedules a waiter to resume this thread upon the given signal
+     * @param signalName name of signal to wait
+     * @return data sent when the signal was raised
+     * @throws InterruptedException
+     */
+    @Override
+    public Map waitForSignal(String signalName) throws InterruptedException {
+        // the activity is done with this time, so its changes are propagated before another one runs
+        ResourceUpdateBatch.flush();
+        Carrier self = currentCarrier("waitForSignal");
+        // give the signal a handler to hand the baton back to us when the signal is raised
+        Signal.getSignal(signalName).addSignalHandler(true, (m) -> {
+            self.signalContents = m == null ? new HashMap() : m;
+            handoffTarget = self;
+            return null;
+        });
+
+        wakeIdleCarrier();
+        self.permit.acquire();
+
+        Map contents = self.signalContents;
+        self.signalContents = null;
+        return contents;
+    }
+
+    /**
+     * Returns a Waiter object that can be returned to the modeling engine to execute at a time in the future.
+     * @param t time in future to execute the given function
+     * @param func the given function
+     * @return Waiter object
+     */
+    @Override
+    public Waiter waitUntil(Time t, Supplier<Waiter> func) {
+        return waiters.obtain(t, 0, func);
+    }
+
+    @Override
+    public Waiter waitForSignal(String signalName, Function<Map, Waiter> func) {
+        Signal.getSignal(signalName).addSignalHandler(false, func);
+        return null;
+    }
+}
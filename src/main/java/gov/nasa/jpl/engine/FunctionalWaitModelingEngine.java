@@ -4,11 +4,11 @@ import gov.nasa.jpl.activity.Activity;
 import gov.nasa.jpl.activity.ActivityInstanceList;
 import gov.nasa.jpl.activity.ActivityTypeList;
 import gov.nasa.jpl.activity.WaitProvider;
+import gov.nasa.jpl.resource.ResourceUpdateBatch;
 import gov.nasa.jpl.time.Time;
 
 import java.util.HashMap;
 import java.util.Map;
-import java.util.PriorityQueue;
 import java.util.concurrent.*;
 import java.util.function.Function;
 import java.util.function.Supplier;
@@ -29,7 +29,7 @@ public class FunctionalWaitModelingEngine extends ModelingEngine implements Wait
         Done     // signal to the engine the modelling has completed successfully
     }
 
-    private final PriorityQueue<Waiter> waiters = new PriorityQueue<>();
+    private final WaiterQueue waiters = new WaiterQueue();
     private final BlockingQueue<Result> workerToMain = new ArrayBlockingQueue<>(1);
     private Exception thrownException = null;
     private boolean inmodel = false;
@@ -44,19 +44,27 @@ public class FunctionalWaitModelingEngine extends ModelingEngine implements Wait
     @Override
     protected void runModeling() {
         waiters.clear();
+        // a run resumed from a checkpoint has to break ties the way a full run did, which the heap's shape wouldn't
+        waiters.setTiesInAddedOrder(isIncrementalRemodeling());
         ActivityInstanceList activities = ActivityInstanceList.getActivityList();
         for (int i = 0; i < activities.length(); i++) {
-            insertActivityIntoEngine(activities.get(i));
+            // when resuming from a checkpoint, activities that started before it are already reflected in resources
+            if (shouldModel(activities.get(i))) {
+                insertActivityIntoEngine(activities.get(i));
+            }
         }
 
-        // Initial time is set to the first activity (waiter) in queue
-        Time currentModelingTime = waiters.isEmpty() ? null : waiters.peek().getTime();
-        if (currentModelingTime == null) {
-            currentModelingTime = new Time();
-        }
+        // a run resuming from a checkpoint already has its time and resources set up
+        if (getResumeTime() == null) {
+            // Initial time is set to the first activity (waiter) in queue
+            Time currentModelingTime = waiters.isEmpty() ? null : waiters.peek().getTime();
+            if (currentModelingTime == null) {
+                currentModelingTime = new Time();
+            }
 
-        // This call clears and then sets initial profile for all resources
-        initTime(currentModelingTime);
+            // This call clears and then sets initial profile for all resources
+            initTime(currentModelingTime);
+        }
 
         thrownException = null;
 
@@ -105,7 +113,10 @@ public class FunctionalWaitModelingEngine extends ModelingEngine implements Wait
         try {
             try {
                 while (!waiters.isEmpty()) {
+                    checkpointIfQuiescent(waiters.peek());
                     Waiter next = waiters.remove();
+                    waiterDequeued(next);
+                    ModelingProfiler.waiterDequeued(next.getTime(), waiters.size());
                     setTime(next.getTime());
 
                     Waiter future = next.execute();
@@ -116,6 +127,10 @@ public class FunctionalWaitModelingEngine extends ModelingEngine implements Wait
                         return;
                     }
 
+                    // a Waiter that re-armed itself is the future, so it can only go back to the pool if it is not
+                    if (future != next) {
+                        waiters.recycle(next);
+                    }
                     if (future != null) {
                         insertWaiter(future);
                     }
@@ -144,6 +159,7 @@ public class FunctionalWaitModelingEngine extends ModelingEngine implements Wait
                     getCurrentTime().toString(), toInsert.getTime().toString()));
         }
         waiters.add(toInsert);
+        waiterQueued(toInsert);
     }
 
     /**
@@ -155,10 +171,10 @@ public class FunctionalWaitModelingEngine extends ModelingEngine implements Wait
         // set the WaitProvider for the Activity
         activity.setThread(this);
         // queue a waiter to run at Activity start time
-        insertWaiter(new Waiter(activity.getStart(), 1, () -> {
+        insertWaiter(waiters.obtain(activity.getStart(), 1, () -> {
             ActivityTypeList.getActivityList().propertyChangeForActivityType(activity.getType(), activity);
             try {
-                return activity.modelFunc();
+                return ModelingProfiler.modelFunc(activity);
             }
             catch (InterruptedException ex) {
                 return null;
@@ -172,6 +188,8 @@ public class FunctionalWaitModelingEngine extends ModelingEngine implements Wait
      */
     @Override
     public void waitUntil(Time t) {
+        // the activity is done with this time, so its changes are propagated before another one runs
+        ResourceUpdateBatch.flush();
         try {
             BlockingQueue<Object> queue = new ArrayBlockingQueue<>(1);
             // queue a waiter to resume this thread at a future time
@@ -206,6 +224,8 @@ public class FunctionalWaitModelingEngine extends ModelingEngine implements Wait
      */
     @Override
     public Map waitForSignal(String signalName) throws InterruptedException {
+        // the activity is done with this time, so its changes are propagated before another one runs
+        ResourceUpdateBatch.flush();
         BlockingQueue<Map> queue = new ArrayBlockingQueue<>(1);
         // give the signal a handler to queue up when the signal is raised
         Signal.getSignal(signalName).addSignalHandler(true, (m) -> {
@@ -230,7 +250,7 @@ public class FunctionalWaitModelingEngine extends ModelingEngine implements Wait
      */
     @Override
     public Waiter waitUntil(Time t, Supplier<Waiter> func) {
-        return new Waiter(t, 0, func);
+        return waiters.obtain(t, 0, func);
     }
 
     @Override
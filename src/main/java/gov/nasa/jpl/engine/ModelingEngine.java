@@ -1,10 +1,19 @@
 package gov.nasa.jpl.engine;
 
+import gov.nasa.jpl.time.Duration;
 import gov.nasa.jpl.time.Time;
 import gov.nasa.jpl.activity.Activity;
 import gov.nasa.jpl.activity.ActivityInstanceList;
+import gov.nasa.jpl.constraint.Constraint;
 import gov.nasa.jpl.constraint.ConstraintInstanceList;
+import gov.nasa.jpl.resource.Resource;
 import gov.nasa.jpl.resource.ResourceList;
+import gov.nasa.jpl.resource.ResourceUpdateBatch;
+import gov.nasa.jpl.scheduler.Scheduler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
 public abstract class ModelingEngine {
 
@@ -19,6 +28,21 @@ public abstract class ModelingEngine {
     // we're implementing the singleton design pattern for now, since we only need one engine and this is a clean way of having a global instance
     private static ModelingEngine instance = null;
 
+    // incremental REMODEL records checkpoints during every run so the next one can skip the unchanged start of the plan
+    private boolean incrementalRemodeling = false;
+    private Duration checkpointInterval = Duration.HOUR_DURATION;
+    private final List<Checkpoint> checkpoints = new ArrayList<>();
+    private boolean recordingCheckpoints = false;
+    private Time initialTime = null;
+    // the checkpoint the current run resumed from, or null if it modeled the whole plan
+    private Checkpoint resumedFrom = null;
+    // Waiters in the queue that resume or signal an activity already running - if there are any, we can't checkpoint
+    private int queuedNonStartWaiters = 0;
+
+    // what has changed since the last run - null with everythingChanged false means nothing has
+    private Time earliestChangedTime = null;
+    private boolean everythingChanged = true;
+
     protected ModelingEngine() {
         // Exists only to defeat instantiation.
         modelingTime = new Time();
@@ -36,6 +60,21 @@ public abstract class ModelingEngine {
         return instance;
     }
 
+    /**
+     * Makes sure the singleton modeling engine is of the given type, replacing the current one if it is not.
+     * @param type which ModelingEngine implementation to use
+     * @return the singleton modeling engine
+     */
+    static ModelingEngine useEngine(ModelingEngineType type) {
+        if (instance == null || !type.isTypeOf(instance)) {
+            if (instance != null && instance.isModeling()) {
+                throw new RuntimeException("Cannot change the modeling engine while it is modeling!");
+            }
+            instance = type.create();
+        }
+        return instance;
+    }
+
     protected static void setEngine(ModelingEngine engine) {
         if (instance != null)
             throw new RuntimeException("Modeling engine already set!");
@@ -48,16 +87,45 @@ public abstract class ModelingEngine {
      * defined in each activity.
      */
     public void model() {
+        modelFrom(null);
+    }
+
+    /**
+     * What REMODEL calls. If incremental remodeling is turned on and nothing has changed that invalidates the
+     * checkpoints of the last run, this rewinds resources and constraints to the latest checkpoint at or before the
+     * earliest change and only models from there. Otherwise it is the same as model().
+     */
+    public void remodel() {
+        modelFrom(findCheckpointToResumeFrom());
+    }
+
+    private void modelFrom(Checkpoint checkpoint) {
         // tell all activities that we're modeling
         modeling = true;
+        // if this run fails partway through, its checkpoints can't be trusted by the next one
+        everythingChanged = true;
+        resumedFrom = checkpoint;
+        queuedNonStartWaiters = 0;
 
-        // prepare for modeling by resetting all constraint violation histories - must be done before activities or
-        // resources are added or changed in order to avoid bug where they update using old information
-        ConstraintInstanceList.getConstraintList().resetAllConstraints();
+        if (checkpoint == null) {
+            checkpoints.clear();
+            // prepare for modeling by resetting all constraint violation histories - must be done before activities or
+            // resources are added or changed in order to avoid bug where they update using old information
+            ConstraintInstanceList.getConstraintList().resetAllConstraints();
+        }
+        else {
+            // checkpoints after the one we resume from describe the old plan, and the run will record new ones
+            checkpoints.subList(checkpoints.indexOf(checkpoint) + 1, checkpoints.size()).clear();
+            setTime(checkpoint.time);
+            ResourceList.getResourceList().truncateResourceHistoriesFrom(checkpoint.time);
+            ConstraintInstanceList.getConstraintList().restoreModelingStates(checkpoint.constraintStates, checkpoint.time);
+        }
 
         // insert all activity instances into threads, which are indexed by start time for engine to begin processing
         ActivityInstanceList.getActivityList().prepareActivitiesForModeling();
 
+        recordingCheckpoints = incrementalRemodeling && !planHasSchedulers();
+
         runModeling();
 
         // any activities still waiting on signals will never receive them, so we clear references to them
@@ -71,13 +139,210 @@ public abstract class ModelingEngine {
 
         // tell all activities that we're done modeling
         modeling = false;
+        everythingChanged = false;
+        earliestChangedTime = null;
     }
 
     // called to setup the initial time
     protected void initTime(Time currentModelingTime) {
+        initialTime = currentModelingTime;
         setTime(currentModelingTime);
         ResourceList.getResourceList().resetResourceHistories();
         ResourceList.getResourceList().makeAllResourcesUseTheirProfileAtInitialTime();
+        ResourceUpdateBatch.flush();
+    }
+
+    /**
+     * Turns on or off batching the resource changes each Waiter makes. With it on, the listeners of every resource
+     * set while a Waiter runs are notified once that resource is done changing, when the Waiter ends or its activity
+     * waits, with resources that follow other resources updated first, in dependency order and once each however many
+     * of the resources they follow changed, then conditions, constraints and schedulers. That saves a notification
+     * and an overwritten node per extra set() at the same time, and nothing sees some of a Waiter's changes without
+     * the others. The cost is that within a Waiter, an
+     * activity reading a resource that follows one it just set, like a SumDoubleResource, sees the value from
+     * before the set. DerivedResources are evaluated when read, so they are always current.
+     * @param batching true to batch resource changes
+     */
+    public void setBatchingResourceUpdates(boolean batching) {
+        if (modeling) {
+            throw new RuntimeException("Cannot change whether resource updates are batched while modeling!");
+        }
+        ResourceUpdateBatch.setEnabled(batching);
+    }
+
+    public boolean isBatchingResourceUpdates() {
+        return ResourceUpdateBatch.isEnabled();
+    }
+
+    /**
+     * Turns incremental REMODEL on or off. When it is on, each modeling run records a checkpoint whenever no activity
+     * is in the middle of modeling and at least the checkpoint interval has passed since the last one, and remodel()
+     * resumes from the latest checkpoint before the earliest change instead of modeling the whole plan again.
+     * Activities have to keep any state other activities depend on in resources for this to match a full REMODEL.
+     * @param incremental true to turn incremental REMODEL on
+     */
+    public void setIncrementalRemodeling(boolean incremental) {
+        incrementalRemodeling = incremental;
+        if (!incremental) {
+            checkpoints.clear();
+        }
+    }
+
+    public boolean isIncrementalRemodeling() {
+        return incrementalRemodeling;
+    }
+
+    /**
+     * Sets the minimum simulated time between checkpoints. Shorter intervals make incremental REMODEL replay less
+     * of the plan after an edit, at the cost of saving constraint state more often.
+     * @param interval
+     */
+    public void setCheckpointInterval(Duration interval) {
+        if (interval.lessThanOrEqualTo(Duration.ZERO_DURATION)) {
+            throw new AdaptationException("Checkpoint interval must be positive, but was " + interval.toString());
+        }
+        checkpointInterval = interval;
+    }
+
+    /**
+     * Tells the engine that something modeling depends on changed at or after the given time since the last run.
+     * Commands report the earliest time they touched through this, and the global ActivityInstanceList reports
+     * every activity added or removed outside of modeling.
+     * @param t
+     */
+    public void markChangedFrom(Time t) {
+        if (modeling) {
+            return;
+        }
+        if (earliestChangedTime == null || t.lessThan(earliestChangedTime)) {
+            earliestChangedTime = t;
+        }
+    }
+
+    /**
+     * Tells the engine that something changed that could affect the whole plan, like an adaptation parameter,
+     * so the next REMODEL has to start from scratch
+     */
+    public void markAllChanged() {
+        if (!modeling) {
+            everythingChanged = true;
+        }
+    }
+
+    /**
+     * @return the time the current or last run resumed modeling at, or null if it modeled the whole plan
+     */
+    public Time getResumeTime() {
+        return resumedFrom == null ? null : resumedFrom.time;
+    }
+
+    /**
+     * Called by engines before they execute the next Waiter. If every activity that has started has also finished,
+     * nothing has happened at the Waiter's time yet, and the checkpoint interval has passed, the state of the run
+     * is completely described by resource histories, constraint states and the activities yet to start, so we save
+     * the constraint states there and can later resume from that time.
+     * @param next the next Waiter to execute
+     */
+    void checkpointIfQuiescent(Waiter next) {
+        if (!recordingCheckpoints || queuedNonStartWaiters > 0 || !next.getTime().greaterThan(getCurrentTime())) {
+            return;
+        }
+        Time lastCheckpointTime = checkpoints.isEmpty() ? initialTime : checkpoints.get(checkpoints.size() - 1).time;
+        if (next.getTime().lessThan(lastCheckpointTime.add(checkpointInterval)) || Signal.anyHandlersWaiting()) {
+            return;
+        }
+        checkpoints.add(new Checkpoint(next.getTime(), ConstraintInstanceList.getConstraintList().saveModelingStates()));
+    }
+
+    /**
+     * Engines call this whenever they add a Waiter to their queue
+     */
+    void waiterQueued(Waiter waiter) {
+        if (!waiter.startsActivity()) {
+            queuedNonStartWaiters++;
+        }
+    }
+
+    /**
+     * Engines call this whenever they take a Waiter out of their queue
+     */
+    void waiterDequeued(Waiter waiter) {
+        if (!waiter.startsActivity()) {
+            queuedNonStartWaiters--;
+        }
+    }
+
+    /**
+     * Called by Signal whenever an activity waits on or sends the named signal. Engines that model parts of the
+     * plan on separate threads use this to make sure a signal is only ever used by one of them.
+     * @param signalName
+     */
+    void signalUsed(String signalName) {
+        // nothing to check when the whole plan is modeled on one timeline
+    }
+
+    /**
+     * Called by Resource whenever it is set. Engines that model parts of the plan on separate threads use this to
+     * make sure a resource is only ever changed by one of them.
+     * @param resource
+     */
+    public void resourceSet(Resource resource) {
+        // nothing to check when the whole plan is modeled on one timeline
+    }
+
+    /**
+     * Called by Resource whenever its value is looked up. Engines that model parts of the plan on separate threads
+     * use this to make sure a resource one of them reads isn't changed by another.
+     * @param resource
+     */
+    public void resourceRead(Resource resource) {
+        // nothing to check when the whole plan is modeled on one timeline
+    }
+
+    /**
+     * Called by engines when queueing up the plan's activities at the start of a run
+     * @return true if this activity has to be inserted, false if it started before the checkpoint we are resuming from
+     */
+    boolean shouldModel(Activity act) {
+        return resumedFrom == null || !act.getStart().lessThan(resumedFrom.time);
+    }
+
+    private Checkpoint findCheckpointToResumeFrom() {
+        if (!incrementalRemodeling || everythingChanged || checkpoints.isEmpty() || planHasSchedulers()) {
+            return null;
+        }
+        // if nothing was reported changed, we still rerun the end of the plan rather than doing nothing
+        Checkpoint toResumeFrom = earliestChangedTime == null ? checkpoints.get(checkpoints.size() - 1) : null;
+        for (int i = checkpoints.size() - 1; toResumeFrom == null && i >= 0; i--) {
+            if (checkpoints.get(i).time.lessThanOrEqualTo(earliestChangedTime)) {
+                toResumeFrom = checkpoints.get(i);
+            }
+        }
+        if (toResumeFrom == null || !ConstraintInstanceList.getConstraintList().canRestoreModelingStates(toResumeFrom.constraintStates)) {
+            return null;
+        }
+        return toResumeFrom;
+    }
+
+    // schedulers spawn activities in response to resource changes anywhere in the plan, which checkpoints don't capture
+    static boolean planHasSchedulers() {
+        ActivityInstanceList activities = ActivityInstanceList.getActivityList();
+        for (int i = 0; i < activities.length(); i++) {
+            if (activities.get(i) instanceof Scheduler) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static class Checkpoint {
+        private final Time time;
+        private final Map<Constraint, Constraint.ModelingState> constraintStates;
+
+        private Checkpoint(Time time, Map<Constraint, Constraint.ModelingState> constraintStates) {
+            this.time = time;
+            this.constraintStates = constraintStates;
+        }
     }
 
     /**
@@ -0,0 +1,44 @@
+package gov.nasa.jpl.engine;
+
+/**
+ * The ModelingEngine implementations that can be selected with Setup.initializeEngine(ModelingEngineType).
+ * All of them produce identical modeling results and only differ in how they run blocking-style model() bodies.
+ */
+public enum ModelingEngineType {
+    /**
+     * Every wait hands control to a main thread, which submits a new worker to a thread pool. This is the default.
+     */
+    FUNCTIONAL_WAIT,
+    /**
+     * Waits pass control directly to the thread that should run next, and return without any
+     * thread switch when nothing else is due first. Faster for plans with many waits.
+     */
+    DIRECT_HANDOFF,
+    /**
+     * Groups of activities whose Footprints share no resources or signals are modeled in parallel, each with its
+     * own queue and clock. Plans that can't be partitioned are modeled the same way as FUNCTIONAL_WAIT.
+     */
+    PARTITIONED;
+
+    ModelingEngine create() {
+        switch (this) {
+            case DIRECT_HANDOFF:
+                return new DirectHandoffModelingEngine();
+            case PARTITIONED:
+                return new PartitionedModelingEngine();
+            default:
+                return new FunctionalWaitModelingEngine();
+        }
+    }
+
+    boolean isTypeOf(ModelingEngine engine) {
+        switch (this) {
+            case DIRECT_HANDOFF:
+                return engine instanceof DirectHandoffModelingEngine;
+            case PARTITIONED:
+                return engine instanceof PartitionedModelingEngine;
+            default:
+                return engine instanceof FunctionalWaitModelingEngine;
+        }
+    }
+}
@@ -0,0 +1,418 @@
+package gov.nasa.jpl.engine;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import gov.nasa.jpl.activity.Activity;
+import gov.nasa.jpl.constraint.Constraint;
+import gov.nasa.jpl.resource.Resource;
+import gov.nasa.jpl.time.Time;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Collects where modeling time goes, per activity type, resource and constraint, while it is turned on with the
+ * PROFILE command. When it is off, every hook costs a single volatile read.
+ *
+ * Times are wall-clock and inclusive: the time of an activity's model segment includes the resource listeners and
+ * constraints its set() calls run, and a decompose() includes the decompose() of the children it spawns. The time
+ * an activity spends blocked in a wait is not counted for it.
+ */
+public class ModelingProfiler {
+    // we keep one in this many queue depth samples for the report's depth-over-time series, up to a limit
+    private static final int QUEUE_SERIES_STRIDE = 256;
+    private static final int QUEUE_SERIES_LIMIT = 10000;
+
+    private static volatile boolean enabled = false;
+
+    private static final Map<String, ActivityTypeStats> activityTypes = new ConcurrentHashMap<>();
+    private static final Map<String, ResourceStats> resources = new ConcurrentHashMap<>();
+    private static final Map<String, ConstraintStats> constraints = new ConcurrentHashMap<>();
+
+    private static final LongAdder queueSamples = new LongAdder();
+    private static final LongAdder queueDepthSum = new LongAdder();
+    private static final AtomicInteger maxQueueDepth = new AtomicInteger();
+    private static final List<Map.Entry<Time, Integer>> queueDepthSeries = new ArrayList<>();
+
+    // when the model segment running on this thread began
+    private static final ThreadLocal<long[]> segmentStart = ThreadLocal.withInitial(() -> new long[1]);
+
+    // because this is a utilities class with just static methods, we never want anyone to instantiate it
+    private ModelingProfiler() {
+    }
+
+    private static class ActivityTypeStats {
+        private final LongAdder modelSegments = new LongAdder();
+        private final LongAdder modelNanos = new LongAdder();
+        private final LongAdder decomposeCalls = new LongAdder();
+        private final LongAdder decomposeNanos = new LongAdder();
+        private final LongAdder dispatchCalls = new LongAdder();
+        private final LongAdder dispatchNanos = new LongAdder();
+        private final LongAdder waits = new LongAdder();
+
+        private long totalNanos() {
+            return modelNanos.sum() + decomposeNanos.sum() + dispatchNanos.sum();
+        }
+    }
+
+    private static class ResourceStats {
+        private final LongAdder sets = new LongAdder();
+        private final LongAdder listenerNanos = new LongAdder();
+    }
+
+    private static class ConstraintStats {
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+    }
+
+    /**
+     * Clears everything collected so far and starts collecting
+     */
+    public static void start() {
+        activityTypes.clear();
+        resources.clear();
+        constraints.clear();
+        queueSamples.reset();
+        queueDepthSum.reset();
+        maxQueueDepth.set(0);
+        synchronized (queueDepthSeries) {
+            queueDepthSeries.clear();
+        }
+        enabled = true;
+    }
+
+    /**
+     * Stops collecting, keeping what was collected so it can still be reported
+     */
+    public static void stop() {
+        enabled = false;
+    }
+
+    /**
+     * Goes back to collecting without clearing what was collected before
+     */
+    public static void resume() {
+        enabled = true;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Runs the activity's modelFunc(), timing it up to its first wait. Called by engines when an activity starts.
+     */
+    public static Waiter modelFunc(Activity activity) throws InterruptedException {
+        if (!enabled) {
+            return activity.modelFunc();
+        }
+        ActivityTypeStats stats = statsFor(activity);
+        long[] start = segmentStart.get();
+        start[0] = System.nanoTime();
+        try {
+            return activity.modelFunc();
+        }
+        finally {
+            stats.modelSegments.increment();
+            stats.modelNanos.add(System.nanoTime() - start[0]);
+        }
+    }
+
+    /**
+     * Called by an activity about to block in a wait, which ends its current model segment
+     */
+    public static void activityWaiting(Activity activity) {
+        if (enabled) {
+            ActivityTypeStats stats = statsFor(activity);
+            stats.waits.increment();
+            stats.modelNanos.add(System.nanoTime() - segmentStart.get()[0]);
+        }
+    }
+
+    /**
+     * Called by an activity returning from a blocking wait, which starts its next model segment
+     */
+    public static void activityResumed(Activity activity) {
+        if (enabled) {
+            segmentStart.get()[0] = System.nanoTime();
+        }
+    }
+
+    /**
+     * Counts a functional-style wait and returns its continuation wrapped so it is timed as a model segment
+     */
+    public static Supplier<Waiter> continuation(Activity activity, Supplier<Waiter> func) {
+        if (!enabled) {
+            return func;
+        }
+        ActivityTypeStats stats = statsFor(activity);
+        stats.waits.increment();
+        return () -> {
+            long start = System.nanoTime();
+            try {
+                return func.get();
+            }
+            finally {
+                stats.modelSegments.increment();
+                stats.modelNanos.add(System.nanoTime() - start);
+            }
+        };
+    }
+
+    /**
+     * Same as the other continuation(), for functions run when a signal is sent
+     */
+    public static Function<Map, Waiter> continuation(Activity activity, Function<Map, Waiter> func) {
+        if (!enabled) {
+            return func;
+        }
+        ActivityTypeStats stats = statsFor(activity);
+        stats.waits.increment();
+        return (signalContents) -> {
+            long start = System.nanoTime();
+            try {
+                return func.apply(signalContents);
+            }
+            finally {
+                stats.modelSegments.increment();
+                stats.modelNanos.add(System.nanoTime() - start);
+            }
+        };
+    }
+
+    /**
+     * Calls decompose() on the activity, timing it if profiling is on
+     */
+    public static void decompose(Activity activity) {
+        if (!enabled) {
+            activity.decompose();
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            activity.decompose();
+        }
+        finally {
+            ActivityTypeStats stats = statsFor(activity);
+            stats.decomposeCalls.increment();
+            stats.decomposeNanos.add(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Records one call to a scheduler's dispatchOnCondition()
+     */
+    public static void dispatched(Activity activity, long nanos) {
+        ActivityTypeStats stats = statsFor(activity);
+        stats.dispatchCalls.increment();
+        stats.dispatchNanos.add(nanos);
+    }
+
+    /**
+     * Records one set() of a resource, and how long telling all of its listeners took
+     */
+    public static void resourceSet(Resource resource, long listenerNanos) {
+        ResourceStats stats = statsFor(resource);
+        stats.sets.increment();
+        stats.listenerNanos.add(listenerNanos);
+    }
+
+    /**
+     * Records how long telling some of a resource's listeners about sets that were batched took, which resourceSet()
+     * couldn't when they were made
+     */
+    public static void resourceListenersNotified(Resource resource, long listenerNanos) {
+        statsFor(resource).listenerNanos.add(listenerNanos);
+    }
+
+    /**
+     * Records one propertyChange() call on a resource or activity type listener. Only constraints are reported
+     */
+    public static void listenerNotified(Object listener, long nanos) {
+        if (listener instanceof Constraint) {
+            Constraint constraint = (Constraint) listener;
+            String name = constraint.getName() != null ? constraint.getName() : constraint.getClass().getSimpleName() + "@" + System.identityHashCode(constraint);
+            ConstraintStats stats = constraints.computeIfAbsent(name, n -> new ConstraintStats());
+            stats.calls.increment();
+            stats.nanos.add(nanos);
+        }
+    }
+
+    /**
+     * Called by engines each time they take a Waiter out of a queue, with how many are left in it
+     */
+    public static void waiterDequeued(Time t, int queueDepth) {
+        if (!enabled) {
+            return;
+        }
+        queueSamples.increment();
+        queueDepthSum.add(queueDepth);
+        maxQueueDepth.accumulateAndGet(queueDepth, Math::max);
+        if (queueSamples.sum() % QUEUE_SERIES_STRIDE == 1) {
+            synchronized (queueDepthSeries) {
+                if (queueDepthSeries.size() < QUEUE_SERIES_LIMIT) {
+                    queueDepthSeries.add(new AbstractMap.SimpleImmutableEntry<>(t, queueDepth));
+                }
+            }
+        }
+    }
+
+    private static ActivityTypeStats statsFor(Activity activity) {
+        return activityTypes.computeIfAbsent(activity.getType(), type -> new ActivityTypeStats());
+    }
+
+    private static ResourceStats statsFor(Resource resource) {
+        return resources.computeIfAbsent(resource.getUniqueName(), name -> new ResourceStats());
+    }
+
+    /**
+     * Writes what has been collected, most expensive first in each section. Files ending in .json get a JSON
+     * report, anything else a plain text one.
+     * @param fileName
+     * @throws IOException
+     */
+    public static void writeReport(String fileName) throws IOException {
+        try (PrintWriter writer = new PrintWriter(new BufferedWriter(new OutputStreamWriter(new FileOutputStream(fileName), StandardCharsets.UTF_8)))) {
+            if (fileName.endsWith(".json")) {
+                Gson gson = new GsonBuilder().setPrettyPrinting().create();
+                writer.append(gson.toJson(buildReport()));
+            }
+            else {
+                writeTextReport(writer);
+            }
+        }
+    }
+
+    /**
+     * @return the report as nested maps and lists, in the order it is written
+     */
+    public static Map<String, Object> buildReport() {
+        Map<String, Object> report = new LinkedHashMap<>();
+
+        List<Map.Entry<String, ActivityTypeStats>> types = new ArrayList<>(activityTypes.entrySet());
+        types.sort((a, b) -> Long.compare(b.getValue().totalNanos(), a.getValue().totalNanos()));
+        List<Map<String, Object>> typeRows = new ArrayList<>();
+        for (Map.Entry<String, ActivityTypeStats> entry : types) {
+            ActivityTypeStats stats = entry.getValue();
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("activityType", entry.getKey());
+            row.put("totalMillis", millis(stats.totalNanos()));
+            row.put("modelSegments", stats.modelSegments.sum());
+            row.put("modelMillis", millis(stats.modelNanos.sum()));
+            row.put("waits", stats.waits.sum());
+            row.put("decomposeCalls", stats.decomposeCalls.sum());
+            row.put("decomposeMillis", millis(stats.decomposeNanos.sum()));
+            row.put("dispatchCalls", stats.dispatchCalls.sum());
+            row.put("dispatchMillis", millis(stats.dispatchNanos.sum()));
+            typeRows.add(row);
+        }
+        report.put("activityTypes", typeRows);
+
+        List<Map.Entry<String, ResourceStats>> res = new ArrayList<>(resources.entrySet());
+        res.sort((a, b) -> {
+            int byTime = Long.compare(b.getValue().listenerNanos.sum(), a.getValue().listenerNanos.sum());
+            return byTime != 0 ? byTime : Long.compare(b.getValue().sets.sum(), a.getValue().sets.sum());
+        });
+        List<Map<String, Object>> resourceRows = new ArrayList<>();
+        for (Map.Entry<String, ResourceStats> entry : res) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("resource", entry.getKey());
+            row.put("sets", entry.getValue().sets.sum());
+            row.put("listenerMillis", millis(entry.getValue().listenerNanos.sum()));
+            resourceRows.add(row);
+        }
+        report.put("resources", resourceRows);
+
+        List<Map.Entry<String, ConstraintStats>> cons = new ArrayList<>(constraints.entrySet());
+        cons.sort((a, b) -> Long.compare(b.getValue().nanos.sum(), a.getValue().nanos.sum()));
+        List<Map<String, Object>> constraintRows = new ArrayList<>();
+        for (Map.Entry<String, ConstraintStats> entry : cons) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("constraint", entry.getKey());
+            row.put("calls", entry.getValue().calls.sum());
+            row.put("millis", millis(entry.getValue().nanos.sum()));
+            constraintRows.add(row);
+        }
+        report.put("constraints", constraintRows);
+
+        Map<String, Object> queue = new LinkedHashMap<>();
+        long samples = queueSamples.sum();
+        queue.put("samples", samples);
+        queue.put("maxDepth", maxQueueDepth.get());
+        queue.put("meanDepth", samples == 0 ? 0.0 : (double) queueDepthSum.sum() / samples);
+        List<Map<String, Object>> series = new ArrayList<>();
+        synchronized (queueDepthSeries) {
+            for (Map.Entry<Time, Integer> point : queueDepthSeries) {
+                Map<String, Object> row = new LinkedHashMap<>();
+                row.put("time", point.getKey().toString());
+                row.put("depth", point.getValue());
+                series.add(row);
+            }
+        }
+        queue.put("depthOverTime", series);
+        report.put("waiterQueue", queue);
+
+        return report;
+    }
+
+    private static void writeTextReport(PrintWriter writer) {
+        Map<String, Object> report = buildReport();
+        writeTextSection(writer, "ACTIVITY TYPES", (List<Map<String, Object>>) report.get("activityTypes"));
+        writeTextSection(writer, "RESOURCES", (List<Map<String, Object>>) report.get("resources"));
+        writeTextSection(writer, "CONSTRAINTS", (List<Map<String, Object>>) report.get("constraints"));
+
+        Map<String, Object> queue = (Map<String, Object>) report.get("waiterQueue");
+        writer.println("WAITER QUEUE");
+        writer.println(String.format("samples %d, max depth %d, mean depth %.1f", queue.get("samples"), queue.get("maxDepth"), queue.get("meanDepth")));
+        writeTextSection(writer, "WAITER QUEUE DEPTH OVER TIME", (List<Map<String, Object>>) queue.get("depthOverTime"));
+    }
+
+    private static void writeTextSection(PrintWriter writer, String title, List<Map<String, Object>> rows) {
+        writer.println(title);
+        if (rows.isEmpty()) {
+            writer.println("(none)");
+            writer.println();
+            return;
+        }
+        List<String> columns = new ArrayList<>(rows.get(0).keySet());
+        int[] widths = new int[columns.size()];
+        for (int i = 0; i < columns.size(); i++) {
+            widths[i] = columns.get(i).length();
+            for (Map<String, Object> row : rows) {
+                widths[i] = Integer.max(widths[i], formatCell(row.get(columns.get(i))).length());
+            }
+        }
+        writer.println(formatRow(columns, widths));
+        for (Map<String, Object> row : rows) {
+            List<String> cells = new ArrayList<>();
+            for (String column : columns) {
+                cells.add(formatCell(row.get(column)));
+            }
+            writer.println(formatRow(cells, widths));
+        }
+        writer.println();
+    }
+
+    private static String formatRow(List<String> cells, int[] widths) {
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < cells.size(); i++) {
+            // the name column is left-aligned, the numbers right-aligned
+            line.append(String.format(i == 0 ? "%-" + widths[i] + "s" : "  %" + widths[i] + "s", cells.get(i)));
+        }
+        return line.toString();
+    }
+
+    private static String formatCell(Object value) {
+        return value instanceof Double ? String.format("%.3f", (Double) value) : String.valueOf(value);
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+}
@@ -0,0 +1,610 @@
+package gov.nasa.jpl.engine;
+
+import gov.nasa.jpl.activity.Activity;
+import gov.nasa.jpl.activity.ActivityInstanceList;
+import gov.nasa.jpl.activity.ActivityTypeList;
+import gov.nasa.jpl.activity.WaitProvider;
+import gov.nasa.jpl.activity.annotations.Footprint;
+import gov.nasa.jpl.resource.Resource;
+import gov.nasa.jpl.resource.ResourceList;
+import gov.nasa.jpl.resource.ResourceUpdateBatch;
+import gov.nasa.jpl.time.Time;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Implementation of ModelingEngine that splits the plan into groups of activities which never touch each other's
+ * resources or signals, and models each group on its own thread with its own waiter queue and clock. Within a
+ * group, Waiters run exactly like they do in FunctionalWaitModelingEngine.
+ *
+ * Groups are found from the Footprint annotation on each activity type. Resources that are linked through a
+ * listener, like an IntegratingResource and the resource it follows or the resources one constraint watches, are
+ * always kept in the same group, as are activity types watched by the same activity constraint. Activities spawned
+ * while modeling join the group of the activity spawning them, and modeling fails if their footprint reaches into
+ * another group, or if an activity sets a resource or uses a signal that another group uses.
+ *
+ * Each group's queue runs Waiters that tie on time and priority in the order they were added to it. A serial run
+ * leaves those ties to the shape of its single heap, which depends on the Waiters of every group, so it can't be
+ * reproduced one group at a time. The histories are the same as a serial run's whenever the order of same-time
+ * Waiters within a group doesn't change what they compute, which includes every plan where no two Waiters of one
+ * group tie. Ties between Waiters of different groups never matter, since they don't share any state.
+ *
+ * Footprints have to name every resource an activity reads as well as the ones it sets. Modeling fails if an
+ * activity reads a resource through currentval() or valueAt() that another group sets, whichever of the two happens
+ * first. Other queries of a resource's history, like min(), integral() or historyIterator(), aren't checked: if one
+ * reads a resource another group sets, it races with the writes and its result can differ from a serial run's.
+ *
+ * The whole plan is modeled as one group, which is the same as FunctionalWaitModelingEngine, if any activity type
+ * in it has no Footprint, if it has schedulers, or if incremental REMODEL is on.
+ */
+public class PartitionedModelingEngine extends ModelingEngine implements WaitProvider {
+
+    // Result signals sent from worker thread to the thread driving its partition
+    private enum Result {
+        Waiting, // signal to the driver that worker thread is going into a wait state
+        Error,   // signal to the driver that an error has occurred and modeling needs to stop
+        Done     // signal to the driver the modelling of its partition has completed successfully
+    }
+
+    /**
+     * One independent group of activities, with everything FunctionalWaitModelingEngine keeps for the whole plan
+     */
+    private class Partition {
+        private final WaiterQueue waiters = new WaiterQueue();
+        private final BlockingQueue<Result> workerToMain = new ArrayBlockingQueue<>(1);
+        private final List<Activity> activities = new ArrayList<>();
+        private Time time;
+        private Exception thrownException = null;
+
+        private void add(Waiter toInsert) {
+            waiters.add(toInsert);
+            if (serial) {
+                waiterQueued(toInsert);
+            }
+        }
+    }
+
+    // the partition whose Waiters the current thread is running, or null outside of modeling
+    private final ThreadLocal<Partition> runningPartition = new ThreadLocal<>();
+
+    // for each resource, signal or listener in the plan, which other ones it has to be modeled together with
+    private Map<Object, Object> componentOf = new HashMap<>();
+    // which partition has claimed each component - claims for ones no footprint mentioned are made while modeling
+    private final ConcurrentMap<Object, Partition> componentOwners = new ConcurrentHashMap<>();
+    // which partition has read each component nobody has claimed yet, or READ_BY_SEVERAL if more than one has
+    private final ConcurrentMap<Object, Object> componentReaders = new ConcurrentHashMap<>();
+    private static final Object READ_BY_SEVERAL = new Object();
+    // every resource an activity footprint can name, by unique name and by arrayed resource name
+    private Map<String, List<Resource>> resourcesByName = new HashMap<>();
+
+    private boolean serial = true;
+    private boolean inmodel = false;
+    private int partitionsInLastRun = 0;
+
+    PartitionedModelingEngine()
+    {
+    }
+
+    /**
+     * @return how many partitions the last modeling run was split into, which is 1 if it was modeled serially
+     */
+    public int getPartitionsInLastRun() {
+        return partitionsInLastRun;
+    }
+
+    /**
+     * Method which runs the modeling. The plan is partitioned, then every partition is modeled to its end.
+     */
+    @Override
+    protected void runModeling() {
+        ActivityInstanceList activityList = ActivityInstanceList.getActivityList();
+        List<Activity> toModel = new ArrayList<>();
+        for (int i = 0; i < activityList.length(); i++) {
+            // when resuming from a checkpoint, activities that started before it are already reflected in resources
+            if (shouldModel(activityList.get(i))) {
+                toModel.add(activityList.get(i));
+            }
+        }
+
+        List<Partition> partitions = partitionPlan(toModel);
+        serial = partitions.size() == 1;
+        partitionsInLastRun = partitions.size();
+        for (Partition partition : partitions) {
+            // each partition numbers its own Waiters, since the heap shape a serial run breaks ties with doesn't exist
+            partition.waiters.setTiesInAddedOrder(!serial || isIncrementalRemodeling());
+        }
+
+        Time firstWaiterTime = null;
+        for (Partition partition : partitions) {
+            for (Activity activity : partition.activities) {
+                partition.add(startWaiter(activity));
+            }
+            Time partitionStart = partition.waiters.isEmpty() ? null : partition.waiters.peek().getTime();
+            if (partitionStart != null && (firstWaiterTime == null || partitionStart.lessThan(firstWaiterTime))) {
+                firstWaiterTime = partitionStart;
+            }
+        }
+
+        // a run resuming from a checkpoint already has its time and resources set up
+        if (getResumeTime() == null) {
+            // This call clears and then sets initial profile for all resources
+            initTime(firstWaiterTime == null ? new Time() : firstWaiterTime);
+        }
+        for (Partition partition : partitions) {
+            partition.time = getCurrentTime();
+        }
+
+        ExecutorService workerPool = Executors.newCachedThreadPool();
+        try {
+            inmodel = true;
+            if (serial) {
+                drivePartition(partitions.get(0), workerPool);
+            }
+            else {
+                driveInParallel(partitions, workerPool);
+            }
+        }
+        catch (InterruptedException ex) {
+            throw new RuntimeException(ex);
+        }
+        finally {
+            workerPool.shutdown();
+            inmodel = false;
+            // the engine's own clock ends where the last partition finished, like it would serially
+            Time endTime = getCurrentTime();
+            for (Partition partition : partitions) {
+                if (partition.time != null && partition.time.greaterThan(endTime)) {
+                    endTime = partition.time;
+                }
+            }
+            super.setTime(endTime);
+        }
+    }
+
+    private void driveInParallel(List<Partition> partitions, ExecutorService workerPool) throws InterruptedException {
+        // big partitions first, so the last one to start isn't the one that takes the longest
+        partitions.sort((a, b) -> b.activities.size() - a.activities.size());
+        int numDrivers = Integer.max(1, Integer.min(partitions.size(), Runtime.getRuntime().availableProcessors()));
+        ExecutorService driverPool = Executors.newFixedThreadPool(numDrivers);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (Partition partition : partitions) {
+                results.add(driverPool.submit(() -> {
+                    drivePartition(partition, workerPool);
+                    return null;
+                }));
+            }
+            // every partition is let finish, so no thread is still changing resources once we return or throw
+            RuntimeException firstError = null;
+            for (Future<?> result : results) {
+                try {
+                    result.get();
+                }
+                catch (ExecutionException ex) {
+                    if (firstError == null) {
+                        firstError = ex.getCause() instanceof RuntimeException ? (RuntimeException) ex.getCause() : new RuntimeException(ex.getCause());
+                    }
+                }
+            }
+            if (firstError != null) {
+                throw firstError;
+            }
+        }
+        finally {
+            driverPool.shutdown();
+        }
+    }
+
+    /**
+     * Does what FunctionalWaitModelingEngine's main thread does for the whole plan, for one partition
+     */
+    private void drivePartition(Partition partition, ExecutorService workerPool) throws InterruptedException {
+        workerPool.submit(() -> runModelingThread(partition));
+
+        Result res = Result.Error; // anything but Done so we can enter the loop below
+        while (res != Result.Done) {
+            // wait until we get a result from the worker thread
+            res = partition.workerToMain.take();
+
+            // the worker thread caught a thrown error, so we need to re-throw it from this thread
+            if (res == Result.Error) {
+                throw new RuntimeException(partition.thrownException);
+            }
+
+            // the worker thread is going into wait state, so we need to start another worker thread
+            if (res == Result.Waiting) {
+                workerPool.submit(() -> runModelingThread(partition));
+            }
+        }
+    }
+
+    /**
+     * Function run by each worker thread, which works through its partition's queue the same way
+     * FunctionalWaitModelingEngine's worker threads do
+     */
+    private void runModelingThread(Partition partition) {
+        runningPartition.set(partition);
+        // activities created on several threads at once can't each take the instance list's lock safely
+        if (!serial) {
+            ActivityInstanceList.startHoldingBackAdds();
+        }
+        try {
+            try {
+                while (!partition.waiters.isEmpty()) {
+                    if (serial) {
+                        checkpointIfQuiescent(partition.waiters.peek());
+                    }
+                    Waiter next = partition.waiters.remove();
+                    if (serial) {
+                        waiterDequeued(next);
+                    }
+                    ModelingProfiler.waiterDequeued(next.getTime(), partition.waiters.size());
+                    partition.time = next.getTime();
+
+                    Waiter future = next.execute();
+                    if (next.resumedAThread()) {
+                        // If the waiter we just executed resumed another worker thread, then we need to end processing immediately.
+                        return;
+                    }
+
+                    // a Waiter that re-armed itself is the future, so it can only go back to the pool if it is not
+                    if (future != next) {
+                        partition.waiters.recycle(next);
+                    }
+                    if (future != null) {
+                        insertWaiter(future);
+                    }
+                }
+                partition.workerToMain.put(Result.Done);
+            }
+            catch (RuntimeException ex) {
+                partition.thrownException = ex;
+                partition.workerToMain.put(Result.Error);
+            }
+        }
+        catch (InterruptedException ex) {
+            // we got interrupted. ignore and exit
+        }
+        finally {
+            if (!serial) {
+                ActivityInstanceList.finishHoldingBackAdds();
+            }
+            runningPartition.remove();
+        }
+    }
+
+    /**
+     * Splits the activities to model into groups that share no resources, signals or listeners. Falls back to one
+     * group for the whole plan when that can't be done safely.
+     */
+    private List<Partition> partitionPlan(List<Activity> toModel) {
+        componentOf = new HashMap<>();
+        componentOwners.clear();
+        componentReaders.clear();
+        resourcesByName = new HashMap<>();
+        for (Resource r : ResourceList.getResourceList().getListOfAllResources()) {
+            resourcesByName.computeIfAbsent(r.getUniqueName(), name -> new ArrayList<>()).add(r);
+            if (r.isIndexInArrayedResource()) {
+                resourcesByName.computeIfAbsent(r.getName(), name -> new ArrayList<>()).add(r);
+            }
+        }
+
+        Partition wholePlan = new Partition();
+        wholePlan.activities.addAll(toModel);
+        if (isIncrementalRemodeling() || planHasSchedulers()) {
+            return Collections.singletonList(wholePlan);
+        }
+
+        Map<Object, Object> parents = new HashMap<>();
+        List<Object> firstKeys = new ArrayList<>(toModel.size());
+        for (Activity activity : toModel) {
+            List<Object> keys = footprintOf(activity);
+            if (keys == null) {
+                return Collections.singletonList(wholePlan);
+            }
+            // an activity that touches nothing shared can go in a group of its own
+            Object first = keys.isEmpty() ? activity : keys.get(0);
+            find(parents, first);
+            for (Object key : keys) {
+                union(parents, first, key);
+            }
+            firstKeys.add(first);
+        }
+        // anything a resource notifies when it changes is modeled together with it
+        for (Resource r : ResourceList.getResourceList().getListOfAllResources()) {
+            for (Object listener : r.getChangeListeners()) {
+                union(parents, r, listener);
+            }
+        }
+
+        Map<Object, Partition> partitionsByComponent = new LinkedHashMap<>();
+        for (int i = 0; i < toModel.size(); i++) {
+            partitionsByComponent.computeIfAbsent(find(parents, firstKeys.get(i)), component -> new Partition()).activities.add(toModel.get(i));
+        }
+        for (Object key : parents.keySet()) {
+            Object component = find(parents, key);
+            componentOf.put(key, component);
+            Partition owner = partitionsByComponent.get(component);
+            if (owner != null) {
+                componentOwners.put(component, owner);
+            }
+        }
+        return partitionsByComponent.size() > 1 ? new ArrayList<>(partitionsByComponent.values()) : Collections.singletonList(wholePlan);
+    }
+
+    /**
+     * @return every resource and signal name the activity's type declares, plus every constraint watching the type,
+     * or null if the type has no Footprint
+     */
+    private List<Object> footprintOf(Activity activity) {
+        Footprint footprint = activity.getClass().getAnnotation(Footprint.class);
+        if (footprint == null) {
+            return null;
+        }
+        List<Object> keys = new ArrayList<>();
+        for (String name : footprint.resources()) {
+            List<Resource> named = resourcesByName.get(name);
+            if (named == null) {
+                throw new AdaptationException("Footprint of activity type " + activity.getType() + " names resource " + name + ", which is not in the list of instantiated resources");
+            }
+            keys.addAll(named);
+        }
+        keys.addAll(Arrays.asList(footprint.signals()));
+        keys.addAll(ActivityTypeList.getActivityList().getObserverList(activity.getType()));
+        return keys;
+    }
+
+    private static Object find(Map<Object, Object> parents, Object key) {
+        Object root = key;
+        Object parent;
+        while ((parent = parents.putIfAbsent(root, root)) != null && parent != root) {
+            root = parent;
+        }
+        // point everything on the path straight at the root so later finds are short
+        while (key != root) {
+            key = parents.put(key, root);
+        }
+        return root;
+    }
+
+    private static void union(Map<Object, Object> parents, Object a, Object b) {
+        Object rootA = find(parents, a);
+        Object rootB = find(parents, b);
+        if (rootA != rootB) {
+            parents.put(rootB, rootA);
+        }
+    }
+
+    /**
+     * Makes sure nothing in another partition uses the given resource, signal or listener, and keeps anything else
+     * from using it for the rest of the run
+     */
+    private void claim(Partition partition, Object key, String user) {
+        Object component = componentOf.getOrDefault(key, key);
+        // every set() of a resource comes through here, and almost always finds its own partition already owns it
+        Partition owner = componentOwners.get(component);
+        if (owner == null) {
+            owner = componentOwners.putIfAbsent(component, partition);
+            // this is a new claim, so another partition may already have read what we are about to change
+            Object reader = componentReaders.get(component);
+            if (owner == null && reader != null && reader != partition) {
+                throw usedByAnotherPartition(key, user);
+            }
+        }
+        if (owner != null && owner != partition) {
+            throw usedByAnotherPartition(key, user);
+        }
+    }
+
+    /**
+     * Makes sure no other partition changes the given resource, since a read racing with it would see its values
+     * at whatever time the other partition happened to be at
+     */
+    private void checkRead(Partition partition, Resource resource) {
+        Object component = componentOf.getOrDefault(resource, resource);
+        // almost every read is of a resource in the reading activity's own footprint
+        Partition owner = componentOwners.get(component);
+        if (owner == partition) {
+            return;
+        }
+        if (owner == null) {
+            Object reader = componentReaders.putIfAbsent(component, partition);
+            if (reader != null && reader != partition && reader != READ_BY_SEVERAL) {
+                componentReaders.put(component, READ_BY_SEVERAL);
+            }
+            // a partition may have claimed it to set it after we looked, before it could see our read
+            owner = componentOwners.get(component);
+            if (owner == null || owner == partition) {
+                return;
+            }
+        }
+        throw usedByAnotherPartition(resource, "An activity");
+    }
+
+    private static AdaptationException usedByAnotherPartition(Object key, String user) {
+        String used = key instanceof Resource ? "resource " + ((Resource) key).getUniqueName() : key instanceof String ? "signal " + key : key.toString();
+        return new AdaptationException(user + " uses " + used + ", which is also used by activities modeled in parallel with it. " +
+                "Declare it in the Footprint of every activity type that uses it, and of the types that spawn those.");
+    }
+
+    @Override
+    void signalUsed(String signalName) {
+        Partition partition = runningPartition.get();
+        if (partition != null && !serial) {
+            claim(partition, signalName, "An activity");
+        }
+    }
+
+    @Override
+    public void resourceSet(Resource resource) {
+        Partition partition = runningPartition.get();
+        if (partition != null && !serial) {
+            claim(partition, resource, "An activity");
+        }
+    }
+
+    @Override
+    public void resourceRead(Resource resource) {
+        Partition partition = runningPartition.get();
+        if (partition != null && !serial) {
+            checkRead(partition, resource);
+        }
+    }
+
+    /**
+     * Getter for current modeling time, which is the clock of the partition the calling thread is modeling
+     * @return
+     */
+    @Override
+    public Time getCurrentTime() {
+        Partition partition = runningPartition.get();
+        return partition == null ? super.getCurrentTime() : partition.time;
+    }
+
+    @Override
+    public void setTime(Time t) {
+        Partition partition = runningPartition.get();
+        if (partition == null) {
+            super.setTime(t);
+        }
+        else {
+            partition.time = t;
+        }
+    }
+
+    /**
+     * Inserts a Waiter into the modeling queue of the partition the calling thread is modeling.
+     * @param toInsert the Waiter to be inserted.
+     */
+    @Override
+    void insertWaiter(Waiter toInsert) {
+        Partition partition = runningPartition.get();
+        if (partition == null) {
+            // nothing outside of modeling can add to a queue, which is rebuilt at the start of every run
+            return;
+        }
+        if (inmodel && toInsert.getTime().lessThan(partition.time)) {
+            throw new RuntimeException(String.format(
+                    "Current time is [%s]. Cannot schedule an event at [%s] because it is in the past.",
+                    partition.time.toString(), toInsert.getTime().toString()));
+        }
+        partition.add(toInsert);
+    }
+
+    /**
+     * Inserts an Activity spawned while modeling into the partition of the activity that spawned it.
+     * @param activity the activity to be inserted.
+     */
+    @Override
+    public void insertActivityIntoEngine(Activity activity) {
+        Partition partition = runningPartition.get();
+        if (partition != null && !serial) {
+            List<Object> keys = footprintOf(activity);
+            if (keys == null) {
+                throw new AdaptationException("Activity of type " + activity.getType() + " was spawned while modeling plan partitions in parallel, " +
+                        "but its type has no Footprint. Every activity type has to declare one for the plan to be partitioned.");
+            }
+            for (Object key : keys) {
+                claim(partition, key, "Activity of type " + activity.getType());
+            }
+        }
+        insertWaiter(startWaiter(activity));
+    }
+
+    // the Waiter that starts modeling an activity at its start time
+    private Waiter startWaiter(Activity activity) {
+        // set the WaitProvider for the Activity
+        activity.setThread(this);
+        return new Waiter(activity.getStart(), 1, () -> {
+            ActivityTypeList.getActivityList().propertyChangeForActivityType(activity.getType(), activity);
+            try {
+                return ModelingProfiler.modelFunc(activity);
+            }
+            catch (InterruptedException ex) {
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Schedules a Waiter to resume this thread at time t.
+     * @param t the time to resume execution.
+     */
+    @Override
+    public void waitUntil(Time t) {
+        // the activity is done with this time, so its changes are propagated before another one runs
+        ResourceUpdateBatch.flush();
+        try {
+            Partition partition = runningPartition.get();
+            BlockingQueue<Object> queue = new ArrayBlockingQueue<>(1);
+            // queue a waiter to resume this thread at a future time
+            Waiter waiter = new Waiter(t, 0, () -> {
+                try {
+                    // we can put() any non-null object
+                    queue.put(this);
+                    return null;
+                }
+                catch (InterruptedException ex) {
+                    return null;
+                }
+            });
+            waiter.willResumeThread(true);
+            insertWaiter(waiter);
+            // tell the driver of our partition that this thread is going into wait state
+            partition.workerToMain.put(Result.Waiting);
+            // wait on the queue until an object is put into it
+            queue.take();
+        }
+        catch (InterruptedException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    /**
+     * Schedules a waiter to resume this thread upon the given signal
+     * @param signalName name of signal to wait
+     * @return data sent when the signal was raised
+     * @throws InterruptedException
+     */
+    @Override
+    public Map waitForSignal(String signalName) throws InterruptedException {
+        // the activity is done with this time, so its changes are propagated before another one runs
+        ResourceUpdateBatch.flush();
+        Partition partition = runningPartition.get();
+        BlockingQueue<Map> queue = new ArrayBlockingQueue<>(1);
+        // give the signal a handler to queue up when the signal is raised
+        Signal.getSignal(signalName).addSignalHandler(true, (m) -> {
+            try {
+                // we can't put() a null object
+                queue.put(m == null ? new HashMap() : m);
+                return null;
+            } catch (InterruptedException ex) {
+                return null;
+        }});
+        // tell the driver of our partition that this thread is going into wait state
+        partition.workerToMain.put(Result.Waiting);
+        // now we wait until the signal is raised and the data map is put into the queue
+        return queue.take();
+    }
+
+    /**
+     * Returns a Waiter object that can be returned to the modeling engine to execute at a time in the future.
+     * @param t time in future to execute the given function
+     * @param func the given function
+     * @return Waiter object
+     */
+    @Override
+    public Waiter waitUntil(Time t, Supplier<Waiter> func) {
+        Partition partition = runningPartition.get();
+        return partition == null ? new Waiter(t, 0, func) : partition.waiters.obtain(t, 0, func);
+    }
+
+    @Override
+    public Waiter waitForSignal(String signalName, Function<Map, Waiter> func) {
+        Signal.getSignal(signalName).addSignalHandler(false, func);
+        return null;
+    }
+}
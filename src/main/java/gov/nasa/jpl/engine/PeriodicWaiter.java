@@ -0,0 +1,61 @@
+package gov.nasa.jpl.engine;
+
+import gov.nasa.jpl.activity.Activity;
+import gov.nasa.jpl.time.Duration;
+import gov.nasa.jpl.time.Time;
+
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * A Waiter that runs a function at every time step from a start time up to but not including an end time, then
+ * an end function at the end time. After each step it moves itself to the next time and hands itself back to the
+ * engine, so a loop of any length is one Waiter instead of a new Waiter and pair of lambdas per step.
+ * This is what Activity.waitLoop() returns.
+ */
+public class PeriodicWaiter extends Waiter {
+    private final Activity activity;
+    private final Time endTime;
+    private final Duration timeStep;
+    private final BiConsumer<Time, Time> func;
+
+    private final Supplier<Waiter> step;
+    private final Supplier<Waiter> end;
+
+    /**
+     * @param activity the activity the loop belongs to
+     * @param startTime the first time func is run at
+     * @param endTime the time endFunc is run at
+     * @param timeStep step duration between times. Must be greater than zero
+     * @param func function executed at each time step in [startTime,endTime)
+     * @param endFunc function executed at endTime, which can return another Waiter
+     */
+    public PeriodicWaiter(Activity activity, Time startTime, Time endTime, Duration timeStep, BiConsumer<Time, Time> func, Function<Time, Waiter> endFunc) {
+        super(startTime, 0, null);
+        this.activity = activity;
+        this.endTime = endTime;
+        this.timeStep = timeStep;
+        this.func = func;
+        this.step = this::step;
+        this.end = () -> endFunc.apply(endTime);
+        arm(startTime);
+    }
+
+    private Waiter step() {
+        Time now = getTime();
+        func.accept(now, endTime);
+        arm(now.add(timeStep));
+        return this;
+    }
+
+    // points this Waiter at its next step, or at the end time once the steps have reached it
+    private void arm(Time next) {
+        if (next.lessThan(endTime)) {
+            reset(next, 0, ModelingProfiler.continuation(activity, step));
+        }
+        else {
+            reset(endTime, 0, ModelingProfiler.continuation(activity, end));
+        }
+    }
+}
@@ -15,6 +15,19 @@ public class Setup {
     public static void initializeEngine() {
         Spice spice = new Spice();
         ModelingEngine myEngine = ModelingEngine.getEngine();
+        initializeLists();
+    }
+
+    /*
+     * Same as initializeEngine(), but also selects which ModelingEngine implementation REMODEL runs on
+     */
+    public static void initializeEngine(ModelingEngineType engineType) {
+        Spice spice = new Spice();
+        ModelingEngine myEngine = ModelingEngine.useEngine(engineType);
+        initializeLists();
+    }
+
+    private static void initializeLists() {
         ParameterDeclaration.collectNamesOfAllParameters();
         ActivityTypeList allActivityTypes = ActivityTypeList.getActivityList();
         ResourceDeclaration.assignNamesToAllResources();
@@ -2,12 +2,13 @@ package gov.nasa.jpl.engine;
 
 import java.util.ArrayDeque;
 import java.util.Deque;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 
 public class Signal {
-    private static final HashMap<String, Signal> listOfSignals = new HashMap<>();
+    // the partitioned engine looks up signals from several modeling threads at once
+    private static final Map<String, Signal> listOfSignals = new ConcurrentHashMap<>();
     private final Deque<SignalHandler> handlers;
     String name;
 
@@ -18,12 +19,16 @@ public class Signal {
     }
 
     static Signal getSignal(String signalName) {
-        if (!listOfSignals.containsKey(signalName)) {
-            return new Signal(signalName);
-        }
-        else {
-            return listOfSignals.get(signalName);
+        Signal signal = listOfSignals.get(signalName);
+        if (signal == null) {
+            synchronized (listOfSignals) {
+                signal = listOfSignals.get(signalName);
+                if (signal == null) {
+                    signal = new Signal(signalName);
+                }
+            }
         }
+        return signal;
     }
 
     // we're going to call this at the end of a modeling run
@@ -36,6 +41,16 @@ public class Signal {
         }
     }
 
+    // true if any activity is still waiting on any signal
+    static boolean anyHandlersWaiting() {
+        for (Signal signal : listOfSignals.values()) {
+            if (!signal.handlers.isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     // internal class to hold onto some data
     private static class SignalHandler {
         public final Function<Map, Waiter> func;
@@ -47,11 +62,13 @@ public class Signal {
     }
 
     void addSignalHandler(boolean willResumeThread, Function<Map,Waiter> func) {
+        ModelingEngine.getEngine().signalUsed(name);
         handlers.push(new SignalHandler(func, willResumeThread));
     }
 
     // when one thread broadcasts a signal, the signal sees it and responds by adding all the waiting threads back into the engine's stack at the current modeling time
     void broadcast(Map signalContents) {
+        ModelingEngine.getEngine().signalUsed(name);
         while (!handlers.isEmpty()) {
             SignalHandler p = handlers.pop();
             Waiter w = new Waiter(ModelingEngine.getEngine().getCurrentTime(), -1, () -> p.func.apply(signalContents));
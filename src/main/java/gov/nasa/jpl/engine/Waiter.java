@@ -1,5 +1,6 @@
 package gov.nasa.jpl.engine;
 
+import gov.nasa.jpl.resource.ResourceUpdateBatch;
 import gov.nasa.jpl.time.Time;
 
 import java.util.function.Supplier;
@@ -10,16 +11,25 @@ import java.util.function.Supplier;
  * original model function
  */
 public class Waiter implements Comparable<Waiter> {
-    // The time at which this waiter should run
-    private final Time runTime;
+    // The time at which this waiter should run, and its tics so the queue can order Waiters without going through Time
+    private Time runTime;
+    private long tics;
 
     // used to prioritize edge cases
-    private final int priority;
-    private final Supplier<Waiter> func;
+    private int priority;
+    private Supplier<Waiter> func;
+    // set by the WaiterQueue this Waiter was last added to, which uses it to break ties between Waiters with the
+    // same time and priority in the order they were added, in the modes that need that
+    long queueOrder;
 
     // used to know when another worker threads was resumed by this Waiter
     private boolean resumed = false;
 
+    // next Waiter in a WaiterQueue's pool of Waiters that have run
+    Waiter nextInPool;
+    // true if this Waiter came from a WaiterQueue's pool and can go back to it once it has run
+    boolean pooled = false;
+
     /**
      * Constructs a waiter to execute at the given Time with the given priority.
      * @param t The Time this Waiter should execute.
@@ -31,9 +41,19 @@ public class Waiter implements Comparable<Waiter> {
      *                 priority = 1 -> new activities (at activity start)
      */
     public Waiter(Time t, int priority, Supplier<Waiter> func) {
+        reset(t, priority, func);
+    }
+
+    /**
+     * Points this Waiter at a new time and function, as if it had just been constructed. This is how the engine
+     * reuses Waiters instead of allocating one per wait.
+     */
+    void reset(Time t, int priority, Supplier<Waiter> func) {
         this.runTime = t;
+        this.tics = t == null ? 0 : t.getTics();
         this.priority = priority;
         this.func = func;
+        this.resumed = false;
     }
 
     /**
@@ -44,22 +64,39 @@ public class Waiter implements Comparable<Waiter> {
     }
 
     /**
-     * Sorts waiters by runtime and then priority.
+     * @return The tics of the Time which this Waiter will execute
+     */
+    long getTics() {
+        return tics;
+    }
+
+    /**
+     * Sorts waiters by runtime, then priority.
      * @param o the object to be compared.
      * @return
      */
     @Override
     public int compareTo(Waiter o) {
-        int ret = this.runTime.compareTo(o.runTime);
+        int ret = Long.compare(this.tics, o.tics);
         return (ret == 0) ? this.priority - o.priority : ret;
     }
 
+    /**
+     * @return true if this Waiter starts an activity, as opposed to resuming or signaling one that is already running
+     */
+    boolean startsActivity() {
+        return priority == 1;
+    }
+
     /**
      * This method is used by the modeling engine to execute the embedded function
      * @return another Waiter or null
      */
     Waiter execute() {
-        return func.get();
+        Waiter future = func.get();
+        // everything this Waiter set happened at the same time, so listeners hear about it now, all at once
+        ResourceUpdateBatch.flush();
+        return future;
     }
 
     /**
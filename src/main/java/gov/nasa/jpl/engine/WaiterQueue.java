@@ -0,0 +1,176 @@
+package gov.nasa.jpl.engine;
+
+import gov.nasa.jpl.time.Time;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.function.Supplier;
+
+/**
+ * The queue engines take Waiters out of in time order. It is a binary heap like java.util.PriorityQueue, but
+ * each Waiter's tics are kept in an array alongside it, so sifting compares longs next to each other in memory
+ * instead of following every Waiter to its Time and calling Time.compareTo().
+ *
+ * Sifting is done exactly the way PriorityQueue does it, so by default Waiters that tie on time and priority come
+ * out in the same order they always have - modeling results can depend on that order, and it is a property of the
+ * heap's shape rather than of the Waiters, so any other kind of queue would change them.
+ *
+ * Incremental REMODEL and partitioned modeling can't use that order, since the shape of the heap depends on
+ * everything else in it: a run resumed from a checkpoint or a queue holding one partition's Waiters would break
+ * ties differently than the queue of a full run. Those modes have the queue break ties in the order Waiters were
+ * added to it instead, which only depends on the Waiters themselves.
+ *
+ * The queue also keeps a pool of Waiters the engine has run, which obtain() hands back out so a wait doesn't have
+ * to allocate one. Like the engines, it isn't synchronized - only the thread holding the engine's baton may use it.
+ */
+final class WaiterQueue {
+    private static final int INITIAL_CAPACITY = 64;
+    private static final int MAX_POOLED_WAITERS = 1024;
+
+    private Waiter[] heap = new Waiter[INITIAL_CAPACITY];
+    private long[] heapTics = new long[INITIAL_CAPACITY];
+    private int size = 0;
+    // handed to each Waiter as it is added, so ties can come out first in, first out
+    private long nextQueueOrder = 0;
+    private boolean tiesInAddedOrder = false;
+
+    // Waiters that have run, linked through their nextInPool field
+    private Waiter pool = null;
+    private int pooledCount = 0;
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    void clear() {
+        Arrays.fill(heap, 0, size, null);
+        size = 0;
+        nextQueueOrder = 0;
+    }
+
+    /**
+     * Turns on or off breaking ties between Waiters with the same time and priority in the order they were added.
+     * Only allowed while the queue is empty, since changing the order would break the heap.
+     */
+    void setTiesInAddedOrder(boolean inAddedOrder) {
+        if (size != 0) {
+            throw new IllegalStateException("Can't change how a WaiterQueue breaks ties while it holds Waiters");
+        }
+        tiesInAddedOrder = inAddedOrder;
+    }
+
+    void add(Waiter toAdd) {
+        if (size == heap.length) {
+            int newCapacity = heap.length * 2;
+            heap = Arrays.copyOf(heap, newCapacity);
+            heapTics = Arrays.copyOf(heapTics, newCapacity);
+        }
+        toAdd.queueOrder = nextQueueOrder++;
+        siftUp(size++, toAdd, toAdd.getTics());
+    }
+
+    /**
+     * @return the earliest Waiter without removing it, or null if the queue is empty
+     */
+    Waiter peek() {
+        return size == 0 ? null : heap[0];
+    }
+
+    /**
+     * Removes and returns the earliest Waiter.
+     * @throws NoSuchElementException if the queue is empty
+     */
+    Waiter remove() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        Waiter earliest = heap[0];
+        int last = --size;
+        Waiter moved = heap[last];
+        heap[last] = null;
+        if (last > 0) {
+            siftDown(0, moved, heapTics[last]);
+        }
+        return earliest;
+    }
+
+    /**
+     * Returns a Waiter to run func at time t, reusing one that has already run if there is one.
+     */
+    Waiter obtain(Time t, int priority, Supplier<Waiter> func) {
+        Waiter w = pool;
+        if (w == null) {
+            w = new Waiter(t, priority, func);
+            w.pooled = true;
+            return w;
+        }
+        pool = w.nextInPool;
+        w.nextInPool = null;
+        pooledCount--;
+        w.reset(t, priority, func);
+        return w;
+    }
+
+    /**
+     * Gives a Waiter that came from obtain() back to the pool once the engine has run it. Waiters the adaptation or
+     * engine constructed themselves are left alone, since something else may still refer to them.
+     */
+    void recycle(Waiter w) {
+        if (!w.pooled || pooledCount >= MAX_POOLED_WAITERS) {
+            return;
+        }
+        // drop the function and time so they can be collected while this sits in the pool
+        w.reset(null, 0, null);
+        w.nextInPool = pool;
+        pool = w;
+        pooledCount++;
+    }
+
+    // same as PriorityQueue.siftUp()
+    private void siftUp(int k, Waiter x, long xTics) {
+        while (k > 0) {
+            int parent = (k - 1) >>> 1;
+            if (compare(x, xTics, heap[parent], heapTics[parent]) >= 0) {
+                break;
+            }
+            heap[k] = heap[parent];
+            heapTics[k] = heapTics[parent];
+            k = parent;
+        }
+        heap[k] = x;
+        heapTics[k] = xTics;
+    }
+
+    // same as PriorityQueue.siftDown()
+    private void siftDown(int k, Waiter x, long xTics) {
+        int half = size >>> 1;
+        while (k < half) {
+            int child = 2 * k + 1;
+            int right = child + 1;
+            if (right < size && compare(heap[child], heapTics[child], heap[right], heapTics[right]) > 0) {
+                child = right;
+            }
+            if (compare(x, xTics, heap[child], heapTics[child]) <= 0) {
+                break;
+            }
+            heap[k] = heap[child];
+            heapTics[k] = heapTics[child];
+            k = child;
+        }
+        heap[k] = x;
+        heapTics[k] = xTics;
+    }
+
+    // Waiter.compareTo(), only looking at the Waiters themselves when their tics are the same
+    private int compare(Waiter a, long aTics, Waiter b, long bTics) {
+        if (aTics != bTics) {
+            return Long.compare(aTics, bTics);
+        }
+        int ret = a.compareTo(b);
+        return (ret == 0 && tiesInAddedOrder) ? Long.compare(a.queueOrder, b.queueOrder) : ret;
+    }
+}
@@ -5,9 +5,9 @@ import gov.nasa.jpl.activity.Activity;
 import gov.nasa.jpl.activity.ActivityTypeList;
 import gov.nasa.jpl.engine.AdaptationException;
 import gov.nasa.jpl.engine.ModelingEngine;
+import gov.nasa.jpl.engine.ModelingProfiler;
 import gov.nasa.jpl.serialization.ConvertableFromString;
 import gov.nasa.jpl.time.EpochRelativeTime;
-import org.apache.commons.lang3.reflect.ConstructorUtils;
 
 import java.io.FileReader;
 import java.io.IOException;
@@ -98,10 +98,9 @@ public class PlanJSONHistoryReader implements HistoryReader {
 
         Object[] args = getParametersFromJSON(act, parameters);
 
-        Class<?> cls = actList.getActivityClass(activityTypeName);
         Activity activityInstance = null;
         try {
-            activityInstance = (Activity) ConstructorUtils.invokeConstructor(cls, args);
+            activityInstance = actList.newInstance(activityTypeName, args);
         }
         catch (NoSuchMethodException e) {
             throw new IOException("Could not find constructor for activity type " + activityTypeName
@@ -131,7 +130,7 @@ public class PlanJSONHistoryReader implements HistoryReader {
     private void decomposeAndScheduleActivities(Collection<Map.Entry<Activity, String>> activitiesFromThisFile){
         for(Map.Entry<Activity, String> entry : activitiesFromThisFile){
             try {
-                entry.getKey().decompose();
+                ModelingProfiler.decompose(entry.getKey());
             }
             catch(RuntimeException e){
                 throw new RuntimeException("Error trying decompose activity of type " + entry.getKey().getType() + " with start time " + entry.getKey().getStart().toString() + ". Root cause:\n" + e.getMessage() + "\nat\n" + e.getStackTrace()[0].toString());
@@ -7,9 +7,11 @@ import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 
 import gov.nasa.jpl.engine.AdaptationException;
+import gov.nasa.jpl.engine.ModelingProfiler;
 import gov.nasa.jpl.serialization.ConvertableFromString;
 import org.apache.commons.lang3.reflect.ConstructorUtils;
 
@@ -22,7 +24,7 @@ public class ReflectionUtilities {
     public static final String RELATIVE_TIME_CLASS_PACKAGE = "gov.nasa.jpl.time.EpochRelativeTime";
     public static final String DURATION_CLASS_PACKAGE = "gov.nasa.jpl.time.Duration";
     private static List<Class> classesInGovNasaJpl;
-    private static Map<String,Method> classToValueOf = new HashMap<>();
+    private static Map<String,Method> classToValueOf = new ConcurrentHashMap<>();
 
     // because this is a utilities class with just static methods, we never want anyone to instantiate
     // an object of this, so we hide the public constructor by making a private one
@@ -83,16 +85,14 @@ public class ReflectionUtilities {
     static Method getValueOfMethod(String className)
             throws ClassNotFoundException, NoSuchMethodException
     {
-        synchronized (classToValueOf)
-        {
-            Method m = classToValueOf.get(className);
-            if (m == null) {
-                Class<?> classType = Class.forName(className);
-                m = classType.getDeclaredMethod("valueOf", String.class);
-                classToValueOf.put(className, m);
-            }
-            return m;
+        // this is on the path of every parameter parsed by the parallel readers, so it doesn't lock
+        Method m = classToValueOf.get(className);
+        if (m == null) {
+            Class<?> classType = Class.forName(className);
+            m = classType.getDeclaredMethod("valueOf", String.class);
+            classToValueOf.putIfAbsent(className, m);
         }
+        return m;
     }
 
     /**
@@ -364,7 +364,7 @@ public class ReflectionUtilities {
         try {
             Activity newActInstance = (Activity) ConstructorUtils.invokeConstructor(actClass, args);
             newActInstance.setID(actID);
-            newActInstance.decompose();
+            ModelingProfiler.decompose(newActInstance);
         }
         catch (NoSuchMethodException e) {
             throw new AdaptationException("Error: Could not find Time, Object[] constructor"
@@ -33,6 +33,7 @@ public class RegexUtilities {
     public static final String WRITE = "WRITE";
     public static final String CREATE_DICTIONARY = "CREATE_DICTIONARY";
     public static final String SEQUENCE = "SEQUENCE";
+    public static final String PROFILE = "PROFILE";
     public static final String INCLUDE_STRING = "INCLUDE";
     public static final String EXCLUDE_STRING = "EXCLUDE";
 
@@ -0,0 +1,241 @@
+package gov.nasa.jpl.input;
+
+import gov.nasa.jpl.activity.Activity;
+import gov.nasa.jpl.activity.ActivityTypeList;
+import gov.nasa.jpl.engine.ModelingEngine;
+import gov.nasa.jpl.engine.ModelingProfiler;
+import gov.nasa.jpl.resource.HistoryRun;
+import gov.nasa.jpl.resource.Resource;
+import gov.nasa.jpl.resource.ResourceList;
+import gov.nasa.jpl.time.Duration;
+import gov.nasa.jpl.time.EpochRelativeTime;
+import gov.nasa.jpl.time.Time;
+
+import java.io.*;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import static gov.nasa.jpl.input.XMLTOLHistoryReader.rebuildInstanceHierarchy;
+import static gov.nasa.jpl.output.snapshot.SnapshotFormat.*;
+
+/**
+ * Reads the binary .bbsnap format written by SnapshotWriter. See SnapshotFormat for the layout.
+ */
+public class SnapshotHistoryReader implements HistoryReader {
+    private static final int READ_BUFFER_SIZE = 1 << 16;
+
+    private String fileName;
+    private DataInputStream in;
+    private List<String> dictionary;
+
+    public SnapshotHistoryReader(String fileName) {
+        this.fileName = fileName;
+    }
+
+    @Override
+    public void readInHistoryOfActivitiesAndResource(boolean areReadInResourcesFrozen, boolean shouldActivitiesDecompose) throws IOException {
+        dictionary = new ArrayList<>();
+        List<Activity> activities;
+
+        ModelingEngine.getEngine().setCurrentlyReadingInFile(true);
+        try (DataInputStream snapshot = new DataInputStream(new BufferedInputStream(new FileInputStream(fileName), READ_BUFFER_SIZE))) {
+            in = snapshot;
+            if (in.readInt() != MAGIC) {
+                throw new IOException("File " + fileName + " is not a Blackbird snapshot");
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Snapshot " + fileName + " is version " + version + " but only version " + VERSION + " can be read");
+            }
+            activities = readActivities();
+            readResources(areReadInResourcesFrozen);
+        }
+        catch (EOFException e) {
+            throw new IOException("Snapshot " + fileName + " ended before all of its contents were read");
+        }
+        finally {
+            ModelingEngine.getEngine().setCurrentlyReadingInFile(false);
+            in = null;
+            dictionary = null;
+        }
+
+        // must do this after setting reading file to false, so child activities get IDs
+        if (shouldActivitiesDecompose) {
+            for (Activity act : activities) {
+                ModelingProfiler.decompose(act);
+                act.schedule();
+            }
+        }
+    }
+
+    private List<Activity> readActivities() throws IOException {
+        int numActivities = (int) readVarLong(in);
+        List<Activity> activities = new ArrayList<>(numActivities);
+        int[] parentRows = new int[numActivities];
+        ActivityTypeList typeList = ActivityTypeList.getActivityList();
+
+        for (int row = 0; row < numActivities; row++) {
+            String typeName = readString();
+            Object start = readValue();
+            UUID id = new UUID(in.readLong(), in.readLong());
+            parentRows[row] = (int) readVarLong(in);
+            String notes = in.readUnsignedByte() == TAG_NULL ? null : readString();
+
+            int numParams = (int) readVarLong(in);
+            Object[] args = new Object[numParams + 1];
+            args[0] = start;
+            for (int i = 1; i <= numParams; i++) {
+                args[i] = readValue();
+            }
+
+            Activity activityInstance;
+            try {
+                // the constructor adds the instance to the global list
+                activityInstance = typeList.newInstance(typeName, args);
+            }
+            catch (NoSuchMethodException e) {
+                throw new IOException("Could not find constructor for activity type " + typeName + ": " + e.toString());
+            }
+            catch (InstantiationException e) {
+                throw new IOException("Could not execute constructor for activity type " + typeName);
+            }
+            catch (IllegalAccessException e) {
+                throw new IOException("Did not have permission to execute constructor for activity type " + typeName);
+            }
+            catch (InvocationTargetException e) {
+                throw new IOException("Failed invoking constructor for activity type " + typeName +
+                        ". Cause:\n" + e.getTargetException().getMessage());
+            }
+            activityInstance.setID(id);
+            activityInstance.setNotes(notes);
+            activities.add(activityInstance);
+        }
+
+        // now that every activity exists, re-associate parents and children
+        Map<String, Map.Entry<Activity, String>> mapOfAllIDsToActivitiesAndTheirParentIDs = new LinkedHashMap<>();
+        for (int row = 0; row < numActivities; row++) {
+            Activity act = activities.get(row);
+            String parentID = parentRows[row] == 0 ? "" : activities.get(parentRows[row] - 1).getIDString();
+            mapOfAllIDsToActivitiesAndTheirParentIDs.put(act.getIDString(), new AbstractMap.SimpleEntry<>(act, parentID));
+        }
+        rebuildInstanceHierarchy(mapOfAllIDsToActivitiesAndTheirParentIDs);
+        return activities;
+    }
+
+    private void readResources(boolean areReadInResourcesFrozen) throws IOException {
+        int numResources = (int) readVarLong(in);
+        for (int r = 0; r < numResources; r++) {
+            String resName = readString();
+            int numNodes = (int) readVarLong(in);
+            HistoryRun.ValueType valueType = HistoryRun.ValueType.values()[in.readByte()];
+
+            Resource<Comparable> res = (Resource<Comparable>) ResourceList.getResourceList().get(resName);
+            HistoryRun<Comparable> run = new HistoryRun<>(HistoryRun.valueTypeOf(res.getDataType()), numNodes);
+            // histories with nulls are written as tagged values whatever the resource type, otherwise the column types must match
+            if (valueType != HistoryRun.ValueType.OBJECT && valueType != run.getValueType()) {
+                throw new IOException("Snapshot " + fileName + " has " + valueType + " values for resource " + resName + ", which holds " + res.getDataType());
+            }
+
+            long[] tics = new long[numNodes];
+            long previousTics = 0;
+            for (int i = 0; i < numNodes; i++) {
+                previousTics += readSignedVarLong(in);
+                tics[i] = previousTics;
+            }
+
+            for (int i = 0; i < numNodes; i++) {
+                switch (valueType) {
+                    case DOUBLE:
+                        run.addDouble(tics[i], in.readDouble());
+                        break;
+                    case INTEGER:
+                        run.addLong(tics[i], readSignedVarLong(in));
+                        break;
+                    case BOOLEAN:
+                        run.addLong(tics[i], in.readBoolean() ? 1L : 0L);
+                        break;
+                    default:
+                        int tag = in.readUnsignedByte();
+                        run.addObject(tics[i], tag == TAG_NULL ? null : readValue(tag));
+                }
+            }
+
+            res.insertRecords(this, run);
+            res.setFrozen(areReadInResourcesFrozen);
+        }
+    }
+
+    private Object readValue() throws IOException {
+        return readValue(in.readUnsignedByte());
+    }
+
+    private Object readValue(int tag) throws IOException {
+        switch (tag) {
+            case TAG_DOUBLE:
+                return in.readDouble();
+            case TAG_INTEGER:
+                return (int) readSignedVarLong(in);
+            case TAG_LONG:
+                return readSignedVarLong(in);
+            case TAG_FALSE:
+                return false;
+            case TAG_TRUE:
+                return true;
+            case TAG_STRING:
+                return readString();
+            case TAG_TIME:
+                return Time.fromTics(readSignedVarLong(in));
+            case TAG_RELATIVE_TIME:
+                return EpochRelativeTime.getAbsoluteOrRelativeTime(readString());
+            case TAG_DURATION:
+                return Duration.fromTics(readSignedVarLong(in));
+            case TAG_ENUM:
+                return readEnum(readString(), readString());
+            case TAG_LIST: {
+                int size = (int) readVarLong(in);
+                List<Object> list = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    list.add(readValue());
+                }
+                return list;
+            }
+            case TAG_MAP: {
+                int size = (int) readVarLong(in);
+                Map<Object, Object> map = new HashMap<>();
+                for (int i = 0; i < size; i++) {
+                    Object key = readValue();
+                    map.put(key, readValue());
+                }
+                return map;
+            }
+            case TAG_TEXT: {
+                String className = readString();
+                return ReflectionUtilities.returnValueOf(className, readString(), false);
+            }
+            default:
+                throw new IOException("Unknown value tag " + tag + " in snapshot " + fileName);
+        }
+    }
+
+    private static Object readEnum(String className, String constantName) throws IOException {
+        try {
+            return Enum.valueOf((Class<? extends Enum>) Class.forName(className), constantName);
+        }
+        catch (ClassNotFoundException | IllegalArgumentException e) {
+            throw new IOException("Could not find enum constant " + className + "." + constantName + ": " + e.getMessage());
+        }
+    }
+
+    private String readString() throws IOException {
+        int index = (int) readVarLong(in);
+        if (index > 0) {
+            return dictionary.get(index - 1);
+        }
+        byte[] bytes = new byte[(int) readVarLong(in)];
+        in.readFully(bytes);
+        String s = new String(bytes, StandardCharsets.UTF_8);
+        dictionary.add(s);
+        return s;
+    }
+}
@@ -6,7 +6,6 @@ import gov.nasa.jpl.engine.ModelingEngine;
 import gov.nasa.jpl.resource.Resource;
 import gov.nasa.jpl.resource.ResourceList;
 import gov.nasa.jpl.time.Time;
-import org.apache.commons.lang3.reflect.ConstructorUtils;
 
 import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLStreamException;
@@ -101,9 +100,7 @@ public class XMLTOLHistoryReader implements HistoryReader {
                         break;
                     case XMLStreamReader.END_ELEMENT:
                         // find the correct activity class
-                        ActivityTypeList actList = ActivityTypeList.getActivityList();
-                        Class<?> cls = actList.getActivityClass(activityTypeName.toString());
-                        Activity activityInstance = (Activity) ConstructorUtils.invokeConstructor(cls, args.toArray());
+                        Activity activityInstance = ActivityTypeList.getActivityList().newInstance(activityTypeName.toString(), args.toArray());
                         activityInstance.setID(UUID.fromString(actID.toString()));
                         // the constructor has put it in the activity instance list, but we want it in a hashmap
                         // to not look up activities slowly when doing parentage
@@ -28,7 +28,7 @@ public class ParallelDirectoryReader implements HistoryReader {
         // this map IS going to get added to by a lot of threads
         ConcurrentHashMap<String, Map.Entry<Activity, String>> mapOfAllIDsToActivitiesAndTheirParentIDs = new ConcurrentHashMap<>();
 
-        exec = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors() - 1);
+        exec = Executors.newFixedThreadPool(Integer.max(1, Runtime.getRuntime().availableProcessors() - 1));
         ModelingEngine.getEngine().setCurrentlyReadingInFile(true);
 
         // set up Callable (Runnable) tasks to send to the parallel executor
@@ -44,7 +44,10 @@ public class ParallelDirectoryReader implements HistoryReader {
         File[] resourceFiles = new File(dirName + File.separator + RES).listFiles();
         if(resourceFiles != null) {
             for (File resFile : resourceFiles) {
-                tasks.add(Executors.callable(new ReaderThreadResource(resFile, areReadInResourcesFrozen)));
+                // big resource files come back as several segments so more than one thread can work on them
+                for (Runnable segment : new ReaderThreadResource(resFile, areReadInResourcesFrozen).splitIntoSegments()) {
+                    tasks.add(Executors.callable(segment));
+                }
             }
         }
 
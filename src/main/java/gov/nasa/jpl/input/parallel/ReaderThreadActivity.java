@@ -4,7 +4,6 @@ import gov.nasa.jpl.activity.Activity;
 import gov.nasa.jpl.activity.ActivityInstanceList;
 import gov.nasa.jpl.activity.ActivityTypeList;
 import gov.nasa.jpl.input.ReflectionUtilities;
-import org.apache.commons.lang3.reflect.ConstructorUtils;
 
 import java.io.*;
 import java.lang.reflect.InvocationTargetException;
@@ -20,20 +19,23 @@ import static gov.nasa.jpl.time.Time.TIME_PATTERN;
 public class ReaderThreadActivity implements Runnable{
     private File toRead;
     private String typeName;
-    private Class<?> actType;
+    private ActivityTypeList typeList;
     private String[] paramTypes;
     private ConcurrentHashMap<String, Map.Entry<Activity, String>> mapOfAllIDsToActivitiesAndTheirParentIDs;
 
     public ReaderThreadActivity(File toRead, ConcurrentHashMap<String, Map.Entry<Activity, String>> mapOfAllIDsToActivitiesAndTheirParentIDs){
         this.toRead = toRead;
         this.typeName = toRead.toPath().getFileName().toString().replaceAll(".csv","");
-        actType = ActivityTypeList.getActivityList().getActivityClass(typeName);
-        paramTypes = getActivityParameterTypeArray(ActivityTypeList.getActivityList().getParameters(typeName));
+        typeList = ActivityTypeList.getActivityList();
+        // this also makes sure the type exists before any thread starts reading
+        paramTypes = getActivityParameterTypeArray(typeList.getParameters(typeName));
         this.mapOfAllIDsToActivitiesAndTheirParentIDs = mapOfAllIDsToActivitiesAndTheirParentIDs;
     }
 
     @Override
     public void run() {
+        // activities made on this thread go into the global list all at once at the end instead of one lock at a time
+        ActivityInstanceList.startHoldingBackAdds();
         try (BufferedReader br = new BufferedReader(new FileReader(toRead))) {
             String line;
             int lineNo = 0;
@@ -71,11 +73,8 @@ public class ReaderThreadActivity implements Runnable{
 
                 Object[] args = ReflectionUtilities.parseActivityParameters(parameterString, paramTypes);
 
-                Activity activityInstance;
-                // these lines create the activity instance, add it to the global list, and set it up to be spawned() correctly later
-                synchronized (ActivityInstanceList.getActivityList()) {
-                    activityInstance = (Activity) ConstructorUtils.invokeConstructor(actType, args);
-                }
+                // these lines create the activity instance, hold it back for the global list, and set it up to be spawned() correctly later
+                Activity activityInstance = typeList.newInstance(typeName, args);
                 activityInstance.setID(UUID.fromString(actID));
                 mapOfAllIDsToActivitiesAndTheirParentIDs.put(actID, new AbstractMap.SimpleEntry<>(activityInstance, parentID));
             }
@@ -94,6 +93,9 @@ public class ReaderThreadActivity implements Runnable{
         catch (InvocationTargetException e) {
             throw new RuntimeException("Could not invoke constructor for activity type " + typeName);
         }
+        finally {
+            ActivityInstanceList.finishHoldingBackAdds();
+        }
 
     }
 }
@@ -1,56 +1,331 @@
 package gov.nasa.jpl.input.parallel;
 
 import gov.nasa.jpl.input.ReflectionUtilities;
+import gov.nasa.jpl.resource.HistoryRun;
 import gov.nasa.jpl.resource.Resource;
 import gov.nasa.jpl.resource.ResourceList;
-import gov.nasa.jpl.time.Time;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Reads one resource CSV of the .dir format. The file is memory-mapped and split into line-aligned segments, so a
+ * huge resource can be parsed by several threads. Tics and Double, Integer and Boolean values are parsed straight
+ * from the bytes, other types go through ReflectionUtilities like they always have. Each segment is parsed into a
+ * HistoryRun, and the runs are inserted into the resource in file order once all of them are done.
+ */
 public class ReaderThreadResource implements Runnable{
+    // files bigger than this get split into segments that can be parsed on different threads
+    private static final long DEFAULT_SEGMENT_SIZE = 32L << 20;
+    // lines are a human-readable time, tics and the value, so this is a rough guess for sizing runs up front
+    private static final int ESTIMATED_BYTES_PER_LINE = 48;
+    // every power of ten up to this is exactly representable as a double, which the fast double parsing relies on
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
     private File toRead;
     private Resource<Comparable> res;
     private boolean isFrozen;
+    private String resType;
+    private HistoryRun.ValueType valueType;
+    private long segmentSize;
 
     public ReaderThreadResource(File toRead, boolean isFrozen){
+        this(toRead, isFrozen, DEFAULT_SEGMENT_SIZE);
+    }
+
+    ReaderThreadResource(File toRead, boolean isFrozen, long segmentSize){
         this.toRead = toRead;
         String resName = toRead.toPath().getFileName().toString().replaceAll(".csv","");
         res = (Resource<Comparable>) ResourceList.getResourceList().get(resName);
         this.isFrozen = isFrozen;
+        this.resType = res.getDataType();
+        this.valueType = HistoryRun.valueTypeOf(resType);
+        this.segmentSize = segmentSize;
     }
 
     @Override
     public void run() {
-        try (BufferedReader br = new BufferedReader(new FileReader(toRead))) {
-            String resType = res.getDataType();
-            int lineNo = 0;
-            String line;
-            while ((line = br.readLine()) != null) {
-                int c1 = line.indexOf(',');
-                int c2 = line.indexOf(',', c1 + 1);
-                lineNo++;
+        for (Runnable segment : splitIntoSegments()) {
+            segment.run();
+        }
+    }
+
+    /**
+     * Splits the file into line-aligned segments that can be parsed on any threads in any order. Whichever segment
+     * finishes last inserts the nodes of all of them into the resource, in file order, and then freezes it if asked.
+     * If any segment fails nothing gets inserted.
+     * @return one Runnable per segment, always at least one
+     */
+    public List<Runnable> splitIntoSegments() {
+        List<Long> segmentStarts = new ArrayList<>();
+        long fileSize;
+        try (FileChannel channel = FileChannel.open(toRead.toPath(), StandardOpenOption.READ)) {
+            fileSize = channel.size();
+            long start = 0;
+            do {
+                segmentStarts.add(start);
+                start = start + segmentSize >= fileSize ? fileSize : startOfNextLine(channel, start + segmentSize);
+            } while (start < fileSize);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not open file " + toRead.toString() + " when trying to read resources from directory. Error: " + e.getMessage());
+        }
+        segmentStarts.add(fileSize);
+
+        int numSegments = segmentStarts.size() - 1;
+        HistoryRun<Comparable>[] runs = new HistoryRun[numSegments];
+        AtomicInteger segmentsLeft = new AtomicInteger(numSegments);
+        List<Runnable> segments = new ArrayList<>(numSegments);
+        for (int i = 0; i < numSegments; i++) {
+            segments.add(new SegmentParser(segmentStarts.get(i), segmentStarts.get(i + 1), i, runs, segmentsLeft));
+        }
+        return segments;
+    }
+
+    private void insertRuns(HistoryRun<Comparable>[] runs) {
+        for (HistoryRun<Comparable> run : runs) {
+            res.insertRecords(this, run);
+        }
+        res.setFrozen(isFrozen);
+    }
+
+    /**
+     * @return the position just past the first newline at or after position, or the file size if there is none
+     */
+    private static long startOfNextLine(FileChannel channel, long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        long fileSize = channel.size();
+        while (position < fileSize) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return fileSize;
+    }
+
+    private class SegmentParser implements Runnable {
+        private final long start;
+        private final long end;
+        private final int index;
+        private final HistoryRun<Comparable>[] runs;
+        private final AtomicInteger segmentsLeft;
+
+        private MappedByteBuffer bytes;
+        // where the fast parsers put their result when they return true
+        private long parsedLong;
+        private double parsedDouble;
+
+        SegmentParser(long start, long end, int index, HistoryRun<Comparable>[] runs, AtomicInteger segmentsLeft) {
+            this.start = start;
+            this.end = end;
+            this.index = index;
+            this.runs = runs;
+            this.segmentsLeft = segmentsLeft;
+        }
+
+        @Override
+        public void run() {
+            try (FileChannel channel = FileChannel.open(toRead.toPath(), StandardOpenOption.READ)) {
+                bytes = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+            } catch (IOException e) {
+                throw new RuntimeException("Could not open file " + toRead.toString() + " when trying to read resources from directory. Error: " + e.getMessage());
+            }
+            runs[index] = parse();
+            bytes = null;
+
+            // the AtomicInteger makes every other segment's run visible to the one that finishes last
+            if (segmentsLeft.decrementAndGet() == 0) {
+                insertRuns(runs);
+            }
+        }
 
-                if (c1 == -1 || c2 == -1) {
-                    throw new RuntimeException("Invalid format at line " + lineNo + " in file " + toRead);
+        private HistoryRun<Comparable> parse() {
+            int limit = bytes.limit();
+            HistoryRun<Comparable> run = new HistoryRun<>(valueType, limit / ESTIMATED_BYTES_PER_LINE);
+            int position = 0;
+            while (position < limit) {
+                int lineStart = position;
+                int lineEnd = indexOf((byte) '\n', lineStart, limit);
+                position = lineEnd + 1;
+                if (lineEnd > lineStart && bytes.get(lineEnd - 1) == '\r') {
+                    lineEnd--;
                 }
 
                 // line format has a human-readable date string (we ignore), date in tics, and then value
-                // String humanTime = line.substring(0, c1);
-                String tics = line.substring(c1 + 1, c2);
-                String valueStr = line.substring(c2 + 1);
+                int c1 = indexOf((byte) ',', lineStart, lineEnd);
+                int c2 = indexOf((byte) ',', c1 + 1, lineEnd);
+                if (c1 >= lineEnd || c2 >= lineEnd) {
+                    throw new RuntimeException("Invalid format at byte " + (start + lineStart) + " in file " + toRead);
+                }
+
+                long tics = parseLong(c1 + 1, c2) ? parsedLong : Long.parseLong(string(c1 + 1, c2));
+                addValue(run, tics, c2 + 1, lineEnd);
+            }
+            return run;
+        }
 
-                Time t = Time.fromTics(Long.parseLong(tics));
-                Comparable value = (Comparable) ReflectionUtilities.returnValueOf(resType, valueStr, true);
+        private void addValue(HistoryRun<Comparable> run, long tics, int from, int to) {
+            switch (valueType) {
+                case DOUBLE:
+                    if (parseDouble(from, to)) {
+                        run.addDouble(tics, parsedDouble);
+                        return;
+                    }
+                    break;
+                case INTEGER:
+                    if (parseLong(from, to) && parsedLong >= Integer.MIN_VALUE && parsedLong <= Integer.MAX_VALUE) {
+                        run.addLong(tics, parsedLong);
+                        return;
+                    }
+                    break;
+                case BOOLEAN:
+                    // same as Boolean.valueOf(), anything but "true" in any case is false
+                    run.addLong(tics, isTrue(from, to) ? 1L : 0L);
+                    return;
+                default:
+                    break;
+            }
+            run.addObject(tics, ReflectionUtilities.returnValueOf(resType, string(from, to), true));
+        }
 
-                // actually insert record
-                // even though TreeMap isn't thread-safe, the beauty of this approach is that each Thread gets one resource history/TreeMap to populate
-                res.insertRecord(this, t, value);
+        /**
+         * Parses a plain decimal integer of up to 18 digits
+         * @return false if the bytes aren't one, so the caller can fall back to the String parsers
+         */
+        private boolean parseLong(int from, int to) {
+            int i = from;
+            boolean negative = i < to && bytes.get(i) == '-';
+            if (negative) {
+                i++;
             }
+            if (i == to || to - i > 18) {
+                return false;
+            }
+            long value = 0;
+            for (; i < to; i++) {
+                int digit = bytes.get(i) - '0';
+                if (digit < 0 || digit > 9) {
+                    return false;
+                }
+                value = value * 10 + digit;
+            }
+            parsedLong = negative ? -value : value;
+            return true;
+        }
 
-            res.setFrozen(isFrozen);
+        /**
+         * Parses decimals like Double.toString() writes them, but only when the digits fit exactly in a double and the
+         * power of ten does too, in which case one multiplication or division gives the correctly rounded result
+         * @return false for anything else, so the caller can fall back to Double.valueOf()
+         */
+        private boolean parseDouble(int from, int to) {
+            int i = from;
+            boolean negative = i < to && bytes.get(i) == '-';
+            if (negative) {
+                i++;
+            }
+            long mantissa = 0;
+            int significantDigits = 0;
+            int fractionDigits = 0;
+            boolean anyDigits = false;
+            boolean seenPoint = false;
+            int exponent = 0;
+            for (; i < to; i++) {
+                byte c = bytes.get(i);
+                if (c >= '0' && c <= '9') {
+                    if (mantissa != 0 || c != '0') {
+                        significantDigits++;
+                    }
+                    if (significantDigits > 15) {
+                        return false;
+                    }
+                    mantissa = mantissa * 10 + (c - '0');
+                    anyDigits = true;
+                    if (seenPoint) {
+                        fractionDigits++;
+                    }
+                }
+                else if (c == '.' && !seenPoint) {
+                    seenPoint = true;
+                }
+                else if ((c == 'E' || c == 'e') && anyDigits) {
+                    if (!parseLong(i + 1, to) || Math.abs(parsedLong) > 400) {
+                        return false;
+                    }
+                    exponent = (int) parsedLong;
+                    break;
+                }
+                else {
+                    return false;
+                }
+            }
+            if (!anyDigits) {
+                return false;
+            }
 
-        } catch (IOException e) {
-            throw new RuntimeException("Could not open file " + toRead.toString() + " when trying to read resources from directory. Error: " + e.getMessage());
+            int powerOfTen = exponent - fractionDigits;
+            double value = mantissa;
+            if (powerOfTen > 0 && powerOfTen < POWERS_OF_TEN.length) {
+                value *= POWERS_OF_TEN[powerOfTen];
+            }
+            else if (powerOfTen < 0 && -powerOfTen < POWERS_OF_TEN.length) {
+                value /= POWERS_OF_TEN[-powerOfTen];
+            }
+            else if (powerOfTen != 0) {
+                return false;
+            }
+            parsedDouble = negative ? -value : value;
+            return true;
+        }
+
+        private boolean isTrue(int from, int to) {
+            if (to - from != 4) {
+                return false;
+            }
+            String expected = "true";
+            for (int i = 0; i < 4; i++) {
+                if (Character.toLowerCase((char) bytes.get(from + i)) != expected.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * @return the index of the first b in [from, to), or to if there is none
+         */
+        private int indexOf(byte b, int from, int to) {
+            for (int i = from; i < to; i++) {
+                if (bytes.get(i) == b) {
+                    return i;
+                }
+            }
+            return to;
+        }
+
+        private String string(int from, int to) {
+            byte[] raw = new byte[to - from];
+            for (int i = 0; i < raw.length; i++) {
+                raw[i] = bytes.get(from + i);
+            }
+            return new String(raw, StandardCharsets.UTF_8);
         }
     }
 }
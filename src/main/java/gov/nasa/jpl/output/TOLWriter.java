@@ -1,8 +1,11 @@
 package gov.nasa.jpl.output;
 
+import java.io.BufferedWriter;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
-import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -12,13 +15,16 @@ import gov.nasa.jpl.resource.ResourceList;
 import gov.nasa.jpl.time.Time;
 
 public abstract class TOLWriter {
+    // TOLs are written in large formatted chunks, so a bigger buffer than the 8k default saves a lot of small writes
+    private static final int WRITE_BUFFER_SIZE = 1 << 16;
+
     protected PrintWriter writer;
 
     public void createFile(String name) {
         try {
-            writer = new PrintWriter(name, "UTF-8");
+            writer = new PrintWriter(new BufferedWriter(new OutputStreamWriter(new FileOutputStream(name), StandardCharsets.UTF_8), WRITE_BUFFER_SIZE));
         }
-        catch (FileNotFoundException | UnsupportedEncodingException e) {
+        catch (FileNotFoundException e) {
             e.printStackTrace();
         }
     }
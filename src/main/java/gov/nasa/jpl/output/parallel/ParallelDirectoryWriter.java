@@ -25,7 +25,7 @@ public class ParallelDirectoryWriter extends TOLWriter {
     private ExecutorService exec;
 
     public ParallelDirectoryWriter(){
-        exec = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors() - 1);
+        exec = Executors.newFixedThreadPool(Integer.max(1, Runtime.getRuntime().availableProcessors() - 1));
     }
 
     private boolean recurisvelyDelete(File fileToDelete) {
@@ -0,0 +1,79 @@
+package gov.nasa.jpl.output.snapshot;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Constants and variable-length integer coding shared by SnapshotWriter and SnapshotHistoryReader.
+ *
+ * A .bbsnap file is, in order:
+ * - the magic number and format version
+ * - the activity table: a count, then per activity its type, start, ID, parent row, notes and parameters
+ * - the resource columns: a count, then per resource its name, node count and value type, all of its tics
+ *   delta-encoded, then all of its values
+ *
+ * Strings are dictionary-encoded inline: the first time a string is written it is a 0 followed by its length and
+ * UTF-8 bytes, and every later time it is its index in the dictionary plus one. Activity types, resource names,
+ * String and enum values all go through the dictionary, so each one is only stored once per file.
+ */
+public final class SnapshotFormat {
+    public static final int MAGIC = 0x42425350; // "BBSP"
+    public static final int VERSION = 2;
+
+    // tags in front of every activity parameter and notes, and every value of a resource that isn't kept as primitives
+    public static final int TAG_NULL = 0;
+    public static final int TAG_DOUBLE = 1;
+    public static final int TAG_INTEGER = 2;
+    public static final int TAG_LONG = 3;
+    public static final int TAG_FALSE = 4;
+    public static final int TAG_TRUE = 5;
+    public static final int TAG_STRING = 6;
+    public static final int TAG_TIME = 7;
+    public static final int TAG_DURATION = 8;
+    public static final int TAG_ENUM = 9;
+    public static final int TAG_LIST = 10;
+    public static final int TAG_MAP = 11;
+    // anything else is written as its class name and toString(), and read back with ReflectionUtilities
+    public static final int TAG_TEXT = 12;
+    // epoch-relative times are kept as their relative string so they move with their epoch, like in the .dir format
+    public static final int TAG_RELATIVE_TIME = 13;
+
+    private SnapshotFormat() {
+    }
+
+    /**
+     * Writes a non-negative long in 7-bit groups, low group first, so small numbers take one byte
+     */
+    public static void writeVarLong(DataOutput out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    public static long readVarLong(DataInput in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable-length integer in snapshot");
+    }
+
+    /**
+     * Writes a long that may be negative, zig-zag encoded so numbers close to zero stay short either way
+     */
+    public static void writeSignedVarLong(DataOutput out, long value) throws IOException {
+        writeVarLong(out, (value << 1) ^ (value >> 63));
+    }
+
+    public static long readSignedVarLong(DataInput in) throws IOException {
+        long encoded = readVarLong(in);
+        return (encoded >>> 1) ^ -(encoded & 1);
+    }
+}
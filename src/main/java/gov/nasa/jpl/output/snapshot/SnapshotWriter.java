@@ -0,0 +1,258 @@
+package gov.nasa.jpl.output.snapshot;
+
+import gov.nasa.jpl.activity.Activity;
+import gov.nasa.jpl.activity.ActivityInstanceList;
+import gov.nasa.jpl.constraint.ConstraintInstanceList;
+import gov.nasa.jpl.engine.AdaptationException;
+import gov.nasa.jpl.output.TOLWriter;
+import gov.nasa.jpl.resource.HistoryRun;
+import gov.nasa.jpl.resource.Resource;
+import gov.nasa.jpl.resource.ResourceList;
+import gov.nasa.jpl.time.Duration;
+import gov.nasa.jpl.time.EpochRelativeTime;
+import gov.nasa.jpl.time.Time;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import static gov.nasa.jpl.output.snapshot.SnapshotFormat.*;
+
+/**
+ * Writes the binary .bbsnap format, which saves and loads a plan much faster than the text formats because
+ * nothing has to be formatted or parsed as a string. See SnapshotFormat for the layout. Like the .plan.json format,
+ * constraint violations are not written, since they are found again from the resources by the next model run.
+ */
+public class SnapshotWriter extends TOLWriter {
+    private static final int WRITE_BUFFER_SIZE = 1 << 16;
+
+    private String fileName;
+    private DataOutputStream out;
+    private Map<String, Integer> dictionary;
+
+    @Override
+    public void createFile(String fileName) {
+        this.fileName = fileName;
+        dictionary = new HashMap<>();
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fileName), WRITE_BUFFER_SIZE));
+        }
+        catch (IOException e) {
+            throw new RuntimeException("Could not create snapshot file " + fileName + ". Error: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void closeFile() {
+        try {
+            out.close();
+        }
+        catch (IOException e) {
+            throw new RuntimeException("Could not finish writing snapshot file " + fileName + ". Error: " + e.getMessage());
+        }
+        dictionary = null;
+    }
+
+    @Override
+    public void writeFileContents(ActivityInstanceList actList, ResourceList resList, ConstraintInstanceList conList, Time startTime, Time endTime) {
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            writeActivities(actList, startTime, endTime);
+            writeResources(resList, startTime, endTime);
+        }
+        catch (IOException e) {
+            throw new RuntimeException("Could not write snapshot file " + fileName + ". Error: " + e.getMessage());
+        }
+    }
+
+    private void writeActivities(ActivityInstanceList actList, Time startTime, Time endTime) throws IOException {
+        List<Activity> activities = new ArrayList<>();
+        for (int i = 0; i < actList.length(); i++) {
+            Activity act = actList.get(i);
+            if ((startTime == null || act.getStart().greaterThanOrEqualTo(startTime)) && (endTime == null || act.getStart().lessThanOrEqualTo(endTime))) {
+                activities.add(act);
+            }
+        }
+
+        // parents are written as their row in this table, so the reader doesn't have to look them up by ID
+        Map<Activity, Integer> rows = new IdentityHashMap<>();
+        for (int i = 0; i < activities.size(); i++) {
+            rows.put(activities.get(i), i);
+        }
+
+        writeVarLong(out, activities.size());
+        for (Activity act : activities) {
+            writeString(act.getType());
+            writeValue(act.getStart());
+            UUID id = act.getID();
+            out.writeLong(id.getMostSignificantBits());
+            out.writeLong(id.getLeastSignificantBits());
+            // 0 for no parent, or one that wasn't written, otherwise its row plus one
+            Integer parentRow = act.getParent() == null ? null : rows.get(act.getParent());
+            writeVarLong(out, parentRow == null ? 0 : parentRow + 1);
+            // notes are tagged so an activity without any reads back as null rather than an empty string
+            if (act.getNotes() == null) {
+                out.writeByte(TAG_NULL);
+            }
+            else {
+                out.writeByte(TAG_STRING);
+                writeString(act.getNotes());
+            }
+
+            Object[] paramValues = act.getParameterObjects();
+            writeVarLong(out, paramValues.length);
+            for (int i = 0; i < paramValues.length; i++) {
+                try {
+                    writeValue(paramValues[i]);
+                }
+                catch (AdaptationException e) {
+                    throw new AdaptationException("Parameter " + i + " for activity of type " + act.getType() + " at time " + act.getStart().toString() + " is null or has a null member when writing out to file, which is not allowed.");
+                }
+            }
+        }
+    }
+
+    private void writeResources(ResourceList resList, Time startTime, Time endTime) throws IOException {
+        List<Resource> resources = resList.getListOfAllResources();
+        writeVarLong(out, resources.size());
+        for (Resource res : resources) {
+            // the history is copied into columns first so the count can go in front and each column is written in one pass
+            HistoryRun.ValueType valueType = HistoryRun.valueTypeOf(res.getDataType());
+            List<Map.Entry<Time, Comparable>> nodes = new ArrayList<>();
+            Iterator<Map.Entry<Time, Comparable>> iter = res.historyIterator(startTime, endTime);
+            while (iter.hasNext()) {
+                nodes.add(iter.next());
+            }
+            // a primitive column can't hold nulls, so a history with any falls back to tagged values
+            for (Map.Entry<Time, Comparable> node : nodes) {
+                if (node.getValue() == null) {
+                    valueType = HistoryRun.ValueType.OBJECT;
+                    break;
+                }
+            }
+
+            writeString(res.getUniqueName());
+            writeVarLong(out, nodes.size());
+            out.writeByte(valueType.ordinal());
+
+            long previousTics = 0;
+            for (Map.Entry<Time, Comparable> node : nodes) {
+                long tics = node.getKey().getTics();
+                writeSignedVarLong(out, tics - previousTics);
+                previousTics = tics;
+            }
+
+            switch (valueType) {
+                case DOUBLE:
+                    for (Map.Entry<Time, Comparable> node : nodes) {
+                        out.writeDouble((Double) node.getValue());
+                    }
+                    break;
+                case INTEGER:
+                    for (Map.Entry<Time, Comparable> node : nodes) {
+                        writeSignedVarLong(out, (Integer) node.getValue());
+                    }
+                    break;
+                case BOOLEAN:
+                    for (Map.Entry<Time, Comparable> node : nodes) {
+                        out.writeBoolean((Boolean) node.getValue());
+                    }
+                    break;
+                default:
+                    for (Map.Entry<Time, Comparable> node : nodes) {
+                        if (node.getValue() == null) {
+                            out.writeByte(TAG_NULL);
+                        }
+                        else {
+                            writeValue(node.getValue());
+                        }
+                    }
+            }
+        }
+    }
+
+    /**
+     * Writes a tag and then the value, recursing into lists and maps. Null values are not allowed, like in the other writers
+     */
+    private void writeValue(Object value) throws IOException {
+        if (value == null) {
+            throw new AdaptationException("");
+        }
+        Class<?> cls = value.getClass();
+        if (cls == Double.class) {
+            out.writeByte(TAG_DOUBLE);
+            out.writeDouble((Double) value);
+        }
+        else if (cls == Integer.class) {
+            out.writeByte(TAG_INTEGER);
+            writeSignedVarLong(out, (Integer) value);
+        }
+        else if (cls == Long.class) {
+            out.writeByte(TAG_LONG);
+            writeSignedVarLong(out, (Long) value);
+        }
+        else if (cls == Boolean.class) {
+            out.writeByte((Boolean) value ? TAG_TRUE : TAG_FALSE);
+        }
+        else if (cls == String.class) {
+            out.writeByte(TAG_STRING);
+            writeString((String) value);
+        }
+        else if (cls == EpochRelativeTime.class) {
+            out.writeByte(TAG_RELATIVE_TIME);
+            writeString(value.toString());
+        }
+        else if (value instanceof Time) {
+            out.writeByte(TAG_TIME);
+            writeSignedVarLong(out, ((Time) value).getTics());
+        }
+        else if (cls == Duration.class) {
+            out.writeByte(TAG_DURATION);
+            writeSignedVarLong(out, ((Duration) value).getTics());
+        }
+        else if (value instanceof Enum) {
+            out.writeByte(TAG_ENUM);
+            writeString(((Enum) value).getDeclaringClass().getName());
+            writeString(((Enum) value).name());
+        }
+        else if (value instanceof List) {
+            List list = (List) value;
+            out.writeByte(TAG_LIST);
+            writeVarLong(out, list.size());
+            for (Object element : list) {
+                writeValue(element);
+            }
+        }
+        else if (value instanceof Map) {
+            Map<Object, Object> map = (Map) value;
+            out.writeByte(TAG_MAP);
+            writeVarLong(out, map.size());
+            for (Map.Entry<Object, Object> entry : map.entrySet()) {
+                writeValue(entry.getKey());
+                writeValue(entry.getValue());
+            }
+        }
+        else {
+            out.writeByte(TAG_TEXT);
+            writeString(cls.getName());
+            writeString(value.toString());
+        }
+    }
+
+    private void writeString(String s) throws IOException {
+        Integer index = dictionary.get(s);
+        if (index != null) {
+            writeVarLong(out, index + 1);
+            return;
+        }
+        dictionary.put(s, dictionary.size());
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, 0);
+        writeVarLong(out, bytes.length);
+        out.write(bytes);
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * Package contains classes related to writing out the binary .bbsnap plan snapshot format
+ */
+package gov.nasa.jpl.output.snapshot;
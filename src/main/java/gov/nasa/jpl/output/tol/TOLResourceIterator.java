@@ -1,11 +1,8 @@
 package gov.nasa.jpl.output.tol;
 
-import gov.nasa.jpl.resource.Resource;
 import gov.nasa.jpl.resource.ResourcesIterator;
-import gov.nasa.jpl.time.Time;
 
 import java.util.Iterator;
-import java.util.Map;
 import java.util.NoSuchElementException;
 
 public class TOLResourceIterator implements Iterator<TOLRecord> {
@@ -26,7 +23,8 @@ public class TOLResourceIterator implements Iterator<TOLRecord> {
         if(!hasNext()){
             throw new NoSuchElementException("Tried to iterate past end of all resource histories");
         }
-        Map.Entry<Resource,Map.Entry<Time, Comparable>> nextEntry = resIterator.next();
-        return new TOLResourceValue(nextEntry.getValue().getKey(), nextEntry.getValue().getValue(), nextEntry.getKey());
+        // the cursor methods read straight out of the resource histories without making entries for every node
+        resIterator.advance();
+        return new TOLResourceValue(resIterator.currentTime(), resIterator.currentValue(), resIterator.currentResource());
     }
 }
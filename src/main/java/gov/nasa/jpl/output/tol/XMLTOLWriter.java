@@ -26,10 +26,10 @@ import org.apache.commons.collections4.IteratorUtils;
 public class XMLTOLWriter extends TOLWriter {
     private ExecutorService exec;
     private int numAvailableCores;
-    private final int MAX_BATCH_SIZE = 50000; // should be in the low megabytes per batch
+    static final int MAX_BATCH_SIZE = 50000; // should be in the low megabytes per batch
 
     public XMLTOLWriter(){
-        numAvailableCores = Runtime.getRuntime().availableProcessors() - 1;
+        numAvailableCores = Integer.max(1, Runtime.getRuntime().availableProcessors() - 1);
         exec = Executors.newFixedThreadPool(numAvailableCores);
     }
 
@@ -67,7 +67,10 @@ public class XMLTOLWriter extends TOLWriter {
     }
 
     /*
-     * Loop through interleaved activities to write <TOLrecord> entries
+     * Loop through interleaved activities to write <TOLrecord> entries. This is a bounded pipeline: records are
+     * pulled off the collated iterator into chunks, the chunks are formatted on the thread pool, and the formatted
+     * chunks are written out in the order they were submitted. Only a couple of batches are in flight at once, so
+     * memory use doesn't grow with the size of the plan.
      */
     private void writeTOLRecords(ActivityInstanceList actList, ResourceList resList, ConstraintInstanceList constraintList, Time startTime, Time endTime) {
         List<Iterator<TOLRecord>> allTOLRecords = new ArrayList<>();
@@ -76,37 +79,53 @@ public class XMLTOLWriter extends TOLWriter {
         allTOLRecords.add(new TOLConstraintIterator(constraintList.createListOfConstraintBeginAndEndTimes()));
 
         Iterator<TOLRecord> iteratorOverAllRecords = IteratorUtils.collatedIterator(Comparator.naturalOrder(), (Collection) allTOLRecords);
-        List<TOLRecord> inBoundsTOLRecords = new ArrayList<>();
+
+        // a batch is split across the cores like before, and we keep two batches in flight so the pool stays busy
+        // while the oldest chunk is being written
+        int chunkSize = Integer.max(1, MAX_BATCH_SIZE / numAvailableCores);
+        int inFlightChunks = 2 * numAvailableCores;
+        Deque<Future<StringBuilder>> formattingChunks = new ArrayDeque<>(inFlightChunks);
+        List<TOLRecord> chunk = new ArrayList<>(chunkSize);
 
         // now we walk through the whole plan in time order and farm parts out to threads
         while (iteratorOverAllRecords.hasNext()) {
             TOLRecord record = iteratorOverAllRecords.next();
             Time recordTime = record.getTime();
             if ((startTime == null || recordTime.greaterThanOrEqualTo(startTime)) && (endTime == null || recordTime.lessThan(endTime))) {
-                inBoundsTOLRecords.add(record);
-            }
-        }
-
-        List<List<Map.Entry<Integer, Integer>>> subListIndices = breakLongListIntoStartEndSublistsByBatchAndCore(inBoundsTOLRecords.size(), MAX_BATCH_SIZE, numAvailableCores);
-        // iterate over number of batches
-        for(int j = 0; j < subListIndices.size(); j++) {
-            List<Future<StringBuilder>> threads = new ArrayList<>();
-            // iterate over number of cores
-            for (int i = 0; i < subListIndices.get(j).size(); i++) {
-                threads.add(exec.submit(new XMLTOLSnippetThread(inBoundsTOLRecords.subList(subListIndices.get(j).get(i).getKey(), subListIndices.get(j).get(i).getValue()))));
-            }
-            for (int i = 0; i < subListIndices.get(j).size(); i++) {
-                try {
-                    StringBuilder sb = threads.get(i).get();
-                    writer.print(sb.toString());
-                } catch (InterruptedException | ExecutionException e) {
-                    e.printStackTrace();
+                chunk.add(record);
+                if (chunk.size() == chunkSize) {
+                    if (formattingChunks.size() == inFlightChunks) {
+                        writeFormattedChunk(formattingChunks.removeFirst());
+                    }
+                    formattingChunks.addLast(exec.submit(new XMLTOLSnippetThread(chunk)));
+                    chunk = new ArrayList<>(chunkSize);
                 }
             }
         }
+        if (!chunk.isEmpty()) {
+            formattingChunks.addLast(exec.submit(new XMLTOLSnippetThread(chunk)));
+        }
+        while (!formattingChunks.isEmpty()) {
+            writeFormattedChunk(formattingChunks.removeFirst());
+        }
         exec.shutdown();
     }
 
+    private void writeFormattedChunk(Future<StringBuilder> formattedChunk) {
+        try {
+            StringBuilder sb = formattedChunk.get();
+            writer.append(sb);
+        } catch (InterruptedException | ExecutionException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Splits listSize records into batches of batchSize, and each batch into one [start, end) range per core.
+     * @deprecated the writer no longer collects every record into a list first - it formats fixed-size chunks
+     * as they come off the record iterator instead, so nothing here uses this any more
+     */
+    @Deprecated
     public static List<List<Map.Entry<Integer, Integer>>> breakLongListIntoStartEndSublistsByBatchAndCore(int listSize, int batchSize, int numCores){
         List<List<Map.Entry<Integer, Integer>>> toReturn = new ArrayList<>();
         int numCoresToUse = Integer.min(numCores, listSize);
@@ -0,0 +1,426 @@
+package gov.nasa.jpl.resource;
+
+import gov.nasa.jpl.time.Time;
+
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Base class for ResourceHistory backends that keep node times as a sorted long[] of tics next to a primitive
+ * value array, instead of one TreeMap entry, Time and boxed value per node. Appending in time order is amortized
+ * O(1) and lookups are binary searches. Subclasses only manage the value array.
+ *
+ * Lookups only read the arrays, so they can run without the owning Resource's lock as long as the Resource checks
+ * afterwards that no write happened meanwhile. Snapshots share the arrays instead of copying the nodes, and the
+ * history copies the arrays first if it is about to change a node a snapshot can see, other than the snapshot's last
+ * node, which the snapshot keeps its own copy of.
+ * @param <V> The type of value the owning Resource holds
+ */
+public abstract class ArrayResourceHistory<V> extends ResourceHistory<V> {
+    private static final int INITIAL_CAPACITY = 16;
+
+    long[] tics = new long[0];
+    int size = 0;
+
+    // snapshots share tics and the value array up to this many nodes, so those can't be changed in place
+    // (each snapshot keeps its own copy of its last node, so that one is never counted here)
+    private int publishedSize = 0;
+
+    // built the first time a range query needs it, and told about every change to the nodes after that
+    private HistoryAggregates aggregates;
+
+    /**
+     * @return the value stored at index i, boxed
+     */
+    abstract V valueAtIndex(int i);
+
+    /**
+     * @return the array the values are stored in right now, for snapshots to share
+     */
+    abstract Object valueArray();
+
+    /**
+     * @return the value stored at index i of an array returned by valueArray(), boxed
+     */
+    abstract V valueIn(Object values, int i);
+
+    /**
+     * Stores value at index i, which is already within capacity
+     */
+    abstract void setValueAtIndex(int i, V value);
+
+    /**
+     * Resizes the value array to the new capacity, keeping the first size values
+     */
+    abstract void resizeValues(int newCapacity);
+
+    /**
+     * Moves count values starting at index from to index to, as System.arraycopy would
+     */
+    abstract void moveValues(int from, int to, int count);
+
+    /**
+     * Compares the values at two indices the way the boxed values' compareTo() would
+     */
+    abstract int compareValuesAt(int i, int j);
+
+    /**
+     * @return the value at index i as a number, for integrals
+     */
+    abstract double doubleAt(int i);
+
+    /**
+     * @return true if doubleAt() returns the value itself, rather than some encoding of it
+     */
+    abstract boolean holdsNumbers();
+
+    /**
+     * @return true if copyValuesFrom() can copy the values of the run directly
+     */
+    abstract boolean canCopyValuesFrom(HistoryRun<?> run);
+
+    /**
+     * Copies every value in the run into the value array starting at index, which is already within capacity
+     */
+    abstract void copyValuesFrom(HistoryRun<?> run, int index);
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void put(Time t, V value) {
+        long key = t.getTics();
+        // the overwhelmingly common case during modeling and reading files is appending or overwriting the last node
+        if (size == 0 || key > tics[size - 1]) {
+            beforeChanging(size);
+            ensureCapacity(size + 1);
+            tics[size] = key;
+            setValueAtIndex(size, value);
+            size++;
+            return;
+        }
+        int index = search(key);
+        if (index >= 0) {
+            beforeChanging(index);
+            setValueAtIndex(index, value);
+            invalidateAggregatesFrom(index);
+            return;
+        }
+        int insertionPoint = -(index + 1);
+        beforeChanging(insertionPoint);
+        invalidateAggregatesFrom(insertionPoint);
+        ensureCapacity(size + 1);
+        System.arraycopy(tics, insertionPoint, tics, insertionPoint + 1, size - insertionPoint);
+        moveValues(insertionPoint, insertionPoint + 1, size - insertionPoint);
+        tics[insertionPoint] = key;
+        setValueAtIndex(insertionPoint, value);
+        size++;
+    }
+
+    @Override
+    public void putRun(HistoryRun<V> run) {
+        int count = run.size();
+        // reading a file in time order into an empty or earlier history can just copy the arrays over
+        // appending needs nothing from the aggregates, they pick up new nodes at the next query
+        if (count == 0 || !run.isStrictlyIncreasing() || (size > 0 && run.ticsAt(0) <= tics[size - 1]) || !canCopyValuesFrom(run)) {
+            super.putRun(run);
+            return;
+        }
+        beforeChanging(size);
+        ensureCapacity(size + count);
+        System.arraycopy(run.tics, 0, tics, size, count);
+        copyValuesFrom(run, size);
+        size += count;
+    }
+
+    @Override
+    public void clear() {
+        // we release the arrays so a cleared resource doesn't keep holding on to the memory of the last run
+        tics = new long[0];
+        resizeValues(0);
+        size = 0;
+        publishedSize = 0;
+        aggregates = null;
+    }
+
+    @Override
+    public void truncateFrom(Time t) {
+        // the values past the new size are primitives, so there is nothing to release
+        size = ceilingIndex(t.getTics());
+        invalidateAggregatesFrom(size);
+    }
+
+    @Override
+    public V get(Time t) {
+        int index = search(t.getTics());
+        return index >= 0 ? valueAtIndex(index) : null;
+    }
+
+    @Override
+    public boolean containsKey(Time t) {
+        return search(t.getTics()) >= 0;
+    }
+
+    @Override
+    public Time floorKey(Time t) {
+        return timeAtIndexOrNull(floorIndex(t.getTics()));
+    }
+
+    @Override
+    public Time ceilingKey(Time t) {
+        return timeAtIndexOrNull(ceilingIndex(t.getTics()));
+    }
+
+    @Override
+    public Time lowerKey(Time t) {
+        return timeAtIndexOrNull(floorIndex(t.getTics() - 1));
+    }
+
+    @Override
+    public Time higherKey(Time t) {
+        return timeAtIndexOrNull(ceilingIndex(t.getTics() + 1));
+    }
+
+    @Override
+    public Time firstKey() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        return Time.fromTics(tics[0]);
+    }
+
+    @Override
+    public Time lastKey() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        return Time.fromTics(tics[size - 1]);
+    }
+
+    @Override
+    public Collection<Map.Entry<Time, V>> entriesBetween(Time start, Time end) {
+        int from = start == null ? 0 : ceilingIndex(start.getTics());
+        int to = end == null ? size - 1 : floorIndex(end.getTics());
+        return new EntryView(tics, valueArray(), from, to + 1);
+    }
+
+    @Override
+    Cursor<V> cursorBetween(Time start, Time end) {
+        int from = start == null ? 0 : ceilingIndex(start.getTics());
+        int to = end == null ? size - 1 : floorIndex(end.getTics());
+        return new IndexCursor(tics, valueArray(), from, to + 1);
+    }
+
+    // snapshots keep their own copy of their last node and only share the nodes before it, so that overwriting the
+    // last node of the history at the current time, which modeling does all the time, doesn't copy the arrays
+    @Override
+    public Collection<Map.Entry<Time, V>> snapshotBetween(Time start, Time end) {
+        int from = start == null ? 0 : ceilingIndex(start.getTics());
+        int to = end == null ? size - 1 : floorIndex(end.getTics());
+        if (to < from) {
+            return new EntryView(tics, valueArray(), from, from);
+        }
+        publishedSize = Math.max(publishedSize, to);
+        return new EntryView(tics, valueArray(), from, to + 1, tics[to], valueAtIndex(to));
+    }
+
+    @Override
+    Cursor<V> snapshotCursorBetween(Time start, Time end) {
+        int from = start == null ? 0 : ceilingIndex(start.getTics());
+        int to = end == null ? size - 1 : floorIndex(end.getTics());
+        if (to < from) {
+            return new IndexCursor(tics, valueArray(), from, from);
+        }
+        publishedSize = Math.max(publishedSize, to);
+        return new IndexCursor(tics, valueArray(), from, to + 1, tics[to], valueAtIndex(to));
+    }
+
+    @Override
+    boolean supportsOptimisticReads() {
+        return true;
+    }
+
+    /**
+     * @return the range-query index over this history's nodes, created the first time it is asked for
+     */
+    HistoryAggregates aggregates() {
+        if (aggregates == null) {
+            aggregates = new HistoryAggregates(this);
+        }
+        return aggregates;
+    }
+
+    private void invalidateAggregatesFrom(int index) {
+        if (aggregates != null) {
+            aggregates.invalidateFrom(index);
+        }
+    }
+
+    /**
+     * @return the tics of the node at index i
+     */
+    long ticsAtIndex(int i) {
+        return tics[i];
+    }
+
+    /**
+     * @return index of the last node at or before the given tics, or -1 if there is none
+     */
+    int floorIndex(long key) {
+        int index = search(key);
+        return index >= 0 ? index : -(index + 1) - 1;
+    }
+
+    /**
+     * @return index of the first node at or after the given tics, or size if there is none
+     */
+    int ceilingIndex(long key) {
+        int index = search(key);
+        return index >= 0 ? index : -(index + 1);
+    }
+
+    private int search(long key) {
+        return Arrays.binarySearch(tics, 0, size, key);
+    }
+
+    private Time timeAtIndexOrNull(int index) {
+        return (index >= 0 && index < size) ? Time.fromTics(tics[index]) : null;
+    }
+
+    private void ensureCapacity(int needed) {
+        if (needed > tics.length) {
+            int newCapacity = Math.max(INITIAL_CAPACITY, tics.length + (tics.length >> 1));
+            newCapacity = Math.max(newCapacity, needed);
+            tics = Arrays.copyOf(tics, newCapacity);
+            resizeValues(newCapacity);
+            // the new arrays aren't shared with any snapshot
+            publishedSize = 0;
+        }
+    }
+
+    // must be called before writing anything at or after index, so snapshots that can see it keep the old arrays
+    private void beforeChanging(int index) {
+        if (index < publishedSize) {
+            tics = Arrays.copyOf(tics, tics.length);
+            resizeValues(tics.length);
+            publishedSize = 0;
+        }
+    }
+
+    /**
+     * Cursor over the nodes in [from, to) that reads straight out of the arrays it was created with
+     */
+    private class IndexCursor extends Cursor<V> {
+        private final long[] nodeTics;
+        private final Object values;
+        private final int to;
+        // the last node as it was when a snapshot was taken, since the arrays may have changed it since
+        private final boolean ownsLastNode;
+        private final long lastTics;
+        private final V lastValue;
+        private int index;
+
+        IndexCursor(long[] nodeTics, Object values, int from, int to) {
+            this.nodeTics = nodeTics;
+            this.values = values;
+            this.index = from - 1;
+            this.to = to;
+            this.ownsLastNode = false;
+            this.lastTics = 0;
+            this.lastValue = null;
+        }
+
+        IndexCursor(long[] nodeTics, Object values, int from, int to, long lastTics, V lastValue) {
+            this.nodeTics = nodeTics;
+            this.values = values;
+            this.index = from - 1;
+            this.to = to;
+            this.ownsLastNode = true;
+            this.lastTics = lastTics;
+            this.lastValue = lastValue;
+        }
+
+        @Override
+        boolean advance() {
+            index++;
+            return index < to;
+        }
+
+        @Override
+        long tics() {
+            return ownsLastNode && index == to - 1 ? lastTics : nodeTics[index];
+        }
+
+        @Override
+        Time time() {
+            return Time.fromTics(tics());
+        }
+
+        @Override
+        V value() {
+            return ownsLastNode && index == to - 1 ? lastValue : valueIn(values, index);
+        }
+
+        @Override
+        Map.Entry<Time, V> entry() {
+            return new AbstractMap.SimpleImmutableEntry<>(time(), value());
+        }
+    }
+
+    /**
+     * Read-only view of the nodes in [from, to) of the arrays it was created with, that creates entries as they
+     * are accessed
+     */
+    private class EntryView extends AbstractList<Map.Entry<Time, V>> {
+        private final long[] nodeTics;
+        private final Object values;
+        private final int from;
+        private final int to;
+        // the last node as it was when a snapshot was taken, since the arrays may have changed it since
+        private final boolean ownsLastNode;
+        private final long lastTics;
+        private final V lastValue;
+
+        EntryView(long[] nodeTics, Object values, int from, int to) {
+            this.nodeTics = nodeTics;
+            this.values = values;
+            this.from = from;
+            this.to = Math.max(from, to);
+            this.ownsLastNode = false;
+            this.lastTics = 0;
+            this.lastValue = null;
+        }
+
+        EntryView(long[] nodeTics, Object values, int from, int to, long lastTics, V lastValue) {
+            this.nodeTics = nodeTics;
+            this.values = values;
+            this.from = from;
+            this.to = to;
+            this.ownsLastNode = true;
+            this.lastTics = lastTics;
+            this.lastValue = lastValue;
+        }
+
+        @Override
+        public Map.Entry<Time, V> get(int index) {
+            if (index < 0 || from + index >= to) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+            }
+            if (ownsLastNode && from + index == to - 1) {
+                return new AbstractMap.SimpleImmutableEntry<>(Time.fromTics(lastTics), lastValue);
+            }
+            return new AbstractMap.SimpleImmutableEntry<>(Time.fromTics(nodeTics[from + index]), valueIn(values, from + index));
+        }
+
+        @Override
+        public int size() {
+            return to - from;
+        }
+    }
+}
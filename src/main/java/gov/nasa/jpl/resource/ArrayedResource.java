@@ -19,6 +19,10 @@ public abstract class ArrayedResource<V extends ResourceContainer> implements Re
     // ArrayedResource is special because it has a composition, not inheritance, relationship with Resource
 
     private HashMap<String, V> individualResources;
+    // the same entries in the order they were declared, so activities can look an index up once and then use its ordinal
+    private Object[] entriesByOrdinal;
+    private String[] entryNames;
+    private HashMap<String, Integer> ordinals;
     private String name;
     private List<String> indices;
 
@@ -37,6 +41,9 @@ public abstract class ArrayedResource<V extends ResourceContainer> implements Re
                     "Make sure that your array gets initialized above the ArrayedResource in its class definition, " +
                     "or from a class that extends ParameterDeclaration");
         }
+        entriesByOrdinal = new Object[entries.length];
+        entryNames = entries.clone();
+        ordinals = new HashMap<>();
 
         // if this arrayed resource will contain concrete resource itself
         if (higherDimensionIndices == null || higherDimensionIndices.length == 0) {
@@ -49,6 +56,8 @@ public abstract class ArrayedResource<V extends ResourceContainer> implements Re
                     ((Resource) resourceInstance).setInterpolation(interpolation);
 
                     individualResources.put(entries[i], resourceInstance);
+                    entriesByOrdinal[i] = resourceInstance;
+                    ordinals.put(entries[i], i);
 
                 }
                 catch (IllegalAccessException | InstantiationException e) {
@@ -66,7 +75,10 @@ public abstract class ArrayedResource<V extends ResourceContainer> implements Re
             }
 
             for (int i = 0; i < entries.length; i++) {
-                individualResources.put(entries[i], (V) (new ArrayedResource(leafResource, subsystem, units, interpolation, newEntries, oneFewerDimensionIndices) {}));
+                V child = (V) (new ArrayedResource(leafResource, subsystem, units, interpolation, newEntries, oneFewerDimensionIndices) {});
+                individualResources.put(entries[i], child);
+                entriesByOrdinal[i] = child;
+                ordinals.put(entries[i], i);
             }
         }
     }
@@ -125,6 +137,171 @@ public abstract class ArrayedResource<V extends ResourceContainer> implements Re
         }
     }
 
+    /**
+     * Looks up the position of an index among the entries this arrayed resource was declared with. Activities that
+     * access the same bins over and over can look up their ordinals once and then use get(int), which is an array
+     * access instead of a string hash lookup.
+     * @param index one of the entries
+     * @return its ordinal, from 0 to size() - 1
+     */
+    public int ordinalOf(String index) {
+        Integer ordinal = ordinals.get(index);
+        if (ordinal == null) {
+            throw new IndexOutOfBoundsException("Index " + index + " not found in ArrayedResource " + name + ".\n" +
+                    "Valid indices are: " + String.join(",",getEntries()));
+        }
+        return ordinal;
+    }
+
+    /**
+     * @param ordinal the position of the entry, as returned by ordinalOf()
+     * @return the resource or arrayed resource at that entry
+     */
+    public V get(int ordinal) {
+        return (V) entriesByOrdinal[ordinal];
+    }
+
+    /**
+     * @return the index name of the entry at the ordinal
+     */
+    public String getEntry(int ordinal) {
+        return entryNames[ordinal];
+    }
+
+    /**
+     * @return the number of entries in this dimension
+     */
+    public int size() {
+        return entriesByOrdinal.length;
+    }
+
+    /**
+     * Sets every entry at the current time, values[i] going to the entry with ordinal i.
+     * Only for arrayed resources whose entries are resources, not other arrayed resources.
+     */
+    public void setAll(Comparable[] values) {
+        checkBulkLength(values.length);
+        for (int i = 0; i < values.length; i++) {
+            leafAt(i).set(values[i]);
+        }
+    }
+
+    /**
+     * Same as setAll(Comparable[]), for entries that are DoubleResources or IntegerResources.
+     * Values for IntegerResources have to be whole numbers.
+     */
+    public void setAll(double[] values) {
+        checkBulkLength(values.length);
+        checkWholeForIntegers(values);
+        for (int i = 0; i < values.length; i++) {
+            Resource leaf = leafAt(i);
+            if (leaf instanceof IntegerResource) {
+                leaf.set((int) values[i]);
+            }
+            else {
+                leaf.set(values[i]);
+            }
+        }
+    }
+
+    /**
+     * Adds deltas[i] to the entry with ordinal i at the current time, skipping the ones that are zero.
+     * Only for arrayed resources whose entries are DoubleResources or IntegerResources, and deltas for
+     * IntegerResources have to be whole numbers.
+     */
+    public void addAll(double[] deltas) {
+        checkBulkLength(deltas.length);
+        checkWholeForIntegers(deltas);
+        for (int i = 0; i < deltas.length; i++) {
+            if (deltas[i] == 0.0) {
+                continue;
+            }
+            Resource leaf = leafAt(i);
+            if (leaf instanceof DoubleResource) {
+                ((DoubleResource) leaf).add(deltas[i]);
+            }
+            else if (leaf instanceof IntegerResource) {
+                ((IntegerResource) leaf).add((int) deltas[i]);
+            }
+            else {
+                throw new AdaptationException("addAll can only be used on an ArrayedResource of DoubleResources or IntegerResources, but " + getEntry(i) + " in " + name + " is a " + leaf.getClass().getSimpleName());
+            }
+        }
+    }
+
+    // casting would silently drop the fraction, so we refuse those before writing any of the entries
+    private void checkWholeForIntegers(double[] values) {
+        for (int i = 0; i < values.length; i++) {
+            if (leafAt(i) instanceof IntegerResource && (int) values[i] != values[i]) {
+                throw new AdaptationException("Expected a whole number for IntegerResource " + getEntry(i) + " in ArrayedResource " + name + " but got " + values[i]);
+            }
+        }
+    }
+
+    private void checkBulkLength(int length) {
+        if (length != entriesByOrdinal.length) {
+            throw new AdaptationException("Expected " + entriesByOrdinal.length + " values for ArrayedResource " + name + " but got " + length);
+        }
+    }
+
+    private Resource leafAt(int ordinal) {
+        Object entry = entriesByOrdinal[ordinal];
+        if (!(entry instanceof Resource)) {
+            throw new AdaptationException("setAll and addAll can only be used on the last dimension of ArrayedResource " + name);
+        }
+        return (Resource) entry;
+    }
+
+    /**
+     * Moves the histories of every resource in this arrayed resource, across all of its dimensions, into one columnar
+     * store: the bins share a single column of node times and each keeps a column of values indexed by it, so
+     * setting every bin at one time adds one row instead of a node to each bin's own arrays. The bins are still
+     * separate resources, so their names, listeners and what gets written to output files don't change.
+     * Worth it for arrayed resources with many bins that are mostly set together, e.g. with setAll() or addAll().
+     * Only for DoubleResource and IntegerResource bins, and it has to be called before any of them is set.
+     * @return this arrayed resource, so it can be called on the declaration
+     */
+    public ArrayedResource<V> storeBinsInColumns() {
+        List<Resource> leaves = new ArrayList<>();
+        collectLeaves(leaves);
+        // we check every bin before moving any of them, so a bad one doesn't leave the rest half moved
+        for (Resource leaf : leaves) {
+            if (!storesDoubles(leaf) && !storesIntegers(leaf)) {
+                throw new AdaptationException("Only ArrayedResources of DoubleResources or IntegerResources can store their bins in columns, but ArrayedResource " + name + " holds " + leaf.getClass().getSimpleName() + "s");
+            }
+            if (!leaf.resourceHistory.isEmpty()) {
+                throw new AdaptationException("storeBinsInColumns() has to be called on ArrayedResource " + name + " before any of its bins is set");
+            }
+        }
+        BinColumns columns = new BinColumns(leaves.size());
+        for (int bin = 0; bin < leaves.size(); bin++) {
+            Resource leaf = leaves.get(bin);
+            leaf.replaceEmptyHistory(storesDoubles(leaf) ? columns.doubleColumn(bin) : columns.integerColumn(bin));
+        }
+        return this;
+    }
+
+    // subclasses that keep their history some other way, like IntegratingResource, and bins that were already
+    // moved into columns don't count
+    private static boolean storesDoubles(Resource leaf) {
+        return leaf instanceof DoubleResource && leaf.resourceHistory.getClass() == DoubleArrayResourceHistory.class;
+    }
+
+    private static boolean storesIntegers(Resource leaf) {
+        return leaf instanceof IntegerResource && leaf.resourceHistory.getClass() == LongArrayResourceHistory.class;
+    }
+
+    private void collectLeaves(List<Resource> leaves) {
+        for (Object entry : entriesByOrdinal) {
+            if (entry instanceof ArrayedResource) {
+                ((ArrayedResource) entry).collectLeaves(leaves);
+            }
+            else {
+                leaves.add((Resource) entry);
+            }
+        }
+    }
+
     public boolean containsIndex(String index) {
         return individualResources.containsKey(index);
     }
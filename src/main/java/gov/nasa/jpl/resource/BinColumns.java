@@ -0,0 +1,349 @@
+package gov.nasa.jpl.resource;
+
+import gov.nasa.jpl.time.Time;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.function.DoubleFunction;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Columnar storage for the bins of an ArrayedResource of DoubleResources or IntegerResources. Instead of a tics
+ * array and a value array per bin, every bin shares one column of node times, and each bin has a column of values
+ * indexed by the same row plus a bitmap of the rows it was actually set in. Setting every bin at one time, which is
+ * what ArrayedResource.setAll() and addAll() do, then appends a single row instead of one node to each of the bins.
+ *
+ * A bin's value column only grows as far as the last row that bin was set in, but it does have a slot for every
+ * row before that, so this pays off for bins that are mostly set together, not for bins that are each set at
+ * different times.
+ *
+ * Each bin is still its own Resource with its own name, listeners and lock, and its history is a Column that reads
+ * and writes its part of this store. Different bins can be written from different threads, so every method here
+ * synchronizes on the store.
+ */
+final class BinColumns {
+    private static final int INITIAL_CAPACITY = 16;
+    // the same null encoding DoubleArrayResourceHistory uses
+    private static final long NULL_BITS = 0x7ff80000deadbeefL;
+
+    private long[] rowTics = new long[0];
+    private int rows = 0;
+    // how many bins have a node in each row, so rows nobody has a node in any more can be dropped from the end
+    private int[] rowCounts = new int[0];
+
+    private final double[][] values;
+    private final BitSet[] present;
+    private final int[] sizes;
+
+    BinColumns(int bins) {
+        values = new double[bins][];
+        present = new BitSet[bins];
+        sizes = new int[bins];
+        for (int bin = 0; bin < bins; bin++) {
+            values[bin] = new double[0];
+            present[bin] = new BitSet();
+        }
+    }
+
+    /**
+     * @return the history for a DoubleResource stored as the given bin
+     */
+    Column<Double> doubleColumn(int bin) {
+        return new Column<>(this, bin, Double::doubleValue, d -> d);
+    }
+
+    /**
+     * @return the history for an IntegerResource stored as the given bin
+     */
+    Column<Integer> integerColumn(int bin) {
+        return new Column<>(this, bin, Integer::doubleValue, d -> (int) d);
+    }
+
+    /**
+     * @return the number of rows in the shared time column
+     */
+    synchronized int rows() {
+        return rows;
+    }
+
+    synchronized int size(int bin) {
+        return sizes[bin];
+    }
+
+    synchronized void put(int bin, long tics, double value) {
+        int row;
+        // setting bins at the current time either appends a row or writes into the last one
+        if (rows == 0 || tics > rowTics[rows - 1]) {
+            row = appendRow(tics);
+        }
+        else if (tics == rowTics[rows - 1]) {
+            row = rows - 1;
+        }
+        else {
+            row = Arrays.binarySearch(rowTics, 0, rows, tics);
+            if (row < 0) {
+                row = insertRow(-(row + 1), tics);
+            }
+        }
+        if (values[bin].length <= row) {
+            values[bin] = Arrays.copyOf(values[bin], Math.max(row + 1, Math.max(INITIAL_CAPACITY, values[bin].length + (values[bin].length >> 1))));
+        }
+        values[bin][row] = value;
+        if (!present[bin].get(row)) {
+            present[bin].set(row);
+            sizes[bin]++;
+            rowCounts[row]++;
+        }
+    }
+
+    synchronized void clear(int bin) {
+        truncateFromRow(bin, 0);
+    }
+
+    synchronized void truncateFrom(int bin, long tics) {
+        truncateFromRow(bin, ceilingRow(tics));
+    }
+
+    /**
+     * @return the encoded value of the bin at exactly the time, or null if the bin has no node there
+     */
+    synchronized Double get(int bin, long tics) {
+        int row = Arrays.binarySearch(rowTics, 0, rows, tics);
+        if (row < 0 || !present[bin].get(row)) {
+            return null;
+        }
+        return values[bin][row];
+    }
+
+    synchronized boolean containsKey(int bin, long tics) {
+        int row = Arrays.binarySearch(rowTics, 0, rows, tics);
+        return row >= 0 && present[bin].get(row);
+    }
+
+    /**
+     * @return the time of the bin's latest node at or before tics, or null if there is none
+     */
+    synchronized Time floorKey(int bin, long tics) {
+        return timeOfRow(previousRow(bin, floorRow(tics)));
+    }
+
+    synchronized Time lowerKey(int bin, long tics) {
+        return timeOfRow(previousRow(bin, ceilingRow(tics) - 1));
+    }
+
+    synchronized Time ceilingKey(int bin, long tics) {
+        return timeOfRow(nextRow(bin, ceilingRow(tics)));
+    }
+
+    synchronized Time higherKey(int bin, long tics) {
+        return timeOfRow(nextRow(bin, floorRow(tics) + 1));
+    }
+
+    synchronized Time firstKey(int bin) {
+        if (sizes[bin] == 0) {
+            throw new NoSuchElementException();
+        }
+        return Time.fromTics(rowTics[present[bin].nextSetBit(0)]);
+    }
+
+    synchronized Time lastKey(int bin) {
+        if (sizes[bin] == 0) {
+            throw new NoSuchElementException();
+        }
+        return Time.fromTics(rowTics[present[bin].length() - 1]);
+    }
+
+    /**
+     * @return a copy of the bin's nodes between the two times, both inclusive
+     */
+    synchronized <V> List<Map.Entry<Time, V>> entriesBetween(int bin, Long start, Long end, DoubleFunction<V> decoder) {
+        int from = start == null ? 0 : ceilingRow(start);
+        int to = end == null ? rows - 1 : floorRow(end);
+        List<Map.Entry<Time, V>> entries = new ArrayList<>();
+        for (int row = nextRow(bin, from); row >= 0 && row <= to; row = present[bin].nextSetBit(row + 1)) {
+            entries.add(new AbstractMap.SimpleImmutableEntry<>(Time.fromTics(rowTics[row]), decode(values[bin][row], decoder)));
+        }
+        return entries;
+    }
+
+    private int appendRow(long tics) {
+        if (rows == rowTics.length) {
+            int capacity = Math.max(INITIAL_CAPACITY, rows + (rows >> 1));
+            rowTics = Arrays.copyOf(rowTics, capacity);
+            rowCounts = Arrays.copyOf(rowCounts, capacity);
+        }
+        rowTics[rows] = tics;
+        rowCounts[rows] = 0;
+        return rows++;
+    }
+
+    // only happens when nodes arrive out of time order, so it can afford to move every column over
+    private int insertRow(int row, long tics) {
+        appendRow(tics);
+        System.arraycopy(rowTics, row, rowTics, row + 1, rows - 1 - row);
+        System.arraycopy(rowCounts, row, rowCounts, row + 1, rows - 1 - row);
+        rowTics[row] = tics;
+        rowCounts[row] = 0;
+        for (int bin = 0; bin < values.length; bin++) {
+            BitSet bits = present[bin];
+            if (bits.length() > row) {
+                if (values[bin].length <= bits.length()) {
+                    values[bin] = Arrays.copyOf(values[bin], bits.length() + 1);
+                }
+                System.arraycopy(values[bin], row, values[bin], row + 1, bits.length() - row);
+                for (int i = bits.length() - 1; i >= row; i = bits.previousSetBit(i - 1)) {
+                    bits.clear(i);
+                    bits.set(i + 1);
+                }
+            }
+        }
+        return row;
+    }
+
+    private void truncateFromRow(int bin, int row) {
+        BitSet bits = present[bin];
+        for (int i = bits.nextSetBit(row); i >= 0; i = bits.nextSetBit(i + 1)) {
+            rowCounts[i]--;
+            sizes[bin]--;
+        }
+        bits.clear(row, Math.max(row, bits.length()));
+        while (rows > 0 && rowCounts[rows - 1] == 0) {
+            rows--;
+        }
+        if (sizes[bin] == 0) {
+            values[bin] = new double[0];
+        }
+    }
+
+    // the last row at or before tics, or -1
+    private int floorRow(long tics) {
+        int row = Arrays.binarySearch(rowTics, 0, rows, tics);
+        return row >= 0 ? row : -(row + 1) - 1;
+    }
+
+    // the first row at or after tics, or rows
+    private int ceilingRow(long tics) {
+        int row = Arrays.binarySearch(rowTics, 0, rows, tics);
+        return row >= 0 ? row : -(row + 1);
+    }
+
+    private int previousRow(int bin, int row) {
+        return row < 0 ? -1 : present[bin].previousSetBit(row);
+    }
+
+    private int nextRow(int bin, int row) {
+        return present[bin].nextSetBit(row);
+    }
+
+    private Time timeOfRow(int row) {
+        return row < 0 ? null : Time.fromTics(rowTics[row]);
+    }
+
+    private static <V> V decode(double value, DoubleFunction<V> decoder) {
+        if (value != value && Double.doubleToRawLongBits(value) == NULL_BITS) {
+            return null;
+        }
+        return decoder.apply(value);
+    }
+
+    /**
+     * The history of one bin, stored in a BinColumns. Range queries return copies rather than views, since other
+     * bins write the same store under their own resources' locks.
+     * @param <V> Double or Integer
+     */
+    static final class Column<V> extends ResourceHistory<V> {
+        private final BinColumns columns;
+        private final int bin;
+        private final ToDoubleFunction<V> encoder;
+        private final DoubleFunction<V> decoder;
+
+        private Column(BinColumns columns, int bin, ToDoubleFunction<V> encoder, DoubleFunction<V> decoder) {
+            this.columns = columns;
+            this.bin = bin;
+            this.encoder = encoder;
+            this.decoder = decoder;
+        }
+
+        BinColumns columns() {
+            return columns;
+        }
+
+        @Override
+        public int size() {
+            return columns.size(bin);
+        }
+
+        @Override
+        public void put(Time t, V value) {
+            columns.put(bin, t.getTics(), value == null ? Double.longBitsToDouble(NULL_BITS) : encoder.applyAsDouble(value));
+        }
+
+        @Override
+        public void clear() {
+            columns.clear(bin);
+        }
+
+        @Override
+        public void truncateFrom(Time t) {
+            columns.truncateFrom(bin, t.getTics());
+        }
+
+        @Override
+        public V get(Time t) {
+            Double value = columns.get(bin, t.getTics());
+            return value == null ? null : decode(value, decoder);
+        }
+
+        @Override
+        public boolean containsKey(Time t) {
+            return columns.containsKey(bin, t.getTics());
+        }
+
+        @Override
+        public Time floorKey(Time t) {
+            return columns.floorKey(bin, t.getTics());
+        }
+
+        @Override
+        public Time ceilingKey(Time t) {
+            return columns.ceilingKey(bin, t.getTics());
+        }
+
+        @Override
+        public Time lowerKey(Time t) {
+            return columns.lowerKey(bin, t.getTics());
+        }
+
+        @Override
+        public Time higherKey(Time t) {
+            return columns.higherKey(bin, t.getTics());
+        }
+
+        @Override
+        public Time firstKey() {
+            return columns.firstKey(bin);
+        }
+
+        @Override
+        public Time lastKey() {
+            return columns.lastKey(bin);
+        }
+
+        @Override
+        public Collection<Map.Entry<Time, V>> entriesBetween(Time start, Time end) {
+            return columns.entriesBetween(bin, start == null ? null : start.getTics(), end == null ? null : end.getTics(), decoder);
+        }
+
+        @Override
+        public Collection<Map.Entry<Time, V>> snapshotBetween(Time start, Time end) {
+            // entriesBetween() already copies
+            return entriesBetween(start, end);
+        }
+    }
+}
@@ -29,6 +29,11 @@ public class BooleanResource extends Resource<Boolean> {
         return profile;
     }
 
+    @Override
+    protected ResourceHistory<Boolean> createResourceHistory() {
+        return LongArrayResourceHistory.forBooleans();
+    }
+
     @Override
     public void update() {
         set(currentval());
@@ -0,0 +1,24 @@
+package gov.nasa.jpl.resource;
+
+import gov.nasa.jpl.time.Time;
+
+/**
+ * A ResourceChangeListener for resources holding Booleans that takes the values as primitives.
+ */
+public interface BooleanResourceChangeListener extends ResourceChangeListener<Boolean> {
+
+    /**
+     * Called by a resource after it is set.
+     * @param source the resource that changed
+     * @param oldTime the time the resource was last set before this change, or null if it hadn't been
+     * @param oldValue the value the resource had at oldTime, or false if it hadn't been set
+     * @param newTime the time the resource was set at
+     * @param newValue the value the resource was set to
+     */
+    void booleanChanged(Resource<Boolean> source, Time oldTime, boolean oldValue, Time newTime, boolean newValue);
+
+    @Override
+    default void resourceChanged(Resource<Boolean> source, Time oldTime, Boolean oldValue, Time newTime, Boolean newValue) {
+        booleanChanged(source, oldTime, oldValue != null && oldValue, newTime, newValue);
+    }
+}
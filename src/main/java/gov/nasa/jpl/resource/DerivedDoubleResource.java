@@ -0,0 +1,54 @@
+package gov.nasa.jpl.resource;
+
+import java.util.function.ToDoubleFunction;
+
+/**
+ * A DerivedResource of doubles, whose value is a function of the values of any number of numeric input resources.
+ * For example, the total power of forty loads is DerivedDoubleResource.sum(load1, ..., load40), instead of a chain
+ * of thirty-nine SumDoubleResources.
+ */
+public class DerivedDoubleResource extends DerivedResource<Double> {
+    private final ToDoubleFunction<double[]> expression;
+
+    public DerivedDoubleResource(String subsystem, String units, String interpolation, ToDoubleFunction<double[]> expression, Resource... inputs) {
+        super(inputs, subsystem, units, interpolation);
+        this.expression = expression;
+    }
+
+    public DerivedDoubleResource(String subsystem, String units, ToDoubleFunction<double[]> expression, Resource... inputs) {
+        this(subsystem, units, "constant", expression, inputs);
+    }
+
+    public DerivedDoubleResource(ToDoubleFunction<double[]> expression, Resource... inputs) {
+        this("generic", "", expression, inputs);
+    }
+
+    /**
+     * @return a resource that is always the sum of the inputs
+     */
+    public static DerivedDoubleResource sum(Resource... inputs) {
+        return new DerivedDoubleResource(DerivedDoubleResource::sumOf, inputs);
+    }
+
+    private static double sumOf(double[] values) {
+        double sum = 0.0;
+        for (double value : values) {
+            sum += value;
+        }
+        return sum;
+    }
+
+    @Override
+    protected Double evaluate(Comparable[] inputValues) {
+        double[] values = new double[inputValues.length];
+        for (int i = 0; i < inputValues.length; i++) {
+            values[i] = inputValues[i] == null ? Double.NaN : ((Number) inputValues[i]).doubleValue();
+        }
+        return expression.applyAsDouble(values);
+    }
+
+    @Override
+    protected ResourceHistory<Double> createMaterializedHistory() {
+        return new DoubleArrayResourceHistory();
+    }
+}
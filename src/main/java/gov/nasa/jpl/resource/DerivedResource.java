@@ -0,0 +1,283 @@
+package gov.nasa.jpl.resource;
+
+import gov.nasa.jpl.engine.AdaptationException;
+import gov.nasa.jpl.engine.ModelingEngine;
+import gov.nasa.jpl.time.Time;
+
+import java.beans.PropertyChangeListener;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A resource whose value at any time is an expression over the values of any number of input resources at that time,
+ * like the total power of a set of loads. Unlike SumDoubleResource, which sets a node every time either of its two
+ * inputs changes, a DerivedResource is evaluated when it is queried, and values it already evaluated are remembered
+ * until one of its inputs changes. Its history is only built when something reads it, like an output writer or a
+ * window search, and then only rebuilt after an input changes. Once anything listens to it, like a Condition, it
+ * starts setting itself every time an input changes so its listeners hear about it, the same way a SumDoubleResource
+ * would.
+ *
+ * Subclasses say how to combine the inputs in evaluate(), and can pick the history to build by overriding
+ * createMaterializedHistory(). Adapters can't set() a DerivedResource.
+ * @param <V> The type of value the resource holds
+ */
+public abstract class DerivedResource<V extends Comparable> extends Resource<V> implements ResourceChangeListener {
+    // enough to catch every query at the same time during modeling, without growing without bound during analysis
+    private static final int MAX_MEMOIZED_VALUES = 1024;
+
+    private final Resource[] inputs;
+
+    // the versions of the inputs the materialized history was built from, or null if it needs to be built again
+    private int[] materializedVersions;
+
+    // values already evaluated, by tics, and the versions of the inputs they were evaluated with
+    private final Map<Long, V> memo = new HashMap<>();
+    private final int[] memoVersions;
+
+    // true once anything listens to this resource
+    private boolean eager;
+    // what this resource last set itself to while eager, so it only sets itself again when that changes
+    private boolean hasSetValue;
+    private V lastSetValue;
+
+    protected DerivedResource(Resource[] inputs, String subsystem, String units, String interpolation) {
+        super(subsystem, units, interpolation);
+        if (inputs.length == 0) {
+            throw new AdaptationException("A DerivedResource needs at least one input resource");
+        }
+        this.inputs = inputs.clone();
+        this.memoVersions = new int[inputs.length];
+        // we listen even while lazy so the engine models us together with our inputs
+        for (Resource input : this.inputs) {
+            input.addChangeListener(this);
+        }
+    }
+
+    /**
+     * @param inputValues the value of each input resource at one time, in the order they were given
+     * @return the value of this resource for those input values
+     */
+    protected abstract V evaluate(Comparable[] inputValues);
+
+    /**
+     * Creates the history this resource builds its nodes in when they are needed. Called during construction, like
+     * createResourceHistory(), so it must not depend on fields of the subclass.
+     */
+    protected ResourceHistory<V> createMaterializedHistory() {
+        return new TreeMapResourceHistory<>();
+    }
+
+    @Override
+    protected final ResourceHistory<V> createResourceHistory() {
+        return new DerivedResourceHistory<>(this, createMaterializedHistory());
+    }
+
+    @Override
+    public V profile(Time t) {
+        Comparable[] values = new Comparable[inputs.length];
+        for (int i = 0; i < inputs.length; i++) {
+            values[i] = inputs[i].profile(t);
+        }
+        return evaluate(values);
+    }
+
+    /**
+     * Evaluates the expression over the inputs' values at t, unless it was already evaluated at t since the inputs
+     * last changed
+     */
+    @Override
+    public V valueAt(Time t) {
+        ModelingEngine.getEngine().resourceRead(this);
+        synchronized (resourceHistory) {
+            if (!versionsMatch(memoVersions)) {
+                memo.clear();
+                copyVersionsInto(memoVersions);
+            }
+            Long key = t.getTics();
+            V value = memo.get(key);
+            if (value == null && !memo.containsKey(key)) {
+                value = evaluateAt(t);
+                if (memo.size() >= MAX_MEMOIZED_VALUES) {
+                    memo.clear();
+                }
+                memo.put(key, value);
+            }
+            return value;
+        }
+    }
+
+    /**
+     * While nothing listens to this resource and it hasn't set itself, the last time it was set is the last time
+     * any of its inputs was
+     */
+    @Override
+    public Time lastTimeSet() {
+        if (eager) {
+            return super.lastTimeSet();
+        }
+        Time last = null;
+        for (Resource input : inputs) {
+            Time t = input.lastTimeSet();
+            if (t != null && (last == null || t.greaterThan(last))) {
+                last = t;
+            }
+        }
+        return last;
+    }
+
+    @Override
+    public V lastValue() {
+        if (eager) {
+            return super.lastValue();
+        }
+        Time last = lastTimeSet();
+        return last == null ? null : valueAt(last);
+    }
+
+    /**
+     * DerivedResources are computed from their inputs, so they can't be set directly
+     */
+    @Override
+    public void set(V inVal) {
+        throw new UnsupportedOperationException("DerivedResource values are computed from their inputs and can't be set directly.");
+    }
+
+    @Override
+    public void addChangeListener(PropertyChangeListener newListener) {
+        super.addChangeListener(newListener);
+        eager = true;
+    }
+
+    @Override
+    public void resourceChanged(Resource source, Time oldTime, Comparable oldValue, Time newTime, Comparable newValue) {
+        if (!eager) {
+            return;
+        }
+        V value = valueAt(newTime);
+        boolean upToDate;
+        synchronized (resourceHistory) {
+            upToDate = onlySourceChangedSinceMaterialized(source);
+        }
+        if (!hasSetValue || !Objects.equals(value, lastSetValue)) {
+            super.set(value);
+            hasSetValue = true;
+            lastSetValue = value;
+        }
+        // if only this input changed, the node we just set keeps the history current. Otherwise it will be rebuilt
+        synchronized (resourceHistory) {
+            if (upToDate) {
+                for (int i = 0; i < inputs.length; i++) {
+                    if (inputs[i] == source) {
+                        materializedVersions[i] = source.historyVersion();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * A DerivedResource's values change whenever its inputs' do, so its version includes theirs
+     */
+    @Override
+    int historyVersion() {
+        int sum = version;
+        for (Resource input : inputs) {
+            sum += input.historyVersion();
+        }
+        return sum;
+    }
+
+    /**
+     * Builds the history again from the inputs' histories if any of them changed since it was last built, with a
+     * node at every time one of the inputs has one and the value changes. Called by DerivedResourceHistory under its
+     * lock before every read.
+     */
+    void materialize(ResourceHistory<V> history) {
+        if (materializedVersions != null && versionsMatch(materializedVersions)) {
+            return;
+        }
+        int[] versions = new int[inputs.length];
+        copyVersionsInto(versions);
+        history.clear();
+        V last = null;
+        for (long tics : inputNodeTics()) {
+            Time t = Time.fromTics(tics);
+            V value = evaluateAt(t);
+            if (history.isEmpty() || !Objects.equals(value, last)) {
+                history.put(t, value);
+                last = value;
+            }
+        }
+        materializedVersions = versions;
+    }
+
+    /**
+     * Called by DerivedResourceHistory when its nodes are cleared or truncated, after which it is rebuilt at the next read
+     */
+    void materializedHistoryChanged() {
+        materializedVersions = null;
+        hasSetValue = false;
+    }
+
+    private V evaluateAt(Time t) {
+        Comparable[] values = new Comparable[inputs.length];
+        for (int i = 0; i < inputs.length; i++) {
+            values[i] = inputs[i].valueAt(t);
+        }
+        return evaluate(values);
+    }
+
+    // every time any input has a node, in order and without repeats
+    private long[] inputNodeTics() {
+        long[] tics = new long[16];
+        int size = 0;
+        for (Resource input : inputs) {
+            synchronized (input.resourceHistory) {
+                ResourceHistory.Cursor cursor = input.resourceHistory.cursorBetween(null, null);
+                while (cursor.advance()) {
+                    if (size == tics.length) {
+                        tics = Arrays.copyOf(tics, size * 2);
+                    }
+                    tics[size++] = cursor.tics();
+                }
+            }
+        }
+        Arrays.sort(tics, 0, size);
+        int distinct = 0;
+        for (int i = 0; i < size; i++) {
+            if (distinct == 0 || tics[i] != tics[distinct - 1]) {
+                tics[distinct++] = tics[i];
+            }
+        }
+        return Arrays.copyOf(tics, distinct);
+    }
+
+    private boolean onlySourceChangedSinceMaterialized(Resource source) {
+        if (materializedVersions == null) {
+            return false;
+        }
+        for (int i = 0; i < inputs.length; i++) {
+            if (inputs[i] != source && inputs[i].historyVersion() != materializedVersions[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean versionsMatch(int[] versions) {
+        for (int i = 0; i < inputs.length; i++) {
+            if (inputs[i].historyVersion() != versions[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void copyVersionsInto(int[] versions) {
+        for (int i = 0; i < inputs.length; i++) {
+            versions[i] = inputs[i].historyVersion();
+        }
+    }
+}
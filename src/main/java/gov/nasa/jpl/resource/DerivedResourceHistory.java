@@ -0,0 +1,116 @@
+package gov.nasa.jpl.resource;
+
+import gov.nasa.jpl.time.Time;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * The history of a DerivedResource. Before anything is read from it, it asks the resource to rebuild it from the
+ * resource's inputs if any of them changed since it was last built, so the nodes only exist once something like an
+ * output writer or a window search walks them. Writes go straight through to the history it wraps.
+ * @param <V> The type of value the owning Resource holds
+ */
+final class DerivedResourceHistory<V> extends ResourceHistory<V> {
+    private final DerivedResource owner;
+    private final ResourceHistory<V> materialized;
+
+    DerivedResourceHistory(DerivedResource owner, ResourceHistory<V> materialized) {
+        this.owner = owner;
+        this.materialized = materialized;
+    }
+
+    private ResourceHistory<V> refreshed() {
+        synchronized (this) {
+            owner.materialize(materialized);
+        }
+        return materialized;
+    }
+
+    @Override
+    public int size() {
+        return refreshed().size();
+    }
+
+    @Override
+    public void put(Time t, V value) {
+        materialized.put(t, value);
+    }
+
+    @Override
+    public void putRun(HistoryRun<V> run) {
+        materialized.putRun(run);
+    }
+
+    @Override
+    public void clear() {
+        materialized.clear();
+        owner.materializedHistoryChanged();
+    }
+
+    @Override
+    public void truncateFrom(Time t) {
+        materialized.truncateFrom(t);
+        owner.materializedHistoryChanged();
+    }
+
+    @Override
+    public V get(Time t) {
+        return refreshed().get(t);
+    }
+
+    @Override
+    public boolean containsKey(Time t) {
+        return refreshed().containsKey(t);
+    }
+
+    @Override
+    public Time floorKey(Time t) {
+        return refreshed().floorKey(t);
+    }
+
+    @Override
+    public Time ceilingKey(Time t) {
+        return refreshed().ceilingKey(t);
+    }
+
+    @Override
+    public Time lowerKey(Time t) {
+        return refreshed().lowerKey(t);
+    }
+
+    @Override
+    public Time higherKey(Time t) {
+        return refreshed().higherKey(t);
+    }
+
+    @Override
+    public Time firstKey() {
+        return refreshed().firstKey();
+    }
+
+    @Override
+    public Time lastKey() {
+        return refreshed().lastKey();
+    }
+
+    @Override
+    public Collection<Map.Entry<Time, V>> entriesBetween(Time start, Time end) {
+        return refreshed().entriesBetween(start, end);
+    }
+
+    @Override
+    Cursor<V> cursorBetween(Time start, Time end) {
+        return refreshed().cursorBetween(start, end);
+    }
+
+    @Override
+    public Collection<Map.Entry<Time, V>> snapshotBetween(Time start, Time end) {
+        return refreshed().snapshotBetween(start, end);
+    }
+
+    @Override
+    Cursor<V> snapshotCursorBetween(Time start, Time end) {
+        return refreshed().snapshotCursorBetween(start, end);
+    }
+}
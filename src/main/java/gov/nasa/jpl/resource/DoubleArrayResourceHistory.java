@@ -0,0 +1,84 @@
+package gov.nasa.jpl.resource;
+
+import java.util.Arrays;
+
+/**
+ * ResourceHistory for Double resources that stores values in a double[] next to the long[] of tics.
+ */
+public class DoubleArrayResourceHistory extends ArrayResourceHistory<Double> {
+    // a NaN with a payload no arithmetic produces, so we can still store null values without a boxed array
+    private static final long NULL_BITS = 0x7ff80000deadbeefL;
+
+    double[] values = new double[0];
+
+    @Override
+    Double valueAtIndex(int i) {
+        return valueIn(values, i);
+    }
+
+    @Override
+    Object valueArray() {
+        return values;
+    }
+
+    @Override
+    Double valueIn(Object values, int i) {
+        double value = ((double[]) values)[i];
+        if (value != value && Double.doubleToRawLongBits(value) == NULL_BITS) {
+            return null;
+        }
+        return value;
+    }
+
+    /**
+     * @return the unboxed value at index i, for callers that don't need a Double
+     */
+    double doubleAtIndex(int i) {
+        return values[i];
+    }
+
+    @Override
+    int compareValuesAt(int i, int j) {
+        return Double.compare(values[i], values[j]);
+    }
+
+    @Override
+    double doubleAt(int i) {
+        return values[i];
+    }
+
+    @Override
+    boolean holdsNumbers() {
+        return true;
+    }
+
+    @Override
+    void setValueAtIndex(int i, Double value) {
+        values[i] = value == null ? Double.longBitsToDouble(NULL_BITS) : value;
+    }
+
+    @Override
+    void resizeValues(int newCapacity) {
+        values = Arrays.copyOf(values, newCapacity);
+    }
+
+    @Override
+    void moveValues(int from, int to, int count) {
+        System.arraycopy(values, from, values, to, count);
+    }
+
+    @Override
+    boolean canCopyValuesFrom(HistoryRun<?> run) {
+        return run.valueType == HistoryRun.ValueType.DOUBLE;
+    }
+
+    @Override
+    void copyValuesFrom(HistoryRun<?> run, int index) {
+        System.arraycopy(run.doubles, 0, values, index, run.size);
+        if (run.nulls != null) {
+            for (int i = run.nulls.nextSetBit(0); i >= 0; i = run.nulls.nextSetBit(i + 1)) {
+                values[index + i] = Double.longBitsToDouble(NULL_BITS);
+            }
+        }
+    }
+}
@@ -46,6 +46,11 @@ public class DoubleResource extends Resource<Double> {
         return profile;
     }
 
+    @Override
+    protected ResourceHistory<Double> createResourceHistory() {
+        return new DoubleArrayResourceHistory();
+    }
+
     public void add(double toAdd) {
         set(currentval() + toAdd);
     }
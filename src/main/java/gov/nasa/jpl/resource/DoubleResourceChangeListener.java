@@ -0,0 +1,24 @@
+package gov.nasa.jpl.resource;
+
+import gov.nasa.jpl.time.Time;
+
+/**
+ * A ResourceChangeListener for resources holding Doubles that takes the values as primitives.
+ */
+public interface DoubleResourceChangeListener extends ResourceChangeListener<Double> {
+
+    /**
+     * Called by a resource after it is set.
+     * @param source the resource that changed
+     * @param oldTime the time the resource was last set before this change, or null if it hadn't been
+     * @param oldValue the value the resource had at oldTime, or NaN if it hadn't been set
+     * @param newTime the time the resource was set at
+     * @param newValue the value the resource was set to
+     */
+    void doubleChanged(Resource<Double> source, Time oldTime, double oldValue, Time newTime, double newValue);
+
+    @Override
+    default void resourceChanged(Resource<Double> source, Time oldTime, Double oldValue, Time newTime, Double newValue) {
+        doubleChanged(source, oldTime, oldValue == null ? Double.NaN : oldValue, newTime, newValue);
+    }
+}
@@ -0,0 +1,179 @@
+package gov.nasa.jpl.resource;
+
+import gov.nasa.jpl.time.Duration;
+
+import java.util.Arrays;
+
+/**
+ * Range queries over the nodes of an ArrayResourceHistory: the index of the smallest and largest value between two
+ * node indices from a segment tree, and the integral of the (sample and hold) value between two times from prefix
+ * sums of value times duration. Both answer in O(log n).
+ *
+ * The history tells its aggregates the first node index that changed whenever it is overwritten, inserted into or
+ * truncated, and they are brought back up to date at the next query by redoing only the nodes from there on. Since
+ * modeling and reading files append nodes in time order, that is usually just the nodes added since the last query.
+ * Like the history itself, this isn't synchronized - Resource holds the history's lock around every call.
+ */
+final class HistoryAggregates {
+    private static final double TICS_PER_SECOND = Duration.SECOND_DURATION.getTics();
+
+    private final ArrayResourceHistory<?> history;
+
+    // nodes before this index are up to date in the trees and prefix sums
+    private int validUpTo = 0;
+
+    // segment trees of node indices, with the leaves at [capacity, 2 * capacity) and -1 where there is no node
+    private int capacity = 0;
+    private int numLeaves = 0;
+    private int[] minTree = new int[0];
+    private int[] maxTree = new int[0];
+
+    // integrals[i] is the integral from the first node to node i, in value times seconds
+    private double[] integrals = new double[0];
+
+    HistoryAggregates(ArrayResourceHistory<?> history) {
+        this.history = history;
+    }
+
+    /**
+     * Called by the history when the node at index, or anything after it, changes or goes away
+     */
+    void invalidateFrom(int index) {
+        validUpTo = Math.min(validUpTo, index);
+    }
+
+    /**
+     * @return the index of the first node with the smallest value among nodes from through to, both inclusive
+     */
+    int indexOfMin(int from, int to) {
+        update();
+        return query(minTree, from, to, -1);
+    }
+
+    /**
+     * @return the index of the first node with the largest value among nodes from through to, both inclusive
+     */
+    int indexOfMax(int from, int to) {
+        update();
+        return query(maxTree, from, to, 1);
+    }
+
+    /**
+     * @return the index of the first node at or after from whose value is at least threshold if sign is positive, or
+     * at most threshold if it is negative, or -1 if there is none
+     */
+    int firstIndexReaching(int from, double threshold, int sign) {
+        update();
+        if (from >= numLeaves) {
+            return -1;
+        }
+        return firstIndexReaching(sign > 0 ? maxTree : minTree, 1, 0, capacity, Math.max(from, 0), threshold, sign);
+    }
+
+    /**
+     * @return the integral of the history's value between the two times, in value times seconds, where each node's
+     * value holds until the next one. Before the first node, valueBeforeFirstNode is used.
+     */
+    double integral(long fromTics, long toTics, double valueBeforeFirstNode) {
+        update();
+        int size = history.size();
+        double total = 0.0;
+        if (size == 0 || toTics <= history.tics[0]) {
+            return valueBeforeFirstNode * (toTics - fromTics) / TICS_PER_SECOND;
+        }
+        if (fromTics < history.tics[0]) {
+            total += valueBeforeFirstNode * (history.tics[0] - fromTics) / TICS_PER_SECOND;
+            fromTics = history.tics[0];
+        }
+        int first = history.floorIndex(fromTics);
+        int last = history.floorIndex(toTics);
+        if (first == last) {
+            return total + history.doubleAt(first) * (toTics - fromTics) / TICS_PER_SECOND;
+        }
+        total += history.doubleAt(first) * (history.tics[first + 1] - fromTics) / TICS_PER_SECOND;
+        total += integrals[last] - integrals[first + 1];
+        total += history.doubleAt(last) * (toTics - history.tics[last]) / TICS_PER_SECOND;
+        return total;
+    }
+
+    // brings the trees and prefix sums up to date with every node in the history
+    private void update() {
+        int size = history.size();
+        if (validUpTo >= size && numLeaves == size) {
+            return;
+        }
+        if (size > capacity) {
+            capacity = Math.max(16, Integer.highestOneBit(size - 1) << 1);
+            minTree = new int[2 * capacity];
+            maxTree = new int[2 * capacity];
+            Arrays.fill(minTree, -1);
+            Arrays.fill(maxTree, -1);
+            integrals = Arrays.copyOf(integrals, capacity);
+            validUpTo = 0;
+            numLeaves = 0;
+        }
+
+        int from = Math.min(validUpTo, size);
+        int to = Math.max(size, numLeaves);
+        for (int i = from; i < size; i++) {
+            integrals[i] = i == 0 ? 0.0 : integrals[i - 1] + history.doubleAt(i - 1) * (history.tics[i] - history.tics[i - 1]) / TICS_PER_SECOND;
+            minTree[capacity + i] = i;
+            maxTree[capacity + i] = i;
+        }
+        // a truncated history leaves nodes behind it in the trees
+        for (int i = size; i < numLeaves; i++) {
+            minTree[capacity + i] = -1;
+            maxTree[capacity + i] = -1;
+        }
+        // then every parent of a leaf that changed is recomputed, a level at a time
+        for (int lo = (capacity + from) >> 1, hi = (capacity + to - 1) >> 1; lo >= 1; lo >>= 1, hi >>= 1) {
+            for (int node = lo; node <= hi; node++) {
+                minTree[node] = pick(minTree[2 * node], minTree[2 * node + 1], -1);
+                maxTree[node] = pick(maxTree[2 * node], maxTree[2 * node + 1], 1);
+            }
+        }
+        validUpTo = size;
+        numLeaves = size;
+    }
+
+    private int query(int[] tree, int from, int to, int sign) {
+        int best = -1;
+        for (int lo = from + capacity, hi = to + capacity + 1; lo < hi; lo >>= 1, hi >>= 1) {
+            if ((lo & 1) == 1) {
+                best = pick(best, tree[lo++], sign);
+            }
+            if ((hi & 1) == 1) {
+                best = pick(best, tree[--hi], sign);
+            }
+        }
+        return best;
+    }
+
+    // descends into the left child first, skipping any subtree whose extreme doesn't reach the threshold
+    private int firstIndexReaching(int[] tree, int node, int lo, int hi, int from, double threshold, int sign) {
+        if (hi <= from || tree[node] < 0 || Double.compare(history.doubleAt(tree[node]), threshold) * sign < 0) {
+            return -1;
+        }
+        if (node >= capacity) {
+            return tree[node];
+        }
+        int mid = (lo + hi) >>> 1;
+        int left = firstIndexReaching(tree, 2 * node, lo, mid, from, threshold, sign);
+        return left >= 0 ? left : firstIndexReaching(tree, 2 * node + 1, mid, hi, from, threshold, sign);
+    }
+
+    // the node index whose value is further in the direction of sign, or the earlier one if they're equal
+    private int pick(int a, int b, int sign) {
+        if (a < 0) {
+            return b;
+        }
+        if (b < 0) {
+            return a;
+        }
+        int comparison = history.compareValuesAt(a, b);
+        if (comparison == 0) {
+            return Math.min(a, b);
+        }
+        return Integer.signum(comparison) == sign ? a : b;
+    }
+}
@@ -0,0 +1,171 @@
+package gov.nasa.jpl.resource;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * A batch of history nodes, kept column-wise, that file readers fill up and hand to Resource.insertRecords() in one
+ * go instead of inserting node by node. Double values are kept in a double[] and Integer and Boolean values in a
+ * long[] so they can be added without boxing, and the array-backed histories can copy them in with System.arraycopy
+ * when the run comes after everything already in the history. Every other type is kept as objects.
+ * @param <V> The type of value the Resource the run is for holds
+ */
+public class HistoryRun<V> {
+    public enum ValueType {
+        DOUBLE, INTEGER, BOOLEAN, OBJECT
+    }
+
+    final ValueType valueType;
+    long[] tics;
+    double[] doubles;
+    long[] longs;
+    Object[] objects;
+    // only created once a null value is added, which is rare
+    BitSet nulls;
+    int size = 0;
+    private boolean strictlyIncreasing = true;
+
+    public HistoryRun(ValueType valueType, int expectedSize) {
+        this.valueType = valueType;
+        int capacity = Math.max(16, expectedSize);
+        tics = new long[capacity];
+        switch (valueType) {
+            case DOUBLE:
+                doubles = new double[capacity];
+                break;
+            case INTEGER:
+            case BOOLEAN:
+                longs = new long[capacity];
+                break;
+            default:
+                objects = new Object[capacity];
+        }
+    }
+
+    /**
+     * @param dataType the data type string of a resource, as returned by Resource.getDataType()
+     * @return the column type a run for that resource should use
+     */
+    public static ValueType valueTypeOf(String dataType) {
+        switch (dataType) {
+            case "java.lang.Double":
+                return ValueType.DOUBLE;
+            case "java.lang.Integer":
+                return ValueType.INTEGER;
+            case "java.lang.Boolean":
+                return ValueType.BOOLEAN;
+            default:
+                return ValueType.OBJECT;
+        }
+    }
+
+    public ValueType getValueType() {
+        return valueType;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Adds a node to a DOUBLE run
+     */
+    public void addDouble(long t, double value) {
+        int i = nextIndex(t);
+        doubles[i] = value;
+    }
+
+    /**
+     * Adds a node to an INTEGER run, or a BOOLEAN run with 1 for true and 0 for false
+     */
+    public void addLong(long t, long value) {
+        int i = nextIndex(t);
+        longs[i] = value;
+    }
+
+    /**
+     * Adds a node of any run type, unboxing the value if the run keeps primitives
+     */
+    public void addObject(long t, Object value) {
+        int i = nextIndex(t);
+        if (value == null && valueType != ValueType.OBJECT) {
+            if (nulls == null) {
+                nulls = new BitSet();
+            }
+            nulls.set(i);
+            return;
+        }
+        switch (valueType) {
+            case DOUBLE:
+                doubles[i] = (Double) value;
+                break;
+            case INTEGER:
+                longs[i] = (Integer) value;
+                break;
+            case BOOLEAN:
+                longs[i] = ((Boolean) value) ? 1L : 0L;
+                break;
+            default:
+                objects[i] = value;
+        }
+    }
+
+    /**
+     * @return true if every node in the run is at a later time than the one before it
+     */
+    boolean isStrictlyIncreasing() {
+        return strictlyIncreasing;
+    }
+
+    long ticsAt(int i) {
+        return tics[i];
+    }
+
+    boolean isNullAt(int i) {
+        return nulls != null && nulls.get(i);
+    }
+
+    /**
+     * @return the value at index i, boxed
+     */
+    V valueAt(int i) {
+        if (isNullAt(i)) {
+            return null;
+        }
+        switch (valueType) {
+            case DOUBLE:
+                return (V) Double.valueOf(doubles[i]);
+            case INTEGER:
+                return (V) Integer.valueOf((int) longs[i]);
+            case BOOLEAN:
+                return (V) Boolean.valueOf(longs[i] != 0L);
+            default:
+                return (V) objects[i];
+        }
+    }
+
+    private int nextIndex(long t) {
+        if (size == tics.length) {
+            grow();
+        }
+        if (size > 0 && t <= tics[size - 1]) {
+            strictlyIncreasing = false;
+        }
+        tics[size] = t;
+        return size++;
+    }
+
+    private void grow() {
+        int newCapacity = tics.length + (tics.length >> 1);
+        tics = Arrays.copyOf(tics, newCapacity);
+        if (doubles != null) {
+            doubles = Arrays.copyOf(doubles, newCapacity);
+        }
+        if (longs != null) {
+            longs = Arrays.copyOf(longs, newCapacity);
+        }
+        if (objects != null) {
+            objects = Arrays.copyOf(objects, newCapacity);
+        }
+    }
+}
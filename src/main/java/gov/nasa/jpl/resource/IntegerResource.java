@@ -39,6 +39,11 @@ public class IntegerResource extends Resource<Integer> {
         return profile;
     }
 
+    @Override
+    protected ResourceHistory<Integer> createResourceHistory() {
+        return LongArrayResourceHistory.forIntegers();
+    }
+
     public void add(int toAdd) {
         set(currentval() + toAdd);
     }
@@ -1,8 +1,5 @@
 package gov.nasa.jpl.resource;
 
-import java.beans.PropertyChangeEvent;
-import java.beans.PropertyChangeListener;
-import java.util.Map;
 import java.util.NavigableMap;
 import java.util.Set;
 
@@ -12,7 +9,7 @@ import gov.nasa.jpl.time.Time;
 
 import static gov.nasa.jpl.activity.Activity.now;
 
-public class IntegratingResource extends DoubleResource implements PropertyChangeListener {
+public class IntegratingResource extends DoubleResource implements DoubleResourceChangeListener {
     long dtInTics;
     DoubleResource toFollow;
 
@@ -64,22 +61,35 @@ public class IntegratingResource extends DoubleResource implements PropertyChang
         super();
     }
 
-    public void propertyChange(PropertyChangeEvent evt) {
-        Map.Entry<Time, Double> oldEntry = (Map.Entry<Time, Double>) evt.getOldValue();
-        Map.Entry<Time, Double> newEntry = (Map.Entry<Time, Double>) evt.getNewValue();
 
+    @Override
+    protected ResourceHistory<Double> createResourceHistory() {
+        return new RateSegmentHistory();
+    }
+
+    @Override
+    public void doubleChanged(Resource<Double> source, Time oldTime, double oldValue, Time newTime, double newValue) {
         // if this is the first time the observed variable gets a value, we set the integrator to its profile
-        if (oldEntry.getKey() == null || oldEntry.getKey().greaterThan(newEntry.getKey())) {
-            set(profile(ModelingEngine.getEngine().getCurrentTime()));
+        if (oldTime == null || oldTime.greaterThan(newTime)) {
+            setSegment(profile(ModelingEngine.getEngine().getCurrentTime()), newValue);
             return;
         }
-        // don't do anything if the new and old time are the same
-        if (oldEntry.getKey().equals(newEntry.getKey())) {
+        // if the new and old time are the same, the value so far doesn't change, only the rate from here on
+        if (oldTime.equals(newTime)) {
+            synchronized (resourceHistory) {
+                long stamp = historyLock.writeLock();
+                try {
+                    segments().setRateAt(newTime.getTics(), newValue);
+                    version++;
+                }
+                finally {
+                    historyLock.unlockWrite(stamp);
+                }
+            }
             return;
         }
-        // this means we had an old and new rate that we must integrate to add to our value
-        Duration t = newEntry.getKey().subtract(oldEntry.getKey());
-        set(valueAt(oldEntry.getKey()) + (oldEntry.getValue() * ((double) t.getTics() / dtInTics)));
+        // the segment that started at oldTime ends here at its old rate, and a new one starts at the new rate
+        setSegment(valueAt(newTime), newValue);
     }
 
     public Double profile(Time t) {
@@ -100,7 +110,8 @@ public class IntegratingResource extends DoubleResource implements PropertyChang
     /**
      * Updates the resource that this IntegratingResource is following at the current time.
      * This will only update the value if there is not already a data point at the current
-     * time and if we are currently modeling.
+     * time and if we are currently modeling. This resource's own values no longer depend on
+     * it, so only call it if something else needs the extra node in the followed resource.
      */
     public void updateFollowResource() {
         synchronized (toFollow.resourceHistory) {
@@ -117,87 +128,149 @@ public class IntegratingResource extends DoubleResource implements PropertyChang
     }
 
     /**
-     * Overrides the parent DoubleResource interpval to also update the followed
-     * resource so this resource will be correct during modeling.
+     * Overrides the parent DoubleResource interpval. The integrated value is already linear between
+     * nodes, so this is the same as valueAt.
      */
     @Override
     public Double interpval(Time t) {
-        if (canInterpolate(t, this)) {
-            return super.interpval(t);
-        }
-        return this.valueAt(t);
-    }
-
-    private boolean canInterpolate(Time t, DoubleResource r) {
-        Time pastTime;
-        Time ceilingTime;
-        double pastValue;
-        double futureValue;
-        Double interpolatedValue;
-        synchronized (r.resourceHistory) {
-            pastTime = r.resourceHistory.floorKey(t);
-            ceilingTime = r.resourceHistory.ceilingKey(t);
-
-            // if pastTime and ceilingTime are defined then we can interpolate normally
-            // if either are null then we need special logic for interpolating
-            return pastTime != null && ceilingTime != null;
-        }
+        return valueAt(t);
     }
 
     /**
      * Overrides the parent valueAt.
-     * This always performs interpolation when available for the values defined in
-     * IntegratingResource. However, this method does not interpolate the followed
-     * resource values when calculating the integrating resource value.
+     * Each node starts a segment that changes at the rate the followed resource had from that node on,
+     * so the value at any time is the value of the last node at or before it plus that rate times the
+     * time since. This does not interpolate the followed resource values.
      */
     @Override
     public Double valueAt(Time t) {
+        ModelingEngine.getEngine().resourceRead(this);
+        long tics = t.getTics();
+        RateSegmentHistory segments = segments();
+        // like Resource.valueAt(), we read the segment without the lock unless something writes to it meanwhile
+        long stamp = tryOptimisticHistoryRead();
+        if (stamp != 0L) {
+            try {
+                int index = segments.floorIndex(tics);
+                long nodeTics = index < 0 ? 0L : segments.ticsAtIndex(index);
+                Double value = index < 0 ? null : segments.valueAtIndex(index);
+                double rate = index < 0 ? 0.0 : segments.rateAtIndex(index);
+                if (validateHistoryRead(stamp)) {
+                    return index < 0 ? profile(t) : valueInSegment(tics, nodeTics, value, rate);
+                }
+            }
+            catch (RuntimeException e) {
+                // a write moved the arrays while we read them, so we read them again under the lock
+            }
+        }
+        long nodeTics;
+        Double value;
+        double rate;
         synchronized (resourceHistory) {
-            boolean exactTimeExists = this.resourceHistory.containsKey(t);
-            if (exactTimeExists) {
-                return super.valueAt(t);
+            int index = segments.floorIndex(tics);
+            if (index < 0) {
+                return profile(t);
             }
+            nodeTics = segments.ticsAtIndex(index);
+            value = segments.valueAtIndex(index);
+            rate = segments.rateAtIndex(index);
         }
+        return valueInSegment(tics, nodeTics, value, rate);
+    }
 
-        boolean thisHasElements = this.resourceHistoryHasElements();
-        boolean followedDoesntHaveElements = !toFollow.resourceHistoryHasElements();
-        if (thisHasElements && followedDoesntHaveElements) {
-            return super.valueAt(t);
+    // the value at tics in the segment that starts at the node at nodeTics
+    private Double valueInSegment(long tics, long nodeTics, Double nodeValue, double rate) {
+        if (nodeTics == tics || nodeValue == null) {
+            return nodeValue;
         }
-
-        if (!thisHasElements) {
-            return this.profile(t);
+        if (rate != rate) {
+            rate = followedValueAt(nodeTics);
         }
+        return nodeValue + (rate * ((double) (tics - nodeTics) / dtInTics));
+    }
 
-        // if toFollow has elements, then this resource will always have elements at the
-        // same times, because it is a listener
-
-        // first get the most recent value of this resource, then we need to add the
-        // integrated value of the toFollow resource at this time
-        Time mostRecentIntegratedTime;
-        Double mostRecentIntegratedValue;
-        Time mostRecentFollowTime;
-        Double mostRecentFollowValue;
-
-        synchronized (this.resourceHistory) {
-            boolean timeBeforeFirstElement = t.lessThan(this.resourceHistory.firstKey());
-            if (timeBeforeFirstElement) {
-                return this.profile(t);
+    /**
+     * @return the rate, per integration time, at which this resource is changing at time t
+     */
+    public double rateAt(Time t) {
+        long tics = t.getTics();
+        long nodeTics;
+        double rate;
+        synchronized (resourceHistory) {
+            RateSegmentHistory segments = segments();
+            int index = segments.floorIndex(tics);
+            if (index < 0) {
+                return 0.0;
             }
+            nodeTics = segments.ticsAtIndex(index);
+            rate = segments.rateAtIndex(index);
+        }
+        return rate == rate ? rate : followedValueAt(nodeTics);
+    }
 
-            mostRecentIntegratedTime = this.resourceHistory.floorKey(t);
-            mostRecentIntegratedValue = this.resourceHistory.get(mostRecentIntegratedTime);
+    /**
+     * Finds the first time at or after start that this resource reaches threshold, coming from whichever side of it
+     * the resource is on at start. The value between nodes is linear, so instead of stepping through the history
+     * this finds the first node that reaches the threshold in O(log n) and solves for the crossing in the segment
+     * before it. Setting this resource directly makes its value jump, and if it crosses the threshold during a
+     * segment and a set() jumps it back before the next node, that crossing is not seen.
+     * @param threshold the value to look for
+     * @param start the earliest time to return
+     * @param end the latest time to return
+     * @return the first time in [start, end] the value reaches threshold, or null if it doesn't
+     */
+    public Time nextTimeValueReaches(double threshold, Time start, Time end) {
+        double startValue = valueAt(start);
+        if (startValue == threshold) {
+            return start;
         }
-        synchronized (toFollow.resourceHistory) {
-            // the integrated times will always be a superset of followed values because
-            // it is a listener, so we use mostRecentIntegratedTime for floorKey here in case
-            // mostRecentIntegratedTime is after floorKey(t)
-            mostRecentFollowTime = toFollow.resourceHistory.floorKey(mostRecentIntegratedTime);
-            mostRecentFollowValue = toFollow.resourceHistory.get(mostRecentFollowTime);
+        int sign = startValue < threshold ? 1 : -1;
+        long startTics = start.getTics();
+        long endTics = end.getTics();
+
+        // at most two segments can hold the crossing: the one start is in, then the one before the first node that
+        // reaches the threshold, or the last one if none does. We read them under the lock and solve outside it,
+        // since a segment without a rate needs the followed resource's lock
+        long[] nodeTics = new long[2];
+        double[] nodeValue = new double[2];
+        double[] rates = new double[2];
+        long[] segmentEnd = new long[2];
+        int numSegments = 0;
+        long reachingTics = Long.MAX_VALUE;
+        synchronized (resourceHistory) {
+            RateSegmentHistory segments = segments();
+            int size = segments.size();
+            int index = segments.floorIndex(startTics);
+            int reaching = segments.aggregates().firstIndexReaching(index + 1, threshold, sign);
+            int last = reaching >= 0 ? reaching - 1 : size - 1;
+            for (int i : new int[]{index, last}) {
+                if (i < 0 || (numSegments > 0 && i == index)) {
+                    continue;
+                }
+                nodeTics[numSegments] = segments.ticsAtIndex(i);
+                nodeValue[numSegments] = segments.doubleAt(i);
+                rates[numSegments] = segments.rateAtIndex(i);
+                segmentEnd[numSegments] = i + 1 < size ? segments.ticsAtIndex(i + 1) : Long.MAX_VALUE;
+                numSegments++;
+            }
+            if (reaching >= 0) {
+                reachingTics = segments.ticsAtIndex(reaching);
+            }
         }
 
-        Duration d = t.subtract(mostRecentIntegratedTime);
-        return mostRecentIntegratedValue + (mostRecentFollowValue * ((double) d.getTics() / dtInTics));
+        for (int i = 0; i < numSegments; i++) {
+            double rate = rates[i] == rates[i] ? rates[i] : followedValueAt(nodeTics[i]);
+            if (rate * sign <= 0) {
+                continue;
+            }
+            double offset = Math.ceil(((threshold - nodeValue[i]) / rate) * dtInTics);
+            if (offset <= (double) segmentEnd[i] - nodeTics[i]) {
+                long crossing = Math.max(nodeTics[i] + (long) offset, startTics);
+                return crossing <= endTics ? Time.fromTics(crossing) : null;
+            }
+        }
+        // the value jumped past the threshold at a node
+        return reachingTics <= endTics ? Time.fromTics(reachingTics) : null;
     }
 
     /**
@@ -227,11 +300,49 @@ public class IntegratingResource extends DoubleResource implements PropertyChang
     }
 
     /**
-     * The update method for this class only updates the followed resource so the current
-     * value of this resource is correct.
+     * Writes the current integrated value as a node of this resource, continuing at the same rate. Unlike before,
+     * nothing is written to the followed resource, since the value between nodes never depends on it.
+     * Like before, this does nothing if there is a node at the current time already.
      */
     @Override
     public void update() {
-        updateFollowResource();
+        Time t = now();
+        synchronized (resourceHistory) {
+            if (resourceHistory.containsKey(t)) {
+                return;
+            }
+        }
+        setSegment(valueAt(t), rateAt(t));
+    }
+
+    // sets a node at the current time that starts a segment with the given rate
+    private void setSegment(double value, double rate) {
+        set(value);
+        // no version bump: a node without a rate already resolves to the followed resource's value, which this is
+        synchronized (resourceHistory) {
+            long stamp = historyLock.writeLock();
+            try {
+                segments().setRateAt(ModelingEngine.getEngine().getCurrentTime().getTics(), rate);
+            }
+            finally {
+                historyLock.unlockWrite(stamp);
+            }
+        }
+    }
+
+    private RateSegmentHistory segments() {
+        return (RateSegmentHistory) resourceHistory;
+    }
+
+    // the followed resource's value at or before the given tics, for nodes that were put in without a rate
+    private double followedValueAt(long tics) {
+        if (toFollow == null) {
+            return 0.0;
+        }
+        synchronized (toFollow.resourceHistory) {
+            Time floor = toFollow.resourceHistory.floorKey(Time.fromTics(tics));
+            Double value = floor == null ? null : toFollow.resourceHistory.get(floor);
+            return value == null ? 0.0 : value;
+        }
     }
 }
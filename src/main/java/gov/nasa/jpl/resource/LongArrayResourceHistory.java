@@ -0,0 +1,127 @@
+package gov.nasa.jpl.resource;
+
+import gov.nasa.jpl.time.Time;
+
+import java.util.Arrays;
+import java.util.function.LongFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * ResourceHistory for resources whose values can be encoded losslessly in a long, like Integer, Boolean and Time.
+ * Values are stored in a long[] next to the long[] of tics and converted back with the supplied decoder.
+ * @param <V> The type of value the owning Resource holds
+ */
+public class LongArrayResourceHistory<V> extends ArrayResourceHistory<V> {
+    // no Integer, Boolean or realistic Time encodes to this, so it can stand in for null values
+    private static final long NULL_VALUE = Long.MIN_VALUE;
+
+    private final ToLongFunction<V> encoder;
+    private final LongFunction<V> decoder;
+    // the type of HistoryRun whose long column is encoded the same way as this history, if there is one
+    private final HistoryRun.ValueType runType;
+    long[] values = new long[0];
+
+    /**
+     * Resource.min() and max() compare the encoded longs, so the encoding has to keep the values' natural order
+     */
+    public LongArrayResourceHistory(ToLongFunction<V> encoder, LongFunction<V> decoder) {
+        this(encoder, decoder, null);
+    }
+
+    private LongArrayResourceHistory(ToLongFunction<V> encoder, LongFunction<V> decoder, HistoryRun.ValueType runType) {
+        this.encoder = encoder;
+        this.decoder = decoder;
+        this.runType = runType;
+    }
+
+    /**
+     * @return a history for Integer resources
+     */
+    public static LongArrayResourceHistory<Integer> forIntegers() {
+        return new LongArrayResourceHistory<>(Integer::longValue, l -> (int) l, HistoryRun.ValueType.INTEGER);
+    }
+
+    /**
+     * @return a history for Boolean resources
+     */
+    public static LongArrayResourceHistory<Boolean> forBooleans() {
+        return new LongArrayResourceHistory<>(b -> b ? 1L : 0L, l -> l != 0L, HistoryRun.ValueType.BOOLEAN);
+    }
+
+    /**
+     * @return a history for Time resources. Values are stored by their tics, so they are returned as absolute Times
+     */
+    public static LongArrayResourceHistory<Time> forTimes() {
+        return new LongArrayResourceHistory<>(Time::getTics, Time::fromTics);
+    }
+
+    @Override
+    V valueAtIndex(int i) {
+        return valueIn(values, i);
+    }
+
+    @Override
+    Object valueArray() {
+        return values;
+    }
+
+    @Override
+    V valueIn(Object values, int i) {
+        long value = ((long[]) values)[i];
+        return value == NULL_VALUE ? null : decoder.apply(value);
+    }
+
+    /**
+     * @return the encoded value at index i, for callers that don't need the boxed value
+     */
+    long longAtIndex(int i) {
+        return values[i];
+    }
+
+    @Override
+    int compareValuesAt(int i, int j) {
+        // every encoding keeps the values' natural order
+        return Long.compare(values[i], values[j]);
+    }
+
+    @Override
+    double doubleAt(int i) {
+        return values[i];
+    }
+
+    @Override
+    boolean holdsNumbers() {
+        // booleans integrate as 1 for true and 0 for false, which is the time they were true
+        return runType == HistoryRun.ValueType.INTEGER || runType == HistoryRun.ValueType.BOOLEAN;
+    }
+
+    @Override
+    void setValueAtIndex(int i, V value) {
+        values[i] = value == null ? NULL_VALUE : encoder.applyAsLong(value);
+    }
+
+    @Override
+    void resizeValues(int newCapacity) {
+        values = Arrays.copyOf(values, newCapacity);
+    }
+
+    @Override
+    void moveValues(int from, int to, int count) {
+        System.arraycopy(values, from, values, to, count);
+    }
+
+    @Override
+    boolean canCopyValuesFrom(HistoryRun<?> run) {
+        return runType != null && run.valueType == runType;
+    }
+
+    @Override
+    void copyValuesFrom(HistoryRun<?> run, int index) {
+        System.arraycopy(run.longs, 0, values, index, run.size);
+        if (run.nulls != null) {
+            for (int i = run.nulls.nextSetBit(0); i >= 0; i = run.nulls.nextSetBit(i + 1)) {
+                values[index + i] = NULL_VALUE;
+            }
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package gov.nasa.jpl.resource;
+
+import gov.nasa.jpl.time.Time;
+
+/**
+ * A ResourceChangeListener for resources holding Integers or Longs that takes the values as primitives.
+ *
+ * @param <V> the type of the resources this listens to
+ */
+public interface LongResourceChangeListener<V extends Number & Comparable> extends ResourceChangeListener<V> {
+
+    /**
+     * Called by a resource after it is set.
+     * @param source the resource that changed
+     * @param oldTime the time the resource was last set before this change, or null if it hadn't been
+     * @param oldValue the value the resource had at oldTime, or 0 if it hadn't been set
+     * @param newTime the time the resource was set at
+     * @param newValue the value the resource was set to
+     */
+    void longChanged(Resource<V> source, Time oldTime, long oldValue, Time newTime, long newValue);
+
+    @Override
+    default void resourceChanged(Resource<V> source, Time oldTime, V oldValue, Time newTime, V newValue) {
+        longChanged(source, oldTime, oldValue == null ? 0 : oldValue.longValue(), newTime, newValue.longValue());
+    }
+}
@@ -0,0 +1,55 @@
+package gov.nasa.jpl.resource;
+
+import java.util.Arrays;
+
+/**
+ * History for an IntegratingResource. Next to each node's value it keeps the rate the value changes at from that
+ * node until the next one, so every node starts a linear segment and the integrator's value at any time is a binary
+ * search and a multiply, without looking anything up in the resource it follows.
+ * Nodes put in without a rate, like ones set directly by an adapter or read from a file, store NaN, and the
+ * integrator falls back to the followed resource's value for those.
+ */
+final class RateSegmentHistory extends DoubleArrayResourceHistory {
+    double[] rates = new double[0];
+
+    /**
+     * Sets the rate of the segment starting at the node at the given tics, if there is one
+     */
+    void setRateAt(long t, double rate) {
+        int index = floorIndex(t);
+        if (index >= 0 && tics[index] == t) {
+            rates[index] = rate;
+        }
+    }
+
+    /**
+     * @return the rate of the segment starting at node i, or NaN if it was put in without one
+     */
+    double rateAtIndex(int i) {
+        return rates[i];
+    }
+
+    @Override
+    void setValueAtIndex(int i, Double value) {
+        super.setValueAtIndex(i, value);
+        rates[i] = Double.NaN;
+    }
+
+    @Override
+    void resizeValues(int newCapacity) {
+        super.resizeValues(newCapacity);
+        rates = Arrays.copyOf(rates, newCapacity);
+    }
+
+    @Override
+    void moveValues(int from, int to, int count) {
+        super.moveValues(from, to, count);
+        System.arraycopy(rates, from, rates, to, count);
+    }
+
+    @Override
+    void copyValuesFrom(HistoryRun<?> run, int index) {
+        super.copyValuesFrom(run, index);
+        Arrays.fill(rates, index, index + run.size(), Double.NaN);
+    }
+}
@@ -5,12 +5,20 @@ import java.beans.PropertyChangeListener;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.util.*;
+import java.util.concurrent.locks.StampedLock;
 import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
+import gov.nasa.jpl.engine.AdaptationException;
 import gov.nasa.jpl.engine.ModelingEngine;
+import gov.nasa.jpl.engine.ModelingProfiler;
+import gov.nasa.jpl.input.SnapshotHistoryReader;
 import gov.nasa.jpl.input.parallel.ReaderThreadResource;
 import gov.nasa.jpl.scheduler.CompareToValues;
 import gov.nasa.jpl.scheduler.Condition;
+import gov.nasa.jpl.scheduler.Window;
+import gov.nasa.jpl.time.Duration;
 import gov.nasa.jpl.time.Time;
 import gov.nasa.jpl.input.ReflectionUtilities;
 
@@ -22,6 +30,9 @@ import static java.lang.Integer.signum;
  * @param <V> The parameterized type that represents the data type the resource is tracking throughout the simulation
  */
 public abstract class Resource<V extends Comparable> implements ResourceContainer {
+    private static final double TICS_PER_SECOND = Duration.SECOND_DURATION.getTics();
+
+
     // if we're just a resource by ourselves, we just have a name
     private String name;
     // we can be inside multiple nested arrayed resources, so we need a list of indices
@@ -40,13 +51,27 @@ public abstract class Resource<V extends Comparable> implements ResourceContaine
     // other resources or conditions might want to listen to when we change, so we will keep a collection of listeners
     // we want a Set instead of a List because we never ever want to notify the same thing that we've changed twice - that could trigger duplicate events
     private Set<PropertyChangeListener> listeners;
+    // the same listeners in the same order, copied on every change to the set so notifying them doesn't create an iterator
+    private PropertyChangeListener[] listenerArray = new PropertyChangeListener[0];
 
     // save off just the last time and value we were set to, only during modeling, to speed up calls for large resources
     private Time currentLastTime;
     private V currentLastValue;
 
-    // setting up main data structure that holds value history
-    final TreeMap<Time, V> resourceHistory = new TreeMap<>();
+    // setting up main data structure that holds value history - only ever replaced before the resource is first set,
+    // when its ArrayedResource moves it into columnar storage
+    ResourceHistory<V> resourceHistory = createResourceHistory();
+
+    // every write to the history takes this while holding the history's monitor, so readers like valueAt() can read
+    // histories that support it without the monitor, and only take it if a write happened while they were reading
+    final StampedLock historyLock = new StampedLock();
+
+    // the times the resource was set to each value, only kept once setIndexedByValue(true) is called
+    private ValueTimeIndex<V> valueIndex;
+
+    // bumped, under the history's lock, every time the history changes, so derived resources know when what they
+    // computed from it is out of date
+    volatile int version;
 
     // we're overloading the resource constructor in order to let adapters easily specify different numbers of attributes
     public Resource(String subsystem, String units, String interpolation, V minimum, V maximum) {
@@ -76,6 +101,29 @@ public abstract class Resource<V extends Comparable> implements ResourceContaine
         this("generic");
     }
 
+    /**
+     * Creates the data structure this resource keeps its history in. Called once during construction, so
+     * overrides must not depend on fields of the subclass. Resources holding primitive-like values override
+     * this to use an array-backed history.
+     * @return a new, empty ResourceHistory
+     */
+    protected ResourceHistory<V> createResourceHistory() {
+        return new TreeMapResourceHistory<>();
+    }
+
+    /**
+     * Replaces the empty history the resource was created with. Only used by ArrayedResource when adapters ask for
+     * its bins to be stored in columns, which happens while the adaptation is being declared.
+     */
+    void replaceEmptyHistory(ResourceHistory<V> history) {
+        synchronized (resourceHistory) {
+            if (!resourceHistory.isEmpty()) {
+                throw new AdaptationException("Can't change how resource " + getUniqueName() + " stores its history after it has been set");
+            }
+            resourceHistory = history;
+        }
+    }
+
     private void checkMutable() {
         if (isFrozen() && !ModelingEngine.getEngine().isCurrentlyReadingInFile()) {
             throw new RuntimeException("Tried to mutate frozen resource");
@@ -88,14 +136,54 @@ public abstract class Resource<V extends Comparable> implements ResourceContaine
      */
     public void clearHistory() {
         checkMutable();
-        Time currentTime = ModelingEngine.getEngine().getCurrentTime();
-        Time lastTime = lastTimeSet();
-        V lastValue = lastValue();
-        notifyListeners(new AbstractMap.SimpleImmutableEntry(lastTime, lastValue), new AbstractMap.SimpleImmutableEntry(currentTime, profile(currentTime)));
+        if (listenerArray.length > 0) {
+            Time currentTime = ModelingEngine.getEngine().getCurrentTime();
+            notifyListeners(lastTimeSet(), lastValue(), currentTime, profile(currentTime));
+        }
         synchronized (resourceHistory) {
-            resourceHistory.clear();
-            currentLastTime = null;
-            currentLastValue = null;
+            long stamp = historyLock.writeLock();
+            try {
+                resourceHistory.clear();
+                version++;
+                currentLastTime = null;
+                currentLastValue = null;
+                if (valueIndex != null) {
+                    valueIndex.clear();
+                }
+            }
+            finally {
+                historyLock.unlockWrite(stamp);
+            }
+        }
+    }
+
+    /**
+     * Removes every value this resource was set to at or after the given time, putting it back in the state it was
+     * in just before that time. Should not be called by adapters - is called before an incremental REMODEL
+     * @param t the earliest time to remove values at
+     */
+    public void truncateHistoryFrom(Time t) {
+        checkMutable();
+        synchronized (resourceHistory) {
+            long stamp = historyLock.writeLock();
+            try {
+                resourceHistory.truncateFrom(t);
+                version++;
+                if (valueIndex != null) {
+                    valueIndex.truncateFrom(t.getTics());
+                }
+                if (resourceHistory.isEmpty()) {
+                    currentLastTime = null;
+                    currentLastValue = null;
+                }
+                else {
+                    currentLastTime = resourceHistory.lastKey();
+                    currentLastValue = resourceHistory.get(currentLastTime);
+                }
+            }
+            finally {
+                historyLock.unlockWrite(stamp);
+            }
         }
     }
 
@@ -107,20 +195,47 @@ public abstract class Resource<V extends Comparable> implements ResourceContaine
      */
     public void set(V inVal) {
         checkMutable();
-        Time currentTime = ModelingEngine.getEngine().getCurrentTime();
+        ModelingEngine engine = ModelingEngine.getEngine();
+        // lets an engine modeling parts of the plan in parallel catch a set() it didn't know this activity would make
+        engine.resourceSet(this);
+        Time currentTime = engine.getCurrentTime();
+        // if we're not reading a file and are getting these values from activity modeling sections, we need to tell our listeners
+        boolean notify = listenerArray.length > 0 && !engine.isCurrentlyReadingInFile();
         // need to do these before doing the put(), since we don't want the new value showing up as the 'old' value
-        Time lastTime = lastTimeSet();
-        V lastValue = lastValue();
+        Time lastTime = notify ? lastTimeSet() : null;
+        V lastValue = notify ? lastValue() : null;
         synchronized (resourceHistory) {
-            resourceHistory.put(currentTime, inVal);
-            currentLastTime = currentTime;
-            currentLastValue = inVal;
+            long stamp = historyLock.writeLock();
+            try {
+                indexValue(currentTime, inVal);
+                resourceHistory.put(currentTime, inVal);
+                version++;
+                currentLastTime = currentTime;
+                currentLastValue = inVal;
+            }
+            finally {
+                historyLock.unlockWrite(stamp);
+            }
         }
 
-        // if we're not reading a file and are getting these values from activity modeling sections, we need to tell our listeners
-        if (!ModelingEngine.getEngine().isCurrentlyReadingInFile()) {
+        if (notify) {
+            // when same-time updates are batched, the engine notifies our listeners once the current Waiter is done
+            if (ResourceUpdateBatch.defer(this, lastTime, lastValue)) {
+                // how long our listeners take is recorded when the batch notifies them
+                if (ModelingProfiler.isEnabled()) {
+                    ModelingProfiler.resourceSet(this, 0);
+                }
+                return;
+            }
             // we notify after we update in order to not get into an infinite loop with schedulers who want to update the resource that notifies them
-            notifyListeners(new AbstractMap.SimpleImmutableEntry(lastTime, lastValue), new AbstractMap.SimpleImmutableEntry(currentTime, inVal));
+            if (ModelingProfiler.isEnabled()) {
+                long notifyStart = System.nanoTime();
+                notifyListeners(lastTime, lastValue, currentTime, inVal);
+                ModelingProfiler.resourceSet(this, System.nanoTime() - notifyStart);
+            }
+            else {
+                notifyListeners(lastTime, lastValue, currentTime, inVal);
+            }
         }
     }
 
@@ -131,7 +246,136 @@ public abstract class Resource<V extends Comparable> implements ResourceContaine
         checkMutable();
         Objects.requireNonNull(reader);
         synchronized (resourceHistory) {
-            resourceHistory.put(t, inVal);
+            long stamp = historyLock.writeLock();
+            try {
+                indexValue(t, inVal);
+                resourceHistory.put(t, inVal);
+                version++;
+            }
+            finally {
+                historyLock.unlockWrite(stamp);
+            }
+        }
+    }
+
+    /**
+     * Inserts a whole run of nodes read from a file at once. Like insertRecord(), this is only for the parallel IO reader
+     */
+    public void insertRecords(ReaderThreadResource reader, HistoryRun<V> run){
+        Objects.requireNonNull(reader);
+        insertRun(run);
+    }
+
+    /**
+     * Same as the other insertRecords(), for the snapshot reader
+     */
+    public void insertRecords(SnapshotHistoryReader reader, HistoryRun<V> run){
+        Objects.requireNonNull(reader);
+        insertRun(run);
+    }
+
+    private void insertRun(HistoryRun<V> run){
+        checkMutable();
+        synchronized (resourceHistory) {
+            long stamp = historyLock.writeLock();
+            try {
+                version++;
+                if (valueIndex == null) {
+                    resourceHistory.putRun(run);
+                    return;
+                }
+                // a run can set the same time more than once, so the index gets whatever each time ends up holding
+                for (int i = 0; i < run.size(); i++) {
+                    Time t = Time.fromTics(run.ticsAt(i));
+                    if (resourceHistory.containsKey(t)) {
+                        valueIndex.remove(resourceHistory.get(t), run.ticsAt(i));
+                    }
+                }
+                resourceHistory.putRun(run);
+                for (int i = 0; i < run.size(); i++) {
+                    valueIndex.add(resourceHistory.get(Time.fromTics(run.ticsAt(i))), run.ticsAt(i));
+                }
+            }
+            finally {
+                historyLock.unlockWrite(stamp);
+            }
+        }
+    }
+
+    /**
+     * Turns on or off keeping, for every value the resource is set to, a sorted list of the times it was set to it.
+     * With it on, nextTimeResourceSetToValue(), priorTimeResourceSetToValue() and getWindowsWhereEqualTo() are binary
+     * searches instead of walks through the history, which is worth it for resources that only take a few values,
+     * like modes and flags, and are queried a lot. Values are matched with equals() and hashCode().
+     * @param indexed whether to keep the index. Turning it on indexes the history the resource already has
+     */
+    public void setIndexedByValue(boolean indexed) {
+        synchronized (resourceHistory) {
+            if (!indexed) {
+                valueIndex = null;
+            }
+            else if (valueIndex == null) {
+                valueIndex = new ValueTimeIndex<>();
+                for (Map.Entry<Time, V> entry : resourceHistory.entriesBetween(null, null)) {
+                    valueIndex.add(entry.getValue(), entry.getKey().getTics());
+                }
+            }
+        }
+    }
+
+    /**
+     * @return a number that changes whenever the values this resource takes could have changed
+     */
+    int historyVersion() {
+        return version;
+    }
+
+    /**
+     * Starts reading the history without its monitor. Whatever is read has to be checked with validateHistoryRead()
+     * before it is used, and read again under the monitor if that fails.
+     * @return a stamp to pass to validateHistoryRead(), or 0 if the history has to be read under its monitor
+     */
+    long tryOptimisticHistoryRead() {
+        return resourceHistory.supportsOptimisticReads() ? historyLock.tryOptimisticRead() : 0L;
+    }
+
+    /**
+     * @return true if nothing was written to the history since tryOptimisticHistoryRead() returned the stamp
+     */
+    boolean validateHistoryRead(long stamp) {
+        return historyLock.validate(stamp);
+    }
+
+    // runs read against the history without its monitor if no write happens meanwhile, and under it otherwise
+    private <T> T readHistory(Function<ResourceHistory<V>, T> read) {
+        long stamp = tryOptimisticHistoryRead();
+        if (stamp != 0L) {
+            try {
+                T result = read.apply(resourceHistory);
+                if (validateHistoryRead(stamp)) {
+                    return result;
+                }
+            }
+            catch (RuntimeException e) {
+                // a write moved the history's arrays while we read them, so we read them again under the monitor
+            }
+        }
+        synchronized (resourceHistory) {
+            return read.apply(resourceHistory);
+        }
+    }
+
+    public boolean isIndexedByValue() {
+        return valueIndex != null;
+    }
+
+    // must be called before the node is put in the history, so a value it replaces can be taken out of the index
+    private void indexValue(Time t, V value) {
+        if (valueIndex != null) {
+            if (resourceHistory.containsKey(t)) {
+                valueIndex.remove(resourceHistory.get(t), t.getTics());
+            }
+            valueIndex.add(value, t.getTics());
         }
     }
 
@@ -157,6 +401,20 @@ public abstract class Resource<V extends Comparable> implements ResourceContaine
      * @return The value (of whatever type) at the given time.
      */
     public V valueAt(Time t) {
+        ModelingEngine.getEngine().resourceRead(this);
+        long stamp = tryOptimisticHistoryRead();
+        if (stamp != 0L) {
+            try {
+                Time pastTime = resourceHistory.floorKey(t);
+                V value = pastTime == null ? null : resourceHistory.get(pastTime);
+                if (validateHistoryRead(stamp)) {
+                    return pastTime == null ? (V) profile(t) : value;
+                }
+            }
+            catch (RuntimeException e) {
+                // a write moved the history's arrays while we read them, so we read them again under the monitor
+            }
+        }
         V attemptedAccess;
         synchronized (resourceHistory) {
             Time pastTime = resourceHistory.floorKey(t);
@@ -202,11 +460,8 @@ public abstract class Resource<V extends Comparable> implements ResourceContaine
             incomingEntry = new AbstractMap.SimpleImmutableEntry<>(t, profile(t));
         }
 
-        Map.Entry<Time, V> valueSetWithinWindow;
-        try {
-            valueSetWithinWindow = func.apply(getEntriesBetweenTimes(resourceHistory, start, end, false), Map.Entry.<Time, V>comparingByValue());
-        }
-        catch(NoSuchElementException e){
+        Map.Entry<Time, V> valueSetWithinWindow = getExtremeEntryBetweenTimes(start, end, sign, func);
+        if(valueSetWithinWindow == null){
             return incomingEntry;
         }
 
@@ -219,13 +474,129 @@ public abstract class Resource<V extends Comparable> implements ResourceContaine
 
     }
 
+    // the first node between the times with the smallest or largest value, or null if there are no nodes between them
+    private Map.Entry<Time,V> getExtremeEntryBetweenTimes(Time start, Time end, int sign, BiFunction<Collection, Comparator<Map.Entry<Time, V>>, Map.Entry<Time, V>> func){
+        synchronized (resourceHistory) {
+            // array histories keep an index that answers this without looking at every node
+            if (resourceHistory instanceof ArrayResourceHistory) {
+                ArrayResourceHistory<V> history = (ArrayResourceHistory<V>) resourceHistory;
+                int from = start == null ? 0 : history.ceilingIndex(start.getTics());
+                int to = end == null ? history.size() - 1 : history.floorIndex(end.getTics());
+                if (from > to) {
+                    return null;
+                }
+                int index = sign < 0 ? history.aggregates().indexOfMin(from, to) : history.aggregates().indexOfMax(from, to);
+                return new AbstractMap.SimpleImmutableEntry<>(Time.fromTics(history.ticsAtIndex(index)), history.valueAtIndex(index));
+            }
+            try {
+                return func.apply(getEntriesBetweenTimes(start, end, false), Map.Entry.<Time, V>comparingByValue());
+            }
+            catch (NoSuchElementException e) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Integrates the value of the resource over time, with each value holding until the resource is next set and the
+     * profile value before it is first set. Boolean resources count as 1 while true and 0 while false, so this is
+     * also how many seconds they were true. Double, Integer and Boolean resources answer in O(log n) from an index
+     * over their histories; resources of other numeric types go through the nodes between the times.
+     * @param start The time to integrate from
+     * @param end The time to integrate to, which must not be before start
+     * @return The integral in the resource's units times seconds
+     */
+    public double integral(Time start, Time end){
+        checkQueryBounds("integral", start, end);
+        synchronized (resourceHistory) {
+            if (resourceHistory instanceof ArrayResourceHistory && ((ArrayResourceHistory) resourceHistory).holdsNumbers()) {
+                return ((ArrayResourceHistory) resourceHistory).aggregates().integral(start.getTics(), end.getTics(), toDouble(profile(start)));
+            }
+            double total = 0.0;
+            long lastTics = start.getTics();
+            double lastValue = toDouble(valueAt(start));
+            for (Map.Entry<Time, V> entry : getEntriesBetweenTimes(start, end, false)) {
+                long tics = entry.getKey().getTics();
+                total += lastValue * (tics - lastTics) / TICS_PER_SECOND;
+                lastTics = tics;
+                lastValue = toDouble(entry.getValue());
+            }
+            return total + lastValue * (end.getTics() - lastTics) / TICS_PER_SECOND;
+        }
+    }
+
+    /**
+     * The average value of the resource between two times, with each value weighted by how long it was held.
+     * For a Boolean resource, this is the fraction of the time it was true. Same cost as integral().
+     * @param start The time to average from
+     * @param end The time to average to, which must not be before start
+     * @return The time-weighted mean, or the value at start if start and end are the same
+     */
+    public double timeWeightedMean(Time start, Time end){
+        checkQueryBounds("timeWeightedMean", start, end);
+        if (start.equals(end)) {
+            return toDouble(valueAt(start));
+        }
+        return integral(start, end) / ((end.getTics() - start.getTics()) / TICS_PER_SECOND);
+    }
+
+    /**
+     * How long the value of the resource satisfies a predicate between two times. Unlike integral(), an arbitrary
+     * predicate can't be indexed ahead of time, so this looks at each node between the times - but it does so
+     * without building a list of them. To get how long a Boolean resource was true, integral() is faster.
+     * @param predicate The test to apply to each value the resource holds between the times
+     * @param start The time to start counting from
+     * @param end The time to count until, which must not be before start
+     * @return The total Duration during which the predicate is true
+     */
+    public Duration durationWhere(Predicate<? super V> predicate, Time start, Time end){
+        checkQueryBounds("durationWhere", start, end);
+        long total = 0;
+        synchronized (resourceHistory) {
+            long lastTics = start.getTics();
+            boolean lastMatched = predicate.test(valueAt(start));
+            ResourceHistory.Cursor<V> nodes = resourceHistory.cursorBetween(start, end);
+            while (nodes.advance()) {
+                long tics = nodes.tics();
+                if (lastMatched) {
+                    total += tics - lastTics;
+                }
+                lastTics = tics;
+                lastMatched = predicate.test(nodes.value());
+            }
+            if (lastMatched) {
+                total += end.getTics() - lastTics;
+            }
+        }
+        return Duration.fromTics(total);
+    }
+
+    private void checkQueryBounds(String method, Time start, Time end) {
+        if (start.greaterThan(end)) {
+            throw new RuntimeException("Error in " + method + " call on resource " + getUniqueName() + ": start " + start.toUTC() +
+                    " is after end " + end.toUTC() + ".");
+        }
+    }
+
+    private double toDouble(V value) {
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+        if (value instanceof Boolean) {
+            return ((Boolean) value) ? 1.0 : 0.0;
+        }
+        throw new RuntimeException("Resource " + getUniqueName() + " holds " + getDataType() + " values, which can't be integrated or averaged");
+    }
+
     /**
      * @param start Times at or after this will be included in the returned list of value changes. If null, beginning of resource history is used.
      * @param end  Times at or before this will be included in the returned list of value changes. If null, end of resource history is used.
      * @return A chronological list of map entries, where each key is the time of the change and the value is the new resource value
      */
     public List<Map.Entry<Time, V>> getChangesDuringWindow(Time start, Time end){
-        return new ArrayList<>(getEntriesBetweenTimes(resourceHistory, start, end, false));
+        synchronized (resourceHistory) {
+            return new ArrayList<>(getEntriesBetweenTimes(start, end, false));
+        }
     }
 
     /**
@@ -249,9 +620,7 @@ public abstract class Resource<V extends Comparable> implements ResourceContaine
      * @return
      */
     public boolean resourceHistoryHasElements() {
-        synchronized (resourceHistory) {
-            return !resourceHistory.isEmpty();
-        }
+        return readHistory(history -> !history.isEmpty());
     }
 
     /**
@@ -259,9 +628,7 @@ public abstract class Resource<V extends Comparable> implements ResourceContaine
      * @return
      */
     public int getSize() {
-        synchronized (resourceHistory) {
-            return resourceHistory.size();
-        }
+        return readHistory(ResourceHistory::size);
     }
 
     /**
@@ -465,42 +832,57 @@ public abstract class Resource<V extends Comparable> implements ResourceContaine
 
 
     /**
-     * Returns an iterator over (Time, V) pairs in the resource's history timeline
+     * Returns an iterator over (Time, V) pairs in the resource's history timeline. It walks a snapshot of the
+     * history, so values set while it is being walked don't show up in it
      * @param begin
      * @param end
      * @return
      */
     public Iterator<Map.Entry<Time, V>> historyIterator(Time begin, Time end) {
-        return getEntriesBetweenTimes(resourceHistory, begin, end, true).iterator();
+        synchronized (resourceHistory) {
+            Time[] cutoffs = getCutoffs(begin, end, true);
+            return resourceHistory.snapshotBetween(cutoffs[0], cutoffs[1]).iterator();
+        }
+    }
+
+    /**
+     * Same nodes as historyIterator(), as a cursor for ResourcesIterator
+     */
+    ResourceHistory.Cursor<V> historyCursor(Time begin, Time end) {
+        synchronized (resourceHistory) {
+            Time[] cutoffs = getCutoffs(begin, end, true);
+            return resourceHistory.snapshotCursorBetween(cutoffs[0], cutoffs[1]);
+        }
     }
 
-    private Set<Map.Entry<Time,V>> getEntriesBetweenTimes(NavigableMap<Time, V> inMap, Time start, Time end, boolean findEntriesAroundBounds){
-        NavigableMap<Time,V> truncatedHistory = inMap;
+    // a view backed by the history, so callers have to hold its monitor for as long as they use it
+    private Collection<Map.Entry<Time,V>> getEntriesBetweenTimes(Time start, Time end, boolean findEntriesAroundBounds){
+        synchronized (resourceHistory) {
+            Time[] cutoffs = getCutoffs(start, end, findEntriesAroundBounds);
+            return resourceHistory.entriesBetween(cutoffs[0], cutoffs[1]);
+        }
+    }
+
+    private Time[] getCutoffs(Time start, Time end, boolean findEntriesAroundBounds) {
         Time begincutoff = start;
         Time finalcutoff = end;
 
         synchronized (resourceHistory) {
             // if findEntriesAroundBounds is set, we need to grab the keys before begin and after end so we don't return nothing if someone searches for a window
             // that is between two nodes that do exist. the filtering logic to exclude them if relevant will be in those methods - this filtering is just for speed
-            if (begincutoff != null) {
-                if (findEntriesAroundBounds) {
-                    begincutoff = resourceHistory.floorKey(begincutoff);
-                    if (begincutoff == null) {
-                        begincutoff = start;
-                    }
+            if (begincutoff != null && findEntriesAroundBounds) {
+                begincutoff = resourceHistory.floorKey(begincutoff);
+                if (begincutoff == null) {
+                    begincutoff = start;
                 }
-                truncatedHistory = truncatedHistory.tailMap(begincutoff, true);
             }
-            if (finalcutoff != null) {
-                if (findEntriesAroundBounds) {
-                    finalcutoff = resourceHistory.ceilingKey(end);
-                    if (finalcutoff == null) {
-                        finalcutoff = end;
-                    }
+            if (finalcutoff != null && findEntriesAroundBounds) {
+                finalcutoff = resourceHistory.ceilingKey(end);
+                if (finalcutoff == null) {
+                    finalcutoff = end;
                 }
-                truncatedHistory = truncatedHistory.headMap(finalcutoff, true);
             }
-            return truncatedHistory.entrySet();
+            return new Time[]{begincutoff, finalcutoff};
         }
     }
 
@@ -509,12 +891,7 @@ public abstract class Resource<V extends Comparable> implements ResourceContaine
      * @return
      */
     public Time firstTimeSet() {
-        if (!resourceHistory.isEmpty()) {
-            return resourceHistory.firstKey();
-        }
-        else {
-            return null;
-        }
+        return readHistory(history -> history.isEmpty() ? null : history.firstKey());
     }
 
     /**
@@ -526,13 +903,7 @@ public abstract class Resource<V extends Comparable> implements ResourceContaine
             return currentLastTime;
         }
         else{
-            synchronized (resourceHistory) {
-                if (!resourceHistory.isEmpty()) {
-                    return resourceHistory.lastKey();
-                } else {
-                    return null;
-                }
-            }
+            return readHistory(history -> history.isEmpty() ? null : history.lastKey());
         }
     }
 
@@ -544,10 +915,10 @@ public abstract class Resource<V extends Comparable> implements ResourceContaine
      */
     public Time priorTimeSet(Time queryTime, boolean inclusive){
         if(inclusive){
-            return resourceHistory.floorKey(queryTime);
+            return readHistory(history -> history.floorKey(queryTime));
         }
         else{
-            return resourceHistory.lowerKey(queryTime);
+            return readHistory(history -> history.lowerKey(queryTime));
         }
     }
 
@@ -559,10 +930,10 @@ public abstract class Resource<V extends Comparable> implements ResourceContaine
      */
     public Time nextTimeSet(Time queryTime, boolean inclusive){
         if(inclusive){
-            return resourceHistory.ceilingKey(queryTime);
+            return readHistory(history -> history.ceilingKey(queryTime));
         }
         else{
-            return resourceHistory.higherKey(queryTime);
+            return readHistory(history -> history.higherKey(queryTime));
         }
     }
 
@@ -575,13 +946,7 @@ public abstract class Resource<V extends Comparable> implements ResourceContaine
             return currentLastValue;
         }
         else{
-            synchronized (resourceHistory) {
-                if (!resourceHistory.isEmpty()) {
-                    return resourceHistory.get(lastTimeSet());
-                } else {
-                    return null;
-                }
-            }
+            return readHistory(history -> history.isEmpty() ? null : history.get(history.lastKey()));
         }
     }
 
@@ -594,6 +959,10 @@ public abstract class Resource<V extends Comparable> implements ResourceContaine
      */
     public Time nextTimeResourceSetToValue(V val, Time queryTime){
         synchronized (resourceHistory) {
+            if (valueIndex != null) {
+                long tics = valueIndex.ceiling(val, queryTime.getTics());
+                return tics == Long.MIN_VALUE ? null : Time.fromTics(tics);
+            }
             Time curr = resourceHistory.ceilingKey(queryTime);
             while (curr != null) {
                 if (resourceHistory.get(curr).equals(val)) {
@@ -614,6 +983,10 @@ public abstract class Resource<V extends Comparable> implements ResourceContaine
      */
     public Time priorTimeResourceSetToValue(V val, Time queryTime){
         synchronized (resourceHistory) {
+            if (valueIndex != null) {
+                long tics = valueIndex.floor(val, queryTime.getTics());
+                return tics == Long.MIN_VALUE ? null : Time.fromTics(tics);
+            }
             Time curr = resourceHistory.floorKey(queryTime);
             while (curr != null) {
                 if (resourceHistory.get(curr).equals(val)) {
@@ -625,12 +998,66 @@ public abstract class Resource<V extends Comparable> implements ResourceContaine
         }
     }
 
+    /**
+     * Returns the windows between the start and end time when the resource equals the value, the same windows
+     * Window.getWindows(whenEqualTo(value), start, end) returns. If the resource is indexed by value, they are found
+     * by jumping between the times it was set to the value instead of going through every node in between.
+     * @param value The value to look for, matched with equals()
+     * @param start The start of the query
+     * @param end The end of the query, which must not be before start
+     * @return The windows, in time order
+     */
+    public Window[] getWindowsWhereEqualTo(V value, Time start, Time end){
+        if (valueIndex == null) {
+            return Window.getWindows(whenEqualTo(value), start, end);
+        }
+        checkQueryBounds("getWindowsWhereEqualTo", start, end);
+        List<Window> windows = new ArrayList<>();
+        long endTics = end.getTics();
+        synchronized (resourceHistory) {
+            long tics = start.getTics();
+            long windowStart = tics;
+            boolean inAWindow = Objects.equals(valueAt(start), value);
+            while (true) {
+                if (inAWindow) {
+                    // the window lasts until the next node with any other value, or the end of the query
+                    Time next = resourceHistory.higherKey(Time.fromTics(tics));
+                    if (next == null || next.getTics() > endTics) {
+                        windows.add(new Window(Time.fromTics(windowStart), end));
+                        break;
+                    }
+                    tics = next.getTics();
+                    if (!Objects.equals(resourceHistory.get(next), value)) {
+                        windows.add(new Window(Time.fromTics(windowStart), next));
+                        inAWindow = false;
+                    }
+                }
+                else {
+                    long next = valueIndex.ceiling(value, tics + 1);
+                    if (next == Long.MIN_VALUE || next > endTics) {
+                        break;
+                    }
+                    tics = next;
+                    windowStart = next;
+                    inAWindow = true;
+                }
+            }
+        }
+        return windows.toArray(new Window[windows.size()]);
+    }
+
     /**
      *     Called by Conditions and other objects in core - not to be used by adapters
-     *     Following Observer design pattern
+     *     Following Observer design pattern. Listeners that implement ResourceChangeListener are called through it
+     *     directly, and any other PropertyChangeListener is sent a PropertyChangeEvent.
      */
     public void addChangeListener(PropertyChangeListener newListener) {
-        listeners.add(newListener);
+        if (listeners.add(newListener)) {
+            listenerArray = listeners.toArray(new PropertyChangeListener[0]);
+            if (newListener instanceof Resource) {
+                ResourceUpdateBatch.listenerGraphChanged();
+            }
+        }
     }
 
     /**
@@ -638,13 +1065,90 @@ public abstract class Resource<V extends Comparable> implements ResourceContaine
      *     Not to be called by adapters.
      */
     public void removeChangeListener(PropertyChangeListener toBeRemoved) {
-        listeners.remove(toBeRemoved);
+        if (listeners.remove(toBeRemoved)) {
+            listenerArray = listeners.toArray(new PropertyChangeListener[0]);
+            if (toBeRemoved instanceof Resource) {
+                ResourceUpdateBatch.listenerGraphChanged();
+            }
+        }
+    }
+
+    /**
+     *     Used by the engine to find everything a change to this resource reaches.
+     *     Not to be called by adapters.
+     */
+    public Set<PropertyChangeListener> getChangeListeners() {
+        return Collections.unmodifiableSet(listeners);
     }
 
-    private void notifyListeners(Map.Entry<Time, V> oldValue, Map.Entry<Time, V> newValue) {
-        for (PropertyChangeListener name : listeners) {
-            name.propertyChange(new PropertyChangeEvent(this, "ResourceValue", oldValue, newValue));
+    /**
+     * Called by ResourceUpdateBatch when it is flushed, to notify the listeners that aren't resources of every change
+     * to this resource since oldTime
+     */
+    void notifyBatched(Time oldTime, V oldValue) {
+        if (ModelingProfiler.isEnabled()) {
+            long notifyStart = System.nanoTime();
+            notifyListeners(oldTime, oldValue, currentLastTime, currentLastValue, false);
+            ModelingProfiler.resourceListenersNotified(this, System.nanoTime() - notifyStart);
+        }
+        else {
+            notifyListeners(oldTime, oldValue, currentLastTime, currentLastValue, false);
+        }
+    }
+
+    /**
+     * Called by ResourceUpdateBatch when it is flushed, to notify one resource listening to this one of every change
+     * to this resource since oldTime
+     */
+    void notifyBatchedListener(PropertyChangeListener listener, Time oldTime, V oldValue) {
+        if (ModelingProfiler.isEnabled()) {
+            long notifyStart = System.nanoTime();
+            notifyListener(listener, oldTime, oldValue, currentLastTime, currentLastValue, null, true);
+            ModelingProfiler.resourceListenersNotified(this, System.nanoTime() - notifyStart);
+        }
+        else {
+            notifyListener(listener, oldTime, oldValue, currentLastTime, currentLastValue, null, false);
+        }
+    }
+
+    /**
+     * @return the listeners of this resource, which the caller must not change
+     */
+    PropertyChangeListener[] listenerArray() {
+        return listenerArray;
+    }
+
+    private void notifyListeners(Time oldTime, V oldValue, Time newTime, V newValue) {
+        notifyListeners(oldTime, oldValue, newTime, newValue, true);
+    }
+
+    private void notifyListeners(Time oldTime, V oldValue, Time newTime, V newValue, boolean resourceListeners) {
+        boolean profiling = ModelingProfiler.isEnabled();
+        // only built if there is a listener that still takes events, and then shared by all of them
+        PropertyChangeEvent event = null;
+        for (PropertyChangeListener listener : listenerArray) {
+            if (resourceListeners || !(listener instanceof Resource)) {
+                event = notifyListener(listener, oldTime, oldValue, newTime, newValue, event, profiling);
+            }
+        }
+    }
+
+    // returns the event it sent the listener, if it had to build one, so the next listener can be sent the same one
+    private PropertyChangeEvent notifyListener(PropertyChangeListener listener, Time oldTime, V oldValue, Time newTime, V newValue, PropertyChangeEvent event, boolean profiling) {
+        long listenerStart = profiling ? System.nanoTime() : 0;
+        if (listener instanceof ResourceChangeListener) {
+            ((ResourceChangeListener<V>) listener).resourceChanged(this, oldTime, oldValue, newTime, newValue);
+        }
+        else {
+            if (event == null) {
+                event = new PropertyChangeEvent(this, "ResourceValue", new AbstractMap.SimpleImmutableEntry<>(oldTime, oldValue), new AbstractMap.SimpleImmutableEntry<>(newTime, newValue));
+            }
+            listener.propertyChange(event);
+        }
+        if (profiling) {
+            ModelingProfiler.listenerNotified(listener, System.nanoTime() - listenerStart);
         }
+        return event;
     }
 
     /**
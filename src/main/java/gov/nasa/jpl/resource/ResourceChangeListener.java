@@ -0,0 +1,42 @@
+package gov.nasa.jpl.resource;
+
+import gov.nasa.jpl.time.Time;
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.util.Map;
+
+/**
+ * This interface is implemented by objects that listen to resources changing, like Conditions' schedulers,
+ * constraints and resources that follow other resources. A resource calls resourceChanged() directly with the
+ * old and new times and values, instead of wrapping them in Map.Entry objects and a PropertyChangeEvent for
+ * every listener, so nothing is allocated each time a resource is set.
+ *
+ * It extends PropertyChangeListener so these listeners are registered with Resource.addChangeListener() like
+ * any other, and anything still notifying them with a PropertyChangeEvent is adapted by propertyChange().
+ *
+ * @param <V> the type of the resources this listens to
+ */
+public interface ResourceChangeListener<V extends Comparable> extends PropertyChangeListener {
+
+    /**
+     * Called by a resource after it is set.
+     * @param source the resource that changed
+     * @param oldTime the time the resource was last set before this change, or null if it hadn't been
+     * @param oldValue the value the resource had at oldTime, or null if it hadn't been set
+     * @param newTime the time the resource was set at
+     * @param newValue the value the resource was set to
+     */
+    void resourceChanged(Resource<V> source, Time oldTime, V oldValue, Time newTime, V newValue);
+
+    /**
+     * Compatibility adapter for events in the form resources used to send them, with Map.Entry objects of time and
+     * value as the old and new values
+     */
+    @Override
+    default void propertyChange(PropertyChangeEvent evt) {
+        Map.Entry<Time, V> oldEntry = (Map.Entry<Time, V>) evt.getOldValue();
+        Map.Entry<Time, V> newEntry = (Map.Entry<Time, V>) evt.getNewValue();
+        resourceChanged((Resource<V>) evt.getSource(), oldEntry.getKey(), oldEntry.getValue(), newEntry.getKey(), newEntry.getValue());
+    }
+}
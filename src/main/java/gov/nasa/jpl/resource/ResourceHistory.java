@@ -0,0 +1,189 @@
+package gov.nasa.jpl.resource;
+
+import gov.nasa.jpl.time.Time;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * The data structure a Resource keeps its (Time, value) history in. Resource subclasses pick their backend
+ * by overriding Resource.createResourceHistory() - the default is TreeMapResourceHistory, which works for any
+ * value type, while the primitive resources use array-backed histories that store tics and values unboxed.
+ * Histories are not thread-safe on their own; Resource synchronizes on the history object around every write and
+ * most reads. Backends whose lookups can safely race a write say so with supportsOptimisticReads(), and Resource
+ * reads those without the lock when no write is in progress.
+ * @param <V> The type of value the owning Resource holds
+ */
+public abstract class ResourceHistory<V> {
+
+    /**
+     * @return number of (Time, value) nodes in the history
+     */
+    public abstract int size();
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Adds a node to the history, replacing the value if there is already a node at exactly this time.
+     * Histories are optimized for nodes arriving in time order, which is what modeling and file reading do.
+     */
+    public abstract void put(Time t, V value);
+
+    /**
+     * Removes every node in the history
+     */
+    public abstract void clear();
+
+    /**
+     * Removes every node at or after time t, keeping the ones before it
+     */
+    public abstract void truncateFrom(Time t);
+
+    /**
+     * @return the value at exactly time t, or null if there is no node at t
+     */
+    public abstract V get(Time t);
+
+    public abstract boolean containsKey(Time t);
+
+    /**
+     * @return the latest node time at or before t, or null if there is none
+     */
+    public abstract Time floorKey(Time t);
+
+    /**
+     * @return the earliest node time at or after t, or null if there is none
+     */
+    public abstract Time ceilingKey(Time t);
+
+    /**
+     * @return the latest node time strictly before t, or null if there is none
+     */
+    public abstract Time lowerKey(Time t);
+
+    /**
+     * @return the earliest node time strictly after t, or null if there is none
+     */
+    public abstract Time higherKey(Time t);
+
+    /**
+     * @return the first node time, throwing NoSuchElementException if the history is empty
+     */
+    public abstract Time firstKey();
+
+    /**
+     * @return the last node time, throwing NoSuchElementException if the history is empty
+     */
+    public abstract Time lastKey();
+
+    /**
+     * Returns the nodes between the two times, both inclusive, in time order. The returned collection is a view
+     * backed by the history, like the sub-map views of a TreeMap.
+     * @param start earliest time to include, or null to start at the beginning of the history
+     * @param end latest time to include, or null to go to the end of the history
+     */
+    public abstract Collection<Map.Entry<Time, V>> entriesBetween(Time start, Time end);
+
+    /**
+     * Same nodes as entriesBetween(), but as a snapshot that later changes to the history don't show up in, so it
+     * can still be walked after the lock on the history is released. The default copies the nodes into a list;
+     * backends override this when they can share their storage instead.
+     */
+    public Collection<Map.Entry<Time, V>> snapshotBetween(Time start, Time end) {
+        return new ArrayList<>(entriesBetween(start, end));
+    }
+
+    /**
+     * Adds every node in the run, the same as calling put() for each of them in order. Backends override this
+     * when they can add a run that comes after all of their nodes faster than that.
+     */
+    public void putRun(HistoryRun<V> run) {
+        for (int i = 0; i < run.size(); i++) {
+            put(Time.fromTics(run.ticsAt(i)), run.valueAt(i));
+        }
+    }
+
+    /**
+     * Same nodes as entriesBetween(), but walked with a cursor so callers that only need the time and value
+     * of each node don't have to go through Map.Entry objects. Backends override this when they can do better
+     * than wrapping the entries.
+     */
+    Cursor<V> cursorBetween(Time start, Time end) {
+        return new EntryCursor<>(entriesBetween(start, end).iterator());
+    }
+
+    /**
+     * Same nodes as snapshotBetween(), walked with a cursor
+     */
+    Cursor<V> snapshotCursorBetween(Time start, Time end) {
+        return new EntryCursor<>(snapshotBetween(start, end).iterator());
+    }
+
+    /**
+     * @return true if size(), get() and the key lookups can run while a write is in progress without looping
+     * forever or changing anything. They may then return garbage or throw a RuntimeException, so a caller reading
+     * this way has to check afterwards that no write happened, and read again under the lock if one did
+     */
+    boolean supportsOptimisticReads() {
+        return false;
+    }
+
+    /**
+     * Walks a range of nodes in time order. It starts before the first node, so advance() has to be called before
+     * reading anything.
+     */
+    abstract static class Cursor<V> {
+        /**
+         * Moves to the next node
+         * @return false if there are no more nodes, in which case the cursor must not be read again
+         */
+        abstract boolean advance();
+
+        abstract long tics();
+
+        abstract Time time();
+
+        abstract V value();
+
+        abstract Map.Entry<Time, V> entry();
+    }
+
+    private static class EntryCursor<V> extends Cursor<V> {
+        private final Iterator<Map.Entry<Time, V>> entries;
+        private Map.Entry<Time, V> current;
+
+        EntryCursor(Iterator<Map.Entry<Time, V>> entries) {
+            this.entries = entries;
+        }
+
+        @Override
+        boolean advance() {
+            current = entries.hasNext() ? entries.next() : null;
+            return current != null;
+        }
+
+        @Override
+        long tics() {
+            return current.getKey().getTics();
+        }
+
+        @Override
+        Time time() {
+            return current.getKey();
+        }
+
+        @Override
+        V value() {
+            return current.getValue();
+        }
+
+        @Override
+        Map.Entry<Time, V> entry() {
+            return current;
+        }
+    }
+}
@@ -41,6 +41,18 @@ public class ResourceList {
         }
     }
 
+    /*
+     * to be used before an incremental REMODEL, which replays the plan starting at the given time
+     */
+    public void truncateResourceHistoriesFrom(Time t) {
+        for (Resource r : allResourceInstances.values()) {
+            // frozen resources were read in from a file and are not changed by modeling
+            if (!r.isFrozen()) {
+                r.truncateHistoryFrom(t);
+            }
+        }
+    }
+
     /*
      * Before modeling loop happens, all resources get set to their profile at the first activity start time
      * (since resources can't be set by an activity before it starts)
@@ -0,0 +1,206 @@
+package gov.nasa.jpl.resource;
+
+import gov.nasa.jpl.engine.ModelingEngine;
+import gov.nasa.jpl.time.Time;
+
+import java.beans.PropertyChangeListener;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Collects the changes to resources made while one Waiter runs, so their listeners are notified once per resource
+ * when it is done instead of once per set(). When the batch is flushed, resources that listen to other resources
+ * (like SumDoubleResource and IntegratingResource) are notified first, upstream resources before the ones that
+ * follow them. Each of them is notified once, after every resource it follows has its final value, however many of
+ * those changed, so a resource following several others recomputes and sets itself once. Only once every resource
+ * has its final value are the other listeners - conditions, constraints and schedulers - notified, so none of them
+ * sees a mix of old and new values. Nodes are still written to histories
+ * when set() is called, so valueAt() and currentval() of the resource that was set see the new value right away.
+ *
+ * Turned on and off with ModelingEngine.setBatchingResourceUpdates(). Every engine flushes the batch after each
+ * Waiter it runs and before an activity waits. Each thread has its own batch, since the engines that run activities
+ * on several threads only ever let one of them model a given resource at a time.
+ */
+public final class ResourceUpdateBatch {
+    private static volatile boolean enabled = false;
+    // bumped whenever a resource starts or stops listening to another, so cached heights get recomputed
+    private static volatile int listenerGraphVersion = 0;
+    private static final ThreadLocal<ResourceUpdateBatch> currentBatch = ThreadLocal.withInitial(ResourceUpdateBatch::new);
+
+    // resources set since the last flush, with the time and value each had before its first set in the batch
+    private final Map<Resource, Pending> pending = new IdentityHashMap<>();
+    // resources listening to a resource in the batch that haven't been notified yet, with the change to tell them of
+    private final Map<PropertyChangeListener, Pending> listenerCalls = new IdentityHashMap<>();
+    private final PriorityQueue<Pending> order = new PriorityQueue<>();
+    private long nextSequenceNumber = 0;
+    private boolean flushing = false;
+
+    // how many resources deep the resources listening to each resource go, for the resources seen so far
+    private final Map<Resource, Integer> heights = new IdentityHashMap<>();
+    private int heightsVersion = -1;
+
+    private ResourceUpdateBatch() {
+    }
+
+    /**
+     * Should only be called through ModelingEngine.setBatchingResourceUpdates()
+     */
+    public static void setEnabled(boolean batching) {
+        enabled = batching;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Notifies the listeners of every resource set on this thread since the last flush. Called by the engines, not
+     * by adapters.
+     */
+    public static void flush() {
+        ResourceUpdateBatch batch = currentBatch.get();
+        if (batch.pending.isEmpty() || batch.flushing) {
+            return;
+        }
+        batch.flushing = true;
+        try {
+            batch.propagate();
+        }
+        finally {
+            batch.flushing = false;
+            batch.pending.clear();
+            batch.listenerCalls.clear();
+            batch.order.clear();
+        }
+    }
+
+    /**
+     * Called by Resource.set() after it puts the new node in its history
+     * @return true if the resource's listeners will be notified when the batch is flushed, false if the resource
+     * has to notify them itself
+     */
+    static boolean defer(Resource resource, Time oldTime, Comparable oldValue) {
+        if (!enabled || !ModelingEngine.getEngine().isModeling()) {
+            return false;
+        }
+        currentBatch.get().add(resource, oldTime, oldValue);
+        return true;
+    }
+
+    /**
+     * Called by Resource when a resource starts or stops listening to another one
+     */
+    static void listenerGraphChanged() {
+        listenerGraphVersion++;
+    }
+
+    private void add(Resource resource, Time oldTime, Comparable oldValue) {
+        if (!pending.containsKey(resource)) {
+            Pending p = new Pending(resource, oldTime, oldValue, null, height(resource), nextSequenceNumber++);
+            pending.put(resource, p);
+            order.add(p);
+        }
+    }
+
+    private void propagate() {
+        while (!order.isEmpty()) {
+            // resources that follow other resources set themselves as they are notified, which adds them to the batch
+            Map<Resource, Pending> notified = new LinkedHashMap<>();
+            while (!order.isEmpty()) {
+                Pending next = order.poll();
+                if (next.listener != null) {
+                    // everything it follows is higher up, so has already been notified and won't change again
+                    listenerCalls.remove(next.listener);
+                    next.resource.notifyBatchedListener(next.listener, next.oldTime, next.oldValue);
+                }
+                else {
+                    pending.remove(next.resource);
+                    queueResourceListeners(next);
+                    notified.putIfAbsent(next.resource, next);
+                }
+            }
+            // every resource now has its final value, so everything else can look at any of them. If one of these sets a
+            // resource, we go around again
+            for (Pending p : notified.values()) {
+                p.resource.notifyBatched(p.oldTime, p.oldValue);
+            }
+        }
+    }
+
+    // a resource listening to more than one resource in the batch is only queued once, and told of the latest change
+    private void queueResourceListeners(Pending changed) {
+        for (PropertyChangeListener listener : changed.resource.listenerArray()) {
+            if (!(listener instanceof Resource)) {
+                continue;
+            }
+            Pending call = listenerCalls.get(listener);
+            if (call == null) {
+                call = new Pending(changed.resource, changed.oldTime, changed.oldValue, listener, height((Resource) listener), nextSequenceNumber++);
+                listenerCalls.put(listener, call);
+                order.add(call);
+            }
+            else {
+                call.resource = changed.resource;
+                call.oldTime = changed.oldTime;
+                call.oldValue = changed.oldValue;
+            }
+        }
+    }
+
+    // 0 for a resource no resource listens to, otherwise one more than the highest resource listening to it
+    private int height(Resource resource) {
+        if (heightsVersion != listenerGraphVersion) {
+            heights.clear();
+            heightsVersion = listenerGraphVersion;
+        }
+        Integer known = heights.get(resource);
+        if (known != null) {
+            return known;
+        }
+        // a resource that eventually listens to itself is cut off here instead of recursing forever
+        heights.put(resource, 0);
+        int height = 0;
+        List<PropertyChangeListener> listeners = new ArrayList<>(resource.getChangeListeners());
+        for (PropertyChangeListener listener : listeners) {
+            if (listener instanceof Resource) {
+                height = Math.max(height, 1 + height((Resource) listener));
+            }
+        }
+        heights.put(resource, height);
+        return height;
+    }
+
+    // a resource whose listeners have to be notified, or, if listener isn't null, one resource listening to it
+    private static final class Pending implements Comparable<Pending> {
+        private Resource resource;
+        private Time oldTime;
+        private Comparable oldValue;
+        private final PropertyChangeListener listener;
+        private final int height;
+        private final long sequenceNumber;
+
+        private Pending(Resource resource, Time oldTime, Comparable oldValue, PropertyChangeListener listener, int height, long sequenceNumber) {
+            this.resource = resource;
+            this.oldTime = oldTime;
+            this.oldValue = oldValue;
+            this.listener = listener;
+            this.height = height;
+            this.sequenceNumber = sequenceNumber;
+        }
+
+        // highest first, so a resource is notified before anything that follows it, then listeners before the resources
+        // they might set, then in the order they were queued
+        @Override
+        public int compareTo(Pending o) {
+            int ret = Integer.compare(o.height, height);
+            if (ret == 0) {
+                ret = Boolean.compare(o.listener != null, listener != null);
+            }
+            return ret != 0 ? ret : Long.compare(sequenceNumber, o.sequenceNumber);
+        }
+    }
+}
@@ -1,10 +1,9 @@
 package gov.nasa.jpl.resource;
 
 import java.util.AbstractMap;
-import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map.Entry;
+import java.util.NoSuchElementException;
 
 import gov.nasa.jpl.time.Time;
 
@@ -12,89 +11,163 @@ import gov.nasa.jpl.time.Time;
  * This iterates in time order over all the resources handed to it in the constructor
  * We can't just use Guava's multi-iterator because instead of needing the &lt;Time, Value&gt;
  * pair, we need the Resource,Entry&lt;Time, V&gt; triple for XMLTOL and condition checking
+ *
+ * The resources are merged with a binary min-heap of resource indices keyed by the tics of each resource's next
+ * node, so each step is O(log n) in the number of resources instead of a scan over all of them. Nodes at the same
+ * time come out in the order their resources were given in the constructor.
+ *
+ * There are two ways to walk it. next() and peek() hand out entries like before. Internal callers that write
+ * or evaluate every node should use the cursor methods instead - advance() and then currentResource(),
+ * currentTics(), currentValue() etc. - which don't create any entry objects.
  */
 public class ResourcesIterator<V extends Comparable>{
-    private List<Resource> resList;
-    private ArrayList<Entry<Time, V>> allNextEntries;
-    private ArrayList allIterators;
+    private final Resource[] resources;
+    private final ResourceHistory.Cursor<V>[] cursors;
+
+    // indices into resources of every resource that has nodes left, as a min-heap on (tics of next node, index)
+    private final int[] heap;
+    private int heapSize;
+
+    // the node the cursor is on, copied out because its history cursor has already moved on
+    private int currentIndex = -1;
+    private long currentTics;
+    private V currentValue;
 
     public ResourcesIterator(List<Resource> resList, Time beginTime, Time endTime) {
-        this.resList = resList;
-
-        // set up list to store next entry of each resource
-        this.allNextEntries = new ArrayList<Entry<Time, V>>();
-        this.allIterators = new ArrayList<Iterator<Entry<Time, V>>>();
-        for (int i = 0; i < resList.size(); i++) {
-            this.allIterators.add(resList.get(i).historyIterator(beginTime, endTime));
-            if (((Iterator<Entry<Time, V>>) this.allIterators.get(i)).hasNext()) {
-                this.allNextEntries.add(((Iterator<Entry<Time, V>>) this.allIterators.get(i)).next());
-            }
-            else {
-                this.allNextEntries.add(null);
+        int n = resList.size();
+        this.resources = resList.toArray(new Resource[n]);
+        this.cursors = new ResourceHistory.Cursor[n];
+        this.heap = new int[n];
+        this.heapSize = 0;
+
+        for (int i = 0; i < n; i++) {
+            cursors[i] = resources[i].historyCursor(beginTime, endTime);
+            if (cursors[i].advance()) {
+                heap[heapSize++] = i;
             }
         }
+        for (int i = heapSize / 2 - 1; i >= 0; i--) {
+            siftDown(i);
+        }
     }
 
     /*
-     * loops through all next entries to see if they are null
+     * O(1) check of whether any resource has nodes left
      */
     public boolean hasNext() {
-        for (int i = 0; i < resList.size(); i++) {
-            if (allNextEntries.get(i) != null) {
-                return true;
-            }
-        }
-        return false;
+        return heapSize > 0;
     }
 
     /*
      * @return <Time, Resource> pair of next time and Resource that gets used at that Time
      */
     public Entry<Resource, Entry<Time, V>> next() {
-        int nextIndex = -1;
-        Time earliestTime = Time.MAX_TIME;
-        V nextVal = null;
-        Resource toReturn = null;
-        for (int i = 0; i < resList.size(); i++) {
-            if (allNextEntries.get(i) != null && allNextEntries.get(i).getKey().lessThan(earliestTime)) {
-                earliestTime = allNextEntries.get(i).getKey();
-                nextVal = allNextEntries.get(i).getValue();
-                nextIndex = i;
-            }
-        }
-        toReturn = resList.get(nextIndex);
-        if (((Iterator) allIterators.get(nextIndex)).hasNext()) {
-            Entry<Time, V> entryToExamine = ((Iterator<Entry<Time, V>>) this.allIterators.get(nextIndex)).next();
-            allNextEntries.set(nextIndex, entryToExamine);
+        if (heapSize == 0) {
+            throw new NoSuchElementException("Tried to iterate past end of all resource histories");
         }
-        else {
-            allNextEntries.set(nextIndex, null);
-        }
-        return new AbstractMap.SimpleImmutableEntry(toReturn, new AbstractMap.SimpleImmutableEntry<Time, V>(earliestTime, nextVal));
+        int resourceIndex = heap[0];
+        Entry<Resource, Entry<Time, V>> toReturn = new AbstractMap.SimpleImmutableEntry(resources[resourceIndex], cursors[resourceIndex].entry());
+        stepTopOfHeap();
+        return toReturn;
     }
 
     public Entry<Resource, Entry<Time, V>> peek() {
-        int nextIndex = -1;
-        Time earliestTime = Time.MAX_TIME;
-        V nextVal = null;
-        Resource toReturn = null;
-        for (int i = 0; i < resList.size(); i++) {
-            if (allNextEntries.get(i) != null && allNextEntries.get(i).getKey().lessThan(earliestTime)) {
-                earliestTime = allNextEntries.get(i).getKey();
-                nextVal = allNextEntries.get(i).getValue();
-                nextIndex = i;
-            }
-        }
         // if we couldn't find any entries next, return null
-        if (nextIndex == -1) {
+        if (heapSize == 0) {
             return null;
         }
-        toReturn = resList.get(nextIndex);
-        return new AbstractMap.SimpleImmutableEntry(toReturn, new AbstractMap.SimpleImmutableEntry<Time, V>(earliestTime, nextVal));
+        return new AbstractMap.SimpleImmutableEntry(resources[heap[0]], cursors[heap[0]].entry());
     }
 
     public void remove() {
         // no-op
     }
 
+    /**
+     * Moves the cursor to the next node across all resources
+     * @return false if there were no nodes left, in which case the current* methods must not be called
+     */
+    public boolean advance() {
+        if (heapSize == 0) {
+            currentIndex = -1;
+            return false;
+        }
+        currentIndex = heap[0];
+        currentTics = cursors[currentIndex].tics();
+        currentValue = cursors[currentIndex].value();
+        stepTopOfHeap();
+        return true;
+    }
+
+    /**
+     * @return the tics of the node the next advance() will land on, or Long.MAX_VALUE if there are none left
+     */
+    public long peekTics() {
+        return heapSize > 0 ? cursors[heap[0]].tics() : Long.MAX_VALUE;
+    }
+
+    /**
+     * @return the index, in the list given to the constructor, of the resource of the node the cursor is on
+     */
+    public int currentResourceIndex() {
+        return currentIndex;
+    }
+
+    public Resource currentResource() {
+        return resources[currentIndex];
+    }
+
+    public long currentTics() {
+        return currentTics;
+    }
+
+    public Time currentTime() {
+        return Time.fromTics(currentTics);
+    }
+
+    public V currentValue() {
+        return currentValue;
+    }
+
+    /**
+     * Moves the history cursor of the resource on top of the heap to its next node and restores the heap,
+     * dropping the resource if it has run out of nodes
+     */
+    private void stepTopOfHeap() {
+        if (!cursors[heap[0]].advance()) {
+            heap[0] = heap[--heapSize];
+        }
+        if (heapSize > 0) {
+            siftDown(0);
+        }
+    }
+
+    private void siftDown(int position) {
+        int resourceIndex = heap[position];
+        long tics = cursors[resourceIndex].tics();
+        while (true) {
+            int child = 2 * position + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            long childTics = cursors[heap[child]].tics();
+            if (child + 1 < heapSize) {
+                long rightTics = cursors[heap[child + 1]].tics();
+                if (comesBefore(rightTics, heap[child + 1], childTics, heap[child])) {
+                    child++;
+                    childTics = rightTics;
+                }
+            }
+            if (!comesBefore(childTics, heap[child], tics, resourceIndex)) {
+                break;
+            }
+            heap[position] = heap[child];
+            position = child;
+        }
+        heap[position] = resourceIndex;
+    }
+
+    private static boolean comesBefore(long tics, int resourceIndex, long otherTics, int otherResourceIndex) {
+        return tics < otherTics || (tics == otherTics && resourceIndex < otherResourceIndex);
+    }
 }
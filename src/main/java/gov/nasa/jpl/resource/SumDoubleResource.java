@@ -3,11 +3,7 @@ package gov.nasa.jpl.resource;
 import gov.nasa.jpl.engine.AdaptationException;
 import gov.nasa.jpl.time.Time;
 
-import java.beans.PropertyChangeEvent;
-import java.beans.PropertyChangeListener;
-import java.util.Map;
-
-public class SumDoubleResource extends Resource<Double> implements PropertyChangeListener {
+public class SumDoubleResource extends Resource<Double> implements DoubleResourceChangeListener {
     Resource one;
     Resource two;
 
@@ -43,13 +39,13 @@ public class SumDoubleResource extends Resource<Double> implements PropertyChang
     }
 
     @Override
-    public void propertyChange(PropertyChangeEvent evt) {
-        // if the first resource we're tracking emitted the event, take its newValue and add it to currentval of other
-        if (evt.getSource() == one) {
-            set(((Map.Entry<Time, Double>) evt.getNewValue()).getValue() + (Double) two.currentval());
+    public void doubleChanged(Resource<Double> source, Time oldTime, double oldValue, Time newTime, double newValue) {
+        // if the first resource we're tracking changed, take its new value and add it to currentval of other
+        if (source == one) {
+            set(newValue + (Double) two.currentval());
         }
         else {
-            set(((Map.Entry<Time, Double>) evt.getNewValue()).getValue() + (Double) one.currentval());
+            set(newValue + (Double) one.currentval());
         }
     }
 }
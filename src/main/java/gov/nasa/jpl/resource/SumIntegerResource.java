@@ -1,13 +1,9 @@
 package gov.nasa.jpl.resource;
 
-import java.beans.PropertyChangeEvent;
-import java.beans.PropertyChangeListener;
-import java.util.Map;
-
 import gov.nasa.jpl.engine.AdaptationException;
 import gov.nasa.jpl.time.Time;
 
-public class SumIntegerResource extends Resource<Integer> implements PropertyChangeListener {
+public class SumIntegerResource extends Resource<Integer> implements LongResourceChangeListener<Integer> {
     Resource one;
     Resource two;
 
@@ -43,13 +39,13 @@ public class SumIntegerResource extends Resource<Integer> implements PropertyCha
     }
 
     @Override
-    public void propertyChange(PropertyChangeEvent evt) {
-        // if the first resource we're tracking emitted the event, take its newValue and add it to currentval of other
-        if (evt.getSource() == one) {
-            set(((Map.Entry<Time, Integer>) evt.getNewValue()).getValue() + (Integer) two.currentval());
+    public void longChanged(Resource<Integer> source, Time oldTime, long oldValue, Time newTime, long newValue) {
+        // if the first resource we're tracking changed, take its new value and add it to currentval of other
+        if (source == one) {
+            set((int) newValue + (Integer) two.currentval());
         }
         else {
-            set(((Map.Entry<Time, Integer>) evt.getNewValue()).getValue() + (Integer) one.currentval());
+            set((int) newValue + (Integer) one.currentval());
         }
     }
 }
@@ -34,6 +34,11 @@ public class TimeResource extends Resource<Time> {
         return profile;
     }
 
+    @Override
+    protected ResourceHistory<Time> createResourceHistory() {
+        return LongArrayResourceHistory.forTimes();
+    }
+
     @Override
     public void update() {
         set(currentval());
@@ -0,0 +1,209 @@
+package gov.nasa.jpl.resource;
+
+import gov.nasa.jpl.time.Time;
+
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * The general-purpose ResourceHistory, which can hold any value type, backed by a TreeMap.
+ *
+ * Snapshots don't copy the map each time one is taken. The first one copies the nodes into arrays, which later
+ * snapshots share, and nodes appended to the history after that are appended to the arrays too, so taking a
+ * snapshot while modeling is a binary search. Like ArrayResourceHistory, each snapshot keeps its own copy of its
+ * last node so that node can be overwritten in place. Any other change drops the arrays, and the next snapshot
+ * copies the nodes again.
+ * @param <V> The type of value the owning Resource holds
+ */
+public class TreeMapResourceHistory<V> extends ResourceHistory<V> {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final TreeMap<Time, V> history = new TreeMap<>();
+
+    // the nodes in time order for snapshots to share, or null if no snapshot has been taken since the last change
+    // that wasn't appending or overwriting the last node
+    private Time[] publishedTimes;
+    Object[] publishedValues;
+    private int publishedCount;
+
+    @Override
+    public int size() {
+        return history.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return history.isEmpty();
+    }
+
+    @Override
+    public void put(Time t, V value) {
+        history.put(t, value);
+        if (publishedTimes == null) {
+            return;
+        }
+        int last = publishedCount - 1;
+        if (last >= 0 && t.equals(publishedTimes[last])) {
+            // snapshots that end at this node have their own copy of it
+            publishedValues[last] = value;
+        }
+        else if (last < 0 || t.compareTo(publishedTimes[last]) > 0) {
+            if (publishedCount == publishedTimes.length) {
+                int newCapacity = Math.max(INITIAL_CAPACITY, publishedCount + (publishedCount >> 1));
+                publishedTimes = Arrays.copyOf(publishedTimes, newCapacity);
+                publishedValues = Arrays.copyOf(publishedValues, newCapacity);
+            }
+            publishedTimes[publishedCount] = t;
+            publishedValues[publishedCount] = value;
+            publishedCount++;
+        }
+        else {
+            // snapshots can see the node this changes
+            dropPublishedNodes();
+        }
+    }
+
+    @Override
+    public void clear() {
+        history.clear();
+        dropPublishedNodes();
+    }
+
+    @Override
+    public void truncateFrom(Time t) {
+        history.tailMap(t, true).clear();
+        // appending after this would write over nodes that snapshots can see
+        dropPublishedNodes();
+    }
+
+    @Override
+    public V get(Time t) {
+        return history.get(t);
+    }
+
+    @Override
+    public boolean containsKey(Time t) {
+        return history.containsKey(t);
+    }
+
+    @Override
+    public Time floorKey(Time t) {
+        return history.floorKey(t);
+    }
+
+    @Override
+    public Time ceilingKey(Time t) {
+        return history.ceilingKey(t);
+    }
+
+    @Override
+    public Time lowerKey(Time t) {
+        return history.lowerKey(t);
+    }
+
+    @Override
+    public Time higherKey(Time t) {
+        return history.higherKey(t);
+    }
+
+    @Override
+    public Time firstKey() {
+        return history.firstKey();
+    }
+
+    @Override
+    public Time lastKey() {
+        return history.lastKey();
+    }
+
+    @Override
+    public Collection<Map.Entry<Time, V>> entriesBetween(Time start, Time end) {
+        NavigableMap<Time, V> truncatedHistory = history;
+        if (start != null) {
+            truncatedHistory = truncatedHistory.tailMap(start, true);
+        }
+        if (end != null) {
+            truncatedHistory = truncatedHistory.headMap(end, true);
+        }
+        return truncatedHistory.entrySet();
+    }
+
+    @Override
+    public Collection<Map.Entry<Time, V>> snapshotBetween(Time start, Time end) {
+        if (publishedTimes == null) {
+            publishedCount = history.size();
+            int capacity = Math.max(INITIAL_CAPACITY, publishedCount + (publishedCount >> 1));
+            publishedTimes = new Time[capacity];
+            publishedValues = new Object[capacity];
+            int i = 0;
+            for (Map.Entry<Time, V> entry : history.entrySet()) {
+                publishedTimes[i] = entry.getKey();
+                publishedValues[i] = entry.getValue();
+                i++;
+            }
+        }
+        int from = start == null ? 0 : ceilingIndex(start);
+        int to = end == null ? publishedCount - 1 : floorIndex(end);
+        if (to < from) {
+            return Collections.emptyList();
+        }
+        return new SnapshotView(publishedTimes, publishedValues, from, to + 1, (V) publishedValues[to]);
+    }
+
+    private void dropPublishedNodes() {
+        publishedTimes = null;
+        publishedValues = null;
+        publishedCount = 0;
+    }
+
+    private int ceilingIndex(Time t) {
+        int index = Arrays.binarySearch(publishedTimes, 0, publishedCount, t);
+        return index >= 0 ? index : -(index + 1);
+    }
+
+    private int floorIndex(Time t) {
+        int index = Arrays.binarySearch(publishedTimes, 0, publishedCount, t);
+        return index >= 0 ? index : -(index + 1) - 1;
+    }
+
+    /**
+     * Read-only view of the nodes in [from, to) of the published arrays it was created with, that creates entries
+     * as they are accessed
+     */
+    private class SnapshotView extends AbstractList<Map.Entry<Time, V>> {
+        private final Time[] times;
+        private final Object[] values;
+        private final int from;
+        private final int to;
+        // the last node's value when the snapshot was taken, since it may have been overwritten since
+        private final V lastValue;
+
+        SnapshotView(Time[] times, Object[] values, int from, int to, V lastValue) {
+            this.times = times;
+            this.values = values;
+            this.from = from;
+            this.to = to;
+            this.lastValue = lastValue;
+        }
+
+        @Override
+        public Map.Entry<Time, V> get(int index) {
+            if (index < 0 || from + index >= to) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+            }
+            V value = from + index == to - 1 ? lastValue : (V) values[from + index];
+            return new AbstractMap.SimpleImmutableEntry<>(times[from + index], value);
+        }
+
+        @Override
+        public int size() {
+            return to - from;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package gov.nasa.jpl.resource;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * For each value a resource has been set to, the sorted tics of every node with that value - an inverted index of
+ * its history. Resources with a handful of values, like modes and flags, use it to find the next or prior time they
+ * were set to a value with a binary search instead of stepping through every node in between.
+ * Values are matched with equals() and hashCode(). Not synchronized - Resource holds the history's lock around it.
+ */
+final class ValueTimeIndex<V> {
+    private final Map<V, Times> timesByValue = new HashMap<>();
+
+    void add(V value, long tics) {
+        timesByValue.computeIfAbsent(value, v -> new Times()).add(tics);
+    }
+
+    void remove(V value, long tics) {
+        Times times = timesByValue.get(value);
+        if (times != null) {
+            times.remove(tics);
+        }
+    }
+
+    void truncateFrom(long tics) {
+        for (Times times : timesByValue.values()) {
+            times.size = times.ceilingIndex(tics);
+        }
+    }
+
+    void clear() {
+        timesByValue.clear();
+    }
+
+    /**
+     * @return the earliest tics at or after the given tics when the value was set, or Long.MIN_VALUE if there is none
+     */
+    long ceiling(V value, long tics) {
+        Times times = timesByValue.get(value);
+        if (times == null) {
+            return Long.MIN_VALUE;
+        }
+        int index = times.ceilingIndex(tics);
+        return index < times.size ? times.tics[index] : Long.MIN_VALUE;
+    }
+
+    /**
+     * @return the latest tics at or before the given tics when the value was set, or Long.MIN_VALUE if there is none
+     */
+    long floor(V value, long tics) {
+        Times times = timesByValue.get(value);
+        if (times == null) {
+            return Long.MIN_VALUE;
+        }
+        int index = times.ceilingIndex(tics + 1) - 1;
+        return index >= 0 ? times.tics[index] : Long.MIN_VALUE;
+    }
+
+    private static final class Times {
+        private long[] tics = new long[8];
+        private int size = 0;
+
+        void add(long t) {
+            if (size == tics.length) {
+                tics = Arrays.copyOf(tics, size * 2);
+            }
+            // nodes almost always come in time order
+            if (size == 0 || t > tics[size - 1]) {
+                tics[size++] = t;
+                return;
+            }
+            int index = ceilingIndex(t);
+            if (index < size && tics[index] == t) {
+                return;
+            }
+            System.arraycopy(tics, index, tics, index + 1, size - index);
+            tics[index] = t;
+            size++;
+        }
+
+        void remove(long t) {
+            int index = ceilingIndex(t);
+            if (index < size && tics[index] == t) {
+                System.arraycopy(tics, index + 1, tics, index, size - index - 1);
+                size--;
+            }
+        }
+
+        int ceilingIndex(long t) {
+            int index = Arrays.binarySearch(tics, 0, size, t);
+            return index >= 0 ? index : -(index + 1);
+        }
+    }
+}
@@ -24,6 +24,9 @@ public class Condition {
     // this leaf can either be true or false, and we want to store what we were last
     private boolean lastEvaluatedTo;
 
+    // the flattened form of the tree under this node, built the first time this node is updated - trees never change after they're built
+    private Index index;
+
     // This is the constructor of a base node
     public Condition(Resource valuesToScheduleOffOf, CompareToValues inequality, Comparable threshold) {
         if(valuesToScheduleOffOf == null){
@@ -52,23 +55,7 @@ public class Condition {
         if (conditions == null || conditions.length < 2) {
             return null;
         }
-        Condition toReturn = new Condition();
-        toReturn.nodeType = ConditionNodeType.OR;
-
-        // no matter what, right node always gets set to end of list which is then not passed to next layer down
-        // this will build a lopsided tree but ok, we expect this to be maybe 5 layers deep max anyway
-        toReturn.right = conditions[conditions.length - 1];
-
-        // base case
-        if (conditions.length == 2) {
-            toReturn.left = conditions[0];
-        }
-        // recursive case
-        else {
-            toReturn.left = or(Arrays.copyOfRange(conditions, 0, conditions.length - 1));
-        }
-
-        return toReturn;
+        return balanced(ConditionNodeType.OR, conditions, 0, conditions.length);
     }
 
     // Builds an 'and' node
@@ -79,21 +66,19 @@ public class Condition {
         if (conditions == null || conditions.length < 2) {
             return null;
         }
-        Condition toReturn = new Condition();
-        toReturn.nodeType = ConditionNodeType.AND;
-
-        // no matter what, right node always gets set to end of list which is then not passed to next layer down
-        // this will build a lopsided tree but ok, we expect this to be maybe 5 layers deep max anyway
-        toReturn.right = conditions[conditions.length - 1];
+        return balanced(ConditionNodeType.AND, conditions, 0, conditions.length);
+    }
 
-        // base case
-        if (conditions.length == 2) {
-            toReturn.left = conditions[0];
-        }
-        // recursive case
-        else {
-            toReturn.left = and(Arrays.copyOfRange(conditions, 0, conditions.length - 1));
+    // splits the conditions in half at every level, so a long list of them only makes a tree log2(n) deep
+    private static Condition balanced(ConditionNodeType nodeType, Condition[] conditions, int from, int to) {
+        if (to - from == 1) {
+            return conditions[from];
         }
+        int middle = (from + to) >>> 1;
+        Condition toReturn = new Condition();
+        toReturn.nodeType = nodeType;
+        toReturn.left = balanced(nodeType, conditions, from, middle);
+        toReturn.right = balanced(nodeType, conditions, middle, to);
         return toReturn;
     }
 
@@ -164,43 +149,31 @@ public class Condition {
     }
 
     public void setEvaluatedTo(Time t) {
-        if(left != null){
-            left.setEvaluatedTo(t);
-        }
-        if(right != null){
-            right.setEvaluatedTo(t);
-        }
-        lastEvaluatedTo = evaluate(t);
+        index().evaluateAt(t);
     }
 
-    // this updates all children nodes that have the same resource as the parameter and any upstream nodes that contain them
-    // the whole reason we're doing this is so that all resource values don't have to be pulled from history store which could get pretty big
-    public void update(Resource r, Comparable v) {
-        if (nodeType == ConditionNodeType.NOT) {
-            left.update(r, v);
-            lastEvaluatedTo = !left.lastEvaluatedTo;
-        }
-        else if (nodeType == ConditionNodeType.AND) {
-            left.update(r, v);
-            right.update(r, v);
-            lastEvaluatedTo = left.lastEvaluatedTo && right.lastEvaluatedTo;
-        }
-        else if (nodeType == ConditionNodeType.OR) {
-            left.update(r, v);
-            right.update(r, v);
-            lastEvaluatedTo = left.lastEvaluatedTo || right.lastEvaluatedTo;
-        }
-        else if (nodeType == ConditionNodeType.XOR) {
-            left.update(r, v);
-            right.update(r, v);
-            lastEvaluatedTo = left.lastEvaluatedTo ^ right.lastEvaluatedTo;
-        }
-        // base case is BASE
-        else {
-            if (r == valuesToScheduleOffOf) {
-                lastEvaluatedTo = (Integer.signum(v.compareTo(threshold)) == inequality.toInt());
-            }
+    /**
+     * Updates every leaf of this tree that compares the given resource to its new value, and then only the nodes
+     * above leaves whose result changed. The whole reason we're doing this is so that all resource values don't have
+     * to be pulled from history store which could get pretty big.
+     * @param r the resource that changed
+     * @param v its new value
+     * @return true if this condition went from true to false or false to true
+     */
+    public boolean update(Resource r, Comparable v) {
+        boolean before = lastEvaluatedTo;
+        Index tree = index();
+        tree.update(r, v);
+        // nothing reads which roots changed on a Condition's own Index
+        tree.clearChangedRoots();
+        return lastEvaluatedTo != before;
+    }
+
+    private Index index() {
+        if (index == null) {
+            index = new Index(Collections.singletonList(this), true);
         }
+        return index;
     }
 
     // this should only be called externally on the root node by activities that own conditions
@@ -217,4 +190,243 @@ public class Condition {
         }
         return toReturn;
     }
+
+    /**
+     * One or more condition trees flattened into arrays, with every node numbered so children come before their
+     * parents. Each resource maps to the leaves that compare it and each node to its parents, and AND, OR, XOR and NOT
+     * nodes keep a count of their true children, so a change to a resource re-evaluates its leaves and then only walks
+     * up from the ones that changed, stopping at the first node whose result stays the same. Subtrees shared between
+     * branches or between trees are numbered once.
+     *
+     * The Index a Condition keeps for itself writes every result through to the nodes, so isTrue() stays current.
+     * Window builds its own over many conditions at once, which leaves the nodes alone, and copies it so separate
+     * stretches of time can be evaluated on separate threads.
+     */
+    static final class Index {
+        private final Condition[] nodes;
+        private final int[][] children;
+        private final int[][] parents;
+        // node number of each of the trees given to the constructor
+        private final int[] roots;
+        // for each node, which of the trees it is the root of, or null if it is none of them
+        private final int[][] rootOf;
+        private final Map<Resource, int[]> leavesByResource;
+        private final boolean writeThrough;
+
+        private final int[] numTrueChildren;
+        private final boolean[] values;
+
+        // nodes that are roots and have changed since the last clearChangedRoots()
+        private final int[] changedRoots;
+        private final boolean[] isChangedRoot;
+        private int numChangedRoots = 0;
+
+        Index(List<Condition> trees, boolean writeThrough) {
+            this.writeThrough = writeThrough;
+            Map<Condition, Integer> numbers = new IdentityHashMap<>();
+            List<Condition> ordered = new ArrayList<>();
+            for (Condition tree : trees) {
+                number(tree, numbers, ordered);
+            }
+
+            int size = ordered.size();
+            nodes = ordered.toArray(new Condition[size]);
+            children = new int[size][];
+            numTrueChildren = new int[size];
+            values = new boolean[size];
+            List<List<Integer>> parentLists = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                parentLists.add(new ArrayList<>(1));
+            }
+
+            Map<Resource, List<Integer>> leafLists = new IdentityHashMap<>();
+            for (int i = 0; i < size; i++) {
+                Condition node = nodes[i];
+                List<Condition> nodeChildren = node.children();
+                children[i] = new int[nodeChildren.size()];
+                if (node.nodeType == ConditionNodeType.BASE) {
+                    leafLists.computeIfAbsent(node.valuesToScheduleOffOf, r -> new ArrayList<>()).add(i);
+                    // leaves start out as whatever they were last evaluated to, and everything above follows from them
+                    values[i] = node.lastEvaluatedTo;
+                    continue;
+                }
+                for (int j = 0; j < children[i].length; j++) {
+                    int c = numbers.get(nodeChildren.get(j));
+                    children[i][j] = c;
+                    parentLists.get(c).add(i);
+                    if (values[c]) {
+                        numTrueChildren[i]++;
+                    }
+                }
+                values[i] = combine(i);
+                if (writeThrough) {
+                    node.lastEvaluatedTo = values[i];
+                }
+            }
+
+            parents = new int[size][];
+            for (int i = 0; i < size; i++) {
+                parents[i] = parentLists.get(i).stream().mapToInt(Integer::intValue).toArray();
+            }
+            leavesByResource = new IdentityHashMap<>();
+            for (Map.Entry<Resource, List<Integer>> leaves : leafLists.entrySet()) {
+                leavesByResource.put(leaves.getKey(), leaves.getValue().stream().mapToInt(Integer::intValue).toArray());
+            }
+
+            roots = new int[trees.size()];
+            rootOf = new int[size][];
+            for (int t = 0; t < roots.length; t++) {
+                roots[t] = numbers.get(trees.get(t));
+                int[] previous = rootOf[roots[t]];
+                int[] withThisTree = previous == null ? new int[1] : Arrays.copyOf(previous, previous.length + 1);
+                withThisTree[withThisTree.length - 1] = t;
+                rootOf[roots[t]] = withThisTree;
+            }
+            changedRoots = new int[size];
+            isChangedRoot = new boolean[size];
+        }
+
+        /**
+         * Makes an Index over the same trees as another one, with its own values, which never writes through to the
+         * nodes. The two can then be used from different threads.
+         */
+        Index(Index other) {
+            nodes = other.nodes;
+            children = other.children;
+            parents = other.parents;
+            roots = other.roots;
+            rootOf = other.rootOf;
+            leavesByResource = other.leavesByResource;
+            writeThrough = false;
+            numTrueChildren = other.numTrueChildren.clone();
+            values = other.values.clone();
+            changedRoots = new int[nodes.length];
+            isChangedRoot = new boolean[nodes.length];
+        }
+
+        // numbers the nodes in post-order, so every child gets a lower number than its parents
+        private static void number(Condition node, Map<Condition, Integer> numbers, List<Condition> ordered) {
+            if (numbers.containsKey(node)) {
+                return;
+            }
+            for (Condition child : node.children()) {
+                number(child, numbers, ordered);
+            }
+            numbers.put(node, ordered.size());
+            ordered.add(node);
+        }
+
+        List<Resource> getResources() {
+            return new ArrayList<>(leavesByResource.keySet());
+        }
+
+        int numTrees() {
+            return roots.length;
+        }
+
+        boolean isTrue(int tree) {
+            return values[roots[tree]];
+        }
+
+        /**
+         * @return how many roots have changed value since the last clearChangedRoots()
+         */
+        int numChangedRoots() {
+            return numChangedRoots;
+        }
+
+        /**
+         * @return the node number of the i-th root that changed, which can be passed to treesRootedAt()
+         */
+        int changedRoot(int i) {
+            return changedRoots[i];
+        }
+
+        int[] treesRootedAt(int node) {
+            return rootOf[node];
+        }
+
+        void clearChangedRoots() {
+            for (int i = 0; i < numChangedRoots; i++) {
+                isChangedRoot[changedRoots[i]] = false;
+            }
+            numChangedRoots = 0;
+        }
+
+        void update(Resource r, Comparable v) {
+            int[] leaves = leavesByResource.get(r);
+            if (leaves == null) {
+                return;
+            }
+            for (int leaf : leaves) {
+                Condition node = nodes[leaf];
+                set(leaf, Integer.signum(v.compareTo(node.threshold)) == node.inequality.toInt());
+            }
+        }
+
+        void evaluateAt(Time t) {
+            for (int i = 0; i < nodes.length; i++) {
+                if (nodes[i].nodeType == ConditionNodeType.BASE) {
+                    values[i] = nodes[i].evaluate(t);
+                }
+                else {
+                    numTrueChildren[i] = 0;
+                    // children are always numbered before their parents, so they already have their new value
+                    for (int child : children[i]) {
+                        if (values[child]) {
+                            numTrueChildren[i]++;
+                        }
+                    }
+                    values[i] = combine(i);
+                }
+                if (writeThrough) {
+                    nodes[i].lastEvaluatedTo = values[i];
+                }
+            }
+        }
+
+        private void set(int i, boolean value) {
+            if (values[i] == value) {
+                return;
+            }
+            values[i] = value;
+            if (writeThrough) {
+                nodes[i].lastEvaluatedTo = value;
+            }
+            if (rootOf[i] != null && !isChangedRoot[i]) {
+                isChangedRoot[i] = true;
+                changedRoots[numChangedRoots++] = i;
+            }
+            for (int parent : parents[i]) {
+                numTrueChildren[parent] += value ? 1 : -1;
+                set(parent, combine(parent));
+            }
+        }
+
+        private boolean combine(int i) {
+            switch (nodes[i].nodeType) {
+                case AND:
+                    return numTrueChildren[i] == children[i].length;
+                case OR:
+                    return numTrueChildren[i] > 0;
+                case XOR:
+                    return (numTrueChildren[i] & 1) == 1;
+                case NOT:
+                    return numTrueChildren[i] == 0;
+                default:
+                    return values[i];
+            }
+        }
+    }
+
+    // by convention, a NOT node's only child is on the left
+    private List<Condition> children() {
+        if (nodeType == ConditionNodeType.BASE) {
+            return Collections.emptyList();
+        }
+        if (nodeType == ConditionNodeType.NOT) {
+            return Collections.singletonList(left);
+        }
+        return Arrays.asList(left, right);
+    }
 }
@@ -8,4 +8,10 @@ public interface Scheduler {
     // this method will automatically be entered into during modeling when the resource constraints are met - it can
     // do anything like affect resources to add new activities to the queue
     public void dispatchOnCondition();
+
+    // by default dispatchOnCondition() runs every time a resource in the condition changes while the condition is true.
+    // schedulers that only want to run when the condition goes from false to true can override this to return true
+    public default boolean dispatchOnlyWhenConditionBecomesTrue() {
+        return false;
+    }
 }
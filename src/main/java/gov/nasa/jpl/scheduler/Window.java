@@ -1,14 +1,20 @@
 package gov.nasa.jpl.scheduler;
 
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import gov.nasa.jpl.resource.DoubleResource;
-import gov.nasa.jpl.resource.Resource;
 import gov.nasa.jpl.resource.ResourcesIterator;
 import gov.nasa.jpl.time.Duration;
 import gov.nasa.jpl.time.Time;
 
 public class Window implements Comparable<Window>{
+    // batches with fewer conditions than this are always swept in one pass on the calling thread
+    private static final int MIN_CONDITIONS_TO_SPLIT_IN_TIME = 64;
+
     private Time begin;
     private Time end;
     private String type;
@@ -135,16 +141,22 @@ public class Window implements Comparable<Window>{
                     "the end time.");
         }
 
+        // resources that keep an index of when they were set to each value can find these windows without the sweep
+        if (condition.isBaseNode() && condition.getInequality() == CompareToValues.EQUALTO && condition.getResource().isIndexedByValue()) {
+            return condition.getResource().getWindowsWhereEqualTo(condition.getThreshold(), queryStart, queryEnd);
+        }
 
         ArrayList<Window> windows = new ArrayList<>();
         boolean inAWindow = false;
         ResourcesIterator resHistory = new ResourcesIterator(new ArrayList(condition.getAllResourcesRecursively()), queryStart, queryEnd);
-        Map.Entry<Resource, Map.Entry<Time, Comparable>> currentEntry; // this comes from resHistory and is for readability
-        Time currentTime; // also for readability
+        long queryStartTics = queryStart.getTics();
+        long queryEndTics = queryEnd.getTics();
+        long currentTics; // this comes from the resHistory cursor and is for readability
 
         condition.setEvaluatedTo(queryStart);
-        // the profile might be within the window constraints, so we have to look from the queryStart time
-        if ((!resHistory.hasNext() || queryStart.lessThan(((Map.Entry<Time, Comparable>) resHistory.peek().getValue()).getKey())) && condition.isTrue()) {
+        // the profile might be within the window constraints, so we have to look from the queryStart time.
+        // peekTics() is Long.MAX_VALUE once the histories run out, so this also covers there being no nodes left
+        if (queryStartTics < resHistory.peekTics() && condition.isTrue()) {
             inAWindow = true;
             windows.add(new Window(queryStart, null));
         }
@@ -152,34 +164,34 @@ public class Window implements Comparable<Window>{
         while (resHistory.hasNext()) {
             // we want to update the condition for all resource changes that happened at the present time
             do {
-                currentEntry = resHistory.next();
-                currentTime = currentEntry.getValue().getKey();
-                condition.update(currentEntry.getKey(), currentEntry.getValue().getValue());
-            } while(resHistory.hasNext() && currentTime.equals(((Map.Entry<Time, Comparable>) resHistory.peek().getValue()).getKey()));
+                resHistory.advance();
+                currentTics = resHistory.currentTics();
+                condition.update(resHistory.currentResource(), resHistory.currentValue());
+            } while(resHistory.peekTics() == currentTics);
             // if we are greater than or less than (whichever is specified) the value specified, we should be in the window
-            if (currentTime.greaterThanOrEqualTo(queryStart) && currentTime.lessThanOrEqualTo(queryEnd)) {
+            if (currentTics >= queryStartTics && currentTics <= queryEndTics) {
                 if (condition.isTrue()) {
                     if (!inAWindow) {
                         inAWindow = true;
-                        windows.add(new Window(currentTime, null));
+                        windows.add(new Window(Time.fromTics(currentTics), null));
                     }
                 }
                 else {
                     if (inAWindow) {
                         inAWindow = false;
-                        windows.get(windows.size() - 1).end = currentTime;
+                        windows.get(windows.size() - 1).end = Time.fromTics(currentTics);
                     }
                 }
             }
             // this case comes in if queryStart is partway through the resource profile and it is true where we start
-            else if (currentTime.lessThan(queryStart)) {
-                if ((!resHistory.hasNext() || queryStart.lessThan(((Map.Entry<Time, Comparable>) resHistory.peek().getValue()).getKey())) && condition.isTrue()) {
+            else if (currentTics < queryStartTics) {
+                if (queryStartTics < resHistory.peekTics() && condition.isTrue()) {
                     inAWindow = true;
                     windows.add(new Window(queryStart, null));
                 }
             }
             // if we're done with going through the loop, we don't want to waste time iterating when it won't do anything
-            else if (currentTime.greaterThan(queryEnd)) {
+            else if (currentTics > queryEndTics) {
                 break;
             }
         }
@@ -192,6 +204,190 @@ public class Window implements Comparable<Window>{
         return windows.toArray(new Window[windows.size()]);
     }
 
+    /**
+     * Returns the windows where each of the input conditions is met within the start and end time provided, the same
+     * as calling getWindows(condition, queryStart, queryEnd) for each of them. The difference is that the histories of
+     * all the conditions' resources are walked once, instead of once per condition, and a resource change only
+     * re-evaluates the parts of the conditions that compare against it. Large batches are split into stretches of
+     * time that are evaluated on separate threads and stitched back together.
+     * Unlike the single-condition version, this does not change what the conditions were last evaluated to.
+     * @param conditions
+     * @param queryStart
+     * @param queryEnd
+     * @return a list of window arrays, in the same order as the conditions
+     */
+    public static List<Window[]> getWindows(List<Condition> conditions, Time queryStart, Time queryEnd) {
+        int numChunks = 1;
+        if (conditions.size() >= MIN_CONDITIONS_TO_SPLIT_IN_TIME) {
+            numChunks = Runtime.getRuntime().availableProcessors();
+        }
+        return getWindows(conditions, queryStart, queryEnd, numChunks);
+    }
+
+    // package-private so tests can split a batch up however they want
+    static List<Window[]> getWindows(List<Condition> conditions, Time queryStart, Time queryEnd, int numChunks) {
+        // throw error if start time is not before end time
+        if (queryStart.greaterThan(queryEnd)) {
+            throw new RuntimeException("Error in getWindows call: queryStart " + queryStart.toUTC() + " is " +
+                    "after queryEnd " + queryEnd.toUTC() + ". The start time of the getWindows call must be before " +
+                    "the end time.");
+        }
+
+        Condition.Index index = new Condition.Index(conditions, false);
+        long queryStartTics = queryStart.getTics();
+        long queryLengthTics = queryEnd.getTics() - queryStartTics;
+        numChunks = (int) Math.max(1, Math.min(numChunks, queryLengthTics));
+
+        List<Window>[] windows;
+        if (numChunks == 1) {
+            windows = sweep(index, queryStart, queryEnd);
+        }
+        else {
+            ExecutorService exec = Executors.newFixedThreadPool(numChunks);
+            try {
+                List<Future<List<Window>[]>> chunks = new ArrayList<>(numChunks);
+                Time chunkStart = queryStart;
+                for (int i = 1; i <= numChunks; i++) {
+                    Time chunkEnd = i == numChunks ? queryEnd : Time.fromTics(queryStartTics + queryLengthTics / numChunks * i);
+                    Time thisChunkStart = chunkStart;
+                    // every chunk gets its own copy of the index's values, since they are all at different times
+                    Condition.Index chunkIndex = new Condition.Index(index);
+                    chunks.add(exec.submit(() -> sweep(chunkIndex, thisChunkStart, chunkEnd)));
+                    chunkStart = chunkEnd;
+                }
+
+                windows = chunks.get(0).get();
+                for (int i = 1; i < numChunks; i++) {
+                    List<Window>[] nextChunk = chunks.get(i).get();
+                    for (int c = 0; c < windows.length; c++) {
+                        stitch(windows[c], nextChunk[c]);
+                    }
+                }
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while getting windows for " + conditions.size() + " conditions");
+            }
+            catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new RuntimeException(e.getCause());
+            }
+            finally {
+                exec.shutdown();
+            }
+        }
+
+        List<Window[]> toReturn = new ArrayList<>(windows.length);
+        for (List<Window> conditionWindows : windows) {
+            toReturn.add(conditionWindows.toArray(new Window[conditionWindows.size()]));
+        }
+        return toReturn;
+    }
+
+    /**
+     * The same walk over resource histories as getWindows(condition, queryStart, queryEnd), for every tree in the index
+     * at once. After the first node inside the query, a condition's windows can only start or end when it changes, so
+     * only the conditions whose roots the last time step changed are looked at.
+     */
+    private static List<Window>[] sweep(Condition.Index index, Time queryStart, Time queryEnd) {
+        int numConditions = index.numTrees();
+        List<Window>[] windows = new List[numConditions];
+        boolean[] inAWindow = new boolean[numConditions];
+        for (int c = 0; c < numConditions; c++) {
+            windows[c] = new ArrayList<>();
+        }
+
+        ResourcesIterator resHistory = new ResourcesIterator(index.getResources(), queryStart, queryEnd);
+        long queryStartTics = queryStart.getTics();
+        long queryEndTics = queryEnd.getTics();
+        long currentTics;
+        boolean checkEveryCondition = true;
+
+        index.evaluateAt(queryStart);
+        index.clearChangedRoots();
+        if (queryStartTics < resHistory.peekTics()) {
+            for (int c = 0; c < numConditions; c++) {
+                if (index.isTrue(c)) {
+                    inAWindow[c] = true;
+                    windows[c].add(new Window(queryStart, null));
+                }
+            }
+        }
+
+        while (resHistory.hasNext()) {
+            do {
+                resHistory.advance();
+                currentTics = resHistory.currentTics();
+                index.update(resHistory.currentResource(), resHistory.currentValue());
+            } while(resHistory.peekTics() == currentTics);
+
+            if (currentTics >= queryStartTics && currentTics <= queryEndTics) {
+                if (checkEveryCondition) {
+                    // the steps before the query may have changed conditions without opening their windows
+                    checkEveryCondition = false;
+                    for (int c = 0; c < numConditions; c++) {
+                        openOrCloseWindow(windows, inAWindow, c, index.isTrue(c), currentTics);
+                    }
+                }
+                else {
+                    for (int i = 0; i < index.numChangedRoots(); i++) {
+                        int root = index.changedRoot(i);
+                        for (int c : index.treesRootedAt(root)) {
+                            openOrCloseWindow(windows, inAWindow, c, index.isTrue(c), currentTics);
+                        }
+                    }
+                }
+            }
+            else if (currentTics < queryStartTics) {
+                if (queryStartTics < resHistory.peekTics()) {
+                    for (int c = 0; c < numConditions; c++) {
+                        if (index.isTrue(c) && !inAWindow[c]) {
+                            inAWindow[c] = true;
+                            windows[c].add(new Window(queryStart, null));
+                        }
+                    }
+                }
+            }
+            else if (currentTics > queryEndTics) {
+                break;
+            }
+            index.clearChangedRoots();
+        }
+
+        for (List<Window> conditionWindows : windows) {
+            if (!conditionWindows.isEmpty() && !conditionWindows.get(conditionWindows.size() - 1).hasEnd()) {
+                conditionWindows.get(conditionWindows.size() - 1).end = queryEnd;
+            }
+        }
+        return windows;
+    }
+
+    private static void openOrCloseWindow(List<Window>[] windows, boolean[] inAWindow, int c, boolean isTrue, long currentTics) {
+        if (isTrue && !inAWindow[c]) {
+            inAWindow[c] = true;
+            windows[c].add(new Window(Time.fromTics(currentTics), null));
+        }
+        else if (!isTrue && inAWindow[c]) {
+            inAWindow[c] = false;
+            windows[c].get(windows[c].size() - 1).end = Time.fromTics(currentTics);
+        }
+    }
+
+    /**
+     * Appends the windows of one stretch of time to those of the stretch before it. A condition that was true across
+     * the boundary has a window ending at it in the first stretch and one starting at it in the next, which are joined.
+     */
+    private static void stitch(List<Window> before, List<Window> after) {
+        int from = 0;
+        if (!before.isEmpty() && !after.isEmpty() && before.get(before.size() - 1).end.equals(after.get(0).begin)) {
+            before.get(before.size() - 1).end = after.get(0).end;
+            from = 1;
+        }
+        before.addAll(after.subList(from, after.size()));
+    }
+
     /**
      * Returns an array of window objects where the input condition is met within
      * the start and end time provided. Unlike getWindows, this method interprets
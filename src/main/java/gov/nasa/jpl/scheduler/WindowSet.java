@@ -0,0 +1,449 @@
+package gov.nasa.jpl.scheduler;
+
+import gov.nasa.jpl.time.Duration;
+import gov.nasa.jpl.time.Time;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A set of windows stored as two sorted arrays of start and end tics, for adaptations that do a lot of window
+ * algebra. Window[] arrays go in through the constructor and come back out of toWindows(), but in between and(),
+ * or(), xor(), minus() and not() each make one pass over both sets and one pair of arrays, and merge(), dilate()
+ * and erode() work on the set itself.
+ *
+ * Windows are sorted by start time, and can overlap - the result of a getWindows() call for several keepouts, for
+ * example. contains() and the intersection lookups work either way. The set operations treat overlapping and touching
+ * windows as one, and always return disjoint sets; merge(), dilate() and erode() join them in the set itself.
+ *
+ * Windows are closed intervals like in Window.contains(), and set operations return the closure of their result:
+ * two windows that only touch intersect in a zero-length window, but subtracting a zero-length window from another
+ * one leaves it whole. Window types are not kept.
+ */
+public class WindowSet {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private long[] starts;
+    private long[] ends;
+    private int size;
+
+    // true once overlapping and touching windows have been combined
+    private boolean disjoint;
+
+    // maxEnds[i] is the latest end of windows 0 through i, so lookups can binary search even when windows overlap
+    private long[] maxEnds;
+
+    public WindowSet() {
+        this(INITIAL_CAPACITY);
+    }
+
+    public WindowSet(int initialCapacity) {
+        starts = new long[Math.max(1, initialCapacity)];
+        ends = new long[starts.length];
+        size = 0;
+        disjoint = true;
+    }
+
+    /**
+     * @param windows windows with both a start and an end, in any order and possibly overlapping
+     */
+    public WindowSet(Window[] windows) {
+        this(windows.length);
+        for (Window window : windows) {
+            add(window.getStart(), window.getEnd());
+        }
+    }
+
+    private WindowSet(long[] starts, long[] ends, int size) {
+        this.starts = starts;
+        this.ends = ends;
+        this.size = size;
+        this.disjoint = true;
+    }
+
+    /**
+     * Adds a window to the set. Adding windows in start time order is cheapest, but any order is allowed.
+     */
+    public void add(Time start, Time end) {
+        add(start.getTics(), end.getTics());
+    }
+
+    public void add(Window window) {
+        add(window.getStart(), window.getEnd());
+    }
+
+    private void add(long start, long end) {
+        if (end < start) {
+            throw new IllegalArgumentException("Window added to WindowSet ends at " + Time.fromTics(end) + ", before it starts at " + Time.fromTics(start));
+        }
+        if (size == starts.length) {
+            starts = Arrays.copyOf(starts, size * 2);
+            ends = Arrays.copyOf(ends, size * 2);
+        }
+        int i = size;
+        // shift later windows back, which is nothing at all if windows come in order
+        while (i > 0 && (starts[i - 1] > start || (starts[i - 1] == start && ends[i - 1] > end))) {
+            starts[i] = starts[i - 1];
+            ends[i] = ends[i - 1];
+            i--;
+        }
+        starts[i] = start;
+        ends[i] = end;
+        if (disjoint && size > 0 && !(i == size && start > ends[i - 1])) {
+            disjoint = false;
+        }
+        size++;
+        maxEnds = null;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public Time getStart(int i) {
+        checkIndex(i);
+        return Time.fromTics(starts[i]);
+    }
+
+    public Time getEnd(int i) {
+        checkIndex(i);
+        return Time.fromTics(ends[i]);
+    }
+
+    public Window get(int i) {
+        return new Window(getStart(i), getEnd(i));
+    }
+
+    public Window[] toWindows() {
+        Window[] windows = new Window[size];
+        for (int i = 0; i < size; i++) {
+            windows[i] = new Window(Time.fromTics(starts[i]), Time.fromTics(ends[i]));
+        }
+        return windows;
+    }
+
+    /**
+     * @return the sum of the durations of all the windows, counting overlapping time once
+     */
+    public Duration getTotalDuration() {
+        long total = 0;
+        long coveredUntil = Long.MIN_VALUE;
+        for (int i = 0; i < size; i++) {
+            long from = Math.max(starts[i], coveredUntil);
+            if (ends[i] > from) {
+                total += ends[i] - from;
+                coveredUntil = ends[i];
+            }
+        }
+        return Duration.fromTics(total);
+    }
+
+    /**
+     * Returns true if any window in the set contains the parameter time, inclusive. O(log n).
+     */
+    public boolean contains(Time t) {
+        long tics = t.getTics();
+        int last = lastStartingAtOrBefore(tics);
+        return last >= 0 && maxEnds()[last] >= tics;
+    }
+
+    /**
+     * Returns true if any window in the set intersects the parameter Window. O(log n).
+     */
+    public boolean intersects(Window w) {
+        return firstIntersecting(w.getStart().getTics(), w.getEnd().getTics()) >= 0;
+    }
+
+    /**
+     * Like Window.getIntersectingWindowInList(), but the windows in this set are allowed to overlap
+     * @return the earliest-starting window in the set that intersects the parameter Window, or null if none do
+     */
+    public Window getIntersectingWindow(Window w) {
+        int first = firstIntersecting(w.getStart().getTics(), w.getEnd().getTics());
+        return first < 0 ? null : get(first);
+    }
+
+    /**
+     * @return every window in the set that intersects the parameter Window, in start time order
+     */
+    public List<Window> getIntersectingWindows(Window w) {
+        long start = w.getStart().getTics();
+        long end = w.getEnd().getTics();
+        List<Window> intersecting = new ArrayList<>();
+        int first = firstIntersecting(start, end);
+        if (first >= 0) {
+            int last = lastStartingAtOrBefore(end);
+            for (int i = first; i <= last; i++) {
+                if (ends[i] >= start) {
+                    intersecting.add(get(i));
+                }
+            }
+        }
+        return intersecting;
+    }
+
+    // index of the first window that ends at or after start and starts at or before end, or -1 if there are none
+    private int firstIntersecting(long start, long end) {
+        long[] maxEnds = maxEnds();
+        // maxEnds never decreases, and the first window to push it to start or later must end there itself
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (maxEnds[middle] < start) {
+                low = middle + 1;
+            }
+            else {
+                high = middle;
+            }
+        }
+        return low < size && starts[low] <= end ? low : -1;
+    }
+
+    private int lastStartingAtOrBefore(long tics) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (starts[middle] <= tics) {
+                low = middle + 1;
+            }
+            else {
+                high = middle;
+            }
+        }
+        return low - 1;
+    }
+
+    private long[] maxEnds() {
+        if (maxEnds == null) {
+            maxEnds = new long[size];
+            long max = Long.MIN_VALUE;
+            for (int i = 0; i < size; i++) {
+                max = Math.max(max, ends[i]);
+                maxEnds[i] = max;
+            }
+        }
+        return maxEnds;
+    }
+
+    /**
+     * Joins windows separated by no more than the threshold, in place. Overlapping windows are always joined.
+     * Like Window.merge(), but the set doesn't need to be sorted first.
+     * @return this set
+     */
+    public WindowSet merge(Duration threshold) {
+        long gap = threshold.getTics();
+        if (gap < 0) {
+            throw new IllegalArgumentException("WindowSet.merge() threshold " + threshold + " is negative");
+        }
+        if (size == 0) {
+            return this;
+        }
+        int kept = 0;
+        for (int i = 1; i < size; i++) {
+            if (starts[i] - ends[kept] <= gap) {
+                ends[kept] = Math.max(ends[kept], ends[i]);
+            }
+            else {
+                kept++;
+                starts[kept] = starts[i];
+                ends[kept] = ends[i];
+            }
+        }
+        size = kept + 1;
+        disjoint = true;
+        maxEnds = null;
+        return this;
+    }
+
+    /**
+     * Widens every window by the duration on both sides, in place, joining any that then overlap.
+     * @return this set
+     */
+    public WindowSet dilate(Duration d) {
+        long by = d.getTics();
+        if (by < 0) {
+            return erode(Duration.fromTics(-by));
+        }
+        for (int i = 0; i < size; i++) {
+            starts[i] -= by;
+            ends[i] += by;
+        }
+        return merge(Duration.ZERO_DURATION);
+    }
+
+    /**
+     * Narrows every window by the duration on both sides, in place. Windows shorter than twice the duration are
+     * removed, and one exactly twice as long is left with zero length. Overlapping windows are joined first, so the
+     * time they cover together is what gets narrowed.
+     * @return this set
+     */
+    public WindowSet erode(Duration d) {
+        long by = d.getTics();
+        if (by < 0) {
+            return dilate(Duration.fromTics(-by));
+        }
+        if (!disjoint) {
+            merge(Duration.ZERO_DURATION);
+        }
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            long start = starts[i] + by;
+            long end = ends[i] - by;
+            if (start <= end) {
+                starts[kept] = start;
+                ends[kept] = end;
+                kept++;
+            }
+        }
+        size = kept;
+        maxEnds = null;
+        return this;
+    }
+
+    public WindowSet and(WindowSet other) {
+        return combine(this, other, AND);
+    }
+
+    public WindowSet or(WindowSet other) {
+        return combine(this, other, OR);
+    }
+
+    public WindowSet xor(WindowSet other) {
+        return combine(this, other, XOR);
+    }
+
+    /**
+     * @return the time in this set but not in the other one
+     */
+    public WindowSet minus(WindowSet other) {
+        return combine(this, other, MINUS);
+    }
+
+    /**
+     * Like Window.not(), the time between queryBegin and queryEnd that isn't in this set
+     */
+    public WindowSet not(Time queryBegin, Time queryEnd) {
+        WindowSet query = new WindowSet(1);
+        query.add(queryBegin, queryEnd);
+        return combine(query, this, MINUS);
+    }
+
+    // truth tables of the set operations, indexed by (in first set ? 2 : 0) + (in second set ? 1 : 0)
+    private static final boolean[] AND   = {false, false, false, true};
+    private static final boolean[] OR    = {false, true, true, true};
+    private static final boolean[] XOR   = {false, true, true, false};
+    private static final boolean[] MINUS = {false, false, true, false};
+
+    /**
+     * Walks the start and end times of both sets together once. Between two consecutive times, being in each set
+     * doesn't change, so the truth table says whether that stretch is in the result; a time itself is in the result
+     * if the truth table says so at that exact time or the stretch before or after it is (that is the closure).
+     */
+    private static WindowSet combine(WindowSet a, WindowSet b, boolean[] op) {
+        a = a.disjoint();
+        b = b.disjoint();
+        int capacity = a.size + b.size + 1;
+        long[] starts = new long[capacity];
+        long[] ends = new long[capacity];
+        int size = 0;
+
+        // windows are disjoint, so start, end, start, end... is a sorted list of times, in which an even
+        // number of times at or before some time means being outside the set just after it
+        int ia = 0;
+        int ib = 0;
+        int numBoundariesA = 2 * a.size;
+        int numBoundariesB = 2 * b.size;
+        boolean afterA = false;
+        boolean afterB = false;
+        boolean inResultBefore = false;
+        long resultStart = 0;
+
+        while (ia < numBoundariesA || ib < numBoundariesB) {
+            long next = Math.min(ia < numBoundariesA ? a.boundary(ia) : Long.MAX_VALUE,
+                                 ib < numBoundariesB ? b.boundary(ib) : Long.MAX_VALUE);
+            boolean atA = afterA;
+            while (ia < numBoundariesA && a.boundary(ia) == next) {
+                atA = true;
+                ia++;
+            }
+            boolean atB = afterB;
+            while (ib < numBoundariesB && b.boundary(ib) == next) {
+                atB = true;
+                ib++;
+            }
+            afterA = (ia & 1) == 1;
+            afterB = (ib & 1) == 1;
+
+            boolean inResultAfter = op[(afterA ? 2 : 0) + (afterB ? 1 : 0)];
+            boolean inResultAt = inResultBefore || inResultAfter || op[(atA ? 2 : 0) + (atB ? 1 : 0)];
+            if (inResultAt && !inResultBefore) {
+                resultStart = next;
+            }
+            if (inResultAt && !inResultAfter) {
+                starts[size] = resultStart;
+                ends[size] = next;
+                size++;
+            }
+            inResultBefore = inResultAfter;
+        }
+        return new WindowSet(starts, ends, size);
+    }
+
+    private long boundary(int i) {
+        return (i & 1) == 0 ? starts[i >> 1] : ends[i >> 1];
+    }
+
+    // this set if it is already disjoint, otherwise a copy with overlapping and touching windows joined
+    private WindowSet disjoint() {
+        if (disjoint) {
+            return this;
+        }
+        return new WindowSet(Arrays.copyOf(starts, size), Arrays.copyOf(ends, size), size).merge(Duration.ZERO_DURATION);
+    }
+
+    private void checkIndex(int i) {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("Index " + i + " is outside WindowSet of size " + size);
+        }
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof WindowSet)) {
+            return false;
+        }
+        WindowSet other = (WindowSet) obj;
+        if (size != other.size) {
+            return false;
+        }
+        for (int i = 0; i < size; i++) {
+            if (starts[i] != other.starts[i] || ends[i] != other.ends[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = size;
+        for (int i = 0; i < size; i++) {
+            hash = 31 * hash + Long.hashCode(starts[i]);
+            hash = 31 * hash + Long.hashCode(ends[i]);
+        }
+        return hash;
+    }
+
+    // not intended to be used for deserialization, mostly for debugging purposes
+    @Override
+    public String toString() {
+        return Arrays.toString(toWindows());
+    }
+}
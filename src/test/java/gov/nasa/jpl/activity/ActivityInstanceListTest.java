@@ -12,6 +12,9 @@ import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.*;
 
@@ -157,4 +160,189 @@ public class ActivityInstanceListTest extends BaseTest {
         List<String> types = ActivityTypeList.getActivityList().getNamesOfAllTypesWithSubsystem("testSubsystem2");
         assertEquals(1, types.size());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void findByIDAfterIDChanges() {
+        Activity red = new Activity(new Time("2000-001T00:00:00"));
+        Activity blue = new Activity(new Time("2000-001T00:00:01"));
+        UUID oldID = red.getID();
+        UUID newID = UUID.randomUUID();
+        red.setID(newID);
+
+        assertFalse(ActivityInstanceList.getActivityList().containsID(oldID));
+        assertSame(red, ActivityInstanceList.getActivityList().findActivityByID(newID));
+        assertSame(blue, ActivityInstanceList.getActivityList().findActivityByID(blue.getID()));
+
+        ActivityInstanceList.getActivityList().remove(newID);
+        assertFalse(ActivityInstanceList.getActivityList().containsID(newID));
+        assertEquals(1, ActivityInstanceList.getActivityList().length());
+        assertSame(blue, ActivityInstanceList.getActivityList().get(0));
+    }
+
+    @Test
+    public void queriesStayConsistentThroughManyEdits() {
+        Time t = Time.getDefaultReferenceTime();
+        List<ActivityOne> ones = new ArrayList<>();
+        // added in reverse time order so list order and time order disagree
+        for (int i = 199; i >= 0; i--) {
+            ones.add(new ActivityOne(t.add(Duration.MINUTE_DURATION.multiply(i)), Duration.MINUTE_DURATION));
+            new ActivityTwo(t.add(Duration.MINUTE_DURATION.multiply(i)), 5.0);
+        }
+        for (int i = 0; i < ones.size(); i += 2) {
+            ActivityInstanceList.getActivityList().remove(ones.get(i));
+        }
+
+        Time end = t.add(Duration.MINUTE_DURATION.multiply(50));
+        List<Activity> between = ActivityInstanceList.getActivityList().getActivitiesOfTypeBetween(t, end, false, ActivityOne.class);
+        assertEquals(26, between.size());
+        // results come back in list order, which here is latest start first
+        assertEquals(end, between.get(0).getStart());
+
+        ActivityInstanceList.getActivityList().prepareActivitiesForModeling();
+        between = ActivityInstanceList.getActivityList().getActivitiesOfTypeBetween(t, end, true, ActivityOne.class);
+        assertEquals(25, between.size());
+        assertEquals(t, between.get(0).getStart());
+        assertEquals(100, ActivityInstanceList.getActivityList().getAllActivitiesOfType(ActivityOne.class).size());
+        assertEquals(300, ActivityInstanceList.getActivityList().getAllActivitiesOfType(Activity.class).size());
+    }
+
+    @Test
+    public void removedSlotsAreDroppedInListOrder() {
+        Time t = Time.getDefaultReferenceTime();
+        ActivityInstanceList list = ActivityInstanceList.getActivityList();
+        List<Activity> added = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            added.add(new ActivityTwo(t.add(Duration.MINUTE_DURATION.multiply(i)), 1.0));
+        }
+        // enough removals that some get dropped right away and some are still only marked when we read the list
+        for (int i = 0; i < 1000; i += 3) {
+            list.remove(added.get(i));
+            assertEquals(1000 - i / 3 - 1, list.length());
+        }
+        list.remove(added.get(998).getID());
+
+        assertEquals(665, list.length());
+        assertEquals(added.get(1).getStart(), list.getFirstActivityStartTime());
+        assertEquals(added.get(997).getEnd(), list.getLastActivityEndTime());
+        int next = 0;
+        for (int i = 0; i < 1000; i++) {
+            if (i % 3 != 0 && i != 998) {
+                assertSame(added.get(i), list.get(next++));
+            }
+        }
+        assertFalse(list.containsID(added.get(0).getID()));
+        assertEquals(665, list.getAllActivitiesOfType(ActivityTwo.class).size());
+        assertEquals(665, list.createListOfActivityBeginTimes().size());
+    }
+
+    @Test
+    public void addsRemovesAndIDChangesFromManyThreads() throws InterruptedException {
+        Time t = Time.getDefaultReferenceTime();
+        ActivityInstanceList list = new ActivityInstanceList();
+        List<List<Activity>> perThread = new ArrayList<>();
+        for (int thread = 0; thread < 4; thread++) {
+            List<Activity> activities = new ArrayList<>();
+            for (int i = 0; i < 2000; i++) {
+                activities.add(new ActivityTwo(t.add(Duration.MINUTE_DURATION.multiply(i)), 1.0));
+            }
+            perThread.add(activities);
+        }
+
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        List<Throwable> errors = new ArrayList<>();
+        for (List<Activity> activities : perThread) {
+            threads.add(new Thread(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < activities.size(); i++) {
+                        Activity act = activities.get(i);
+                        list.add(act);
+                        act.setID(UUID.randomUUID());
+                        if (i % 2 == 0) {
+                            list.remove(act);
+                        }
+                    }
+                }
+                catch (Throwable e) {
+                    synchronized (errors) {
+                        errors.add(e);
+                    }
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertTrue(errors.toString(), errors.isEmpty());
+        assertEquals(4000, list.length());
+        assertEquals(4000, list.getAllActivitiesOfType(ActivityTwo.class).size());
+        for (int i = 0; i < list.length(); i++) {
+            assertSame(list.get(i), list.findActivityByID(list.get(i).getID()));
+        }
+    }
+
+    @Test
+    public void heldBackAddsArriveTogetherFromEveryThread() throws InterruptedException {
+        Time t = Time.getDefaultReferenceTime();
+        ActivityInstanceList list = ActivityInstanceList.getActivityList();
+        CountDownLatch created = new CountDownLatch(4);
+        CountDownLatch checked = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        List<Throwable> errors = new ArrayList<>();
+        for (int thread = 0; thread < 4; thread++) {
+            threads.add(new Thread(() -> {
+                ActivityInstanceList.startHoldingBackAdds();
+                try {
+                    for (int i = 0; i < 50; i++) {
+                        Activity act = ActivityTypeList.getActivityList().newInstance("ActivityTwo", new Object[]{t.add(Duration.MINUTE_DURATION.multiply(i)), 1.0});
+                        act.setID(UUID.randomUUID());
+                    }
+                    created.countDown();
+                    checked.await();
+                }
+                catch (Throwable e) {
+                    synchronized (errors) {
+                        errors.add(e);
+                    }
+                }
+                finally {
+                    ActivityInstanceList.finishHoldingBackAdds();
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+
+        // every thread has made all of its activities, and none of them has finished holding them back yet
+        try {
+            assertTrue(created.await(1, TimeUnit.MINUTES));
+            assertEquals(0, list.length());
+        }
+        finally {
+            checked.countDown();
+        }
+
+        // each thread adds its activities while holding the list's lock, so under that lock we only ever see whole threads' worth
+        while (threads.stream().anyMatch(Thread::isAlive)) {
+            synchronized (list) {
+                assertEquals(0, list.getAllActivitiesOfType(ActivityTwo.class).size() % 50);
+            }
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertTrue(errors.toString(), errors.isEmpty());
+        assertEquals(200, list.length());
+        for (int i = 0; i < list.length(); i++) {
+            assertSame(list.get(i), list.findActivityByID(list.get(i).getID()));
+        }
+    }
+}
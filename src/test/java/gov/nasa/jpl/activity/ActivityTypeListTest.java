@@ -0,0 +1,48 @@
+package gov.nasa.jpl.activity;
+
+import gov.nasa.jpl.common.BaseTest;
+import gov.nasa.jpl.exampleAdaptation.ActivityTwo;
+import gov.nasa.jpl.time.Time;
+import org.junit.Test;
+
+import java.lang.reflect.InvocationTargetException;
+
+import static org.junit.Assert.*;
+
+public class ActivityTypeListTest extends BaseTest {
+
+    @Test
+    public void newInstanceWithExactAndConvertedArguments() throws Exception {
+        ActivityTypeList types = ActivityTypeList.getActivityList();
+        Time t = new Time("2000-001T00:00:00");
+
+        Activity exact = types.newInstance("ActivityTwo", new Object[]{t, 5.0});
+        assertTrue(exact instanceof ActivityTwo);
+        assertEquals(5.0, exact.getParameterObjects()[0]);
+
+        // an Integer for the double parameter can't use the cached handle, but still works like it did through reflection
+        Activity widened = types.newInstance("ActivityTwo", new Object[]{t, 7});
+        assertEquals(7.0, widened.getParameterObjects()[0]);
+        assertEquals(2, ActivityInstanceList.getActivityList().length());
+    }
+
+    @Test
+    public void newInstanceReportsConstructorFailuresLikeReflection() throws Exception {
+        try {
+            // a null start time makes the Activity constructor throw
+            ActivityTypeList.getActivityList().newInstance("ActivityTwo", new Object[]{null, 5.0});
+            fail("expected the constructor to throw");
+        }
+        catch (InvocationTargetException e) {
+            assertNotNull(e.getTargetException());
+        }
+
+        try {
+            ActivityTypeList.getActivityList().newInstance("ActivityTwo", new Object[]{new Time("2000-001T00:00:00")});
+            fail("expected no constructor to match");
+        }
+        catch (NoSuchMethodException e) {
+            // ConstructorUtils reports arguments that don't fit the constructor this way
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package gov.nasa.jpl.command;
+
+import gov.nasa.jpl.common.BaseTest;
+import gov.nasa.jpl.engine.ModelingEngine;
+import gov.nasa.jpl.engine.ModelingProfiler;
+import gov.nasa.jpl.exampleAdaptation.ActivityOne;
+import gov.nasa.jpl.exampleAdaptation.ActivityTwo;
+import gov.nasa.jpl.time.Duration;
+import gov.nasa.jpl.time.Time;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class ProfileCommandTest extends BaseTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @After
+    public void turnOffProfiler() {
+        ModelingProfiler.stop();
+    }
+
+    @Test
+    public void profileWriteReports() throws IOException {
+        assertTrue(CommandController.issueCommand("PROFILE", "ON"));
+        assertTrue(ModelingProfiler.isEnabled());
+
+        new ActivityOne(new Time("2000-001T00:00:10"), new Duration("00:00:01"));
+        new ActivityTwo(new Time("2000-001T00:00:20"), 4.0);
+        assertTrue(CommandController.issueCommand("REMODEL", ""));
+
+        assertTrue(CommandController.issueCommand("PROFILE", "OFF"));
+        assertFalse(ModelingProfiler.isEnabled());
+
+        File json = new File(folder.getRoot(), "profile.json");
+        assertTrue(CommandController.issueCommand("PROFILE", json.getAbsolutePath()));
+        String jsonReport = new String(Files.readAllBytes(json.toPath()), StandardCharsets.UTF_8);
+        assertTrue(jsonReport.contains("\"ActivityOne\""));
+        assertTrue(jsonReport.contains("\"ResourceA\""));
+        assertTrue(jsonReport.contains("\"waiterQueue\""));
+
+        File text = new File(folder.getRoot(), "profile.txt");
+        assertTrue(CommandController.issueCommand("PROFILE", text.getAbsolutePath()));
+        String textReport = new String(Files.readAllBytes(text.toPath()), StandardCharsets.UTF_8);
+        assertTrue(textReport.contains("ActivityTwo"));
+    }
+
+    @Test
+    public void profileCountsBatchedSets() {
+        assertTrue(CommandController.issueCommand("PROFILE", "ON"));
+        new ActivityOne(new Time("2000-001T00:00:10"), new Duration("00:00:01"));
+        ModelingEngine.getEngine().setBatchingResourceUpdates(true);
+        try {
+            assertTrue(CommandController.issueCommand("REMODEL", ""));
+        }
+        finally {
+            ModelingEngine.getEngine().setBatchingResourceUpdates(false);
+        }
+        assertTrue(CommandController.issueCommand("PROFILE", "OFF"));
+
+        Map<String, Object> resourceA = null;
+        for (Map<String, Object> row : (List<Map<String, Object>>) ModelingProfiler.buildReport().get("resources")) {
+            if (row.get("resource").equals("ResourceA")) {
+                resourceA = row;
+            }
+        }
+        // ActivityOne sets ResourceA twice, and IntegratesA follows it, so it has a listener to batch
+        assertNotNull(resourceA);
+        assertTrue((Long) resourceA.get("sets") >= 2);
+        assertTrue((Double) resourceA.get("listenerMillis") > 0);
+    }
+
+    @Test
+    public void undoProfileOn() {
+        assertTrue(CommandController.issueCommand("PROFILE", "ON"));
+        assertTrue(CommandController.issueCommand("UNDO", ""));
+        assertFalse(ModelingProfiler.isEnabled());
+    }
+
+    @Test
+    public void emptyProfileCommand() {
+        try {
+            CommandController.issueCommand("PROFILE", "");
+            fail("PROFILE command accepted an empty command string");
+        }
+        catch (CommandException e) {
+            assertTrue(e.getMessage().startsWith("PROFILE command needs"));
+        }
+    }
+}
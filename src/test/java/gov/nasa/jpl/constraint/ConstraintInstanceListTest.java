@@ -5,14 +5,20 @@ import gov.nasa.jpl.command.CommandController;
 import gov.nasa.jpl.common.BaseTest;
 import gov.nasa.jpl.engine.ModelingEngine;
 import gov.nasa.jpl.engine.Setup;
+import gov.nasa.jpl.exampleAdaptation.ActivityOne;
+import gov.nasa.jpl.exampleAdaptation.SignalSendingActivity;
 import gov.nasa.jpl.resource.ResourceList;
+import gov.nasa.jpl.time.Duration;
 import gov.nasa.jpl.time.Time;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 
+import static gov.nasa.jpl.exampleAdaptation.Res.ResourceA;
+import static gov.nasa.jpl.exampleAdaptation.Res.ResourceB;
 import static org.junit.Assert.*;
 
 public class ConstraintInstanceListTest extends BaseTest {
@@ -73,4 +79,42 @@ public class ConstraintInstanceListTest extends BaseTest {
             fail();
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    public void evaluatingAfterModelingFindsTheSameViolations() {
+        ConstraintInstanceList conList = ConstraintInstanceList.getConstraintList();
+        new ActivityOne(new Time("2000-001T00:00:10"), new Duration("00:02:00"));
+        new ActivityOne(new Time("2000-001T00:01:30"), new Duration("00:02:00"));
+        new ActivityOne(new Time("2000-001T00:06:00"), new Duration("00:02:00"));
+        new SignalSendingActivity(new Time("2000-001T00:00:05"), new Duration("00:03:00"));
+        new ForbiddenOverlapConstraint("ActivityOne", "SignalSendingActivity", "forbiddenOverlapAfterModeling", ViolationSeverity.ERROR);
+        new ForbiddenResourceConstraint(ResourceA.whenGreaterThan(30.0), "resourceAAfterModeling", ViolationSeverity.WARNING);
+        new MaximumContinuousDurationForResourceConstraint(ResourceB.whenGreaterThan(10), new Duration("00:00:30"), "resourceBAfterModeling", ViolationSeverity.WARNING);
+
+        ModelingEngine.getEngine().model();
+        List<List<Map.Entry<Time, Time>>> whileModeling = allViolations(conList);
+
+        conList.setEvaluatingAfterModeling(true);
+        try {
+            ModelingEngine.getEngine().model();
+            assertEquals(whileModeling, allViolations(conList));
+            // the constraints we just added all have violations, so this isn't comparing empty lists
+            for (int i = conList.length() - 3; i < conList.length(); i++) {
+                assertFalse(whileModeling.get(i).isEmpty());
+            }
+        }
+        finally {
+            conList.setEvaluatingAfterModeling(false);
+        }
+    }
+
+    private static List<List<Map.Entry<Time, Time>>> allViolations(ConstraintInstanceList conList) {
+        List<List<Map.Entry<Time, Time>>> violations = new ArrayList<>();
+        for (int i = 0; i < conList.length(); i++) {
+            List<Map.Entry<Time, Time>> constraintViolations = new ArrayList<>();
+            conList.get(i).historyIterator().forEachRemaining(constraintViolations::add);
+            violations.add(constraintViolations);
+        }
+        return violations;
+    }
+}
@@ -0,0 +1,114 @@
+package gov.nasa.jpl.engine;
+
+import gov.nasa.jpl.activity.Activity;
+import gov.nasa.jpl.common.BaseTest;
+import gov.nasa.jpl.exampleAdaptation.ActivityOne;
+import gov.nasa.jpl.exampleAdaptation.ActivityTwo;
+import gov.nasa.jpl.exampleAdaptation.Res;
+import gov.nasa.jpl.exampleAdaptation.SignalSendingActivity;
+import gov.nasa.jpl.exampleAdaptation.WaitingOnSignalActivity;
+import gov.nasa.jpl.resource.IntegerResource;
+import gov.nasa.jpl.time.Duration;
+import gov.nasa.jpl.time.Time;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class DirectHandoffModelingEngineTest extends BaseTest {
+
+    @After
+    public void restoreDefaultEngine() {
+        ModelingEngine.getEngine().resetEngine();
+        Setup.initializeEngine(ModelingEngineType.FUNCTIONAL_WAIT);
+    }
+
+    @Test
+    public void engineIsSelectable() {
+        Setup.initializeEngine(ModelingEngineType.DIRECT_HANDOFF);
+        assertTrue(ModelingEngine.getEngine() instanceof DirectHandoffModelingEngine);
+        Setup.initializeEngine(ModelingEngineType.FUNCTIONAL_WAIT);
+        assertTrue(ModelingEngine.getEngine() instanceof FunctionalWaitModelingEngine);
+    }
+
+    @Test
+    public void sameResultsAsFunctionalWaitEngine() {
+        Time start = Time.getDefaultReferenceTime();
+        for (int i = 0; i < 50; i++) {
+            new ActivityOne(start.add(Duration.SECOND_DURATION.multiply(7 * i)), Duration.SECOND_DURATION);
+            new ActivityTwo(start.add(Duration.SECOND_DURATION.multiply(11 * i)), i);
+        }
+        new WaitingOnSignalActivity(start);
+        new SignalSendingActivity(start.add(Duration.MINUTE_DURATION), Duration.SECOND_DURATION);
+        new SignalSendingActivity(start.add(Duration.HOUR_DURATION), Duration.SECOND_DURATION);
+
+        Setup.initializeEngine(ModelingEngineType.FUNCTIONAL_WAIT);
+        ModelingEngine.getEngine().model();
+        List<String> expectedA = historyAsStrings(Res.ResourceA.historyIterator(null, null));
+        List<String> expectedState = historyAsStrings(Res.TestState.historyIterator(null, null));
+
+        Setup.initializeEngine(ModelingEngineType.DIRECT_HANDOFF);
+        ModelingEngine.getEngine().model();
+
+        assertEquals(expectedA, historyAsStrings(Res.ResourceA.historyIterator(null, null)));
+        assertEquals(expectedState, historyAsStrings(Res.TestState.historyIterator(null, null)));
+    }
+
+    @Test
+    public void blockingWaitsInterleave() {
+        Setup.initializeEngine(ModelingEngineType.DIRECT_HANDOFF);
+        IntegerResource counter = new IntegerResource();
+        for (int i = 0; i < 20; i++) {
+            new SteppingActivity(Time.getDefaultReferenceTime().add(Duration.SECOND_DURATION.multiply(i)), counter);
+        }
+        ModelingEngine.getEngine().model();
+        assertEquals(20 * 100, (int) counter.currentval());
+        assertEquals(Time.getDefaultReferenceTime().add(Duration.SECOND_DURATION.multiply(19 + 99 * 30)), counter.lastTimeSet());
+    }
+
+    @Test
+    public void successfullyCatchBrokenActivity() {
+        Setup.initializeEngine(ModelingEngineType.DIRECT_HANDOFF);
+        new ModelingEngineTest.FailedActivity(Time.getDefaultReferenceTime());
+
+        try {
+            ModelingEngine.getEngine().model();
+            fail("Should not have proceeded past runtime exception");
+        }
+        catch (RuntimeException ex) {
+            assertTrue(ex.getMessage().contains("Catch this"));
+        }
+    }
+
+    private static List<String> historyAsStrings(Iterator<? extends Map.Entry> iterator) {
+        List<String> out = new ArrayList<>();
+        while (iterator.hasNext()) {
+            Map.Entry entry = iterator.next();
+            out.add(entry.getKey().toString() + " " + entry.getValue().toString());
+        }
+        return out;
+    }
+
+    public static class SteppingActivity extends Activity {
+        private final IntegerResource res;
+
+        public SteppingActivity(Time t, IntegerResource res) {
+            super(t, res);
+            this.res = res;
+        }
+
+        public void model() {
+            for (int i = 0; i < 100; i++) {
+                if (i > 0) {
+                    waitFor(new Duration("00:00:30"));
+                }
+                res.add(1);
+            }
+        }
+    }
+}
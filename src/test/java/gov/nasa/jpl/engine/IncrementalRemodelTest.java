@@ -0,0 +1,154 @@
+package gov.nasa.jpl.engine;
+
+import gov.nasa.jpl.activity.Activity;
+import gov.nasa.jpl.activity.ActivityInstanceList;
+import gov.nasa.jpl.common.BaseTest;
+import gov.nasa.jpl.constraint.Constraint;
+import gov.nasa.jpl.constraint.ConstraintInstanceList;
+import gov.nasa.jpl.exampleAdaptation.ActivityOne;
+import gov.nasa.jpl.exampleAdaptation.ActivityTwo;
+import gov.nasa.jpl.exampleAdaptation.Res;
+import gov.nasa.jpl.time.Duration;
+import gov.nasa.jpl.time.Time;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class IncrementalRemodelTest extends BaseTest {
+
+    @Before
+    public void turnOnIncrementalRemodeling() {
+        ModelingEngine.getEngine().setIncrementalRemodeling(true);
+        ModelingEngine.getEngine().setCheckpointInterval(Duration.MINUTE_DURATION.multiply(30));
+    }
+
+    @After
+    public void turnOffIncrementalRemodeling() {
+        ModelingEngine.getEngine().resetEngine();
+        ModelingEngine.getEngine().setIncrementalRemodeling(false);
+        ModelingEngine.getEngine().setCheckpointInterval(Duration.HOUR_DURATION);
+    }
+
+    @Test
+    public void moveNearEndOfPlanOnlyRemodelsTheEnd() {
+        Time start = Time.getDefaultReferenceTime();
+        List<Activity> plan = buildPlan(start);
+
+        ModelingEngine.getEngine().remodel();
+        assertNull(ModelingEngine.getEngine().getResumeTime());
+
+        // move the second to last activity later, like MoveActivityCommand does
+        Activity toMove = plan.get(plan.size() - 2);
+        ActivityInstanceList.getActivityList().remove(toMove);
+        new ActivityOne(toMove.getStart().add(Duration.MINUTE_DURATION.multiply(3)), Duration.MINUTE_DURATION);
+
+        ModelingEngine.getEngine().remodel();
+        Time resumeTime = ModelingEngine.getEngine().getResumeTime();
+        assertNotNull(resumeTime);
+        assertTrue(resumeTime.lessThanOrEqualTo(toMove.getStart()));
+        assertTrue(resumeTime.greaterThan(start.add(Duration.HOUR_DURATION.multiply(10))));
+        List<String> incremental = snapshotResults();
+
+        ModelingEngine.getEngine().model();
+        assertEquals(snapshotResults(), incremental);
+    }
+
+    @Test
+    public void remodelingTwiceInARowMatchesFullRemodel() {
+        List<Activity> plan = buildPlan(Time.getDefaultReferenceTime());
+        ModelingEngine.getEngine().remodel();
+
+        Activity toRemove = plan.get(plan.size() / 2);
+        ActivityInstanceList.getActivityList().remove(toRemove);
+        ModelingEngine.getEngine().remodel();
+        assertNotNull(ModelingEngine.getEngine().getResumeTime());
+
+        Activity toEdit = plan.get(plan.size() - 5);
+        toEdit.setDuration(Duration.MINUTE_DURATION.multiply(7));
+        ModelingEngine.getEngine().remodel();
+        assertNotNull(ModelingEngine.getEngine().getResumeTime());
+        List<String> incremental = snapshotResults();
+
+        ModelingEngine.getEngine().model();
+        assertEquals(snapshotResults(), incremental);
+    }
+
+    @Test
+    public void globalChangesForceFullRemodel() {
+        buildPlan(Time.getDefaultReferenceTime());
+        ModelingEngine.getEngine().remodel();
+        ModelingEngine.getEngine().markAllChanged();
+        ModelingEngine.getEngine().remodel();
+        assertNull(ModelingEngine.getEngine().getResumeTime());
+
+        ModelingEngine.getEngine().setIncrementalRemodeling(false);
+        ModelingEngine.getEngine().remodel();
+        ModelingEngine.getEngine().remodel();
+        assertNull(ModelingEngine.getEngine().getResumeTime());
+    }
+
+    @Test
+    public void sameTimeActivitiesRunInTheSameOrderWhenResuming() {
+        // several activities start at each time, and ActivityOne sets ResourceA where ActivityTwo adds to it
+        Time start = Time.getDefaultReferenceTime();
+        List<Activity> plan = new ArrayList<>();
+        for (int i = 0; i < 48; i++) {
+            Time t = start.add(Duration.MINUTE_DURATION.multiply(15 * (i / 4)));
+            if (i % 2 == 0) {
+                plan.add(new ActivityTwo(t, 100.0 * i));
+            }
+            else {
+                plan.add(new ActivityOne(t, Duration.MINUTE_DURATION.multiply(2)));
+            }
+        }
+        ModelingEngine.getEngine().remodel();
+
+        ActivityInstanceList.getActivityList().remove(plan.get(plan.size() - 3));
+        ModelingEngine.getEngine().remodel();
+        assertNotNull(ModelingEngine.getEngine().getResumeTime());
+        List<String> incremental = snapshotResults();
+
+        ModelingEngine.getEngine().model();
+        assertEquals(snapshotResults(), incremental);
+    }
+
+    private List<Activity> buildPlan(Time start) {
+        List<Activity> plan = new ArrayList<>();
+        for (int i = 0; i < 48; i++) {
+            Time t = start.add(Duration.MINUTE_DURATION.multiply(15 * i));
+            if (i % 3 == 0) {
+                // ActivityTwo decomposes into ActivityOnes, which the preceder constraint looks for
+                plan.add(new ActivityTwo(t, 100.0 * i));
+            }
+            else {
+                plan.add(new ActivityOne(t, Duration.MINUTE_DURATION.multiply(2)));
+            }
+        }
+        return plan;
+    }
+
+    private static List<String> snapshotResults() {
+        List<String> out = new ArrayList<>();
+        addHistory(out, "A", Res.ResourceA.historyIterator(null, null));
+        addHistory(out, "B", Res.ResourceB.historyIterator(null, null));
+        addHistory(out, "IntegratesA", Res.IntegratesA.historyIterator(null, null));
+        for (Map.Entry<Time, Map.Entry<Boolean, Constraint>> entry : ConstraintInstanceList.getConstraintList().createListOfConstraintBeginAndEndTimes()) {
+            out.add(entry.getKey() + " " + entry.getValue().getKey() + " " + entry.getValue().getValue().getName());
+        }
+        return out;
+    }
+
+    private static void addHistory(List<String> out, String name, Iterator<? extends Map.Entry> iterator) {
+        while (iterator.hasNext()) {
+            Map.Entry entry = iterator.next();
+            out.add(name + " " + entry.getKey() + " " + entry.getValue());
+        }
+    }
+}
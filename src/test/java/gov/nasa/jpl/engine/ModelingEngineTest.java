@@ -3,13 +3,21 @@ package gov.nasa.jpl.engine;
 import gov.nasa.jpl.activity.Activity;
 import gov.nasa.jpl.activity.ActivityInstanceList;
 import gov.nasa.jpl.common.BaseTest;
+import gov.nasa.jpl.resource.DoubleResource;
+import gov.nasa.jpl.resource.DoubleResourceChangeListener;
 import gov.nasa.jpl.resource.IntegerResource;
+import gov.nasa.jpl.resource.Resource;
 import gov.nasa.jpl.resource.ResourceList;
+import gov.nasa.jpl.resource.SumDoubleResource;
 import gov.nasa.jpl.time.Duration;
 import gov.nasa.jpl.time.Time;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import static org.junit.Assert.*;
 
 public class ModelingEngineTest extends BaseTest {
@@ -87,4 +95,87 @@ public class ModelingEngineTest extends BaseTest {
         // The resource should equal 40 + 210
         assertEquals(250, (int)intRes.currentval());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void batchedResourceUpdates() {
+        DoubleResource loadA = new DoubleResource(0.0, "subsystem1");
+        DoubleResource loadB = new DoubleResource(0.0, "subsystem1");
+        SumDoubleResource total = new SumDoubleResource(loadA, loadB);
+        List<Double> heard = new ArrayList<>();
+        total.addChangeListener((DoubleResourceChangeListener) (source, oldTime, oldValue, newTime, newValue) -> heard.add(newValue));
+        new SettingTwoLoadsActivity(Time.getDefaultReferenceTime(), loadA, loadB);
+
+        // every set is heard on its own, including the sum with only one of the loads changed
+        ModelingEngine.getEngine().model();
+        assertEquals(Arrays.asList(1.0, 3.0, 6.0, 10.0), heard);
+
+        heard.clear();
+        ModelingEngine.getEngine().setBatchingResourceUpdates(true);
+        try {
+            ModelingEngine.getEngine().model();
+        }
+        finally {
+            ModelingEngine.getEngine().setBatchingResourceUpdates(false);
+        }
+        // the sum is updated once both loads are, and its listener hears it once per time
+        assertEquals(Arrays.asList(3.0, 10.0), heard);
+        assertEquals(10.0, total.currentval(), 0.0);
+        assertEquals(3.0, total.valueAt(Time.getDefaultReferenceTime()), 0.0);
+    }
+
+    @Test
+    public void batchedUpdatesRecomputeEachFollowingResourceOnce() {
+        DoubleResource loadA = new DoubleResource(0.0, "subsystem1");
+        DoubleResource loadB = new DoubleResource(0.0, "subsystem1");
+        int[] recomputations = new int[2];
+        SumDoubleResource total = new SumDoubleResource(loadA, loadB) {
+            @Override
+            public void doubleChanged(Resource<Double> source, Time oldTime, double oldValue, Time newTime, double newValue) {
+                recomputations[0]++;
+                super.doubleChanged(source, oldTime, oldValue, newTime, newValue);
+            }
+        };
+        // follows a load directly and through the total, so it is only final once the total is
+        SumDoubleResource totalPlusA = new SumDoubleResource(total, loadA) {
+            @Override
+            public void doubleChanged(Resource<Double> source, Time oldTime, double oldValue, Time newTime, double newValue) {
+                recomputations[1]++;
+                super.doubleChanged(source, oldTime, oldValue, newTime, newValue);
+            }
+        };
+        new SettingTwoLoadsActivity(Time.getDefaultReferenceTime(), loadA, loadB);
+
+        ModelingEngine.getEngine().setBatchingResourceUpdates(true);
+        try {
+            ModelingEngine.getEngine().model();
+        }
+        finally {
+            ModelingEngine.getEngine().setBatchingResourceUpdates(false);
+        }
+        // once per time the loads are set, not once per load that changed
+        assertArrayEquals(new int[]{2, 2}, recomputations);
+        assertEquals(14.0, totalPlusA.currentval(), 0.0);
+        assertEquals(4.0, totalPlusA.valueAt(Time.getDefaultReferenceTime()), 0.0);
+        assertEquals(2, totalPlusA.getSize());
+    }
+
+    public static class SettingTwoLoadsActivity extends Activity {
+        private final DoubleResource loadA;
+        private final DoubleResource loadB;
+
+        public SettingTwoLoadsActivity(Time t, DoubleResource loadA, DoubleResource loadB) {
+            super(t, loadA, loadB);
+            this.loadA = loadA;
+            this.loadB = loadB;
+            setDuration(Duration.MINUTE_DURATION);
+        }
+
+        public void model() {
+            loadA.set(1.0);
+            loadB.set(2.0);
+            waitFor(Duration.MINUTE_DURATION);
+            loadA.set(4.0);
+            loadB.set(6.0);
+        }
+    }
+}
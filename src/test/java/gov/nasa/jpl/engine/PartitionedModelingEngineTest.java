@@ -0,0 +1,342 @@
+package gov.nasa.jpl.engine;
+
+import gov.nasa.jpl.activity.Activity;
+import gov.nasa.jpl.activity.annotations.Footprint;
+import gov.nasa.jpl.common.BaseTest;
+import gov.nasa.jpl.exampleAdaptation.ActivityOne;
+import gov.nasa.jpl.resource.Resource;
+import gov.nasa.jpl.time.Duration;
+import gov.nasa.jpl.time.Time;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import static gov.nasa.jpl.exampleAdaptation.Res.*;
+import static org.junit.Assert.*;
+
+public class PartitionedModelingEngineTest extends BaseTest {
+
+    @After
+    public void restoreDefaultEngine() {
+        ModelingEngine.getEngine().resetEngine();
+        Setup.initializeEngine(ModelingEngineType.FUNCTIONAL_WAIT);
+    }
+
+    @Test
+    public void sameResultsAsFunctionalWaitEngine() {
+        Time start = Time.getDefaultReferenceTime();
+        for (int i = 0; i < 30; i++) {
+            new PartitionCounter(start.add(Duration.SECOND_DURATION.multiply(7 * i)));
+            new PartitionDurationDoubler(start.add(Duration.SECOND_DURATION.multiply(11 * i)));
+            new PartitionPositionMover(start.add(Duration.SECOND_DURATION.multiply(13 * i)));
+        }
+        new PartitionSignalWaiter(start);
+        new PartitionSignalSender(start.add(Duration.MINUTE_DURATION));
+        new PartitionSignalSender(start.add(Duration.HOUR_DURATION));
+
+        List<Resource> resources = new ArrayList<>();
+        resources.add(ResourceB);
+        resources.add(ResourceC);
+        resources.add(TimeRes);
+        resources.add(PositionVector.get("z"));
+        resources.add(IntegratesPosition.get("z"));
+
+        Setup.initializeEngine(ModelingEngineType.FUNCTIONAL_WAIT);
+        ModelingEngine.getEngine().model();
+        List<List<String>> expected = new ArrayList<>();
+        for (Resource res : resources) {
+            expected.add(historyAsStrings(res.historyIterator(null, null)));
+        }
+        Time expectedEnd = ModelingEngine.getEngine().getCurrentTime();
+
+        Setup.initializeEngine(ModelingEngineType.PARTITIONED);
+        ModelingEngine.getEngine().model();
+
+        assertTrue(((PartitionedModelingEngine) ModelingEngine.getEngine()).getPartitionsInLastRun() > 1);
+        for (int i = 0; i < resources.size(); i++) {
+            assertEquals(expected.get(i), historyAsStrings(resources.get(i).historyIterator(null, null)));
+        }
+        assertEquals(expectedEnd, ModelingEngine.getEngine().getCurrentTime());
+    }
+
+    @Test
+    public void tiesBetweenPartitionsMatchFunctionalWaitEngine() {
+        Time start = Time.getDefaultReferenceTime();
+        // both partitions start, wait and resume at the same instants, but no two Waiters of one partition tie
+        for (int i = 0; i < 40; i++) {
+            Time t = start.add(Duration.SECOND_DURATION.multiply(30 * i));
+            new PartitionSetter(t, i);
+            new PartitionDurationDoubler(t);
+        }
+
+        Setup.initializeEngine(ModelingEngineType.FUNCTIONAL_WAIT);
+        ModelingEngine.getEngine().model();
+        List<String> expectedB = historyAsStrings(ResourceB.historyIterator(null, null));
+        List<String> expectedC = historyAsStrings(ResourceC.historyIterator(null, null));
+
+        Setup.initializeEngine(ModelingEngineType.PARTITIONED);
+        ModelingEngine.getEngine().model();
+
+        assertEquals(2, ((PartitionedModelingEngine) ModelingEngine.getEngine()).getPartitionsInLastRun());
+        assertEquals(expectedB, historyAsStrings(ResourceB.historyIterator(null, null)));
+        assertEquals(expectedC, historyAsStrings(ResourceC.historyIterator(null, null)));
+    }
+
+    @Test
+    public void serialRunBreaksTiesLikeFunctionalWaitEngine() {
+        Time start = Time.getDefaultReferenceTime();
+        // only a few distinct times, so lots of Waiters tie, and ActivityOne has no Footprint so nothing is split up
+        for (int i = 0; i < 40; i++) {
+            Time t = start.add(Duration.SECOND_DURATION.multiply(30 * (i % 3)));
+            new PartitionSetter(t, i);
+            new PartitionDurationDoubler(t);
+        }
+        new ActivityOne(start, Duration.SECOND_DURATION);
+
+        Setup.initializeEngine(ModelingEngineType.FUNCTIONAL_WAIT);
+        ModelingEngine.getEngine().model();
+        List<String> expectedB = historyAsStrings(ResourceB.historyIterator(null, null));
+        List<String> expectedC = historyAsStrings(ResourceC.historyIterator(null, null));
+
+        Setup.initializeEngine(ModelingEngineType.PARTITIONED);
+        ModelingEngine.getEngine().model();
+
+        assertEquals(1, ((PartitionedModelingEngine) ModelingEngine.getEngine()).getPartitionsInLastRun());
+        assertEquals(expectedB, historyAsStrings(ResourceB.historyIterator(null, null)));
+        assertEquals(expectedC, historyAsStrings(ResourceC.historyIterator(null, null)));
+    }
+
+    @Test
+    public void activityWithoutFootprintModelsSerially() {
+        Setup.initializeEngine(ModelingEngineType.PARTITIONED);
+        Time start = Time.getDefaultReferenceTime();
+        new PartitionCounter(start);
+        new PartitionDurationDoubler(start);
+        new ActivityOne(start, Duration.SECOND_DURATION);
+        ModelingEngine.getEngine().model();
+
+        assertEquals(1, ((PartitionedModelingEngine) ModelingEngine.getEngine()).getPartitionsInLastRun());
+        assertEquals(Duration.SECOND_DURATION.multiply(2), ResourceC.currentval());
+    }
+
+    @Test
+    public void spawningIntoAnotherPartitionFails() {
+        Setup.initializeEngine(ModelingEngineType.PARTITIONED);
+        Time start = Time.getDefaultReferenceTime();
+        new PartitionDurationDoubler(start);
+        new PartitionCrossSpawner(start.add(Duration.MINUTE_DURATION));
+
+        try {
+            ModelingEngine.getEngine().model();
+            fail("Should not have let a spawned activity use a resource of another partition");
+        }
+        catch (RuntimeException ex) {
+            assertTrue(ex.getMessage().contains("resource ResourceC"));
+        }
+    }
+
+    @Test
+    public void settingResourceOutsideFootprintFails() {
+        Setup.initializeEngine(ModelingEngineType.PARTITIONED);
+        Time start = Time.getDefaultReferenceTime();
+        new PartitionDurationDoubler(start);
+        new PartitionFootprintBreaker(start.add(Duration.MINUTE_DURATION));
+
+        try {
+            ModelingEngine.getEngine().model();
+            fail("Should not have let an activity set a resource of another partition");
+        }
+        catch (RuntimeException ex) {
+            assertTrue(ex.getMessage().contains("resource ResourceC"));
+        }
+    }
+
+    @Test
+    public void readingResourceOutsideFootprintFails() {
+        Setup.initializeEngine(ModelingEngineType.PARTITIONED);
+        Time start = Time.getDefaultReferenceTime();
+        new PartitionDurationDoubler(start);
+        new PartitionFootprintReader(start.add(Duration.MINUTE_DURATION));
+
+        try {
+            ModelingEngine.getEngine().model();
+            fail("Should not have let an activity read a resource another partition sets");
+        }
+        catch (RuntimeException ex) {
+            assertTrue(ex.getMessage().contains("resource ResourceC"));
+        }
+    }
+
+    @Test
+    public void partitionsCanReadResourceNobodySets() {
+        Setup.initializeEngine(ModelingEngineType.PARTITIONED);
+        Time start = Time.getDefaultReferenceTime();
+        new PartitionCounter(start);
+        new PartitionDurationDoubler(start);
+        new ReadingResourceA(start.add(Duration.MINUTE_DURATION));
+        new ReadingResourceAToo(start.add(Duration.MINUTE_DURATION));
+        ModelingEngine.getEngine().model();
+
+        assertEquals(4, ((PartitionedModelingEngine) ModelingEngine.getEngine()).getPartitionsInLastRun());
+    }
+
+    private static List<String> historyAsStrings(Iterator<? extends Map.Entry> iterator) {
+        List<String> out = new ArrayList<>();
+        while (iterator.hasNext()) {
+            Map.Entry entry = iterator.next();
+            out.add(entry.getKey().toString() + " " + entry.getValue().toString());
+        }
+        return out;
+    }
+
+    @Footprint(resources = {"ResourceB"})
+    public static class PartitionCounter extends Activity {
+        public PartitionCounter(Time t) {
+            super(t);
+        }
+
+        public void model() {
+            for (int i = 0; i < 10; i++) {
+                ResourceB.add(2);
+                waitFor(new Duration("00:00:30"));
+            }
+        }
+    }
+
+    @Footprint(resources = {"ResourceC"})
+    public static class PartitionDurationDoubler extends Activity {
+        public PartitionDurationDoubler(Time t) {
+            super(t);
+        }
+
+        public void model() {
+            ResourceC.add(Duration.SECOND_DURATION);
+            waitFor(new Duration("00:01:00"));
+            ResourceC.set(ResourceC.currentval().multiply(2));
+        }
+    }
+
+    // IntegratesPosition follows PositionVector, so it is modeled with it without being declared
+    @Footprint(resources = {"PositionVector"})
+    public static class PartitionPositionMover extends Activity {
+        public PartitionPositionMover(Time t) {
+            super(t);
+        }
+
+        public void model() {
+            PositionVector.get("z").add(0.5);
+            waitFor(new Duration("00:00:45"));
+            PositionVector.get("z").subtract(0.25);
+        }
+    }
+
+    @Footprint(resources = {"TimeRes"}, signals = {"partition test signal"})
+    public static class PartitionSignalWaiter extends Activity {
+        public PartitionSignalWaiter(Time t) {
+            super(t);
+        }
+
+        public Waiter modelFunc() {
+            return waitForSignal("partition test signal", (contents) -> {
+                TimeRes.set(now());
+                return this.modelFunc();
+            });
+        }
+    }
+
+    @Footprint(resources = {"TimeRes"}, signals = {"partition test signal"})
+    public static class PartitionSignalSender extends Activity {
+        public PartitionSignalSender(Time t) {
+            super(t);
+        }
+
+        public void model() {
+            Signal.send("partition test signal", new HashMap<>());
+        }
+    }
+
+    // the value it leaves ResourceB at depends on which of the activities tying with it ran last
+    @Footprint(resources = {"ResourceB"})
+    public static class PartitionSetter extends Activity {
+        private final int value;
+
+        public PartitionSetter(Time t, int value) {
+            super(t, value);
+            this.value = value;
+        }
+
+        public void model() {
+            ResourceB.set(value);
+            waitFor(new Duration("00:00:30"));
+            ResourceB.set((ResourceB.currentval() * 3 + value) % 1000);
+        }
+    }
+
+    // sets a resource its footprint doesn't declare
+    @Footprint(resources = {"ResourceB"})
+    public static class PartitionFootprintBreaker extends Activity {
+        public PartitionFootprintBreaker(Time t) {
+            super(t);
+        }
+
+        public void model() {
+            ResourceB.add(1);
+            ResourceC.add(Duration.SECOND_DURATION);
+        }
+    }
+
+    // reads a resource its footprint doesn't declare, which another partition sets
+    @Footprint(resources = {"ResourceB"})
+    public static class PartitionFootprintReader extends Activity {
+        public PartitionFootprintReader(Time t) {
+            super(t);
+        }
+
+        public void model() {
+            if (ResourceC.currentval().greaterThan(Duration.ZERO_DURATION)) {
+                ResourceB.add(1);
+            }
+        }
+    }
+
+    // read ResourceA without declaring it, which is fine since nothing sets it
+    @Footprint(resources = {})
+    public static class ReadingResourceA extends Activity {
+        public ReadingResourceA(Time t) {
+            super(t);
+        }
+
+        public void model() {
+            ResourceA.currentval();
+        }
+    }
+
+    @Footprint(resources = {})
+    public static class ReadingResourceAToo extends Activity {
+        public ReadingResourceAToo(Time t) {
+            super(t);
+        }
+
+        public void model() {
+            ResourceA.valueAt(now());
+        }
+    }
+
+    // spawns an activity using a resource its own footprint doesn't cover
+    @Footprint(resources = {"ResourceB"})
+    public static class PartitionCrossSpawner extends Activity {
+        public PartitionCrossSpawner(Time t) {
+            super(t);
+        }
+
+        public void model() {
+            ResourceB.add(1);
+            spawn(new PartitionDurationDoubler(now()));
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package gov.nasa.jpl.engine;
+
+import gov.nasa.jpl.time.Duration;
+import gov.nasa.jpl.time.Time;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class WaiterQueueTest {
+
+    // by default ties are left to the heap's shape, exactly like the PriorityQueue the engines used to use
+    @Test
+    public void sameOrderAsPriorityQueue() {
+        Random random = new Random(42);
+        WaiterQueue queue = new WaiterQueue();
+        // a queue a previous run used with incremental REMODEL on goes back to the heap's order once it is turned off
+        queue.setTiesInAddedOrder(true);
+        queue.setTiesInAddedOrder(false);
+        // Waiter.compareTo() only looks at time and priority, so this is the order engines have always used
+        PriorityQueue<Waiter> expected = new PriorityQueue<>();
+        Time start = Time.getDefaultReferenceTime();
+
+        // few distinct times, so lots of Waiters tie on time and priority
+        for (int i = 0; i < 500; i++) {
+            Waiter w = new Waiter(start.add(Duration.SECOND_DURATION.multiply(random.nextInt(20))), random.nextInt(3) - 1, () -> null);
+            queue.add(w);
+            expected.add(w);
+        }
+
+        // like the engine, each Waiter run schedules new ones at or after its own time
+        int removed = 0;
+        while (!expected.isEmpty()) {
+            assertSame(expected.peek(), queue.peek());
+            Waiter next = queue.remove();
+            assertSame(expected.remove(), next);
+            if (++removed < 5000) {
+                int added = random.nextInt(3);
+                for (int i = 0; i < added; i++) {
+                    Waiter w = new Waiter(next.getTime().add(Duration.SECOND_DURATION.multiply(random.nextInt(5))), random.nextInt(2), () -> null);
+                    queue.add(w);
+                    expected.add(w);
+                }
+            }
+        }
+        assertTrue(queue.isEmpty());
+        assertNull(queue.peek());
+    }
+
+    @Test
+    public void tiesComeOutInTheOrderTheyWereAddedWhenAsked() {
+        WaiterQueue queue = new WaiterQueue();
+        queue.setTiesInAddedOrder(true);
+        Time start = Time.getDefaultReferenceTime();
+        List<Waiter> added = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            Waiter w = new Waiter(start, 1, () -> null);
+            queue.add(w);
+            added.add(w);
+        }
+
+        for (Waiter w : added) {
+            assertSame(w, queue.remove());
+        }
+
+        // a Waiter that is re-armed and added again goes behind the ones added before it, as if it were new
+        queue.add(added.get(1));
+        queue.add(added.get(0));
+        assertSame(added.get(1), queue.remove());
+        assertSame(added.get(0), queue.remove());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void tieOrderCantChangeWhileQueueHoldsWaiters() {
+        WaiterQueue queue = new WaiterQueue();
+        queue.add(new Waiter(Time.getDefaultReferenceTime(), 1, () -> null));
+        queue.setTiesInAddedOrder(true);
+    }
+
+    @Test
+    public void recyclesOnlyPooledWaiters() {
+        WaiterQueue queue = new WaiterQueue();
+        Time start = Time.getDefaultReferenceTime();
+
+        Waiter pooled = queue.obtain(start, 0, () -> null);
+        queue.recycle(pooled);
+        Waiter reused = queue.obtain(start.add(Duration.MINUTE_DURATION), 1, () -> null);
+        assertSame(pooled, reused);
+        assertEquals(start.add(Duration.MINUTE_DURATION), reused.getTime());
+        assertTrue(reused.startsActivity());
+
+        Waiter constructed = new Waiter(start, 0, () -> null);
+        queue.recycle(constructed);
+        assertNotSame(constructed, queue.obtain(start, 0, () -> null));
+    }
+}
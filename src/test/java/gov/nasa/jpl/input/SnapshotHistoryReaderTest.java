@@ -0,0 +1,72 @@
+package gov.nasa.jpl.input;
+
+import gov.nasa.jpl.activity.Activity;
+import gov.nasa.jpl.activity.ActivityInstanceList;
+import gov.nasa.jpl.command.CommandController;
+import gov.nasa.jpl.common.BaseTest;
+import gov.nasa.jpl.engine.ModelingEngine;
+import gov.nasa.jpl.exampleAdaptation.ActivityOne;
+import gov.nasa.jpl.resource.Resource;
+import gov.nasa.jpl.resource.ResourceList;
+import gov.nasa.jpl.time.Duration;
+import gov.nasa.jpl.time.EpochRelativeTime;
+import gov.nasa.jpl.time.Time;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.List;
+
+import static gov.nasa.jpl.input.XMLTOLHistoryReaderTest.readInHistoryOfActivitiesAndResource;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class SnapshotHistoryReaderTest extends BaseTest {
+    @Before
+    public void setUp(){
+        EpochRelativeTime.addEpoch("test", Time.getDefaultReferenceTime());
+        EpochRelativeTime.addEpoch("a", Time.getDefaultReferenceTime());
+
+        ModelingEngine.getEngine().setTime(Time.getDefaultReferenceTime());
+    }
+
+    @Test
+    public void readInSnapshotHistory() {
+        try {
+            readInHistoryOfActivitiesAndResource("history_unit_test.bbsnap", true);
+        }
+        finally {
+            for (Resource res: ResourceList.getResourceList().getListOfAllResources()) {
+                res.setFrozen(false);
+            }
+            new File("history_unit_test.bbsnap").delete();
+        }
+    }
+
+    @Test
+    public void nullNotesStayNull() {
+        String fileName = "notes_test.bbsnap";
+        ActivityInstanceList.getActivityList().clear();
+        try {
+            new ActivityOne(new Time("2000-001T00:00:00"), new Duration("00:01:00")).setNotes(null);
+            new ActivityOne(new Time("2000-001T00:01:00"), new Duration("00:01:00")).setNotes("");
+            new ActivityOne(new Time("2000-001T00:02:00"), new Duration("00:01:00")).setNotes("some notes");
+            CommandController.issueCommand("WRITE", fileName);
+            ActivityInstanceList.getActivityList().clear();
+            CommandController.issueCommand("OPEN_FILE", fileName);
+
+            List<Activity> acts = ActivityInstanceList.getActivityList().getAllActivitiesOfType(ActivityOne.class);
+            assertEquals(3, acts.size());
+            assertNull(acts.get(0).getNotes());
+            assertEquals("", acts.get(1).getNotes());
+            assertEquals("some notes", acts.get(2).getNotes());
+        }
+        finally {
+            for (Resource res: ResourceList.getResourceList().getListOfAllResources()) {
+                res.setFrozen(false);
+            }
+            ActivityInstanceList.getActivityList().clear();
+            new File(fileName).delete();
+        }
+    }
+}
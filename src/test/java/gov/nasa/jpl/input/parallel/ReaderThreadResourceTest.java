@@ -0,0 +1,116 @@
+package gov.nasa.jpl.input.parallel;
+
+import gov.nasa.jpl.common.BaseTest;
+import gov.nasa.jpl.resource.Resource;
+import gov.nasa.jpl.time.Time;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import static gov.nasa.jpl.exampleAdaptation.Res.*;
+import static org.junit.Assert.*;
+
+public class ReaderThreadResourceTest extends BaseTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void doublesRoundTripThroughEverySegmentSize() throws IOException {
+        // a mix of values the fast path parses and ones it hands to Double.valueOf()
+        double[] values = {0.0, -0.0, 1.5, 15.0, 42.49, -20.5, 0.1, 1.0E-7, 1.0E10, 123456.789, 0.30000000000000004,
+                Math.PI, -Math.E, Double.MAX_VALUE, Double.MIN_VALUE, 1.7976931348623157E300, Double.NaN, Double.POSITIVE_INFINITY};
+        List<String> lines = new ArrayList<>();
+        Time start = new Time("2000-001T00:00:00");
+        for (int i = 0; i < values.length; i++) {
+            Time t = Time.fromTics(start.getTics() + i * 1000L);
+            lines.add(t.toUTC() + "," + t.getTics() + "," + values[i]);
+        }
+        File csv = writeCSV(ResourceA, lines, "\n");
+
+        for (long segmentSize : new long[]{1, 50, 200, 1 << 20}) {
+            ResourceA.clearHistory();
+            runSegmentsInReverse(new ReaderThreadResource(csv, false, segmentSize));
+            List<Map.Entry<Time, Comparable>> read = readBack(ResourceA);
+            assertEquals(values.length, read.size());
+            for (int i = 0; i < values.length; i++) {
+                assertEquals(start.getTics() + i * 1000L, read.get(i).getKey().getTics());
+                assertEquals(Double.doubleToLongBits(values[i]), Double.doubleToLongBits((Double) read.get(i).getValue()));
+            }
+        }
+    }
+
+    @Test
+    public void integersAndStringsWithWindowsLineEndings() throws IOException {
+        List<String> integerLines = new ArrayList<>();
+        List<String> stringLines = new ArrayList<>();
+        Time start = new Time("2000-001T00:00:00");
+        for (int i = 0; i < 100; i++) {
+            Time t = Time.fromTics(start.getTics() + i * 1000L);
+            integerLines.add(t.toUTC() + "," + t.getTics() + "," + (i % 2 == 0 ? i * 1000 : -i));
+            stringLines.add(t.toUTC() + "," + t.getTics() + "," + (i % 2 == 0 ? "NoSignal" : "Signal, with a comma"));
+        }
+        new ReaderThreadResource(writeCSV(ResourceB, integerLines, "\r\n"), false, 256).run();
+        new ReaderThreadResource(writeCSV(TestState, stringLines, "\r\n"), false, 256).run();
+
+        List<Map.Entry<Time, Comparable>> integers = readBack(ResourceB);
+        List<Map.Entry<Time, Comparable>> strings = readBack(TestState);
+        assertEquals(100, integers.size());
+        assertEquals(100, strings.size());
+        assertEquals(42000, integers.get(42).getValue());
+        assertEquals(-43, integers.get(43).getValue());
+        assertEquals("NoSignal", strings.get(42).getValue());
+        assertEquals("Signal, with a comma", strings.get(43).getValue());
+    }
+
+    @Test
+    public void badLineFailsWithoutInsertingAnything() throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add("2000-001T00:00:00.000000,0,1.0");
+        lines.add("not a resource line");
+        ResourceA.clearHistory();
+        try {
+            new ReaderThreadResource(writeCSV(ResourceA, lines, "\n"), true, 8).run();
+            fail("expected the bad line to be reported");
+        }
+        catch (RuntimeException e) {
+            assertTrue(e.getMessage().startsWith("Invalid format"));
+        }
+        assertTrue(readBack(ResourceA).isEmpty());
+    }
+
+    private File writeCSV(Resource res, List<String> lines, String lineEnding) throws IOException {
+        File csv = new File(folder.getRoot(), res.getUniqueName() + ".csv");
+        try (PrintWriter writer = new PrintWriter(csv, "UTF-8")) {
+            for (String line : lines) {
+                writer.print(line + lineEnding);
+            }
+        }
+        return csv;
+    }
+
+    private static void runSegmentsInReverse(ReaderThreadResource reader) {
+        List<Runnable> segments = new ArrayList<>(reader.splitIntoSegments());
+        Collections.reverse(segments);
+        for (Runnable segment : segments) {
+            segment.run();
+        }
+    }
+
+    private static List<Map.Entry<Time, Comparable>> readBack(Resource res) {
+        List<Map.Entry<Time, Comparable>> entries = new ArrayList<>();
+        Iterator<Map.Entry<Time, Comparable>> iterator = res.historyIterator(null, null);
+        while (iterator.hasNext()) {
+            entries.add(iterator.next());
+        }
+        return entries;
+    }
+}
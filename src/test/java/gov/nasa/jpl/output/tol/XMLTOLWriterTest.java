@@ -3,6 +3,7 @@ package gov.nasa.jpl.output.tol;
 import gov.nasa.jpl.activity.ActivityInstanceList;
 import gov.nasa.jpl.command.CommandController;
 import gov.nasa.jpl.common.BaseTest;
+import gov.nasa.jpl.engine.ModelingEngine;
 import gov.nasa.jpl.exampleAdaptation.ActivityOne;
 import gov.nasa.jpl.resource.Resource;
 import gov.nasa.jpl.resource.ResourceList;
@@ -10,10 +11,18 @@ import gov.nasa.jpl.time.Duration;
 import gov.nasa.jpl.time.Time;
 import org.junit.Test;
 
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
+import static gov.nasa.jpl.exampleAdaptation.Res.ResourceB;
+
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 public class XMLTOLWriterTest extends BaseTest {
 
@@ -41,6 +50,53 @@ public class XMLTOLWriterTest extends BaseTest {
         }
     }
 
+    @Test
+    public void recordsStayInOrderAcrossChunks() throws IOException {
+        // more records than a whole batch, and a number no chunk size divides, so the last chunk is a partial one
+        int numRecords = XMLTOLWriter.MAX_BATCH_SIZE + 10001;
+        Time start = Time.getDefaultReferenceTime();
+        for (int i = 0; i < numRecords; i++) {
+            ModelingEngine.getEngine().setTime(start.add(Duration.SECOND_DURATION.multiply(i)));
+            ResourceB.set(i);
+        }
+
+        String fileName = "many_records.tol.xml";
+        try {
+            CommandController.issueCommand("WRITE", fileName + " RESOURCES INCLUDE (ResourceB)");
+
+            List<Integer> values = new ArrayList<>();
+            List<Time> times = new ArrayList<>();
+            try (BufferedReader reader = new BufferedReader(new FileReader(fileName))) {
+                boolean inResourceValue = false;
+                String timeStamp = null;
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    line = line.trim();
+                    // the final value of the resource is written after the records, which isn't what we check here
+                    if (line.startsWith("<TOLrecord")) {
+                        inResourceValue = line.contains("\"RES_VAL\"");
+                    }
+                    else if (line.startsWith("<TimeStamp>")) {
+                        timeStamp = line.substring("<TimeStamp>".length(), line.indexOf("</TimeStamp>"));
+                    }
+                    else if (line.startsWith("<IntegerValue>") && inResourceValue) {
+                        values.add(Integer.valueOf(line.substring("<IntegerValue>".length(), line.indexOf("</IntegerValue>"))));
+                        times.add(new Time(timeStamp));
+                    }
+                }
+            }
+
+            assertEquals(numRecords, values.size());
+            for (int i = 0; i < numRecords; i++) {
+                assertEquals((Integer) i, values.get(i));
+                assertEquals(start.add(Duration.SECOND_DURATION.multiply(i)), times.get(i));
+            }
+        }
+        finally {
+            new File(fileName).delete();
+        }
+    }
+
     @Test
     public void testBatching(){
         List<List<Map.Entry<Integer, Integer>>> indices = XMLTOLWriter.breakLongListIntoStartEndSublistsByBatchAndCore(1000000, 50000, 7);
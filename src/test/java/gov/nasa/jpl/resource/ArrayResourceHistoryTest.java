@@ -0,0 +1,150 @@
+package gov.nasa.jpl.resource;
+
+import gov.nasa.jpl.time.Duration;
+import gov.nasa.jpl.time.Time;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class ArrayResourceHistoryTest {
+
+    @Test
+    public void outOfOrderInsertsAndOverwrites() {
+        DoubleArrayResourceHistory history = new DoubleArrayResourceHistory();
+        history.put(new Time("2000-001T00:00:10"), 10.0);
+        history.put(new Time("2000-001T00:00:30"), 30.0);
+        history.put(new Time("2000-001T00:00:20"), 20.0);
+        history.put(new Time("2000-001T00:00:30"), 31.0);
+        history.put(new Time("2000-001T00:00:05"), 5.0);
+
+        assertEquals(4, history.size());
+        assertEquals(new Time("2000-001T00:00:05"), history.firstKey());
+        assertEquals(new Time("2000-001T00:00:30"), history.lastKey());
+        assertEquals(31.0, history.get(new Time("2000-001T00:00:30")), 0.0);
+        assertEquals(20.0, history.get(new Time("2000-001T00:00:20")), 0.0);
+        assertNull(history.get(new Time("2000-001T00:00:21")));
+    }
+
+    @Test
+    public void navigation() {
+        LongArrayResourceHistory<Integer> history = LongArrayResourceHistory.forIntegers();
+        for (int i = 1; i <= 100; i++) {
+            history.put(new Time("2000-001T00:00:00").add(Duration.SECOND_DURATION.multiply(2 * i)), i);
+        }
+        Time t = new Time("2000-001T00:00:11");
+        assertEquals(new Time("2000-001T00:00:10"), history.floorKey(t));
+        assertEquals(new Time("2000-001T00:00:12"), history.ceilingKey(t));
+        assertEquals(new Time("2000-001T00:00:08"), history.lowerKey(new Time("2000-001T00:00:10")));
+        assertEquals(new Time("2000-001T00:00:12"), history.higherKey(new Time("2000-001T00:00:10")));
+        assertNull(history.floorKey(new Time("2000-001T00:00:01")));
+        assertNull(history.ceilingKey(new Time("2000-001T01:00:00")));
+        assertTrue(history.containsKey(new Time("2000-001T00:03:20")));
+        assertFalse(history.containsKey(new Time("2000-001T00:03:21")));
+    }
+
+    @Test
+    public void entriesBetween() {
+        LongArrayResourceHistory<Boolean> history = LongArrayResourceHistory.forBooleans();
+        history.put(new Time("2000-001T00:00:01"), true);
+        history.put(new Time("2000-001T00:00:02"), false);
+        history.put(new Time("2000-001T00:00:03"), true);
+        history.put(new Time("2000-001T00:00:04"), null);
+
+        List<Map.Entry<Time, Boolean>> entries = new ArrayList<>(history.entriesBetween(new Time("2000-001T00:00:02"), new Time("2000-001T00:00:04")));
+        assertEquals(3, entries.size());
+        assertEquals(new Time("2000-001T00:00:02"), entries.get(0).getKey());
+        assertEquals(false, entries.get(0).getValue());
+        assertEquals(true, entries.get(1).getValue());
+        assertNull(entries.get(2).getValue());
+
+        assertEquals(4, history.entriesBetween(null, null).size());
+        assertEquals(0, history.entriesBetween(new Time("2000-001T00:00:05"), null).size());
+
+        history.clear();
+        assertTrue(history.isEmpty());
+        assertEquals(0, history.entriesBetween(null, null).size());
+    }
+
+    @Test
+    public void snapshotsDontSeeLaterWrites() {
+        DoubleArrayResourceHistory history = new DoubleArrayResourceHistory();
+        for (int i = 1; i <= 4; i++) {
+            history.put(new Time("2000-001T00:00:00").add(Duration.SECOND_DURATION.multiply(i)), (double) i);
+        }
+        List<Map.Entry<Time, Double>> snapshot = new ArrayList<>();
+        Iterator<Map.Entry<Time, Double>> iterator = history.snapshotBetween(null, null).iterator();
+        snapshot.add(iterator.next());
+
+        // overwriting, truncating and appending all happen in place when nothing shares the arrays
+        history.put(new Time("2000-001T00:00:02"), 20.0);
+        history.truncateFrom(new Time("2000-001T00:00:04"));
+        history.put(new Time("2000-001T00:00:05"), 50.0);
+        iterator.forEachRemaining(snapshot::add);
+
+        assertEquals(4, snapshot.size());
+        assertEquals(2.0, snapshot.get(1).getValue(), 0.0);
+        assertEquals(new Time("2000-001T00:00:04"), snapshot.get(3).getKey());
+        assertEquals(4.0, snapshot.get(3).getValue(), 0.0);
+
+        assertEquals(20.0, history.get(new Time("2000-001T00:00:02")), 0.0);
+        assertNull(history.get(new Time("2000-001T00:00:04")));
+        assertEquals(4, history.size());
+    }
+
+    @Test
+    public void overwritingLastNodeAfterSnapshotDoesntCopy() {
+        DoubleArrayResourceHistory history = new DoubleArrayResourceHistory();
+        Time start = new Time("2000-001T00:00:00");
+        for (int i = 1; i <= 4; i++) {
+            history.put(start.add(Duration.SECOND_DURATION.multiply(i)), (double) i);
+        }
+        long[] tics = history.tics;
+        double[] values = history.values;
+
+        // what modeling does over and over: walk the history up to now, then set a new value at the same time
+        List<Map.Entry<Time, Double>> snapshots = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            Iterator<Map.Entry<Time, Double>> iterator = history.snapshotBetween(null, null).iterator();
+            history.put(new Time("2000-001T00:00:04"), 40.0 + i);
+            ResourceHistory.Cursor<Double> cursor = history.snapshotCursorBetween(null, null);
+            history.put(new Time("2000-001T00:00:04"), 50.0 + i);
+
+            iterator.forEachRemaining(snapshots::add);
+            assertEquals(4, snapshots.size());
+            assertEquals(new Time("2000-001T00:00:04"), snapshots.get(3).getKey());
+            assertEquals(i == 0 ? 4.0 : 49.0 + i, snapshots.get(3).getValue(), 0.0);
+            snapshots.clear();
+            while (cursor.advance()) {
+                snapshots.add(cursor.entry());
+            }
+            assertEquals(40.0 + i, snapshots.get(3).getValue(), 0.0);
+            snapshots.clear();
+        }
+
+        assertSame(tics, history.tics);
+        assertSame(values, history.values);
+        assertEquals(59.0, history.get(new Time("2000-001T00:00:04")), 0.0);
+
+        // the nodes before the last are still shared, so changing one of those does copy
+        Collection<Map.Entry<Time, Double>> snapshot = history.snapshotBetween(null, null);
+        history.put(new Time("2000-001T00:00:03"), 30.0);
+        assertNotSame(tics, history.tics);
+        assertEquals(3.0, new ArrayList<>(snapshot).get(2).getValue(), 0.0);
+        assertEquals(59.0, new ArrayList<>(snapshot).get(3).getValue(), 0.0);
+    }
+
+    @Test
+    public void resourcesUsePrimitiveHistories() {
+        assertTrue(new DoubleResource().resourceHistory instanceof DoubleArrayResourceHistory);
+        assertTrue(new IntegerResource().resourceHistory instanceof LongArrayResourceHistory);
+        assertTrue(new BooleanResource().resourceHistory instanceof LongArrayResourceHistory);
+        assertTrue(new TimeResource().resourceHistory instanceof LongArrayResourceHistory);
+        assertTrue(new StringResource().resourceHistory instanceof TreeMapResourceHistory);
+    }
+}
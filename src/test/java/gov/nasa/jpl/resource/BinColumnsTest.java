@@ -0,0 +1,96 @@
+package gov.nasa.jpl.resource;
+
+import gov.nasa.jpl.time.Duration;
+import gov.nasa.jpl.time.Time;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class BinColumnsTest {
+
+    @Test
+    public void binsShareRows() {
+        BinColumns columns = new BinColumns(3);
+        ResourceHistory<Double> first = columns.doubleColumn(0);
+        ResourceHistory<Integer> second = columns.integerColumn(1);
+        ResourceHistory<Double> third = columns.doubleColumn(2);
+        first.put(new Time("2000-001T00:00:10"), 1.0);
+        second.put(new Time("2000-001T00:00:10"), 10);
+        first.put(new Time("2000-001T00:00:20"), 2.0);
+        second.put(new Time("2000-001T00:00:30"), null);
+        assertEquals(3, columns.rows());
+
+        assertEquals(2, first.size());
+        assertEquals(2, second.size());
+        assertTrue(third.isEmpty());
+        assertEquals(new Time("2000-001T00:00:10"), second.floorKey(new Time("2000-001T00:00:25")));
+        assertEquals(new Time("2000-001T00:00:30"), second.ceilingKey(new Time("2000-001T00:00:11")));
+        assertEquals(new Time("2000-001T00:00:10"), first.lowerKey(new Time("2000-001T00:00:20")));
+        assertEquals(new Time("2000-001T00:00:20"), first.higherKey(new Time("2000-001T00:00:10")));
+        assertNull(first.higherKey(new Time("2000-001T00:00:20")));
+        assertNull(third.floorKey(new Time("2000-001T00:00:30")));
+        assertEquals(10, (int) second.get(new Time("2000-001T00:00:10")));
+        assertNull(second.get(new Time("2000-001T00:00:20")));
+        assertTrue(second.containsKey(new Time("2000-001T00:00:30")));
+        assertNull(second.get(new Time("2000-001T00:00:30")));
+        assertEquals(new Time("2000-001T00:00:20"), first.lastKey());
+        assertEquals(new Time("2000-001T00:00:30"), second.lastKey());
+    }
+
+    @Test
+    public void outOfOrderPutsMoveEveryBin() {
+        BinColumns columns = new BinColumns(2);
+        ResourceHistory<Double> first = columns.doubleColumn(0);
+        ResourceHistory<Double> second = columns.doubleColumn(1);
+        for (int i = 1; i <= 20; i++) {
+            first.put(new Time("2000-001T00:00:00").add(Duration.SECOND_DURATION.multiply(2 * i)), (double) i);
+        }
+        second.put(new Time("2000-001T00:00:10"), 100.0);
+        second.put(new Time("2000-001T00:00:05"), 50.0);
+        first.put(new Time("2000-001T00:00:01"), 0.5);
+        assertEquals(22, columns.rows());
+
+        List<Map.Entry<Time, Double>> entries = new ArrayList<>(first.entriesBetween(null, new Time("2000-001T00:00:06")));
+        assertEquals(4, entries.size());
+        assertEquals(0.5, entries.get(0).getValue(), 0.0);
+        assertEquals(new Time("2000-001T00:00:06"), entries.get(3).getKey());
+        assertEquals(3.0, entries.get(3).getValue(), 0.0);
+        assertEquals(20, (double) first.get(new Time("2000-001T00:00:40")), 0.0);
+
+        entries = new ArrayList<>(second.entriesBetween(null, null));
+        assertEquals(2, entries.size());
+        assertEquals(new Time("2000-001T00:00:05"), entries.get(0).getKey());
+        assertEquals(100.0, entries.get(1).getValue(), 0.0);
+    }
+
+    @Test
+    public void clearingEveryBinEmptiesTheStore() {
+        BinColumns columns = new BinColumns(2);
+        ResourceHistory<Double> first = columns.doubleColumn(0);
+        ResourceHistory<Double> second = columns.doubleColumn(1);
+        first.put(new Time("2000-001T00:00:10"), 1.0);
+        second.put(new Time("2000-001T00:00:20"), 2.0);
+        first.put(new Time("2000-001T00:00:30"), 3.0);
+
+        // a snapshot doesn't see later writes to any bin
+        List<Map.Entry<Time, Double>> snapshot = new ArrayList<>();
+        for (Map.Entry<Time, Double> entry : first.snapshotBetween(null, null)) {
+            first.put(new Time("2000-001T00:00:30"), 4.0);
+            snapshot.add(entry);
+        }
+        assertEquals(3.0, snapshot.get(1).getValue(), 0.0);
+
+        first.truncateFrom(new Time("2000-001T00:00:15"));
+        assertEquals(2, columns.rows());
+        first.clear();
+        assertEquals(2, columns.rows());
+        second.clear();
+        assertEquals(0, columns.rows());
+        assertTrue(first.isEmpty());
+        assertNull(first.floorKey(new Time("2000-001T00:00:30")));
+    }
+}
@@ -97,6 +97,45 @@ public class IntegratingResourceTest extends BaseTest {
         assertEquals(105.0, integratesA.valueAt(new Time("2000-001T00:20:00")), 0.0000001);
     }
 
+    @Test
+    public void rateSegments() {
+        DoubleResource resourceA = new DoubleResource(0.0, "subsystem1");
+        IntegratingResource integratesA = new IntegratingResource(resourceA, Duration.HOUR_DURATION);
+
+        testSetup(resourceA, integratesA);
+        ModelingEngine myEngine = ModelingEngine.getEngine();
+
+        // same profile as the other tests: 0 -> 10 at 00:20 -> 160 at 00:40 -> 140 at 02:00, then flat
+        resourceA.set(30.0);
+        myEngine.setTime(new Time("2000-001T00:20:00"));
+        resourceA.set(450.0);
+        myEngine.setTime(new Time("2000-001T00:40:00"));
+        resourceA.set(-15.0);
+        myEngine.setTime(new Time("2000-001T02:00:00"));
+        resourceA.set(0.0);
+
+        assertEquals(450.0, integratesA.rateAt(new Time("2000-001T00:30:00")), 0.0);
+        assertEquals(0.0, integratesA.rateAt(new Time("2000-001T03:00:00")), 0.0);
+
+        Time start = new Time("2000-001T00:00:00");
+        Time end = new Time("2000-001T05:00:00");
+        // rising through 5 in the first segment, 85 in the second, then falling to 150 in the third
+        assertEquals(new Time("2000-001T00:10:00"), integratesA.nextTimeValueReaches(5.0, start, end));
+        assertEquals(new Time("2000-001T00:30:00"), integratesA.nextTimeValueReaches(85.0, start, end));
+        assertEquals(new Time("2000-001T01:20:00"), integratesA.nextTimeValueReaches(150.0, new Time("2000-001T00:40:00"), end));
+        assertEquals(new Time("2000-001T00:30:00"), integratesA.nextTimeValueReaches(85.0, new Time("2000-001T00:30:00"), end));
+        assertNull(integratesA.nextTimeValueReaches(200.0, start, end));
+        assertNull(integratesA.nextTimeValueReaches(150.0, new Time("2000-001T00:40:00"), new Time("2000-001T01:00:00")));
+
+        // updating the integrator writes its own node and leaves the followed resource alone
+        myEngine.setTime(new Time("2000-001T00:50:00"));
+        int followedNodes = resourceA.resourceHistory.size();
+        integratesA.update();
+        assertEquals(followedNodes, resourceA.resourceHistory.size());
+        assertEquals(157.5, integratesA.valueAt(new Time("2000-001T00:50:00")), 0.0000001);
+        assertEquals(155.0, integratesA.valueAt(new Time("2000-001T01:00:00")), 0.0000001);
+    }
+
     @Test
     public void arrayedIntegratingResource(){
         Time t = Time.getDefaultReferenceTime();
@@ -1,7 +1,9 @@
 package gov.nasa.jpl.resource;
 
 import gov.nasa.jpl.common.BaseTest;
+import gov.nasa.jpl.engine.AdaptationException;
 import gov.nasa.jpl.engine.ModelingEngine;
+import gov.nasa.jpl.scheduler.Window;
 import gov.nasa.jpl.time.Duration;
 import gov.nasa.jpl.time.Time;
 import org.junit.Test;
@@ -179,6 +181,112 @@ public class ResourceTest extends BaseTest {
         assertEquals("A", lexicographic.min(t.add(SECOND_DURATION.multiply(100)), t.add(SECOND_DURATION.multiply(101))).getValue());
     }
 
+    @Test
+    public void rangeAggregates(){
+        ModelingEngine myEngine = ModelingEngine.getEngine();
+        Time start = new Time("2000-001T00:00:00");
+        Random random = new Random(18);
+        DoubleResource doubles = new DoubleResource(2.0, "subsystem1");
+        BooleanResource booleans = new BooleanResource(false, "subsystem1");
+
+        for (int round = 0; round < 4; round++) {
+            // appends, then an insert and an overwrite in the middle, then a truncation, all between queries
+            for (int i = 0; i < 100; i++) {
+                myEngine.setTime(start.add(SECOND_DURATION.multiply(round * 200 + random.nextInt(200))));
+                doubles.set((double) random.nextInt(50));
+                booleans.set(random.nextBoolean());
+            }
+            myEngine.setTime(start.add(SECOND_DURATION.multiply(random.nextInt(round * 200 + 200))));
+            doubles.set(-1.0);
+            if (round == 2) {
+                doubles.truncateHistoryFrom(start.add(SECOND_DURATION.multiply(450)));
+                booleans.truncateHistoryFrom(start.add(SECOND_DURATION.multiply(450)));
+            }
+
+            for (int query = 0; query < 50; query++) {
+                int from = random.nextInt(900) - 50;
+                int to = from + random.nextInt(300);
+                Time queryStart = start.add(SECOND_DURATION.multiply(from));
+                Time queryEnd = start.add(SECOND_DURATION.multiply(to));
+
+                Map.Entry<Time, Double> expectedMin = new AbstractMap.SimpleImmutableEntry<>(queryStart, doubles.valueAt(queryStart));
+                Map.Entry<Time, Double> expectedMax = expectedMin;
+                double expectedIntegral = 0.0;
+                long secondsTrue = 0;
+                for (int t = from; t <= to; t++) {
+                    Time now = start.add(SECOND_DURATION.multiply(t));
+                    Double value = doubles.valueAt(now);
+                    if (t > from && now.equals(doubles.priorTimeSet(now, true))) {
+                        if (value < expectedMin.getValue()) {
+                            expectedMin = new AbstractMap.SimpleImmutableEntry<>(now, value);
+                        }
+                        if (value > expectedMax.getValue()) {
+                            expectedMax = new AbstractMap.SimpleImmutableEntry<>(now, value);
+                        }
+                    }
+                    if (t < to) {
+                        expectedIntegral += value;
+                        secondsTrue += booleans.valueAt(now) ? 1 : 0;
+                    }
+                }
+
+                assertEquals(expectedMin, doubles.min(queryStart, queryEnd));
+                assertEquals(expectedMax, doubles.max(queryStart, queryEnd));
+                assertEquals(expectedIntegral, doubles.integral(queryStart, queryEnd), 1e-6);
+                assertEquals(secondsTrue, booleans.integral(queryStart, queryEnd), 1e-6);
+                assertEquals(SECOND_DURATION.multiply(secondsTrue), booleans.durationWhere(b -> b, queryStart, queryEnd));
+                if (to > from) {
+                    assertEquals(expectedIntegral / (to - from), doubles.timeWeightedMean(queryStart, queryEnd), 1e-6);
+                }
+            }
+        }
+
+        doubles.clearHistory();
+        assertEquals(2.0 * 10, doubles.integral(start, start.add(SECOND_DURATION.multiply(10))), 1e-6);
+        assertEquals(new AbstractMap.SimpleImmutableEntry<>(start, 2.0), doubles.max(start, start.add(SECOND_DURATION.multiply(10))));
+    }
+
+    @Test
+    public void indexedByValue(){
+        ModelingEngine myEngine = ModelingEngine.getEngine();
+        Time start = new Time("2000-001T00:00:00");
+        Random random = new Random(19);
+        String[] modes = {"SAFE", "SCIENCE", "COMM", "IDLE"};
+        StringResource indexed = new StringResource("IDLE", "subsystem1");
+        StringResource walked = new StringResource("IDLE", "subsystem1");
+        indexed.setIndexedByValue(true);
+
+        for (int i = 0; i < 300; i++) {
+            // mostly in order, with some overwrites and insertions
+            int seconds = i < 200 ? i * 3 + random.nextInt(3) : random.nextInt(600);
+            myEngine.setTime(start.add(SECOND_DURATION.multiply(seconds)));
+            String mode = modes[random.nextInt(modes.length)];
+            indexed.set(mode);
+            walked.set(mode);
+            if (i == 250) {
+                indexed.truncateHistoryFrom(start.add(SECOND_DURATION.multiply(500)));
+                walked.truncateHistoryFrom(start.add(SECOND_DURATION.multiply(500)));
+            }
+        }
+        assertTrue(indexed.isIndexedByValue());
+        assertFalse(walked.isIndexedByValue());
+
+        for (int query = 0; query < 200; query++) {
+            String mode = modes[random.nextInt(modes.length)];
+            Time queryTime = start.add(SECOND_DURATION.multiply(random.nextInt(700) - 50));
+            assertEquals(walked.nextTimeResourceSetToValue(mode, queryTime), indexed.nextTimeResourceSetToValue(mode, queryTime));
+            assertEquals(walked.priorTimeResourceSetToValue(mode, queryTime), indexed.priorTimeResourceSetToValue(mode, queryTime));
+
+            Time queryEnd = queryTime.add(SECOND_DURATION.multiply(random.nextInt(200)));
+            assertArrayEquals(Window.getWindows(walked.whenEqualTo(mode), queryTime, queryEnd), indexed.getWindowsWhereEqualTo(mode, queryTime, queryEnd));
+            assertArrayEquals(walked.getWindowsWhereEqualTo(mode, queryTime, queryEnd), Window.getWindows(indexed.whenEqualTo(mode), queryTime, queryEnd));
+        }
+
+        indexed.clearHistory();
+        assertNull(indexed.nextTimeResourceSetToValue("SAFE", start));
+        assertArrayEquals(new Window[]{new Window(start, start.add(MINUTE_DURATION))}, indexed.getWindowsWhereEqualTo("IDLE", start, start.add(MINUTE_DURATION)));
+    }
+
     @Test
     public void testGetSize(){
         Time t = Time.getDefaultReferenceTime();
@@ -369,4 +477,258 @@ public class ResourceTest extends BaseTest {
         assert(somePositionVector.containsIndex("z"));
         assert(!somePositionVector.containsIndex("w"));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void readsDuringWrites() throws InterruptedException {
+        ModelingEngine myEngine = ModelingEngine.getEngine();
+        Time start = new Time("2000-001T00:00:00");
+        myEngine.setTime(start);
+        IntegerResource counter = new IntegerResource(0, "subsystem1", "");
+        counter.set(0);
+        Iterator<Map.Entry<Time, Integer>> before = counter.historyIterator(null, null);
+
+        // readers query times the writer has already passed, so they must always see what was set there
+        int writes = 20000;
+        List<String> errors = Collections.synchronizedList(new ArrayList<>());
+        Thread[] readers = new Thread[4];
+        for (int r = 0; r < readers.length; r++) {
+            readers[r] = new Thread(() -> {
+                Random random = new Random();
+                for (int i = 0; i < writes; i++) {
+                    int last = counter.getSize() - 1;
+                    int query = random.nextInt(last + 1);
+                    Integer value = counter.valueAt(start.add(SECOND_DURATION.multiply(query)));
+                    if (value == null || value != query) {
+                        errors.add("read " + value + " at " + query);
+                    }
+                }
+            });
+            readers[r].start();
+        }
+        for (int i = 1; i < writes; i++) {
+            myEngine.setTime(start.add(SECOND_DURATION.multiply(i)));
+            counter.set(i);
+        }
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        assertEquals(Collections.emptyList(), errors);
+
+        // the iterator taken before the writes still walks the history as it was
+        assertEquals(new Time("2000-001T00:00:00"), before.next().getKey());
+        assertFalse(before.hasNext());
+        assertEquals(writes, counter.getSize());
+    }
+
+    @Test
+    public void arrayedResourceOrdinalsAndBulkSets() {
+        ModelingEngine myEngine = ModelingEngine.getEngine();
+        myEngine.setTime(new Time("2000-001T00:00:00"));
+        ArrayedResource<DoubleResource> somePositionVector = new ArrayedResource<DoubleResource>(vectorComponents){};
+        assertEquals(3, somePositionVector.size());
+        int y = somePositionVector.ordinalOf("y");
+        assertEquals("y", somePositionVector.getEntry(y));
+        assertSame(somePositionVector.get("y"), somePositionVector.get(y));
+
+        somePositionVector.setAll(new double[]{1.0, 2.0, 3.0});
+        myEngine.setTime(new Time("2000-001T00:01:00"));
+        somePositionVector.addAll(new double[]{0.5, 0.0, -3.0});
+        assertEquals(2.0, somePositionVector.get(y).valueAt(new Time("2000-001T00:00:30")), 0.0);
+        assertEquals(1.5, somePositionVector.get("x").currentval(), 0.0);
+        assertEquals(0.0, somePositionVector.get("z").currentval(), 0.0);
+        // bins that didn't change don't get a node
+        assertEquals(1, somePositionVector.get(y).getSize());
+
+        try {
+            somePositionVector.setAll(new double[]{1.0});
+            fail("setAll needs a value for every entry");
+        }
+        catch (AdaptationException e) {
+            // expected
+        }
+        try {
+            somePositionVector.ordinalOf("w");
+            fail("w is not an entry");
+        }
+        catch (IndexOutOfBoundsException e) {
+            // expected
+        }
+
+        ArrayedResource<IntegerResource> counts = new ArrayedResource<IntegerResource>(vectorComponents){};
+        counts.setAll(new double[]{1.0, 2.0, 3.0});
+        myEngine.setTime(new Time("2000-001T00:02:00"));
+        counts.addAll(new double[]{2.0, 0.0, -1.0});
+        assertEquals(3, (int) counts.get("x").currentval());
+        assertEquals(2, (int) counts.get("z").currentval());
+        try {
+            counts.addAll(new double[]{0.0, 0.4, 0.0});
+            fail("IntegerResources can't take a fractional delta");
+        }
+        catch (AdaptationException e) {
+            // expected
+        }
+        try {
+            counts.setAll(new double[]{1.0, 2.5, 3.0});
+            fail("IntegerResources can't take a fractional value");
+        }
+        catch (AdaptationException e) {
+            // expected
+        }
+        // nothing gets written when one of the values is refused
+        assertEquals(3, (int) counts.get("x").currentval());
+        assertEquals(1, counts.get("y").getSize());
+        assertEquals(2, (int) counts.get("y").currentval());
+    }
+
+    @Test
+    public void arrayedResourceBinsInColumns() {
+        ModelingEngine myEngine = ModelingEngine.getEngine();
+        Time start = new Time("2000-001T00:00:00");
+        myEngine.setTime(start);
+        String[] bins = {"a", "b"};
+        ArrayedResource<ArrayedResource<DoubleResource>> columnar = new ArrayedResource<ArrayedResource<DoubleResource>>(vectorComponents, bins){}.storeBinsInColumns();
+        ArrayedResource<ArrayedResource<DoubleResource>> separate = new ArrayedResource<ArrayedResource<DoubleResource>>(vectorComponents, bins){};
+        columnar.setName("Columnar");
+        separate.setName("Separate");
+        assertEquals("Columnar[y][b]", columnar.get("y").get("b").getUniqueName());
+
+        // the same sets to both, so every bin should end up with the same nodes either way
+        for (ArrayedResource<ArrayedResource<DoubleResource>> res : Arrays.asList(columnar, separate)) {
+            myEngine.setTime(start);
+            for (String component : vectorComponents) {
+                res.get(component).setAll(new double[]{1.0, 2.0});
+            }
+            myEngine.setTime(start.add(MINUTE_DURATION));
+            res.get("x").addAll(new double[]{0.5, 0.0});
+            res.get("z").addAll(new double[]{0.0, -2.0});
+            myEngine.setTime(start.add(HOUR_DURATION));
+            res.get("y").get("a").set(7.0);
+        }
+        BinColumns columns = ((BinColumns.Column) columnar.get("x").get("a").resourceHistory).columns();
+        assertEquals(3, columns.rows());
+
+        for (String component : vectorComponents) {
+            for (String bin : bins) {
+                DoubleResource inColumns = columnar.get(component).get(bin);
+                DoubleResource own = separate.get(component).get(bin);
+                assertEquals(new ArrayList<>(own.getChangesDuringWindow(null, null)), new ArrayList<>(inColumns.getChangesDuringWindow(null, null)));
+                assertEquals(own.getSize(), inColumns.getSize());
+                assertEquals(own.valueAt(start.add(SECOND_DURATION)), inColumns.valueAt(start.add(SECOND_DURATION)));
+                assertEquals(own.currentval(), inColumns.currentval());
+                assertEquals(own.lastTimeSet(), inColumns.lastTimeSet());
+                assertEquals(own.nextTimeSet(start, false), inColumns.nextTimeSet(start, false));
+            }
+        }
+        assertEquals(1.5, columnar.get("x").get("a").currentval(), 0.0);
+        assertEquals(0.0, columnar.get("z").get("b").currentval(), 0.0);
+        assertEquals(new Time("2000-001T01:00:00"), columnar.get("y").get("a").lastTimeSet());
+
+        // remodeling from the middle takes the last row away once no bin has a node in it
+        for (String component : vectorComponents) {
+            for (String bin : bins) {
+                columnar.get(component).get(bin).truncateHistoryFrom(start.add(HOUR_DURATION));
+            }
+        }
+        assertEquals(2, columns.rows());
+        assertEquals(1.0, columnar.get("y").get("a").currentval(), 0.0);
+
+        try {
+            columnar.storeBinsInColumns();
+            fail("bins that already have values can't be moved");
+        }
+        catch (AdaptationException e) {
+            // expected
+        }
+        try {
+            new ArrayedResource<StringResource>(vectorComponents){}.storeBinsInColumns();
+            fail("StringResources can't be stored in columns");
+        }
+        catch (AdaptationException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void derivedResource() {
+        ModelingEngine myEngine = ModelingEngine.getEngine();
+        myEngine.setTime(new Time("2000-001T00:00:00"));
+        Resource[] loads = new Resource[40];
+        for (int i = 0; i < loads.length; i++) {
+            loads[i] = new DoubleResource(1.0, "subsystem1");
+        }
+        DerivedDoubleResource totalPower = DerivedDoubleResource.sum(loads);
+        DerivedDoubleResource maxPower = new DerivedDoubleResource(values -> Arrays.stream(values).max().getAsDouble(), loads);
+        assertEquals(40.0, totalPower.currentval(), 0.0);
+
+        ((DoubleResource) loads[3]).set(5.0);
+        myEngine.setTime(new Time("2000-001T00:01:00"));
+        ((DoubleResource) loads[10]).set(2.0);
+        ((DoubleResource) loads[11]).set(1.0);
+        myEngine.setTime(new Time("2000-001T00:02:00"));
+        ((DoubleResource) loads[3]).set(1.0);
+
+        assertEquals(40.0, totalPower.valueAt(new Time("1999-365T00:00:00")), 0.0);
+        assertEquals(44.0, totalPower.valueAt(new Time("2000-001T00:00:30")), 0.0);
+        assertEquals(45.0, totalPower.valueAt(new Time("2000-001T00:01:00")), 0.0);
+        assertEquals(41.0, totalPower.currentval(), 0.0);
+        assertEquals(5.0, maxPower.valueAt(new Time("2000-001T00:01:30")), 0.0);
+        assertEquals(new Time("2000-001T00:02:00"), totalPower.lastTimeSet());
+
+        // the history is built when it is read, with a node wherever an input has one
+        assertEquals(3, totalPower.getSize());
+        assertEquals(new AbstractMap.SimpleImmutableEntry<>(new Time("2000-001T00:01:00"), 45.0), totalPower.max(null, null));
+        ((DoubleResource) loads[0]).set(3.0);
+        assertEquals(3, totalPower.getSize());
+        assertEquals(43.0, totalPower.currentval(), 0.0);
+        assertEquals(new Double(43.0), totalPower.lastValue());
+
+        // once something listens to it, it sets itself whenever an input changes
+        List<Double> heard = new ArrayList<>();
+        totalPower.addChangeListener((DoubleResourceChangeListener) (source, oldTime, oldValue, newTime, newValue) -> heard.add(newValue));
+        myEngine.setTime(new Time("2000-001T00:03:00"));
+        ((DoubleResource) loads[39]).set(0.0);
+        ((DoubleResource) loads[38]).set(1.0);
+        assertEquals(Collections.singletonList(42.0), heard);
+        assertEquals(4, totalPower.getSize());
+        assertEquals(new Double(42.0), totalPower.valueAt(new Time("2000-001T00:03:00")));
+
+        try {
+            totalPower.set(0.0);
+            fail("DerivedResources can't be set");
+        }
+        catch (UnsupportedOperationException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void typedAndEventListeners() {
+        ModelingEngine myEngine = ModelingEngine.getEngine();
+        myEngine.setTime(new Time("2000-001T00:00:00"));
+        DoubleResource resource = new DoubleResource(0.0, "subsystem1");
+
+        List<Double> typedOldValues = new ArrayList<>();
+        List<Double> typedNewValues = new ArrayList<>();
+        resource.addChangeListener((DoubleResourceChangeListener) (source, oldTime, oldValue, newTime, newValue) -> {
+            assertSame(resource, source);
+            typedOldValues.add(oldValue);
+            typedNewValues.add(newValue);
+        });
+        List<Map.Entry<Time, Double>> eventNewValues = new ArrayList<>();
+        resource.addChangeListener(evt -> {
+            assertSame(resource, evt.getSource());
+            eventNewValues.add((Map.Entry<Time, Double>) evt.getNewValue());
+        });
+
+        resource.set(1.5);
+        myEngine.setTime(new Time("2000-001T00:01:00"));
+        resource.set(2.5);
+
+        // the typed listener gets NaN for the value before the first set
+        assertTrue(Double.isNaN(typedOldValues.get(0)));
+        assertEquals(1.5, typedOldValues.get(1), 0.0);
+        assertEquals(Arrays.asList(1.5, 2.5), typedNewValues);
+        assertEquals(new Time("2000-001T00:01:00"), eventNewValues.get(1).getKey());
+        assertEquals(2.5, eventNewValues.get(1).getValue(), 0.0);
+    }
+}
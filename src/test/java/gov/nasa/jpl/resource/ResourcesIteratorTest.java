@@ -0,0 +1,93 @@
+package gov.nasa.jpl.resource;
+
+import gov.nasa.jpl.common.BaseTest;
+import gov.nasa.jpl.engine.ModelingEngine;
+import gov.nasa.jpl.time.Duration;
+import gov.nasa.jpl.time.Time;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class ResourcesIteratorTest extends BaseTest {
+
+    @Test
+    public void mergesInTimeOrderWithTiesInListOrder() {
+        ModelingEngine myEngine = ModelingEngine.getEngine();
+        DoubleResource doubles = new DoubleResource(0.0, "subsystem1");
+        StringResource strings = new StringResource("OFF", "subsystem1");
+        IntegerResource integers = new IntegerResource(0, "subsystem1", "");
+        Time start = new Time("2000-001T00:00:00");
+        for (int i = 0; i < 30; i++) {
+            myEngine.setTime(start.add(Duration.SECOND_DURATION.multiply(i)));
+            if (i % 2 == 0) {
+                doubles.set((double) i);
+            }
+            if (i % 3 == 0) {
+                strings.set("ON" + i);
+            }
+            if (i % 5 == 0) {
+                integers.set(i);
+            }
+        }
+        List<Resource> resources = Arrays.asList(integers, doubles, strings);
+
+        // the expected order is all nodes sorted by time, and by position in the list for nodes at the same time
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            Time t = start.add(Duration.SECOND_DURATION.multiply(i));
+            for (Resource resource : resources) {
+                if (resource.resourceHistory.containsKey(t)) {
+                    expected.add(t + " " + resource.getName() + " " + resource.valueAt(t));
+                }
+            }
+        }
+
+        List<String> fromEntries = new ArrayList<>();
+        ResourcesIterator entryIterator = new ResourcesIterator(resources, null, null);
+        while (entryIterator.hasNext()) {
+            Map.Entry<Time, Comparable> peeked = (Map.Entry<Time, Comparable>) entryIterator.peek().getValue();
+            Map.Entry<Resource, Map.Entry<Time, Comparable>> entry = entryIterator.next();
+            assertEquals(peeked.getKey(), entry.getValue().getKey());
+            fromEntries.add(entry.getValue().getKey() + " " + entry.getKey().getName() + " " + entry.getValue().getValue());
+        }
+        assertNull(entryIterator.peek());
+        assertEquals(expected, fromEntries);
+
+        List<String> fromCursor = new ArrayList<>();
+        ResourcesIterator cursor = new ResourcesIterator(resources, null, null);
+        while (cursor.advance()) {
+            assertSame(resources.get(cursor.currentResourceIndex()), cursor.currentResource());
+            assertEquals(cursor.currentTime().getTics(), cursor.currentTics());
+            assertTrue(cursor.peekTics() >= cursor.currentTics());
+            fromCursor.add(cursor.currentTime() + " " + cursor.currentResource().getName() + " " + cursor.currentValue());
+        }
+        assertEquals(Long.MAX_VALUE, cursor.peekTics());
+        assertEquals(expected, fromCursor);
+    }
+
+    @Test
+    public void emptyAndBoundedRanges() {
+        ModelingEngine myEngine = ModelingEngine.getEngine();
+        DoubleResource doubles = new DoubleResource(0.0, "subsystem1");
+        assertFalse(new ResourcesIterator(new ArrayList<>(), null, null).hasNext());
+
+        Time start = new Time("2000-001T00:00:00");
+        for (int i = 0; i < 10; i++) {
+            myEngine.setTime(start.add(Duration.MINUTE_DURATION.multiply(i)));
+            doubles.set((double) i);
+        }
+        // like historyIterator, the nodes on either side of the bounds are included
+        ResourcesIterator bounded = new ResourcesIterator(Arrays.asList((Resource) doubles),
+                start.add(Duration.SECOND_DURATION.multiply(150)), start.add(Duration.SECOND_DURATION.multiply(270)));
+        List<Double> values = new ArrayList<>();
+        while (bounded.advance()) {
+            values.add((Double) bounded.currentValue());
+        }
+        assertEquals(Arrays.asList(2.0, 3.0, 4.0, 5.0), values);
+    }
+}
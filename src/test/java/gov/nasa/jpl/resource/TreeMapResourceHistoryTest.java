@@ -0,0 +1,93 @@
+package gov.nasa.jpl.resource;
+
+import gov.nasa.jpl.engine.ModelingEngine;
+import gov.nasa.jpl.time.Duration;
+import gov.nasa.jpl.time.Time;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class TreeMapResourceHistoryTest {
+
+    @Test
+    public void snapshotsDontSeeLaterWrites() {
+        TreeMapResourceHistory<String> history = new TreeMapResourceHistory<>();
+        Time start = new Time("2000-001T00:00:00");
+        for (int i = 1; i <= 4; i++) {
+            history.put(start.add(Duration.SECOND_DURATION.multiply(i)), "v" + i);
+        }
+        Iterator<Map.Entry<Time, String>> iterator = history.snapshotBetween(null, null).iterator();
+        List<Map.Entry<Time, String>> snapshot = new ArrayList<>();
+        snapshot.add(iterator.next());
+
+        // overwriting the last node, appending, inserting in the middle and truncating
+        history.put(new Time("2000-001T00:00:04"), "last");
+        history.put(new Time("2000-001T00:00:05"), "v5");
+        history.put(new Time("2000-001T00:00:02.5"), "middle");
+        history.truncateFrom(new Time("2000-001T00:00:03"));
+        history.put(new Time("2000-001T00:00:06"), "v6");
+        iterator.forEachRemaining(snapshot::add);
+
+        assertEquals(4, snapshot.size());
+        assertEquals("v2", snapshot.get(1).getValue());
+        assertEquals(new Time("2000-001T00:00:04"), snapshot.get(3).getKey());
+        assertEquals("v4", snapshot.get(3).getValue());
+
+        List<Map.Entry<Time, String>> now = new ArrayList<>(history.snapshotBetween(null, null));
+        assertEquals(4, now.size());
+        assertEquals("middle", now.get(2).getValue());
+        assertEquals("v6", now.get(3).getValue());
+    }
+
+    @Test
+    public void snapshotsShareNodesWhileAppending() {
+        TreeMapResourceHistory<String> history = new TreeMapResourceHistory<>();
+        Time start = new Time("2000-001T00:00:00");
+        history.put(start, "first");
+        history.snapshotBetween(null, null);
+        Object[] published = history.publishedValues;
+
+        // what modeling does over and over: walk the history up to now, then set a new value now or later
+        for (int i = 1; i <= 5; i++) {
+            Time t = start.add(Duration.SECOND_DURATION.multiply(i));
+            history.put(t, "a" + i);
+            List<Map.Entry<Time, String>> snapshot = new ArrayList<>(history.snapshotBetween(start, t));
+            history.put(t, "b" + i);
+            assertEquals(i + 1, snapshot.size());
+            assertEquals("a" + i, snapshot.get(i).getValue());
+            if (i > 1) {
+                assertEquals("b" + (i - 1), snapshot.get(i - 1).getValue());
+            }
+        }
+        assertSame(published, history.publishedValues);
+
+        List<Map.Entry<Time, String>> between = new ArrayList<>(history.snapshotBetween(new Time("2000-001T00:00:01.5"), new Time("2000-001T00:00:03")));
+        assertEquals(2, between.size());
+        assertEquals("b2", between.get(0).getValue());
+        assertEquals("b3", between.get(1).getValue());
+        assertTrue(history.snapshotBetween(new Time("2000-001T00:00:10"), null).isEmpty());
+    }
+
+    @Test
+    public void historyIteratorDoesntSeeSetsOutsideOfModeling() {
+        StringResource res = new StringResource();
+        Time start = new Time("2000-001T00:00:00");
+        ModelingEngine.getEngine().setTime(start);
+        res.set("a");
+        ModelingEngine.getEngine().setTime(start.add(Duration.MINUTE_DURATION));
+        res.set("b");
+        assertFalse(ModelingEngine.getEngine().isModeling());
+
+        Iterator<Map.Entry<Time, String>> iterator = res.historyIterator(null, null);
+        assertEquals("a", iterator.next().getValue());
+        ModelingEngine.getEngine().setTime(start.add(Duration.HOUR_DURATION));
+        res.set("c");
+        assertEquals("b", iterator.next().getValue());
+        assertFalse(iterator.hasNext());
+    }
+}
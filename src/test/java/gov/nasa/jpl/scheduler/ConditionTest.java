@@ -0,0 +1,78 @@
+package gov.nasa.jpl.scheduler;
+
+import gov.nasa.jpl.common.BaseTest;
+import gov.nasa.jpl.engine.ModelingEngine;
+import gov.nasa.jpl.resource.DoubleResource;
+import gov.nasa.jpl.time.Duration;
+import gov.nasa.jpl.time.Time;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ConditionTest extends BaseTest {
+
+    @Test
+    public void incrementalUpdatesMatchFullEvaluation() {
+        ModelingEngine myEngine = ModelingEngine.getEngine();
+        Time t = new Time("2000-001T00:00:00");
+        myEngine.setTime(t);
+
+        DoubleResource[] resources = new DoubleResource[40];
+        Condition[] greaterThanZero = new Condition[resources.length];
+        for (int i = 0; i < resources.length; i++) {
+            resources[i] = new DoubleResource(0.0, "subsystem1");
+            greaterThanZero[i] = new Condition(resources[i], CompareToValues.GREATERTHAN, 0.0);
+        }
+        Condition anyPositive = Condition.or(greaterThanZero);
+        // shares leaves and a subtree with anyPositive
+        Condition firstFewPositive = Condition.and(greaterThanZero[0], greaterThanZero[1], greaterThanZero[2]);
+        Condition root = Condition.or(
+                Condition.and(anyPositive, Condition.not(firstFewPositive)),
+                Condition.xor(greaterThanZero[3], new Condition(resources[3], CompareToValues.LESSTHAN, 5.0)));
+
+        root.setEvaluatedTo(t);
+        assertEquals(root.evaluate(t), root.isTrue());
+
+        Random random = new Random(3);
+        for (int step = 0; step < 2000; step++) {
+            t = t.add(Duration.SECOND_DURATION);
+            myEngine.setTime(t);
+            DoubleResource changed = resources[random.nextInt(resources.length)];
+            double value = random.nextInt(4) - 1;
+            changed.set(value);
+
+            boolean before = root.isTrue();
+            boolean transitioned = root.update(changed, value);
+            assertEquals(root.evaluate(t), root.isTrue());
+            assertEquals(before != root.isTrue(), transitioned);
+        }
+    }
+
+    @Test
+    public void longDisjunctionOnlyTransitionsOnFirstAndLastTrueLeaf() {
+        ModelingEngine myEngine = ModelingEngine.getEngine();
+        Time t = new Time("2000-001T00:00:00");
+        myEngine.setTime(t);
+
+        DoubleResource[] resources = new DoubleResource[1024];
+        Condition[] leaves = new Condition[resources.length];
+        for (int i = 0; i < leaves.length; i++) {
+            resources[i] = new DoubleResource(0.0, "subsystem1");
+            leaves[i] = new Condition(resources[i], CompareToValues.EQUALTO, 1.0);
+        }
+        Condition anyEqualToOne = Condition.or(leaves);
+        anyEqualToOne.setEvaluatedTo(t);
+        assertFalse(anyEqualToOne.isTrue());
+
+        assertTrue(anyEqualToOne.update(resources[700], 1.0));
+        assertFalse(anyEqualToOne.update(resources[3], 1.0));
+        assertFalse(anyEqualToOne.update(resources[700], 0.0));
+        assertTrue(anyEqualToOne.isTrue());
+        assertTrue(anyEqualToOne.update(resources[3], 0.0));
+        assertFalse(anyEqualToOne.isTrue());
+
+        assertNull(Condition.and(leaves[0]));
+    }
+}
@@ -0,0 +1,101 @@
+package gov.nasa.jpl.scheduler;
+
+import gov.nasa.jpl.time.Duration;
+import gov.nasa.jpl.time.Time;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class WindowSetTest {
+    private static final Time START = new Time("2000-001T00:00:00");
+
+    private static Window window(int startSeconds, int endSeconds) {
+        return new Window(START.add(Duration.SECOND_DURATION.multiply(startSeconds)), START.add(Duration.SECOND_DURATION.multiply(endSeconds)));
+    }
+
+    private static Time seconds(int s) {
+        return START.add(Duration.SECOND_DURATION.multiply(s));
+    }
+
+    @Test
+    public void setAlgebraMatchesWindowArrays() {
+        Window[] one = {window(0, 4), window(8, 12), window(16, 20)};
+        Window[] two = {window(3, 7), window(11, 15), window(17, 18)};
+        Window[] four = {window(0, 26)};
+        WindowSet oneSet = new WindowSet(one);
+        WindowSet twoSet = new WindowSet(two);
+        WindowSet fourSet = new WindowSet(four);
+        WindowSet empty = new WindowSet();
+
+        assertArrayEquals(Window.and(one, two), oneSet.and(twoSet).toWindows());
+        assertArrayEquals(Window.and(two, four), twoSet.and(fourSet).toWindows());
+        assertArrayEquals(new Window[0], oneSet.and(empty).toWindows());
+
+        assertArrayEquals(Window.or(one, two), oneSet.or(twoSet).toWindows());
+        assertArrayEquals(Window.or(two, four), twoSet.or(fourSet).toWindows());
+        assertArrayEquals(one, oneSet.or(empty).toWindows());
+
+        assertArrayEquals(Window.xor(one, two), oneSet.xor(twoSet).toWindows());
+        assertArrayEquals(Window.xor(one, four), oneSet.xor(fourSet).toWindows());
+
+        assertArrayEquals(Window.not(one, seconds(2), seconds(18)), oneSet.not(seconds(2), seconds(18)).toWindows());
+        assertArrayEquals(new Window[]{window(0, 3), window(8, 11), window(16, 17), window(18, 20)}, oneSet.minus(twoSet).toWindows());
+    }
+
+    @Test
+    public void closedWindows() {
+        WindowSet touching = new WindowSet(new Window[]{window(1, 3)});
+        WindowSet after = new WindowSet(new Window[]{window(3, 5)});
+        // windows that only touch intersect in a point, and join into one
+        assertArrayEquals(new Window[]{window(3, 3)}, touching.and(after).toWindows());
+        assertArrayEquals(new Window[]{window(1, 5)}, touching.or(after).toWindows());
+
+        // taking out a point leaves the closed window whole
+        WindowSet point = new WindowSet(new Window[]{window(2, 2)});
+        assertArrayEquals(new Window[]{window(1, 3)}, touching.minus(point).toWindows());
+        assertArrayEquals(new Window[]{window(1, 3), window(7, 7)}, touching.or(new WindowSet(new Window[]{window(7, 7)})).toWindows());
+    }
+
+    @Test
+    public void lookupsInOverlappingWindows() {
+        WindowSet keepouts = new WindowSet();
+        // added out of order, with a long window that covers later short ones
+        keepouts.add(window(10, 12));
+        keepouts.add(window(0, 100));
+        keepouts.add(window(200, 210));
+        keepouts.add(window(150, 160));
+        keepouts.add(window(155, 158));
+        assertEquals(5, keepouts.size());
+        assertEquals(window(0, 100), keepouts.get(0));
+
+        assertTrue(keepouts.contains(seconds(50)));
+        assertTrue(keepouts.contains(seconds(100)));
+        assertFalse(keepouts.contains(seconds(101)));
+        assertTrue(keepouts.contains(seconds(157)));
+        assertFalse(keepouts.contains(seconds(-1)));
+        assertFalse(keepouts.contains(seconds(211)));
+
+        assertEquals(window(0, 100), keepouts.getIntersectingWindow(window(11, 11)));
+        assertEquals(window(150, 160), keepouts.getIntersectingWindow(window(120, 150)));
+        assertNull(keepouts.getIntersectingWindow(window(161, 199)));
+        assertEquals(2, keepouts.getIntersectingWindows(window(157, 170)).size());
+        assertEquals(3, keepouts.getIntersectingWindows(window(5, 11)).size() + keepouts.getIntersectingWindows(window(205, 300)).size());
+        assertEquals(Duration.SECOND_DURATION.multiply(120), keepouts.getTotalDuration());
+    }
+
+    @Test
+    public void mergeDilateErode() {
+        Window[] windows = {window(0, 4), window(6, 10), window(13, 14), window(30, 40)};
+        WindowSet set = new WindowSet(windows);
+        assertArrayEquals(Window.merge(windows, Duration.SECOND_DURATION.multiply(3)), set.merge(Duration.SECOND_DURATION.multiply(3)).toWindows());
+
+        set = new WindowSet(windows).dilate(Duration.SECOND_DURATION);
+        assertArrayEquals(new Window[]{window(-1, 11), window(12, 15), window(29, 41)}, set.toWindows());
+
+        set.erode(Duration.SECOND_DURATION.multiply(2));
+        assertArrayEquals(new Window[]{window(1, 9), window(31, 39)}, set.toWindows());
+
+        set.erode(Duration.SECOND_DURATION.multiply(4));
+        assertArrayEquals(new Window[]{window(5, 5), window(35, 35)}, set.toWindows());
+    }
+}
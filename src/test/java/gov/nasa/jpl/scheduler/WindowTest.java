@@ -8,6 +8,9 @@ import gov.nasa.jpl.time.Duration;
 import gov.nasa.jpl.time.Time;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
 import java.util.TreeSet;
 
 import static org.junit.Assert.*;
@@ -118,6 +121,52 @@ public class WindowTest extends BaseTest {
         assertNull(nullAndCondition2);
     }
 
+    @Test
+    public void getWindowsForManyConditions() {
+        ModelingEngine myEngine = ModelingEngine.getEngine();
+        Time start = new Time("2000-001T00:00:00");
+        Random random = new Random(16);
+
+        DoubleResource[] resources = new DoubleResource[4];
+        for (int i = 0; i < resources.length; i++) {
+            resources[i] = new DoubleResource(0.0, "subsystem1");
+        }
+        for (int step = 1; step <= 300; step++) {
+            myEngine.setTime(start.add(Duration.SECOND_DURATION.multiply(step)));
+            resources[random.nextInt(resources.length)].set((double) random.nextInt(10));
+        }
+
+        List<Condition> conditions = new ArrayList<>();
+        for (DoubleResource resource : resources) {
+            for (double threshold = 0.5; threshold < 10; threshold += 1.0) {
+                conditions.add(resource.whenGreaterThan(threshold));
+            }
+        }
+        int numLeaves = conditions.size();
+        for (int i = 0; i < 20; i++) {
+            Condition one = conditions.get(random.nextInt(numLeaves));
+            Condition two = conditions.get(random.nextInt(numLeaves));
+            conditions.add(Condition.and(one, Condition.not(two)));
+            conditions.add(Condition.xor(one, two));
+        }
+        // the same condition twice gets the same windows twice
+        conditions.add(conditions.get(0));
+
+        Time[][] queries = {
+                {start, start.add(Duration.SECOND_DURATION.multiply(400))},
+                {start.add(Duration.SECOND_DURATION.multiply(37)), start.add(Duration.SECOND_DURATION.multiply(211))},
+                {start.add(Duration.SECOND_DURATION.multiply(50)), start.add(Duration.SECOND_DURATION.multiply(50))}};
+        for (Time[] query : queries) {
+            for (int numChunks : new int[]{1, 3, 7}) {
+                List<Window[]> batch = Window.getWindows(conditions, query[0], query[1], numChunks);
+                assertEquals(conditions.size(), batch.size());
+                for (int c = 0; c < conditions.size(); c++) {
+                    assertArrayEquals(Window.getWindows(conditions.get(c), query[0], query[1]), batch.get(c));
+                }
+            }
+        }
+    }
+
     @Test
     public void interpWindows() {
         ModelingEngine myEngine = ModelingEngine.getEngine();